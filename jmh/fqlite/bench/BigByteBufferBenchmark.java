@@ -0,0 +1,85 @@
+package fqlite.bench;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fqlite.base.BigByteBuffer;
+
+/**
+ * Reads through the memory-mapped windows of BigByteBuffer: page by page
+ * from the start to the end of the file and at random positions (which
+ * causes window evictions on files larger than the window cache).
+ *
+ * Use <code>-Pjmh.args="-p corpus=large"</code> for the 1 GB file.
+ *
+ * @author pawlaszc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+		"--add-opens=java.base/java.nio=ALL-UNNAMED",
+		"--add-opens=java.base/jdk.internal.ref=ALL-UNNAMED",
+		"--add-opens=java.base/sun.nio.ch=ALL-UNNAMED" })
+public class BigByteBufferBenchmark {
+
+	private static final int PAGESIZE = CorpusGenerator.PAGESIZE;
+	private static final int RANDOM_READS = 100_000;
+
+	@Param({ "small" })
+	public String corpus;
+
+	private BigByteBuffer bb;
+	private final byte[] page = new byte[PAGESIZE];
+	private long[] positions;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		bb = new BigByteBuffer(Corpus.file(corpus).getAbsolutePath());
+
+		SplittableRandom rnd = new SplittableRandom(4711);
+		positions = new long[RANDOM_READS];
+		for (int i = 0; i < RANDOM_READS; i++)
+			positions[i] = rnd.nextLong(bb.limit() - 4);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		bb.close();
+	}
+
+	@Benchmark
+	public void sequentialPages(Blackhole bh) {
+		long pages = bb.limit() / PAGESIZE;
+		for (long p = 0; p < pages; p++) {
+			bb.read(p * PAGESIZE, page);
+			bh.consume(page[0]);
+		}
+	}
+
+	@Benchmark
+	public void randomInts(Blackhole bh) {
+		for (long pos : positions)
+			bh.consume(bb.getInt(pos));
+	}
+
+}
@@ -0,0 +1,104 @@
+package fqlite.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fqlite.base.Carver;
+import fqlite.base.Job;
+import fqlite.descriptor.AbstractDescriptor;
+import fqlite.pattern.MMode;
+import fqlite.pattern.SerialTypeMatcher;
+import fqlite.types.CarverTypes;
+
+/**
+ * Carving of deleted records. Runs on leaf pages of the <i>deletes</i>
+ * corpus, where every second row of the message table was deleted.
+ *
+ * @author pawlaszc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+		"--add-opens=java.base/java.nio=ALL-UNNAMED",
+		"--add-opens=java.base/jdk.internal.ref=ALL-UNNAMED",
+		"--add-opens=java.base/sun.nio.ch=ALL-UNNAMED" })
+public class CarverBenchmark {
+
+	/* number of pages carved per invocation */
+	private static final int PAGES = 16;
+
+	private Job job;
+	private AbstractDescriptor td;
+	private final List<ByteBuffer> pages = new ArrayList<>();
+	private final List<Integer> numbers = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		job = Corpus.load("deletes");
+
+		for (int p : Corpus.leafPages(job)) {
+			AbstractDescriptor ad = job.pages[p];
+			if (ad != null && "message".equals(ad.getName())) {
+				td = ad;
+				pages.add(Corpus.page(job, p));
+				numbers.add(p);
+				if (pages.size() == PAGES)
+					break;
+			}
+		}
+		if (pages.isEmpty())
+			throw new IllegalStateException("corpus does not contain the message table");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		job.db.close();
+	}
+
+	@Benchmark
+	public void carve(Blackhole bh) {
+		for (int i = 0; i < pages.size(); i++) {
+			ByteBuffer page = pages.get(i).duplicate();
+			Carver c = new Carver(job, page, new BitSet(job.ps), numbers.get(i));
+			bh.consume(c.carve(0, job.ps, new SerialTypeMatcher(page), CarverTypes.NORMAL, td));
+		}
+	}
+
+	/**
+	 * Only the header search of the carver, without decoding the matches.
+	 */
+	@Benchmark
+	public void serialTypeMatcher(Blackhole bh) {
+		for (ByteBuffer page : pages) {
+			SerialTypeMatcher mat = new SerialTypeMatcher(page.duplicate());
+			mat.setMatchingMode(MMode.NORMAL);
+			mat.setPattern(td.getHpattern());
+			mat.region(0, job.ps);
+			while (mat.find())
+				bh.consume(mat.start());
+		}
+	}
+
+}
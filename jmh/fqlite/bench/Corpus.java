@@ -0,0 +1,87 @@
+package fqlite.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import fqlite.base.BigByteBuffer;
+import fqlite.base.Global;
+import fqlite.base.Job;
+
+/**
+ * Access to the synthetic databases created by {@link CorpusGenerator}.
+ *
+ * The folder is passed in by the <code>jmh</code> Gradle task as system
+ * property <code>fqlite.corpus</code>.
+ *
+ * @author pawlaszc
+ *
+ */
+final class Corpus {
+
+	static final String PROPERTY = "fqlite.corpus";
+
+	private Corpus() {
+	}
+
+	/**
+	 * @param name small, wal, deletes or large
+	 * @return the database file
+	 */
+	static File file(String name) {
+		File f = new File(System.getProperty(PROPERTY, "build/jmh-corpus"), name + ".db");
+		if (!f.exists())
+			throw new IllegalStateException("corpus " + f + " not found - run 'gradlew jmhCorpus' first");
+		return f;
+	}
+
+	/**
+	 * Runs a complete import of the corpus once, so that page size, schema
+	 * and page assignments are known. Rows are thrown away. Afterwards the
+	 * file is opened again, since processDB() closes it at the end.
+	 */
+	static Job load(String name) throws IOException {
+		Global.LOGLEVEL = Level.SEVERE;
+
+		String path = file(name).getAbsolutePath();
+		Job job = new Job();
+		job.sink = row -> {};
+		job.run(path);
+		job.db = new BigByteBuffer(path);
+		return job;
+	}
+
+	/**
+	 * @return all table leaf pages (type 13) of the database, except page 1
+	 */
+	static List<Integer> leafPages(Job job) {
+		List<Integer> leaves = new ArrayList<>();
+		for (int p = 2; p <= job.numberofpages; p++) {
+			if (job.db.getByte((long) (p - 1) * job.ps) == 13)
+				leaves.add(p);
+		}
+		return leaves;
+	}
+
+	/**
+	 * @return the page with the given (1-based) number
+	 */
+	static ByteBuffer page(Job job, int pagenumber) {
+		return job.readDBPageWithOffset((long) (pagenumber - 1) * job.ps, job.ps);
+	}
+
+	/**
+	 * @return the offsets of all cells of a b-tree leaf page
+	 */
+	static int[] cells(ByteBuffer page) {
+		int n = page.getShort(3) & 0xFFFF;
+		int[] cells = new int[n];
+		for (int i = 0; i < n; i++)
+			cells[i] = page.getShort(8 + 2 * i) & 0xFFFF;
+		return cells;
+	}
+
+}
@@ -0,0 +1,219 @@
+package fqlite.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Creates the synthetic SQLite databases the benchmarks run on. Called by
+ * the <code>jmhCorpus</code> Gradle task with the target folder as first
+ * argument and the names of the corpora to build as further arguments.
+ *
+ * <ul>
+ * <li><b>small</b> - a few tables with an index and a BLOB table whose
+ *     values spill onto overflow pages (~30 MB)</li>
+ * <li><b>wal</b> - the same schema, but all changes are still in the WAL
+ *     archive (<code>wal.db-wal</code>) - no checkpoint</li>
+ * <li><b>deletes</b> - half of the rows deleted and one table dropped, so
+ *     there is a lot to carve and a long free list</li>
+ * <li><b>large</b> - about 1 GB of rows</li>
+ * </ul>
+ *
+ * A random generator with a fixed seed is used, so every build produces
+ * the same files. Existing files are not created again.
+ *
+ * @author pawlaszc
+ *
+ */
+public class CorpusGenerator {
+
+	static final int PAGESIZE = 4096;
+
+	private final Random rnd = new Random(4711);
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 2) {
+			System.out.println("usage: CorpusGenerator <folder> small|wal|deletes|large ...");
+			return;
+		}
+
+		File folder = new File(args[0]);
+		folder.mkdirs();
+
+		CorpusGenerator gen = new CorpusGenerator();
+		for (int i = 1; i < args.length; i++) {
+			File db = new File(folder, args[i] + ".db");
+			if (db.exists()) {
+				System.out.println("corpus " + db + " exists - skipped");
+				continue;
+			}
+
+			long begin = System.currentTimeMillis();
+			switch (args[i]) {
+				case "small" -> gen.small(db);
+				case "wal" -> gen.wal(db);
+				case "deletes" -> gen.deletes(db);
+				case "large" -> gen.large(db);
+				default -> throw new IllegalArgumentException("unknown corpus " + args[i]);
+			}
+			System.out.println("corpus " + db + " created in " + (System.currentTimeMillis() - begin) + " ms");
+		}
+	}
+
+	void small(File db) throws SQLException {
+		try (Connection con = open(db, "DELETE")) {
+			schema(con);
+			fill(con, 100_000, 2_000);
+		}
+	}
+
+	/**
+	 * SQLite checkpoints and removes the WAL file when the last connection
+	 * is closed. The files are therefore copied while the connection is
+	 * still open.
+	 */
+	void wal(File db) throws SQLException, IOException {
+		File tmp = new File(db.getParentFile(), "wal-tmp.db");
+		try (Connection con = open(tmp, "WAL")) {
+			try (Statement st = con.createStatement()) {
+				st.execute("PRAGMA wal_autocheckpoint=0");
+			}
+			schema(con);
+			fill(con, 20_000, 200);
+
+			/* many small transactions - every update adds frames to the WAL */
+			try (PreparedStatement ps = con.prepareStatement("UPDATE person SET name = ?, score = ? WHERE id = ?")) {
+				for (int i = 0; i < 5_000; i++) {
+					ps.setString(1, text(8, 24));
+					ps.setDouble(2, rnd.nextDouble() * 1000);
+					ps.setInt(3, 1 + rnd.nextInt(20_000));
+					ps.executeUpdate();
+				}
+			}
+
+			Files.copy(tmp.toPath(), db.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.copy(Path.of(tmp.getPath() + "-wal"), Path.of(db.getPath() + "-wal"), StandardCopyOption.REPLACE_EXISTING);
+		}
+		Files.deleteIfExists(tmp.toPath());
+	}
+
+	void deletes(File db) throws SQLException {
+		try (Connection con = open(db, "DELETE")) {
+			try (Statement st = con.createStatement()) {
+				st.execute("PRAGMA secure_delete=OFF");
+			}
+			schema(con);
+			fill(con, 100_000, 2_000);
+
+			con.setAutoCommit(false);
+			try (Statement st = con.createStatement()) {
+				st.execute("DELETE FROM person WHERE id % 2 = 0");
+				st.execute("DELETE FROM message WHERE random() % 3 = 0");
+				st.execute("DROP TABLE attachment");
+			}
+			con.commit();
+		}
+	}
+
+	void large(File db) throws SQLException {
+		try (Connection con = open(db, "OFF")) {
+			try (Statement st = con.createStatement()) {
+				st.execute("PRAGMA synchronous=OFF");
+			}
+			schema(con);
+			/* ~500 bytes per message row -> about 1 GB */
+			fill(con, 2_000_000, 10_000);
+		}
+	}
+
+	private Connection open(File db, String journalmode) throws SQLException {
+		Connection con = DriverManager.getConnection("jdbc:sqlite:" + db.getAbsolutePath());
+		try (Statement st = con.createStatement()) {
+			st.execute("PRAGMA page_size=" + PAGESIZE);
+			st.execute("PRAGMA journal_mode=" + journalmode);
+		}
+		return con;
+	}
+
+	private void schema(Connection con) throws SQLException {
+		try (Statement st = con.createStatement()) {
+			st.execute("CREATE TABLE person(id INTEGER PRIMARY KEY, name TEXT, email TEXT, born INTEGER, score REAL)");
+			st.execute("CREATE TABLE message(id INTEGER PRIMARY KEY, sender INTEGER, sent INTEGER, body TEXT)");
+			st.execute("CREATE TABLE attachment(id INTEGER PRIMARY KEY, message INTEGER, mime TEXT, data BLOB)");
+			st.execute("CREATE INDEX message_sender ON message(sender)");
+		}
+	}
+
+	/**
+	 * Inserts the given number of messages (plus a fifth as many persons)
+	 * and BLOBs of 8 - 40 KB, i.e. all of them on overflow pages.
+	 */
+	private void fill(Connection con, int messages, int blobs) throws SQLException {
+		con.setAutoCommit(false);
+
+		int persons = Math.max(1, messages / 5);
+		try (PreparedStatement ps = con.prepareStatement("INSERT INTO person(name, email, born, score) VALUES (?,?,?,?)")) {
+			for (int i = 0; i < persons; i++) {
+				ps.setString(1, text(8, 24));
+				ps.setString(2, text(10, 30) + "@example.org");
+				ps.setLong(3, 315532800L + rnd.nextInt(1_000_000_000));
+				ps.setDouble(4, rnd.nextDouble() * 1000);
+				ps.addBatch();
+				if (i % 10_000 == 0)
+					ps.executeBatch();
+			}
+			ps.executeBatch();
+		}
+
+		try (PreparedStatement ps = con.prepareStatement("INSERT INTO message(sender, sent, body) VALUES (?,?,?)")) {
+			for (int i = 0; i < messages; i++) {
+				ps.setInt(1, 1 + rnd.nextInt(persons));
+				ps.setLong(2, 1_500_000_000_000L + rnd.nextInt(Integer.MAX_VALUE));
+				ps.setString(3, text(100, 900));
+				ps.addBatch();
+				if (i % 10_000 == 0) {
+					ps.executeBatch();
+					con.commit();
+				}
+			}
+			ps.executeBatch();
+		}
+
+		try (PreparedStatement ps = con.prepareStatement("INSERT INTO attachment(message, mime, data) VALUES (?,?,?)")) {
+			for (int i = 0; i < blobs; i++) {
+				byte[] data = new byte[8_192 + rnd.nextInt(32_768)];
+				rnd.nextBytes(data);
+				ps.setInt(1, 1 + rnd.nextInt(messages));
+				ps.setString(2, "application/octet-stream");
+				ps.setBytes(3, data);
+				ps.addBatch();
+				if (i % 500 == 0)
+					ps.executeBatch();
+			}
+			ps.executeBatch();
+		}
+
+		con.commit();
+		con.setAutoCommit(true);
+	}
+
+	private String text(int min, int max) {
+		int len = min + rnd.nextInt(max - min + 1);
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			int c = rnd.nextInt(28);
+			sb.append(c < 26 ? (char) ('a' + c) : ' ');
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,183 @@
+package fqlite.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fqlite.base.BigByteBuffer;
+import fqlite.util.Auxiliary;
+
+/**
+ * The part of RecoveryTask.recover() that runs for every page before any
+ * record is decoded: copy of the page, page type, freeblock chain, cell
+ * count and cell pointer array. One operation is one page, so the score
+ * is in pages per second. Record decoding and carving are not part of it.
+ *
+ * <ul>
+ * <li><b>hex</b> - the page is turned into a hex string first and the
+ *     type is taken from it; the header fields are copied into small
+ *     arrays, as recover() did before it read the page buffer directly</li>
+ * <li><b>bytes</b> - the fields are read with absolute gets on the page
+ *     buffer (Auxiliary.getPageType(ByteBuffer, int), readUnsignedShort())</li>
+ * </ul>
+ *
+ * Use <code>-Pjmh.include=PageDispatch -Pjmh.args="-p corpus=large"</code>
+ * for the 1 GB file.
+ *
+ * @author pawlaszc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+		"--add-opens=java.base/java.nio=ALL-UNNAMED",
+		"--add-opens=java.base/jdk.internal.ref=ALL-UNNAMED",
+		"--add-opens=java.base/sun.nio.ch=ALL-UNNAMED" })
+public class PageDispatchBenchmark {
+
+	private static final int PAGESIZE = CorpusGenerator.PAGESIZE;
+
+	@Param({ "deletes" })
+	public String corpus;
+
+	@Param({ "hex", "bytes" })
+	public String variant;
+
+	private BigByteBuffer bb;
+	private int pages;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		bb = new BigByteBuffer(Corpus.file(corpus).getAbsolutePath());
+		pages = (int) (bb.limit() / PAGESIZE);
+		next = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		bb.close();
+	}
+
+	@Benchmark
+	public void page(Blackhole bh) {
+		long offset = (long) next * PAGESIZE;
+		if (++next == pages)
+			next = 0;
+
+		/* the copy Job.readDBPageWithOffset() makes */
+		byte[] copy = new byte[PAGESIZE];
+		bb.read(offset, copy);
+		ByteBuffer buffer = ByteBuffer.wrap(copy);
+
+		if ("hex".equals(variant))
+			hex(buffer, offset, bh);
+		else
+			bytes(buffer, offset, bh);
+	}
+
+	private static void hex(ByteBuffer buffer, long offset, Blackhole bh) {
+		String content = Auxiliary.bytesToHex2(buffer);
+		buffer.position(0);
+		int type = Auxiliary.getPageType(content);
+		if (offset == 0)
+			type = Auxiliary.getPageType(content);
+		bh.consume(content);
+
+		if (type == 0) {
+			buffer.position(0);
+			bh.consume(buffer.getInt());
+			return;
+		}
+		if (type != 5 && type != 8)
+			return;
+
+		int fbstart = 0;
+		if (type == 8) {
+			byte[] fboffset = new byte[2];
+			buffer.position(1);
+			buffer.get(fboffset);
+			fbstart = toInt(ByteBuffer.wrap(fboffset));
+		}
+
+		byte[] cpn = new byte[2];
+		buffer.position(3);
+		buffer.get(cpn);
+		byte[] ccr = new byte[2];
+		buffer.position(5);
+		buffer.get(ccr);
+		int cp = toInt(ByteBuffer.wrap(cpn));
+
+		for (int guard = 0; fbstart > 0 && fbstart + 4 <= PAGESIZE && guard < 64; guard++) {
+			buffer.position(fbstart);
+			int nextblock = toInt(buffer);
+			bh.consume(toInt(buffer));
+			if (nextblock <= fbstart)
+				break;
+			fbstart = nextblock;
+		}
+
+		for (int i = 0; i < cp; i++) {
+			byte[] pointer = new byte[2];
+			buffer.position((type == 5 ? 12 : 8) + 2 * i);
+			buffer.get(pointer);
+			int celloff = toInt(ByteBuffer.wrap(pointer));
+			if (celloff < PAGESIZE)
+				bh.consume(buffer.get(celloff));
+		}
+	}
+
+	private static void bytes(ByteBuffer buffer, long offset, Blackhole bh) {
+		buffer.position(0);
+		int type = Auxiliary.getPageType(buffer, 0);
+
+		if (type == 0) {
+			bh.consume(buffer.getInt(0));
+			return;
+		}
+		if (type != 5 && type != 8)
+			return;
+
+		int fbstart = type == 8 ? Auxiliary.readUnsignedShort(buffer, 1) : 0;
+		int cp = Auxiliary.readUnsignedShort(buffer, 3);
+
+		for (int guard = 0; fbstart > 0 && fbstart + 4 <= PAGESIZE && guard < 64; guard++) {
+			int nextblock = Auxiliary.readUnsignedShort(buffer, fbstart);
+			bh.consume(Auxiliary.readUnsignedShort(buffer, fbstart + 2));
+			if (nextblock <= fbstart)
+				break;
+			fbstart = nextblock;
+		}
+
+		for (int i = 0; i < cp; i++) {
+			int celloff = Auxiliary.readUnsignedShort(buffer, (type == 5 ? 12 : 8) + 2 * i);
+			if (celloff < PAGESIZE)
+				bh.consume(buffer.get(celloff));
+		}
+	}
+
+	/* the former Auxiliary.twoByteBufferToInt(), with its temporary array */
+	private static int toInt(ByteBuffer b) {
+		byte[] ret = new byte[] { 0, 0, b.get(), b.get() };
+		return ByteBuffer.wrap(ret).getInt();
+	}
+
+}
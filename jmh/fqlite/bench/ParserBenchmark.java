@@ -0,0 +1,161 @@
+package fqlite.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fqlite.base.Global;
+import fqlite.base.Job;
+import fqlite.descriptor.AbstractDescriptor;
+import fqlite.util.Auxiliary;
+
+/**
+ * The record parser: varint decoding, a complete leaf page with
+ * Auxiliary.readRecord() and the assembly of overflow chains.
+ *
+ * @author pawlaszc
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+		"--add-opens=java.base/java.nio=ALL-UNNAMED",
+		"--add-opens=java.base/jdk.internal.ref=ALL-UNNAMED",
+		"--add-opens=java.base/sun.nio.ch=ALL-UNNAMED" })
+public class ParserBenchmark {
+
+	private Job job;
+	private Auxiliary aux;
+
+	/* a few thousand varints of 1 - 9 bytes */
+	private ByteBuffer varints;
+
+	/* a leaf page of the message table */
+	private ByteBuffer leaf;
+	private int leafnumber;
+	private int[] cells;
+
+	/* first overflow page of a BLOB, 0-based as readOverflow() expects it */
+	private int overflow;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		job = Corpus.load("small");
+		aux = new Auxiliary(job);
+
+		varints = ByteBuffer.allocate(64 * 1024);
+		long v = 1;
+		while (varints.remaining() >= 9) {
+			putVarint(varints, v);
+			v = (v * 31 + 7) & 0x7FFFFFFFL;
+		}
+		varints.flip();
+
+		for (int p : Corpus.leafPages(job)) {
+			AbstractDescriptor td = job.pages[p];
+			if (td == null)
+				continue;
+			if (leaf == null && "message".equals(td.getName())) {
+				leafnumber = p;
+				leaf = Corpus.page(job, p);
+				cells = Corpus.cells(leaf);
+			}
+			if (overflow == 0 && "attachment".equals(td.getName()))
+				overflow = firstOverflowPage(Corpus.page(job, p)) - 1;
+		}
+		if (leaf == null || overflow <= 0)
+			throw new IllegalStateException("corpus does not contain the expected tables");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		job.db.close();
+	}
+
+	@Benchmark
+	public void readUnsignedVarInt(Blackhole bh) {
+		varints.rewind();
+		while (varints.remaining() >= 9)
+			bh.consume(Auxiliary.readUnsignedVarInt(varints));
+	}
+
+	@Benchmark
+	public void readRecord(Blackhole bh) throws IOException {
+		for (int cell : cells)
+			bh.consume(aux.readRecord(cell, leaf, leafnumber, null, Integer.MAX_VALUE, false, Global.REGULAR_DB_FILE, -1, null));
+	}
+
+	@Benchmark
+	public byte[] readOverflow() {
+		return Auxiliary.readOverflow(job, overflow);
+	}
+
+	/**
+	 * Returns the overflow page number stored in the first cell of a leaf
+	 * page. The size of the local part follows the rules of the SQLite file
+	 * format (section 1.6, "B-tree Pages").
+	 */
+	private int firstOverflowPage(ByteBuffer page) {
+		int usable = job.ps;
+		int cell = Corpus.cells(page)[0];
+
+		page.position(cell);
+		long payload = getVarint(page);
+		getVarint(page); // rowid
+
+		int maxlocal = usable - 35;
+		int minlocal = ((usable - 12) * 32 / 255) - 23;
+		if (payload <= maxlocal)
+			return 0;
+
+		int local = (int) (minlocal + ((payload - minlocal) % (usable - 4)));
+		if (local > maxlocal)
+			local = minlocal;
+		return page.getInt(page.position() + local);
+	}
+
+	private static long getVarint(ByteBuffer b) {
+		long v = 0;
+		for (int i = 0; i < 9; i++) {
+			int c = b.get() & 0xFF;
+			if (i == 8)
+				return (v << 8) | c;
+			v = (v << 7) | (c & 0x7F);
+			if (c < 0x80)
+				break;
+		}
+		return v;
+	}
+
+	private static void putVarint(ByteBuffer b, long v) {
+		List<Byte> out = new ArrayList<>();
+		out.add((byte) (v & 0x7F));
+		v >>>= 7;
+		while (v != 0) {
+			out.add(0, (byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		for (byte c : out)
+			b.put(c);
+	}
+
+}
@@ -0,0 +1,81 @@
+package fqlite.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fqlite.base.Global;
+import fqlite.base.Job;
+import fqlite.base.WALReader;
+
+/**
+ * A complete import, end to end: header, schema, B-tree walk, scan of all
+ * pages, free list and carving - plus the WAL archive for the <i>wal</i>
+ * corpus. Each invocation is one cold import with a fresh Job, measured
+ * as single shot.
+ *
+ * Rows go to a sink that drops them, so the numbers show the recovery
+ * engine and not the growth of the result lists.
+ *
+ * @author pawlaszc
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {
+		"--add-opens=java.base/java.nio=ALL-UNNAMED",
+		"--add-opens=java.base/jdk.internal.ref=ALL-UNNAMED",
+		"--add-opens=java.base/sun.nio.ch=ALL-UNNAMED" })
+public class ProcessDBBenchmark {
+
+	@Param({ "small", "wal", "deletes" })
+	public String corpus;
+
+	private String path;
+
+	@Setup
+	public void setup() {
+		Global.LOGLEVEL = Level.SEVERE;
+		/* every iteration has to analyse the database */
+		Global.SCAN_CACHE = false;
+		path = Corpus.file(corpus).getAbsolutePath();
+	}
+
+	@Benchmark
+	public int processDB() throws IOException {
+		Job job = new Job();
+		job.sink = row -> {};
+
+		String walpath = path + "-wal";
+		if (new File(walpath).exists()) {
+			job.readWAL = true;
+			job.walpath = walpath;
+		}
+
+		int hash = job.run(path);
+
+		if (job.readWAL) {
+			WALReader wal = new WALReader(walpath, job);
+			wal.sink = row -> {};
+			wal.parse();
+		}
+		return hash;
+	}
+
+}
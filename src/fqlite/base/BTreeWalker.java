@@ -0,0 +1,297 @@
+package fqlite.base;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import fqlite.descriptor.AbstractDescriptor;
+import fqlite.log.AppLog;
+
+/**
+*  Parallel walk over the B-trees of all tables and indices.
+*
+*  Every page that can be reached from the root page of a table (or index)
+*  belongs to it. The walk marks these pages in <code>Job.pages[]</code>,
+*  so that the scan later knows which schema to use for a leaf page.
+*
+*  This used to be a recursive method that visited one tree after the other
+*  on a single thread. Now every root and every child of an interior page
+*  is a task of its own. The tasks are CountedCompleters: a task forks its
+*  children and returns, nobody blocks in join(). The Java stack does not
+*  grow with the depth of the tree, so even a manipulated database with a
+*  very deep tree cannot cause a StackOverflowError.
+*
+*  Pages are read with the positional (lock-free) API of BigByteBuffer;
+*  interior pages are no longer copied.
+*
+*  If two trees claim the same page (this only happens with corrupted or
+*  manipulated files), the tree that comes later in the list of roots wins -
+*  exactly as with the old sequential walk.
+*
+*  A leaf page is handed to the scan while the walk is still running, but
+*  only once its owner is final: when every tree that comes later in the
+*  list of roots has completed. Until then the leaf waits in a queue of the
+*  tree that reached it. Leaves of the last tree go out right away.
+*/
+final class BTreeWalker extends CountedCompleter<Void> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(AbstractDescriptor[].class);
+
+	/**
+	 * Root page of a table or index tree.
+	 */
+	record Root(int page, AbstractDescriptor td) {}
+
+	/* state shared by all tasks of one walk */
+	private static final class Walk {
+		final AbstractDescriptor[] pages;
+		final BigByteBuffer file;
+		final int ps;
+		final int numberofpages;
+		final List<Root> roots;
+		final Map<AbstractDescriptor, Integer> ranks;
+		final IntConsumer onLeaf;
+
+		/* root index -> the walk of this tree has completed */
+		final boolean[] done;
+
+		/* rank -> leaf pages that wait until no later tree can take them over */
+		final List<Queue<Integer>> waiting;
+
+		/* the trees from this root index on have all completed */
+		volatile int settled;
+
+		Walk(Job job, BigByteBuffer file, List<Root> roots, Map<AbstractDescriptor, Integer> ranks, IntConsumer onLeaf) {
+			this.pages = job.pages;
+			this.file = file;
+			this.ps = job.ps;
+			this.numberofpages = job.numberofpages;
+			this.roots = roots;
+			this.ranks = ranks;
+			this.onLeaf = onLeaf;
+			this.done = new boolean[roots.size()];
+			this.waiting = new ArrayList<>(roots.size());
+			for (int i = 0; i < roots.size(); i++)
+				waiting.add(new ConcurrentLinkedQueue<>());
+			this.settled = roots.size();
+		}
+
+		/**
+		 * A tree of the given rank reached a leaf page. The page goes to the
+		 * scan as soon as no later tree can take it over any more.
+		 */
+		void leaf(int page, int rank) {
+			if (onLeaf == null || page > numberofpages)
+				return;
+			waiting.get(rank).add(page);
+			/* queued first, checked second - see finished() */
+			if (rank >= settled - 1)
+				release(rank);
+		}
+
+		/**
+		 * The walk of the tree with this root index has completed.
+		 */
+		synchronized void finished(int index) {
+			done[index] = true;
+			int before = settled;
+			while (settled > 0 && done[settled - 1])
+				settled--;
+			/* leaves of these ranks are final now */
+			for (int r = Math.max(settled - 1, 0); r < before - 1; r++)
+				release(r);
+		}
+
+		/**
+		 * Hands over the waiting leaves of a rank that still belong to it.
+		 * A leaf that a later tree took over is handed over by that tree.
+		 */
+		private void release(int rank) {
+			AbstractDescriptor td = roots.get(rank).td();
+			Integer p;
+			while ((p = waiting.get(rank).poll()) != null) {
+				if (PAGES.getVolatile(pages, (int) p) == td)
+					onLeaf.accept(p);
+			}
+		}
+	}
+
+	private final Walk walk;
+	private final List<Root> roots;
+	private final int page;
+	private final AbstractDescriptor td;
+	private final int rank;
+	private final Set<Integer> visited;
+
+	/* index in the list of roots, if this task walks a root page; -1 otherwise */
+	private final int index;
+
+	/* the top-level task - forks one walker per root */
+	private BTreeWalker(Walk walk, List<Root> roots) {
+		super(null);
+		this.walk = walk;
+		this.roots = roots;
+		this.page = -1;
+		this.td = null;
+		this.rank = -1;
+		this.visited = null;
+		this.index = -1;
+	}
+
+	private BTreeWalker(BTreeWalker parent, int page, AbstractDescriptor td, int rank, Set<Integer> visited, int index) {
+		super(parent);
+		this.walk = parent.walk;
+		this.roots = null;
+		this.page = page;
+		this.td = td;
+		this.rank = rank;
+		this.visited = visited;
+		this.index = index;
+	}
+
+	/**
+	 * Walks all trees and returns when every reachable page is assigned.
+	 *
+	 * @param job the job whose <code>pages[]</code> are filled
+	 * @param pool the pool to run in
+	 * @param file the database file
+	 * @param roots the root pages in the order of precedence (last one wins)
+	 * @param onLeaf called for every leaf page once its owner is final, may be null
+	 */
+	static void walk(Job job, ForkJoinPool pool, BigByteBuffer file, List<Root> roots, IntConsumer onLeaf) {
+		Map<AbstractDescriptor, Integer> ranks = new IdentityHashMap<>();
+		for (int i = 0; i < roots.size(); i++)
+			ranks.put(roots.get(i).td(), i);
+
+		pool.invoke(new BTreeWalker(new Walk(job, file, roots, ranks, onLeaf), roots));
+	}
+
+	@Override
+	public void compute() {
+
+		if (roots != null) {
+			/* each tree has a visited set of its own - just like before */
+			for (int i = 0; i < roots.size(); i++) {
+				Root r = roots.get(i);
+				addToPendingCount(1);
+				new BTreeWalker(this, r.page(), r.td(), walk.ranks.get(r.td()), ConcurrentHashMap.newKeySet(), i).fork();
+			}
+			tryComplete();
+			return;
+		}
+
+		try {
+			explore();
+		}
+		catch (RuntimeException err) {
+			if (AppLog.isDebugEnabled()) AppLog.debug("BTreeWalker: could not read page " + page + ": " + err);
+		}
+		tryComplete();
+	}
+
+	@Override
+	public void onCompletion(CountedCompleter<?> caller) {
+		/* called once the whole tree below this root is done */
+		if (index >= 0)
+			walk.finished(index);
+	}
+
+	private void explore() {
+
+		if (!visited.add(page)) {
+			if (AppLog.isDebugEnabled()) AppLog.debug("BTreeWalker: cycle detected at page " + page + " — stopping.");
+			return;
+		}
+
+		if (page < 0 || page >= walk.pages.length)
+			return;
+		claim();
+
+		// pagesize * (rootindex - 1) -> go to the start of this page
+		long offset = (long) walk.ps * (page - 1);
+		if (offset <= 0 || offset >= walk.file.limit())
+			return;
+
+		byte typ = walk.file.getByte(offset);
+
+		/* index interior page (2) or table interior page (5) */
+		if (typ == 2 || typ == 5) {
+
+			if (AppLog.isDebugEnabled()) AppLog.debug("page number " + page + " is an interior page ");
+
+			/* the right-most child pointer is part of the page header */
+			child(walk.file.getInt(offset + 8));
+
+			int pagebytes = (int) Math.min(walk.ps, walk.file.limit() - offset);
+			int e = readUnsignedShort(offset + 3);
+
+			/* go on with the cell pointer array */
+			for (int i = 0; i < e; i++) {
+
+				int pointer = 12 + 2 * i;
+				if (pagebytes <= pointer + 2)
+					continue;
+
+				int celloff = readUnsignedShort(offset + pointer);
+				if (celloff + 4 > pagebytes || celloff > walk.ps)
+					continue;
+
+				// every cell of an interior page starts with the page number of a child
+				child(walk.file.getInt(offset + celloff));
+			}
+		}
+		else if (typ == 8 || typ == 10 || typ == 13) {
+			if (AppLog.isDebugEnabled()) AppLog.debug("page number " + page + " is a leaf page " + " set component/index to " + td.getName());
+			walk.leaf(page, rank);
+		}
+		else {
+			if (AppLog.isDebugEnabled()) AppLog.debug("Page" + page + " is neither a leaf page nor a internal page. Try to set component to " + td.getName());
+		}
+	}
+
+	/**
+	 * Forks a task for the child page. The walk of this page is complete
+	 * only after all children have completed.
+	 */
+	private void child(int p) {
+		if (AppLog.isDebugEnabled()) AppLog.debug(" child page " + p);
+		addToPendingCount(1);
+		new BTreeWalker(this, p, td, rank, visited, -1).fork();
+	}
+
+	/**
+	 * Assigns the page to this tree unless a tree with higher precedence
+	 * already did.
+	 */
+	private void claim() {
+		for (;;) {
+			AbstractDescriptor cur = (AbstractDescriptor) PAGES.getVolatile(walk.pages, page);
+			if (cur == td)
+				return;
+			if (cur != null && walk.ranks.getOrDefault(cur, -1) > rank) {
+				if (AppLog.isDebugEnabled()) AppLog.debug("Page " + page + " has already a B+Tree assignment with table " + cur.getName()
+						+ " — attempted re-assignment to " + td.getName());
+				return;
+			}
+			if (PAGES.compareAndSet(walk.pages, page, cur, td))
+				return;
+		}
+	}
+
+	private int readUnsignedShort(long at) {
+		return ((walk.file.getByte(at) & 0xFF) << 8) | (walk.file.getByte(at + 1) & 0xFF);
+	}
+
+}
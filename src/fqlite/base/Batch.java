@@ -0,0 +1,353 @@
+package fqlite.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import fqlite.export.JsonLinesRecordSink;
+import fqlite.export.RecordSink;
+import fqlite.log.AppLog;
+
+/// Batch mode of the command line interface: analyses many databases in one
+/// JVM.
+///
+/// A phone extraction easily contains hundreds of SQLite files. Instead of
+/// one JVM per file, all databases of a folder (or of a manifest file with
+/// one path per line) are processed here side by side:
+///
+/// - every database is one `Job`, at most `jobs` of them run at the same
+///   time
+/// - all jobs share one ForkJoinPool for the page scan, so the number of
+///   worker threads does not grow with the number of jobs
+/// - a job is only started if its share of the memory budget is free; the
+///   share is estimated from the size of the database and its companion
+///   files
+/// - the companion files (`<db>-wal`, `<db>-journal`) are found
+///   automatically
+/// - the rows are streamed into a folder per database below the output
+///   folder, nothing is kept in memory; the folder also gets the
+///   `metrics.json` of the job
+///
+/// With `--progress:json` each state change is printed as one JSON object
+/// per line on standard output, e.g.
+///
+/// `{"event":"done","id":3,"db":"/data/msgstore.db","rows":48211,"ms":812}`
+///
+/// @author D. Pawlaszczyk
+public class Batch {
+
+	/* first 16 bytes of every SQLite database */
+	private static final byte[] MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+	/* heap a job needs at least, independent of the file size */
+	private static final long MIN_SHARE_MB = 64;
+
+	/// One database together with its companion files.
+	record Entry(int id, Path db, Path wal, Path journal, String name) {
+
+		long bytes() {
+			return size(db) + size(wal) + size(journal);
+		}
+
+		private static long size(Path p) {
+			try {
+				return p == null ? 0 : Files.size(p);
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+	}
+
+	private final Path source;
+	private final String format;
+	private final File outfolder;
+	private final int jobs;
+	private final int budgetmb;
+	private final boolean json;
+
+	private final PrintStream out;
+
+	/**
+	 * Constructor.
+	 * @param source folder to search or manifest file
+	 * @param format export format (csv, jsonl, sqlite)
+	 * @param outfolder results go below this folder
+	 * @param jobs number of databases analysed at the same time
+	 * @param budgetmb memory budget for all running jobs in MB, 0 = 3/4 of the max. heap
+	 * @param json print progress as JSON lines
+	 * @param out progress output
+	 */
+	public Batch(String source, String format, String outfolder, int jobs, int budgetmb, boolean json, PrintStream out) {
+		this.source = Path.of(source);
+		this.format = format;
+		this.outfolder = new File(outfolder);
+		this.jobs = Math.max(1, jobs);
+		this.budgetmb = budgetmb > 0 ? budgetmb : (int) Math.max(MIN_SHARE_MB, Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4);
+		this.json = json;
+		this.out = out;
+	}
+
+	/**
+	 * Runs all databases and waits until the last one is done.
+	 *
+	 * @return number of databases that could not be analysed
+	 * @throws IOException if the source cannot be read
+	 */
+	public int run() throws IOException {
+
+		long start = System.currentTimeMillis();
+		List<Entry> entries = discover();
+
+		event("batch", "\"databases\":" + entries.size() + ",\"jobs\":" + jobs + ",\"budget_mb\":" + budgetmb
+				+ ",\"threads\":" + Global.numberofThreads,
+				"found " + entries.size() + " database(s), " + jobs + " parallel job(s), memory budget " + budgetmb + " MB");
+
+		ForkJoinPool shared = new ForkJoinPool(Math.max(1, Global.numberofThreads));
+		ExecutorService runner = Executors.newFixedThreadPool(jobs);
+		Semaphore budget = new Semaphore(budgetmb);
+
+		AtomicInteger ok = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		AtomicLong rows = new AtomicLong();
+
+		try {
+			for (Entry e : entries) {
+
+				/* wait here (in order) until the job fits into the budget */
+				int share = share(e);
+				budget.acquireUninterruptibly(share);
+
+				runner.execute(() -> {
+					try {
+						long n = analyse(e, shared);
+						rows.addAndGet(n);
+						ok.incrementAndGet();
+					} catch (Throwable err) {
+						failed.incrementAndGet();
+						AppLog.error("Batch: " + e.db() + " failed: " + err);
+						event("failed", "\"id\":" + e.id() + ",\"db\":" + quote(e.db()) + ",\"error\":" + quote(String.valueOf(err)),
+								"[" + e.id() + "] FAILED " + e.db() + ": " + err);
+					} finally {
+						budget.release(share);
+					}
+				});
+			}
+		} finally {
+			runner.shutdown();
+			try {
+				runner.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			} catch (InterruptedException err) {
+				Thread.currentThread().interrupt();
+			}
+			shared.shutdown();
+		}
+
+		long ms = System.currentTimeMillis() - start;
+		event("finished", "\"ok\":" + ok.get() + ",\"failed\":" + failed.get() + ",\"rows\":" + rows.get() + ",\"ms\":" + ms,
+				"finished: " + ok.get() + " ok, " + failed.get() + " failed, " + rows.get() + " rows, " + ms + " ms");
+		return failed.get();
+	}
+
+	/**
+	 * Analyses one database and its companion files.
+	 *
+	 * @return number of rows written
+	 */
+	private long analyse(Entry e, ForkJoinPool shared) throws Exception {
+
+		long start = System.currentTimeMillis();
+		event("start", "\"id\":" + e.id() + ",\"db\":" + quote(e.db()) + ",\"wal\":" + quote(e.wal()) + ",\"journal\":"
+				+ quote(e.journal()) + ",\"bytes\":" + e.bytes(), "[" + e.id() + "] start " + e.db());
+
+		File folder = new File(outfolder, e.name());
+		Files.createDirectories(folder.toPath());
+		String dbname = e.db().getFileName().toString();
+		LongAdder rows = new LongAdder();
+
+		Job job = new Job();
+		job.sharedpool = shared;
+		job.path = e.db().toString();
+		if (e.wal() != null) {
+			job.readWAL = true;
+			job.walpath = e.wal().toString();
+		}
+		if (e.journal() != null) {
+			job.readRollbackJournal = true;
+			job.rollbackjournalpath = e.journal().toString();
+		}
+
+		job.sink = sink(folder, dbname, "", rows);
+		try {
+			job.processDB();
+		} finally {
+			job.sink.close();
+		}
+
+		if (job.readWAL) {
+			WALReader wal = new WALReader(job.walpath, job);
+			wal.sink = sink(folder, dbname, "-wal", rows);
+			try {
+				wal.parse();
+			} finally {
+				wal.sink.close();
+			}
+		}
+		if (job.readRollbackJournal) {
+			RollbackJournalReader rol = new RollbackJournalReader(job.rollbackjournalpath, job);
+			rol.ps = job.ps;
+			rol.sink = sink(folder, dbname, "-journal", rows);
+			try {
+				rol.parse();
+			} finally {
+				rol.sink.close();
+			}
+		}
+
+		/* where did the time go? */
+		Files.writeString(new File(folder, "metrics.json").toPath(), job.metrics.toJson(), StandardCharsets.UTF_8);
+
+		long ms = System.currentTimeMillis() - start;
+		event("done", "\"id\":" + e.id() + ",\"db\":" + quote(e.db()) + ",\"rows\":" + rows.sum() + ",\"ms\":" + ms,
+				"[" + e.id() + "] done " + e.db() + " - " + rows.sum() + " rows, " + ms + " ms");
+		return rows.sum();
+	}
+
+	/**
+	 * Opens the output of one file and counts the rows that pass.
+	 */
+	private RecordSink sink(File folder, String dbname, String suffix, LongAdder rows) throws IOException {
+		RecordSink target = RecordSink.create(format, new File(folder, dbname + suffix + RecordSink.suffix(format)));
+		return new RecordSink() {
+
+			@Override
+			public void accept(DataRow row) {
+				rows.increment();
+				target.accept(row);
+			}
+
+			@Override
+			public void close() throws IOException {
+				target.close();
+			}
+		};
+	}
+
+	/**
+	 * Part of the memory budget (in MB) a job reserves: a fixed minimum plus
+	 * the size of its files. The buffers of a job grow with the number of
+	 * pages, so the file size is a rough measure. A file larger than the
+	 * whole budget gets the whole budget, i.e. it runs alone.
+	 */
+	private int share(Entry e) {
+		long mb = MIN_SHARE_MB + e.bytes() / (1024 * 1024);
+		return (int) Math.min(mb, budgetmb);
+	}
+
+	/**
+	 * Collects the databases: all SQLite files below a folder, or the paths
+	 * listed in a manifest (one per line, lines starting with # are ignored).
+	 */
+	List<Entry> discover() throws IOException {
+
+		List<Path> dbs = new ArrayList<>();
+		if (Files.isDirectory(source)) {
+			try (Stream<Path> files = Files.walk(source)) {
+				files.filter(Files::isRegularFile)
+					 .filter(p -> !isCompanion(p))
+					 .filter(Batch::isSQLite)
+					 .sorted()
+					 .forEach(dbs::add);
+			}
+		} else {
+			for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+				line = line.strip();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				Path p = source.toAbsolutePath().getParent().resolve(line).normalize();
+				if (!Files.isRegularFile(p)) {
+					AppLog.error("Batch: " + p + " not found - skipped");
+					continue;
+				}
+				dbs.add(p);
+			}
+		}
+
+		List<Entry> entries = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for (Path db : dbs) {
+			String name = uniqueName(db, names);
+			entries.add(new Entry(entries.size() + 1, db, companion(db, "-wal"), companion(db, "-journal"), name));
+		}
+		return entries;
+	}
+
+	/**
+	 * Name of the output folder of a database: its path below the source
+	 * folder with the separators replaced. Same names get a counter.
+	 */
+	private String uniqueName(Path db, Set<String> names) {
+		Path rel = Files.isDirectory(source) ? source.relativize(db) : db.getFileName();
+		String base = rel.toString().replace(File.separatorChar, '_').replace(':', '_');
+		String name = base;
+		for (int i = 2; !names.add(name); i++)
+			name = base + "_" + i;
+		return name;
+	}
+
+	private static Path companion(Path db, String suffix) {
+		Path p = db.resolveSibling(db.getFileName() + suffix);
+		try {
+			return Files.isRegularFile(p) && Files.size(p) > 0 ? p : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static boolean isCompanion(Path p) {
+		String n = p.getFileName().toString();
+		return n.endsWith("-wal") || n.endsWith("-journal") || n.endsWith("-shm");
+	}
+
+	static boolean isSQLite(Path p) {
+		try (InputStream in = Files.newInputStream(p)) {
+			return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Prints a progress message - a JSON line or plain text.
+	 */
+	private void event(String type, String fields, String text) {
+		String line = json ? "{\"event\":\"" + type + "\"," + fields + "}" : text;
+		synchronized (out) {
+			out.println(line);
+		}
+	}
+
+	private static String quote(Object o) {
+		StringBuilder sb = new StringBuilder();
+		JsonLinesRecordSink.escape(sb, o == null ? null : o.toString());
+		return sb.toString();
+	}
+
+}
@@ -7,8 +7,13 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import fqlite.log.Flight;
 
 /**
  * BigByteBuffer with streaming / demand-paging support.
@@ -29,6 +34,18 @@ import java.util.Map;
  *   • Only cross-page reads (a single logical read spanning two windows) require
  *     a slow-path copy; all other reads are a single native buffer.get().
  *
+ * Concurrency: there are two read APIs.
+ *   • The positional API ({@link #read(long, byte[])}, {@link #getByte(long)},
+ *     {@link #getInt(long)}) keeps no shared cursor and takes no lock. It is
+ *     the one to use from the scan workers.
+ *   • The stateful API ({@link #position(long)}, {@link #get()}, ...) mirrors
+ *     java.nio.Buffer and is still synchronized, because pos/mark are shared.
+ * Both go through the same concurrent window map. Every window carries a
+ * reference count: the cache holds one reference, every running read holds
+ * another. Eviction only drops the cache's reference, so a window is unmapped
+ * by whichever thread releases the last reference — never while somebody is
+ * still copying out of it.
+ *
  * Lifecycle: BigByteBuffer owns the RandomAccessFile it opens internally.
  * If a RandomAccessFile is passed in by the caller, BigByteBuffer takes
  * ownership of it as well — do NOT close the RAF externally afterwards.
@@ -75,14 +92,59 @@ public class BigByteBuffer {
 	private final long             fileLength;
 	private final int              pageSize;
 
-	/** LRU page cache: pageIndex → mapped ByteBuffer. */
-	private final LinkedHashMap<Integer, ByteBuffer> pageCache;
+	/** Page cache: pageIndex → reference-counted mmap window. */
+	private final ConcurrentHashMap<Integer, Window> pageCache;
+	private final int              maxPages;
+
+	/**
+	 * Only one thread at a time trims the cache. Threads that find the lock
+	 * taken simply go on reading — the cache may overshoot maxPages by a
+	 * window or two for a moment, which is cheaper than making them wait.
+	 */
+	private final ReentrantLock    evictLock = new ReentrantLock();
+
+	/** Window cache statistics (see {@link #cacheHits()} and the others). */
+	private final LongAdder hits      = new LongAdder();
+	private final LongAdder misses    = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
 
+	private final long cap;
 	private long pos   = 0;
-	private long limit = 0;
-	private long cap   = 0;
+	private volatile long limit = 0;
 	private long mark  = -1;
 
+	/**
+	 * One mmap window together with its reference count. A count of 1 means
+	 * "only the cache holds it"; 0 means the window has been released and
+	 * must not be used any more.
+	 */
+	private static final class Window {
+		final ByteBuffer    buf;
+		final boolean       mapped;
+		final AtomicInteger refs = new AtomicInteger(1);
+		volatile long       lastUse;
+
+		Window(ByteBuffer buf, boolean mapped) {
+			this.buf    = buf;
+			this.mapped = mapped;
+		}
+
+		/** Takes a reference; fails if the window was already released. */
+		boolean pin() {
+			for (;;) {
+				int r = refs.get();
+				if (r <= 0) return false;
+				if (refs.compareAndSet(r, r + 1)) return true;
+			}
+		}
+
+		/** Drops a reference and unmaps the window when it was the last one. */
+		void unpin() {
+			if (refs.decrementAndGet() == 0 && mapped)
+				tryUnmap(buf);
+		}
+	}
+
 	// -----------------------------------------------------------------------
 	// Constructors
 	// -----------------------------------------------------------------------
@@ -122,19 +184,10 @@ public class BigByteBuffer {
 		this.raf      = file;
 		this.channel  = file.getChannel();
 		this.pageSize = pageSize;
+		this.maxPages = maxPages;
 		this.limit    = this.cap = fileLength;
 
-		final int mp = maxPages;
-		this.pageCache = new LinkedHashMap<>(maxPages * 2, 0.75f, /*accessOrder=*/true) {
-			@Override
-			protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
-				if (size() > mp) {
-					tryUnmap(eldest.getValue());
-					return true;
-				}
-				return false;
-			}
-		};
+		this.pageCache = new ConcurrentHashMap<>(maxPages * 2);
 	}
 
 	/**
@@ -146,10 +199,12 @@ public class BigByteBuffer {
 		this.channel    = null;
 		this.fileLength = buffer.limit();
 		this.pageSize   = Integer.MAX_VALUE;   // single "page" = entire buffer
+		this.maxPages   = 1;
 		this.limit      = this.cap = fileLength;
 
-		this.pageCache  = new LinkedHashMap<>(2, 0.75f, true);
-		this.pageCache.put(0, buffer.duplicate());
+		// The caller owns the buffer, so this window is never unmapped.
+		this.pageCache  = new ConcurrentHashMap<>(2);
+		this.pageCache.put(0, new Window(buffer.duplicate(), false));
 	}
 
 	// -----------------------------------------------------------------------
@@ -182,14 +237,17 @@ public class BigByteBuffer {
 	// during testing (hs_err_pid*.log) showed exactly this: a SIGSEGV
 	// inside ByteBuffer.get([BII) called from Job.exploreBTree, i.e. a
 	// bulk read into a window that had already been unmapped out from
-	// under the reading thread. Every method that touches pos/limit/mark/
-	// pageCache is now `synchronized` on `this` so a seek+read is atomic
-	// with respect to other worker threads. Each call only holds the lock
-	// for a quick cache lookup + memory copy (not the CPU-bound parsing
-	// work workers do between reads), so this should add only modest
-	// contention while making concurrent use of one BigByteBuffer safe.
-	public final synchronized long capacity()        { return cap;   }
-	public final synchronized long limit()           { return limit; }
+	// under the reading thread. The windows are therefore reference-counted
+	// (see Window) and eviction can no longer unmap a window that is in use.
+	// What remains `synchronized` is only the cursor state (pos/mark): a
+	// position(...) followed by get() is still a seek+read pair. The scan
+	// hot paths (readDBPageWithOffset(), exploreBTree(), readOverflow())
+	// use the positional read API instead and never take this lock, so
+	// adding worker threads does not make them queue on one monitor.
+	// capacity() and limit() are lock-free as well (cap is final, limit is
+	// volatile).
+	public final long capacity()                     { return cap;   }
+	public final long limit()                        { return limit; }
 	public final synchronized long position()        { return pos;   }
 	public final synchronized long remaining()       { return limit - pos; }
 	public final synchronized boolean hasRemaining() { return pos < limit; }
@@ -226,7 +284,90 @@ public class BigByteBuffer {
 	}
 
 	// -----------------------------------------------------------------------
-	// Read API
+	// Positional read API (lock-free, no shared cursor)
+	// -----------------------------------------------------------------------
+
+	/**
+	 * Copies {@code dst.length} bytes starting at absolute {@code offset}
+	 * into {@code dst}. Does not touch the buffer position and can be called
+	 * from any number of threads at the same time.
+	 */
+	public BigByteBuffer read(long offset, byte[] dst) {
+		return read(offset, dst, 0, dst.length);
+	}
+
+	/**
+	 * Copies {@code length} bytes starting at absolute {@code offset} into
+	 * {@code dst} at {@code dstOffset}. Does not touch the buffer position.
+	 */
+	public BigByteBuffer read(long offset, byte[] dst, int dstOffset, int length) {
+		if (offset < 0 || length > limit - offset)
+			throw new BufferUnderflowException();
+
+		int written = 0;
+		while (written < length) {
+			long   at      = offset + written;
+			int    pageIdx = (int) (at / pageSize);
+			int    pageOff = (int) (at % pageSize);
+			Window w       = acquire(pageIdx);
+			try {
+				int avail = Math.min(w.buf.limit() - pageOff, length - written);
+				w.buf.get(pageOff, dst, dstOffset + written, avail);
+				written += avail;
+			} finally {
+				w.unpin();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the byte at absolute {@code offset}. Does not touch the buffer
+	 * position.
+	 */
+	public byte getByte(long offset) {
+		if (offset < 0 || offset >= limit)
+			throw new BufferUnderflowException();
+
+		Window w = acquire((int) (offset / pageSize));
+		try {
+			return w.buf.get((int) (offset % pageSize));
+		} finally {
+			w.unpin();
+		}
+	}
+
+	/**
+	 * Returns the big-endian {@code int} at absolute {@code offset}.
+	 * Like {@link ByteBuffer#getInt(int)} this does not move the buffer
+	 * position.
+	 */
+	public int getInt(long offset) {
+		if (offset < 0 || 4 > limit - offset)
+			throw new BufferUnderflowException();
+
+		int pageOff = (int) (offset % pageSize);
+		Window w = acquire((int) (offset / pageSize));
+		try {
+			if (w.buf.limit() - pageOff >= 4) {
+				// Fast path: all 4 bytes on the same page.
+				return w.buf.getInt(pageOff);
+			}
+		} finally {
+			w.unpin();
+		}
+
+		// Slow path: int straddles a page boundary.
+		byte[] tmp = new byte[4];
+		read(offset, tmp, 0, 4);
+		return ((tmp[0] & 0xFF) << 24)
+			   | ((tmp[1] & 0xFF) << 16)
+			   | ((tmp[2] & 0xFF) <<  8)
+			   |  (tmp[3] & 0xFF);
+	}
+
+	// -----------------------------------------------------------------------
+	// Stateful read API (mirrors java.nio.ByteBuffer, synchronized on pos)
 	// -----------------------------------------------------------------------
 
 	/**
@@ -234,13 +375,14 @@ public class BigByteBuffer {
 	 */
 	public synchronized byte get() {
 		checkUnderflow(1);
-		byte b = readByteAt(pos);
+		byte b = getByte(pos);
 		pos++;
 		return b;
 	}
 
 	/**
 	 * Seeks to {@code position} then returns the byte there, advancing by 1.
+	 * Prefer {@link #getByte(long)} when the position is not needed afterwards.
 	 */
 	public synchronized byte get(long position) {
 		position(position);
@@ -262,63 +404,28 @@ public class BigByteBuffer {
 		if (length > remaining())
 			throw new BufferUnderflowException();
 
-		int written = 0;
-		while (written < length) {
-			int        pageIdx = (int) (pos / pageSize);
-			int        pageOff = (int) (pos % pageSize);
-			ByteBuffer page    = getPage(pageIdx);
-			int        avail   = Math.min(page.capacity() - pageOff, length - written);
-
-			page.position(pageOff);
-			page.get(dst, offset + written, avail);
-
-			pos     += avail;
-			written += avail;
-		}
+		read(pos, dst, offset, length);
+		pos += length;
 		return this;
 	}
 
-	/**
-	 * Returns the big-endian {@code int} at {@code position} and advances by 4.
-	 */
-	public synchronized int getInt(long position) {
-		this.pos = position;
-		checkUnderflow(4);
-
-		int        pageIdx = (int) (pos / pageSize);
-		int        pageOff = (int) (pos % pageSize);
-		ByteBuffer page    = getPage(pageIdx);
-		int        avail   = page.capacity() - pageOff;
-
-		if (avail >= 4) {
-			// Fast path: all 4 bytes on the same page.
-			page.position(pageOff);
-			pos += 4;
-			return page.getInt();
-		} else {
-			// Slow path: int straddles a page boundary — read byte by byte.
-			byte[] tmp = new byte[4];
-			get(tmp, 0, 4);   // advances pos correctly
-			return ((tmp[0] & 0xFF) << 24)
-				   | ((tmp[1] & 0xFF) << 16)
-				   | ((tmp[2] & 0xFF) <<  8)
-				   |  (tmp[3] & 0xFF);
-		}
-	}
-
 	/**
 	 * Returns a {@link ByteBuffer} slice starting at the current position.
 	 * <p>
 	 * The slice is backed by the mmap window that is currently resident in the
-	 * LRU cache. It remains valid as long as that page is not evicted. Callers
-	 * that need a long-lived view should copy the data out explicitly.
+	 * page cache. It is not reference-counted and remains valid only as long
+	 * as that window is not evicted. Callers that need a long-lived view, or
+	 * that run next to other threads, should use {@link #read(long, byte[])}.
 	 */
 	public synchronized ByteBuffer slice() {
-		int        pageIdx = (int) (pos / pageSize);
-		int        pageOff = (int) (pos % pageSize);
-		ByteBuffer page    = getPage(pageIdx);
-		page.position(pageOff);
-		return page.slice();
+		int    pageIdx = (int) (pos / pageSize);
+		int    pageOff = (int) (pos % pageSize);
+		Window w       = acquire(pageIdx);
+		try {
+			return w.buf.slice(pageOff, w.buf.limit() - pageOff);
+		} finally {
+			w.unpin();
+		}
 	}
 
 	/**
@@ -341,37 +448,101 @@ public class BigByteBuffer {
 	// -----------------------------------------------------------------------
 
 	/**
-	 * Returns the cached page for {@code pageIndex}, mapping it from the
-	 * FileChannel on a cache miss.
+	 * Returns the window for {@code pageIndex} with a reference taken on it,
+	 * mapping it from the FileChannel on a cache miss. The caller must call
+	 * {@link Window#unpin()} when done.
 	 */
-	private ByteBuffer getPage(int pageIndex) {
-		ByteBuffer page = pageCache.get(pageIndex);
-		if (page != null) return page;
+	private Window acquire(int pageIndex) {
+		for (;;) {
+			Window w = pageCache.get(pageIndex);
+			boolean cached = w != null;
+			if (w == null) {
+				w = pageCache.computeIfAbsent(pageIndex, this::map);
+				if (pageCache.size() > maxPages)
+					evict(pageIndex);
+			}
+			if (w.pin()) {
+				/* a window that is evicted before the pin is no hit - it is mapped again */
+				if (cached)
+					hits.increment();
+				w.lastUse = System.nanoTime();
+				return w;
+			}
+			// Lost the race against an eviction — the window is on its way
+			// out, so look it up (and map it) again.
+			pageCache.remove(pageIndex, w);
+		}
+	}
 
+	private Window map(int pageIndex) {
 		long pageStart = (long) pageIndex * pageSize;
 		long mapSize   = Math.min(fileLength - pageStart, pageSize);
 
+		misses.increment();
+		Flight.Remap ev = Flight.enabled ? new Flight.Remap() : null;
+		if (ev != null)
+			ev.begin();
 		try {
-			page = channel.map(FileChannel.MapMode.READ_ONLY, pageStart, mapSize);
+			ByteBuffer page = channel.map(FileChannel.MapMode.READ_ONLY, pageStart, mapSize);
 			page.order(ByteOrder.BIG_ENDIAN);   // SQLite stores integers big-endian
+			if (ev != null) {
+				ev.window = pageIndex;
+				ev.offset = pageStart;
+				ev.size = mapSize;
+				ev.commit();
+			}
+			return new Window(page, true);
 		} catch (IOException e) {
 			throw new RuntimeException(
 					"Failed to map page " + pageIndex + " at offset " + pageStart
 					+ ". Ensure the RandomAccessFile was not closed externally "
 					+ "— BigByteBuffer owns the file handle; call close() on BigByteBuffer instead.", e);
 		}
-
-		pageCache.put(pageIndex, page);   // LRU eviction fires inside removeEldestEntry
-		return page;
 	}
 
-	private byte readByteAt(long position) {
-		int        pageIdx = (int) (position / pageSize);
-		int        pageOff = (int) (position % pageSize);
-		ByteBuffer page    = getPage(pageIdx);
-		return page.get(pageOff);
+	/**
+	 * Drops least recently used windows until the cache is back within
+	 * maxPages. {@code keep} is the window that was just mapped.
+	 * Removing a window only releases the cache's reference; readers that
+	 * still hold one keep it mapped until they are done.
+	 */
+	private void evict(int keep) {
+		if (!evictLock.tryLock())
+			return;
+		try {
+			while (pageCache.size() > maxPages) {
+				Map.Entry<Integer, Window> eldest = null;
+				for (Map.Entry<Integer, Window> e : pageCache.entrySet()) {
+					if (e.getKey() == keep)
+						continue;
+					if (eldest == null || e.getValue().lastUse < eldest.getValue().lastUse)
+						eldest = e;
+				}
+				if (eldest == null)
+					return;
+				if (pageCache.remove(eldest.getKey(), eldest.getValue())) {
+					evictions.increment();
+					eldest.getValue().unpin();
+				}
+			}
+		} finally {
+			evictLock.unlock();
+		}
 	}
 
+	// -----------------------------------------------------------------------
+	// Cache statistics
+	// -----------------------------------------------------------------------
+
+	/** Reads served by a window that was already mapped. */
+	public long cacheHits()      { return hits.sum(); }
+
+	/** Windows that had to be mapped (first access or after eviction). */
+	public long cacheMisses()    { return misses.sum(); }
+
+	/** Windows dropped to stay within maxPages. */
+	public long cacheEvictions() { return evictions.sum(); }
+
 	private void checkUnderflow(int needed) {
 		if (pos + needed > limit)
 			throw new BufferUnderflowException();
@@ -440,10 +611,10 @@ public class BigByteBuffer {
 	 * The buffer must not be used after this call.
 	 */
 	public synchronized void close() throws IOException {
-		for (ByteBuffer buf : pageCache.values()) {
-			tryUnmap(buf);
+		for (Integer key : pageCache.keySet()) {
+			Window w = pageCache.remove(key);
+			if (w != null) w.unpin();
 		}
-		pageCache.clear();
 		if (channel != null) channel.close();
 		if (raf     != null) raf.close();
 	}
@@ -4,9 +4,13 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import fqlite.descriptor.AbstractDescriptor;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
 import fqlite.pattern.HeaderPattern;
 import fqlite.pattern.MMode;
 import fqlite.pattern.SerialTypeMatcher;
@@ -32,24 +36,28 @@ public class Carver{
 
 	ByteBuffer block;
 	BitSet bs;
-	String content;
 	Job job;
 	int pagenumber;
 
+	/* file the page was read from and the file offset of block[0] (-1 if unknown) - used for the hexdump references */
+	HexSource hexsource;
+	long fileoffset = -1;
+
+	/* names of the CarverTypes modes, used for the carving counters */
+	private static final String[] MODES = {"NORMAL", "COLUMNSONLY", "FIRSTCOLUMNMISSING", "MULTIBYTECOLUMN"};
+
 	/**
 	 * Constructor.
 	 * 
 	 * @param job    reference to the calling job object
 	 * @param bl         a ByteBuffer representing the binary page content
-	 * @param content    the String representation of the page content
 	 * @param bs         a BitSet to mark places
 	 * @param pagenumber the number of the page within the database.
 	 */
-	public Carver(Job job, ByteBuffer bl, String content, BitSet bs, int pagenumber) {
+	public Carver(Job job, ByteBuffer bl, BitSet bs, int pagenumber) {
 		this.job = job;
 		block = bl;
 		this.bs = bs;
-		this.content = content;
 		this.pagenumber = pagenumber;
 	}
 
@@ -63,6 +71,7 @@ public class Carver{
 	public int carve(int fromidx, int toidx, SerialTypeMatcher mat, int headertype, AbstractDescriptor tbd) 
 	{
 		Auxiliary c = new Auxiliary(job);
+		c.hexsource = hexsource;
 	
 		switch (headertype) 
 		{
@@ -85,6 +94,10 @@ public class Carver{
 		if(tbd.serialtypes.size() <= 2 && headertype != CarverTypes.NORMAL)
 			return -1;
 
+		Flight.Carve ev = Flight.enabled ? new Flight.Carve() : null;
+		if (ev != null)
+			ev.begin();
+
 		/* set search region */
 		mat.region(fromidx, toidx);
 
@@ -187,8 +200,10 @@ public class Carver{
 				continue;
 			}
 			
-			AppLog.debug("Match (0..NORMAL, 1..NOLENGTH, 2..FIRSTCOLMISSING) : " + headertype);
-			AppLog.debug("Match: " + m + " on pos:" + ((pagenumber - 1) * job.ps + from));
+			if (AppLog.isDebugEnabled()) {
+				AppLog.debug("Match (0..NORMAL, 1..NOLENGTH, 2..FIRSTCOLMISSING) : " + headertype);
+				AppLog.debug("Match: " + m + " on pos:" + ((pagenumber - 1) * job.ps + from));
+			}
 
 			if (headertype == CarverTypes.NORMAL) {
 				if (m.length()>=4)
@@ -250,7 +265,13 @@ public class Carver{
 		}
 		
 	    Match[] mm =  matches.toArray(new Match[0]);
-	 		
+
+		/* how many matches of this mode turn out to be a record (see Metrics) */
+		LongAdder attempts = job.metrics.counter(Metrics.CARVE_ATTEMPTS + MODES[headertype]);
+		LongAdder hits = job.metrics.counter(Metrics.CARVE_HITS + MODES[headertype]);
+		attempts.add(mm.length);
+		int records = 0;
+
 		// take all matches in this region and try to recover those data records
 		for (int i = 0; i < mm.length; i++)
 		{
@@ -262,7 +283,7 @@ public class Carver{
 			if (tbd.rowid_col >= 0)
 				e.rowidcolum = tbd.rowid_col;
 			try {
-				CarvingResult res = c.readDeletedRecord(tbd, job, block, bs, e, next, pagenumber, mat.fallbackFor1stColumn);
+				CarvingResult res = c.readDeletedRecord(tbd, job, block, bs, e, next, pagenumber, mat.fallbackFor1stColumn, fileoffset);
 				if (null == res)
 					/* something went wrong */
 					continue;
@@ -273,7 +294,7 @@ public class Carver{
 					continue;
 
 				LinkedList<String> record = res.record;
-				LinkedList<byte[]> raw = res.hexdump;
+				List<byte[]> raw = res.hexdump;
 
 				if (null != record) {
 
@@ -288,46 +309,40 @@ public class Carver{
 					record.add(2,Global.DELETED_RECORD_IN_PAGE);
 					record.addFirst(tbd.getName());
 					raw.add(2,null);
-					raw.addFirst(null);
+					raw.add(0, null);
 					updateResultSet(record,raw);
+					hits.increment();
+					records++;
 				}
 				
 				
 			} catch (IllegalArgumentException | BufferUnderflowException ex) {
-				AppLog.debug("Could not read record (buffer bounds): " + ex.getClass().getSimpleName() + " – " + ex.getMessage());
+				if (AppLog.isDebugEnabled()) AppLog.debug("Could not read record (buffer bounds): " + ex.getClass().getSimpleName() + " – " + ex.getMessage());
 			} catch (Exception err) {
-				AppLog.debug("Could not read record: " + err.getClass().getName() + " – " + err.getMessage());
+				if (AppLog.isDebugEnabled()) AppLog.debug("Could not read record: " + err.getClass().getName() + " – " + err.getMessage());
 			}
 			
 		}
+
+		if (ev != null) {
+			ev.end();
+			if (ev.shouldCommit()) {
+				ev.page = pagenumber;
+				ev.table = tbd.getName();
+				ev.mode = MODES[headertype];
+				ev.gap = toidx - fromidx;
+				ev.matches = mm.length;
+				ev.records = records;
+				ev.commit();
+			}
+		}
 		return 0;
 	}
 	
 	@SuppressWarnings("unlikely-arg-type")
-	private void updateResultSet(LinkedList<String> line, LinkedList<byte[]> hex)
+	private void updateResultSet(LinkedList<String> line, List<byte[]> hex)
 	{
-		// entry for table name already exists
-		if (job.resultlist.containsKey(line.getFirst())) {
-			ObservableList<ObservableList<String>> tablelist = job.resultlist.get(line.getFirst());
-
-				tablelist.add(FXCollections.observableList(line)); // add row
-
-				// save the original hex-values of a table row separately to a different list
-				ObservableList<ObservableList<byte[]>> hexlist = job.hexdumplist.get(line.getFirst());
-				hexlist.add(FXCollections.observableList(hex));
-
-		}
-		// create a new data set since the table name occurs for the first time
-		else {
-		          ObservableList<ObservableList<String>> tablelist = FXCollections.observableArrayList();
-				  tablelist.add(FXCollections.observableList(line)); // add row 
-				  job.resultlist.put(line.getFirst(),tablelist);
-
-				  ObservableList<ObservableList<byte[]>> hexlist = FXCollections.observableArrayList();
-				  hexlist.add(FXCollections.observableList(hex));
-				  job.hexdumplist.put(line.getFirst(),hexlist);
-
-		}
+		job.addResultRow(line, hex);
 	}
 
 
@@ -0,0 +1,241 @@
+package fqlite.base;
+
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import javafx.collections.ModifiableObservableListBase;
+
+/**
+ * Compact, typed storage for one recovered table row.
+ *
+ * Auxiliary.readRecord() used to turn every integer, float and offset into
+ * a String the moment it was decoded. With 20 columns that is 20 String
+ * objects (plus their char arrays) per row, and on a table with millions of
+ * rows this was the bulk of the heap. A CompactRow instead keeps numbers in
+ * a primitive <code>long[]</code> and only text values as object references.
+ * Shared metadata (table name, status flag) are interned Strings, so they
+ * cost one reference per row.
+ *
+ * To all existing consumers (GUI table, exports, SQL window, ...) the row
+ * still looks like a <code>List&lt;String&gt;</code>: numbers are formatted
+ * in {@link #get(int)}, i.e. only when a cell is actually rendered or
+ * exported. Code that wants to sort or filter numerically can read the
+ * primitive value with {@link #getLong(int)} / {@link #getDouble(int)}
+ * without any parsing.
+ *
+ * The row is mutable like an ArrayList (the GUI replaces and inserts
+ * columns), it is not thread-safe. It is an ObservableList itself, so the
+ * result lists of a job hold the CompactRow and not a wrapper around it -
+ * sorting and the exports can see the typed cells. The typed add methods
+ * (addLong(), ...) are meant for building the row and fire no change events.
+ *
+ * @author pawlaszc
+ *
+ */
+public class CompactRow extends ModifiableObservableListBase<String> implements RandomAccess {
+
+	/* cell kinds */
+	public static final byte TEXT = 0;
+	public static final byte LONG = 1;
+	public static final byte DOUBLE = 2;
+	/* "[payload length|header length]" - both values packed into one long */
+	public static final byte PAYLOAD = 3;
+
+	private byte[] kinds;
+	private long[] nums;
+	private Object[] refs;
+	private int size;
+
+	public CompactRow() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity expected number of columns
+	 */
+	public CompactRow(int capacity) {
+		capacity = Math.max(capacity, 4);
+		kinds = new byte[capacity];
+		nums = new long[capacity];
+		refs = new Object[capacity];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String get(int index) {
+		check(index);
+		switch (kinds[index]) {
+			case LONG:
+				return Long.toString(nums[index]);
+			case DOUBLE:
+				return SqliteElement.formatDouble(Double.longBitsToDouble(nums[index]));
+			case PAYLOAD:
+				return "[" + (nums[index] >>> 32) + "|" + (int) nums[index] + "]";
+			default:
+				return (String) refs[index];
+		}
+	}
+
+	/**
+	 * Returns the kind of the cell: TEXT, LONG, DOUBLE or PAYLOAD.
+	 */
+	public byte kind(int index) {
+		check(index);
+		return kinds[index];
+	}
+
+	/**
+	 * Returns the numeric value of a LONG cell (the payload length for a
+	 * PAYLOAD cell).
+	 */
+	public long getLong(int index) {
+		check(index);
+		switch (kinds[index]) {
+			case LONG:
+				return nums[index];
+			case DOUBLE:
+				return (long) Double.longBitsToDouble(nums[index]);
+			case PAYLOAD:
+				return nums[index] >>> 32;
+			default:
+				throw new NumberFormatException("column " + index + " is not numeric");
+		}
+	}
+
+	/**
+	 * Returns the numeric value of a LONG or DOUBLE cell.
+	 */
+	public double getDouble(int index) {
+		check(index);
+		if (kinds[index] == DOUBLE)
+			return Double.longBitsToDouble(nums[index]);
+		return getLong(index);
+	}
+
+	/**
+	 * Returns the raw value of a LONG, DOUBLE or PAYLOAD cell - the long
+	 * itself, the bits of the double resp. the packed lengths. Used to
+	 * store the row without formatting it (see ScanCache).
+	 */
+	long bits(int index) {
+		check(index);
+		return nums[index];
+	}
+
+	/* ---- adding cells ---- */
+
+	/*
+	 * Nobody listens to a single row in most cases - the cells are then
+	 * changed directly, without building change events (a row is mostly
+	 * built cell by cell on the hot path of the scan).
+	 */
+
+	@Override
+	public boolean add(String value) {
+		if (hasListeners())
+			return super.add(value);
+		insert(size, TEXT, 0L, value);
+		return true;
+	}
+
+	@Override
+	public void add(int index, String value) {
+		if (hasListeners())
+			super.add(index, value);
+		else
+			insert(index, TEXT, 0L, value);
+	}
+
+	@Override
+	public String set(int index, String value) {
+		return hasListeners() ? super.set(index, value) : doSet(index, value);
+	}
+
+	@Override
+	public String remove(int index) {
+		return hasListeners() ? super.remove(index) : doRemove(index);
+	}
+
+	@Override
+	protected void doAdd(int index, String value) {
+		insert(index, TEXT, 0L, value);
+	}
+
+	public void addLong(long value) {
+		insert(size, LONG, value, null);
+	}
+
+	public void addLong(int index, long value) {
+		insert(index, LONG, value, null);
+	}
+
+	public void addDouble(double value) {
+		insert(size, DOUBLE, Double.doubleToRawLongBits(value), null);
+	}
+
+	/**
+	 * Inserts the "[pll|hl]" metadata cell.
+	 *
+	 * @param index position of the cell
+	 * @param pll payload length
+	 * @param hl header length
+	 */
+	public void addPayload(int index, int pll, int hl) {
+		insert(index, PAYLOAD, ((long) pll << 32) | (hl & 0xFFFFFFFFL), null);
+	}
+
+	@Override
+	protected String doSet(int index, String value) {
+		String old = get(index);
+		kinds[index] = TEXT;
+		nums[index] = 0L;
+		refs[index] = value;
+		return old;
+	}
+
+	@Override
+	protected String doRemove(int index) {
+		String old = get(index);
+		int tail = size - index - 1;
+		if (tail > 0) {
+			System.arraycopy(kinds, index + 1, kinds, index, tail);
+			System.arraycopy(nums, index + 1, nums, index, tail);
+			System.arraycopy(refs, index + 1, refs, index, tail);
+		}
+		refs[--size] = null;
+		modCount++;
+		return old;
+	}
+
+	private void insert(int index, byte kind, long num, Object ref) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		if (size == kinds.length) {
+			int n = size + (size >> 1) + 1;
+			kinds = Arrays.copyOf(kinds, n);
+			nums = Arrays.copyOf(nums, n);
+			refs = Arrays.copyOf(refs, n);
+		}
+		int tail = size - index;
+		if (tail > 0) {
+			System.arraycopy(kinds, index, kinds, index + 1, tail);
+			System.arraycopy(nums, index, nums, index + 1, tail);
+			System.arraycopy(refs, index, refs, index + 1, tail);
+		}
+		kinds[index] = kind;
+		nums[index] = num;
+		refs[index] = ref;
+		size++;
+		modCount++;
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+}
@@ -25,6 +25,7 @@ import fqlite.erm.MermaidHTMLGenerator;
 import fqlite.erm.SchemaRetriever;
 import fqlite.erm.SchemaToMermaidConverter;
 import fqlite.fts.SearchDialog;
+import fqlite.fts.SearchIndex;
 import fqlite.location.GPSParser;
 import fqlite.location.GeoCoordinate;
 import fqlite.rag.*;
@@ -44,25 +45,21 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.*;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
 import fqlite.sql.SQLWindow;
 import fqlite.util.Auxiliary;
 import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
-import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.control.TableColumn.CellDataFeatures;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.ClipboardContent;
@@ -76,7 +73,6 @@ import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
-import javafx.util.Callback;
 import javafx.util.Duration;
 
 /*
@@ -174,7 +170,11 @@ public class GUI extends Application {
 	public static int pos = 0;
 
 	public static GUI mainwindow;
+	/* job of the most recent import, for the metrics window */
+	private Job lastjob;
 	public ConcurrentHashMap<String, javafx.scene.Node> tables = new ConcurrentHashMap<>();
+	/* table views that are filled when they are opened the first time (see defer_table()) */
+	private final ConcurrentHashMap<javafx.scene.Node, Runnable> deferred = new ConcurrentHashMap<>();
 	private final ConcurrentHashMap<Object, String> rowcolors = new ConcurrentHashMap<>();
 
 	public ConcurrentHashMap<String, ObservableList<ObservableList<String>>> datasets = new ConcurrentHashMap<>();
@@ -358,6 +358,8 @@ public class GUI extends Application {
 		mntAbout.setOnAction(e -> new AboutDialog(topContainer));
 		MenuItem mntmLog = new MenuItem("View Log...");
 		mntmLog.setOnAction(e -> showLog());
+		MenuItem mntmMetrics = new MenuItem("Scan Metrics...");
+		mntmMetrics.setOnAction(e -> showMetrics());
 
 		MenuItem mntmProp = new MenuItem("Settings...");
 		mntmProp.setOnAction(e -> showPropertyWindow());
@@ -391,7 +393,7 @@ public class GUI extends Application {
 		mnFiles.getItems().addAll(mntopen, sep, mntclose, sep2, mntmProp, mntmExit);
 		mnExport.getItems().addAll(cmExport, mntmExportDB, mntmHTML);
 		mnAnalyze.getItems().addAll(mntmSQL, mntmHex, mntmSchema, new SeparatorMenuItem(), mntmBinViewer);
-		mnInfo.getItems().addAll(mntmHelp, mntmLog, mntAbout);
+		mnInfo.getItems().addAll(mntmHelp, mntmLog, mntmMetrics, mntAbout);
 
 		/* MenuBar */
 		menuBar = new MenuBar();
@@ -1145,22 +1147,25 @@ public class GUI extends Application {
 		FileType ft = no.getValue().type;
 
 		ConcurrentHashMap<String, ObservableList<ObservableList<String>>> data = null;
+		int source = SearchIndex.DB;
 
 		if (ft == FileType.SQLiteDB) {
 			data = no.getValue().job.resultlist;
 		}
 		else if (ft == FileType.WriteAheadLog) {
 			data = no.getValue().job.wal.resultlist;
+			source = SearchIndex.WAL;
 		}
 		else if (ft == FileType.RollbackJournalLog) {
 			data = no.getValue().job.rol.resultlist;
+			source = SearchIndex.JOURNAL;
 		}
 
 		if (data == null) {
 			return;
 		}
 
-		var dialog = new SearchDialog(this, no.getValue().name, data, result -> {
+		var dialog = new SearchDialog(this, no.getValue().name, data, no.getValue().job.fts, source, result -> {
 			selectTableCell(no.getValue().name, result.tableName(), result.rowIndex(), result.colIndex());
 		});
 		dialog.showAndWait();
@@ -1278,6 +1283,20 @@ public class GUI extends Application {
 			cm.hide();
 	}
 
+	/**
+	 * Shows the live metrics of the selected database - or of the last
+	 * import, if nothing is selected.
+	 */
+	private void showMetrics() {
+		TreeItem<NodeObject> node = getDatabaseNode();
+		Job job = (node != null && node.getValue().job != null) ? node.getValue().job : lastjob;
+		if (job == null) {
+			AppLog.info("No database opened yet - no metrics to show.");
+			return;
+		}
+		new MetricsWindow(job).start(new Stage());
+	}
+
 	private void showLog() {
 		AppLog logwindow = new AppLog();
 
@@ -1455,6 +1474,19 @@ public class GUI extends Application {
 			if (appProps.containsKey("TIMESTAMP_USE_UTC"))
 				Global.TIMESTAMP_USE_UTC = "true".equals(appProps.getProperty("TIMESTAMP_USE_UTC"));
 
+			// JFR events for profiling
+			if ("true".equals(appProps.getProperty("JFR_EVENTS"))) {
+				try {
+					Flight.start(Flight.defaultFile());
+				} catch (IOException | IllegalStateException e) {
+					AppLog.error("Cannot start JFR recording: " + e.getMessage());
+				}
+			}
+
+			// results of earlier runs
+			if (appProps.containsKey("SCAN_CACHE"))
+				Global.SCAN_CACHE = "true".equals(appProps.getProperty("SCAN_CACHE"));
+
 			// OpenCelliD CSV
 			if (appProps.containsKey("OPENCELLID_CSV")) {
 				String csv = appProps.getProperty("OPENCELLID_CSV");
@@ -1548,6 +1580,7 @@ public class GUI extends Application {
 		TreeItem<NodeObject> root = tree.getRoot();
 
 		this.tables.clear();
+		this.deferred.clear();
 
 		for (TreeItem<NodeObject> node : root.getChildren()) {
 
@@ -1562,6 +1595,12 @@ public class GUI extends Application {
 					if (no.job.hexdumplist != null){
 						no.job.hexdumplist.clear();
 					}
+					if (no.job.hexsource != null)
+						no.job.hexsource.close();
+					if (no.job.wal != null && no.job.wal.hexsource != null)
+						no.job.wal.hexsource.close();
+					if (no.job.rol != null && no.job.rol.hexsource != null)
+						no.job.rol.hexsource.close();
 					if (no.job.db != null)
 						no.job.db.clear();
 					if (no.job.freelistpages != null)
@@ -1588,6 +1627,7 @@ public class GUI extends Application {
 		root.getChildren().clear();
 
 		this.tables.clear();
+		this.deferred.clear();
 		this.treeitems.clear();
 		this.dbnames.clear();
 		HEXVIEW.close();
@@ -1802,21 +1842,19 @@ public class GUI extends Application {
 			//yes
 			//add the standard columns (index 0 <>'line number', 2 <> 'status',3 <> 'offset' - '1' <>is the table name
 			TableColumn numbercolumn = new TableColumn<>(Global.col_no);
-			numbercolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> {
-				return new SimpleStringProperty(param.getValue().get(0).toString());               //line number index
-			});
+			PagedTableModel.bind(numbercolumn, 0);               //line number index
 
 			numbercolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 			TableColumn pllcolumn = new TableColumn<>(Global.col_pll);
 			pllcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			pllcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(2).toString()));
+			PagedTableModel.bind(pllcolumn, 2);
 
 			pllcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 			TableColumn hlcolumn = new TableColumn<>(Global.col_rowid);
 			hlcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			hlcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(3).toString()));
+			PagedTableModel.bind(hlcolumn, 3);
 
 			hlcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
@@ -1826,14 +1864,14 @@ public class GUI extends Application {
 			TableColumn statuscolumn = new TableColumn<>();
 			statuscolumn.setGraphic(statusLabel);
 			statuscolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			statuscolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(4).toString()));
+			PagedTableModel.bind(statuscolumn, 4);
 			statuscolumn.setGraphic(view);
 			statuscolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 
 			TableColumn offsetcolumn = new TableColumn<>(Global.col_offset);
 			offsetcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			offsetcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(5).toString()));
+			PagedTableModel.bind(offsetcolumn, 5);
 
 			offsetcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
@@ -1847,24 +1885,19 @@ public class GUI extends Application {
 
 			//add the standard columns (index 0 <>'line number', 2 <> 'status',3 <> 'offset' - '1' <>is the table name
 			TableColumn numbercolumn = new TableColumn<>(Global.col_no);
-			numbercolumn.setComparator(new CustomComparator());
-			numbercolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> {
-				return new SimpleStringProperty(param.getValue().get(0).toString());               //line number index
-			});
+			PagedTableModel.bind(numbercolumn, 0);               //line number index
 			numbercolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 
 			TableColumn pllcolumn = new TableColumn<>(Global.col_pll);
 			pllcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			pllcolumn.setComparator(new CustomComparator());
-			pllcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(2).toString()));
+			PagedTableModel.bind(pllcolumn, 2);
 			pllcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 
 			TableColumn rowidcolumn = new TableColumn<>(Global.col_rowid);
 			rowidcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			rowidcolumn.setComparator(new CustomComparator());
-			rowidcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(3).toString()));
+			PagedTableModel.bind(rowidcolumn, 3);
 			rowidcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 
@@ -1873,13 +1906,12 @@ public class GUI extends Application {
 			TableColumn statuscolumn = new TableColumn<>();
 			statuscolumn.setGraphic(statusLabel);
 			statuscolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			statuscolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(4).toString()));
+			PagedTableModel.bind(statuscolumn, 4);
 			statuscolumn.setGraphic(view);
 
 			TableColumn offsetcolumn = new TableColumn<>(Global.col_offset);
-			offsetcolumn.setComparator(new CustomComparator());
 			offsetcolumn.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			offsetcolumn.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> new SimpleStringProperty(param.getValue().get(5).toString()));
+			PagedTableModel.bind(offsetcolumn, 5);
 			offsetcolumn.setStyle("-fx-text-fill: gray;-fx-alignment: TOP-RIGHT;");
 
 			//[no,pll,hl,tabname,status,...]
@@ -1899,21 +1931,10 @@ public class GUI extends Application {
 			final int j = i + 6;
 			TableColumn col = new TableColumn(colname);
 			col.setCellFactory(TooltippedTableCell.forTableColumn(tablename, job, this.stage));
-			col.setComparator(new CustomComparator());
-
 
-			col.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> {
 
-				if (param.getValue().size() <= j)
-					return new SimpleStringProperty("");
-				Object o1 = param.getValue().get(j);
-				if (null != o1)
-					return new SimpleStringProperty(o1.toString());
-				else
-					return new SimpleStringProperty("");
-
-
-			});
+			/* an empty cell, if the record has fewer columns than the table */
+			PagedTableModel.bind(col, j);
 
 
 			if (columntypes.size() > i && !columntypes.get(i).equals("BLOB") && !columntypes.get(i).equals("TEXT") && !columntypes.get(i).startsWith("VARCHAR") && !columntypes.get(i).contains("CHARACTER") && !columntypes.get(i).contains("NCHAR")) {
@@ -2634,6 +2655,11 @@ public class GUI extends Application {
 			if (null != node.tablePane) {
 				Platform.runLater(() -> {
 
+					/* first time the table is opened - fill it now */
+					Runnable fill = deferred.remove(node.tablePane);
+					if (fill != null)
+						fill.run();
+
 					VBox hexPane = buildFileHexPane();
 
 					formatBadge = new Label("\u2013");
@@ -3074,6 +3100,7 @@ public class GUI extends Application {
 		String tp = getPath(dbNode);
 
 		Job job = new Job();
+		lastjob = job;
 		tables.put(tp, panel);
 		dbnames.add(file.getName());
 
@@ -3458,6 +3485,22 @@ public class GUI extends Application {
 
 
 
+	/**
+	 * Fills a table view when it is opened the first time, not right away -
+	 * for tables whose rows are still in the scan cache (see ScanCache). The
+	 * rows are decoded when the view asks for them.
+	 *
+	 * @param treepath the table name
+	 * @param fill     fills the table, e.g. by calling update_table()
+	 */
+	public void defer_table(String treepath, Runnable fill) {
+		javafx.scene.Node pane = tables.get(treepath);
+		if (pane == null)
+			fill.run();
+		else
+			deferred.put(pane, fill);
+	}
+
 	/**
 	 * This method is used to insert new records into an output table.
 	 *
@@ -3473,29 +3516,14 @@ public class GUI extends Application {
 
 		datasets.put(treepath, rows);
 
+		/*
+		 * The rows are shown through a PagedTableModel: no copy of the row
+		 * list, filtering and sorting run in the background and the BLOB
+		 * icons (see decorateBlobCells()) are only set for the rows that
+		 * get into the viewport.
+		 */
 		int linenumber = 0;
-		int r = 0;
 		for (ObservableList<String> row : rows) {
-			int c = 0;
-			for (String cell : row) {
-				if (cell.startsWith("[BLOB")) {
-					if (c < rawbytes.get(r).size()) {
-						byte[] value = rawbytes.get(r).get(c);
-						currentFormat = FormatDetector.detect(value);
-						switch (currentFormat) {
-							case PNG, GIF, BMP, JPEG, TIFF, HEIC -> {
-								String picture = "\uD83D\uDDBC\uFE0F";
-								row.set(c, cell += picture);
-							}
-							case PDF -> {
-								String picture = "\uD83D\uDCD6";
-								row.set(c, cell += picture);
-							}
-						}
-					}
-				}
-				c++;
-			}
 			// NOTE: `rawbytes` (the hexdumplist row used later by
 			// getBytesForCell()/click-handlers to look up raw bytes for the
 			// selected cell) is looked up by TableColumn *position*
@@ -3516,15 +3544,14 @@ public class GUI extends Application {
 			// to the right relative to colIndex, so selecting a cell ends up
 			// reading the *previous* column's hex value - exactly the
 			// "hexdump shows the column to the left" bug.
-			r++;
 			row.add(0, String.valueOf(++linenumber));
 		}
 
-		// define an array list for all table rows
-		ObservableList<ObservableList> obdata = FXCollections.observableArrayList();
-		for (ObservableList<String> row : rows) {
-			obdata.add(row);
-		}
+		PagedTableModel model = new PagedTableModel(rows, r -> {
+			if (rawbytes != null && r < rawbytes.size())
+				decorateBlobCells(rows.get(r), rawbytes.get(r));
+		});
+
 		// first get the right table
 		FQTableView tb;
 		TextField filterField;
@@ -3596,25 +3623,18 @@ public class GUI extends Application {
 		final List<String> fnames = cnames;
 
 
-		FilteredList<ObservableList> filteredData = new FilteredList<>(obdata, p -> true);
-
 		final TextField ffield = filterField;
 		columnselector.getSelectionModel().selectedItemProperty().addListener((options, oldValue, newValue) -> {
-			filter(treepath, fnames, columnselector, filteredData, null, ffield.textProperty().getValue());
-			updatestatusline(treepath, filteredData.size(), rows.size());
+			filter(treepath, fnames, columnselector, model, ffield.textProperty().getValue());
 		});
 
 		filterField.textProperty().addListener((observable, oldValue, newValue) -> {
-			filter(treepath, fnames, columnselector, filteredData, oldValue, newValue);
-			updatestatusline(treepath, filteredData.size(), rows.size());
+			filter(treepath, fnames, columnselector, model, newValue);
 		});
 
-		SortedList<ObservableList> sortedData = new SortedList<>(filteredData);
-
 		// Muss auf FX-Thread laufen - egal ob schon drauf oder nicht
 		Runnable applyItems = () -> {
-			sortedData.comparatorProperty().bind(tb.comparatorProperty());
-			tb.setItems(sortedData);
+			model.install(tb);
 
 			final TableView tb2 = tb;
 			tb.getSelectionModel().getSelectedItems().addListener((ListChangeListener.Change c) -> {
@@ -3666,55 +3686,61 @@ public class GUI extends Application {
 
 	}
 
+	/**
+	 * Hands the filter text over to the table model. The model filters in
+	 * the background, the status line is updated when the result is shown.
+	 */
 	private void filter(String treepath, List<String> fnames, ComboBox<String> columnselector,
-						@SuppressWarnings("rawtypes") FilteredList<ObservableList> filteredData,
-						String oldValue, String newValue) {
-
-		filteredData.setPredicate(r -> {
+						PagedTableModel model, String newValue) {
+
+		String clvalue = columnselector.getSelectionModel().getSelectedItem();
+		int cnumber = -1;    // all columns
+
+		if (newValue != null && clvalue != null && !clvalue.startsWith("All Columns")) {
+			// Fall: bestimmte Spalte ausgewählt
+			if (clvalue.equals("Status"))
+				clvalue = "";
+
+			String cname = clvalue.toLowerCase();
+			cnumber = switch (cname) {
+				case Global.col_pll    -> 2;
+				case Global.col_rowid  -> 3;
+				case Global.col_status -> 4;
+				case Global.col_offset -> 5;
+				default                -> fnames.indexOf(cname) + 1;
+			};
+		}
 
-			// Bug 2 fix: null-safe guard
-			if (newValue == null || newValue.isEmpty()) {
-				return true; // leeres Suchfeld → alle Zeilen anzeigen
-			}
+		model.filter(cnumber, newValue, () -> updatestatusline(treepath, model.size(), model.total()));
+	}
 
-			String lowerCaseFilter = newValue.toLowerCase();
-			String clvalue = columnselector.getSelectionModel().getSelectedItem();
-			String cname;
-
-			if (clvalue != null && !clvalue.startsWith("All Columns")) {
-				// Fall: bestimmte Spalte ausgewählt
-				if (clvalue.equals("Status"))
-					clvalue = "";
-
-				cname = clvalue.toLowerCase();
-				String searchfor = lowerCaseFilter.trim();  // korrekt aus lowerCaseFilter befüllt
-				int cnumber = fnames.indexOf(cname);
-				cnumber++;
-
-				if (r.size() > cnumber) {
-					cnumber = switch (cname) {
-						case Global.col_pll    -> 2;
-						case Global.col_rowid  -> 3;
-						case Global.col_status -> 4;
-						case Global.col_offset -> 5;
-						default                -> cnumber;
-					};
-					String value = (String) r.get(cnumber);
-					return value != null && value.toLowerCase().contains(searchfor);
-				}
-			} else {
-				// Bug 1 fix: searchfor auf lowerCaseFilter setzen, nicht auf ""
-				String searchfor = lowerCaseFilter;
-				for (Object o : r) {
-					String value = (String) o;
-					if (value != null && value.toLowerCase().contains(searchfor)) {
-						return true;
+	/**
+	 * Puts an icon behind the "[BLOB..." text of a cell that holds a picture
+	 * or a PDF document. This needs the format of the raw bytes, so it is
+	 * done for a row when it is shown for the first time.
+	 *
+	 * @param row the row with the line number in front
+	 * @param raw the raw bytes of the row (without line number)
+	 */
+	private void decorateBlobCells(ObservableList<String> row, ObservableList<byte[]> raw) {
+
+		for (int c = 1; c < row.size(); c++) {
+			String cell = row.get(c);
+			if (cell != null && cell.startsWith("[BLOB") && c - 1 < raw.size()) {
+				byte[] value = raw.get(c - 1);
+				currentFormat = FormatDetector.detect(value);
+				switch (currentFormat) {
+					case PNG, GIF, BMP, JPEG, TIFF, HEIC -> {
+						String picture = "\uD83D\uDDBC\uFE0F";
+						row.set(c, cell + picture);
+					}
+					case PDF -> {
+						String picture = "\uD83D\uDCD6";
+						row.set(c, cell + picture);
 					}
 				}
 			}
-
-			return false;
-		});
+		}
 	}
 
 
@@ -3736,51 +3762,6 @@ public class GUI extends Application {
 	}
 
 
-	private static class CustomComparator implements Comparator<String> {
-
-		@Override
-		public int compare(String o1, String o2) {
-
-			if (o1 == null && o2 == null)
-				return 0;
-			if (o1 == null)
-				return -1;
-			if (o2 == null)
-				return 1;
-
-			if (o1.isEmpty())
-				return -1;
-
-			char ch = o1.charAt(0);
-
-			// only if o1 starts with a number or a sign
-			if ((ch >= '0' && ch <= '9') || ch == '-' || ch == '+') {
-				Integer i1 = null;
-				try {
-					i1 = Integer.valueOf(o1);
-				} catch (NumberFormatException ignored) {
-				}
-				Integer i2 = null;
-				try {
-					i2 = Integer.valueOf(o2);
-				} catch (NumberFormatException ignored) {
-				}
-
-				if (i1 == null && i2 == null)
-					return o1.compareTo(o2);
-				if (i1 == null)
-					return -1;
-				if (i2 == null)
-					return 1;
-
-				return i1 - i2;
-			}
-
-			// o1 does not start with a number -> compare String objects as usual
-			return o1.compareTo(o2);
-		}
-	}
-
 	private VBox buildFileHexPane() {
 		Label title = new Label("Hex Dump");
 		title.setFont(Font.font("System", FontWeight.BOLD, 12));
@@ -3832,14 +3813,11 @@ public class GUI extends Application {
 		String t = type;
 		byte[] fetchedValue = getBytesForCell(job, tablename, row, column);
 
-		// Non-BLOB cells no longer retain their raw on-disk bytes eagerly
-		// (see Auxiliary.appendValue/appendColumn) — that duplicated the
-		// whole dataset in RAM and was a major source of GC pressure during
-		// big imports. Derive display bytes for the hex pane lazily, on
-		// demand, straight from the already-visible String cell value
-		// instead. Real BLOB cells are unaffected: their exact bytes are
-		// still stored eagerly (needed for image/PDF preview detection), so
-		// getBytesForCell() already returned non-null for those above.
+		// Cells no longer retain their raw on-disk bytes in memory. Most rows
+		// carry a HexdumpRow that reads the bytes back from the evidence file
+		// here, on demand. Only if there is no such reference (e.g. a value
+		// assembled from overflow pages or a rebuilt free block) derive display
+		// bytes for the hex pane from the already-visible String cell value.
 		if (fetchedValue == null && rowData != null && column >= 0 && column < rowData.size()) {
 			String cellText = rowData.get(column+1);
 			if (cellText != null && !cellText.isEmpty() && !cellText.startsWith("[BLOB")) {
@@ -20,7 +20,7 @@ public class Global {
 	public static final String YEAR = "2026";
 	public static final int CARVING_ERROR = -1;
 	public static Level LOGLEVEL = Level.FINER;
-	public static int numberofThreads = 1;
+	public static int numberofThreads = Runtime.getRuntime().availableProcessors();
 	public static final String separator = FileSystems.getDefault().getSeparator();
 	public static String WORKINGDIRECTORY;
 	public static final String CONFIG_FILE = "fqlitellm-config.properties";
@@ -39,6 +39,10 @@ public class Global {
 	public static EXPORT_MODES EXPORT_MODE = EXPORT_MODES.DONTEXPORT;
 	public static String SQL_LEX_MODE = "JAVA";
 	
+	/* results of earlier runs are kept below baseDir/cache (see ScanCache) - off unless asked for */
+	public static boolean SCAN_CACHE = false;
+	public static int SCAN_CACHE_LIMIT_MB = 4096;
+
 	/* font settings */
 	public static String font_name = "System";
 	public static String font_style = "Regular";
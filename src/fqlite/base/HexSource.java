@@ -0,0 +1,102 @@
+package fqlite.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import fqlite.log.AppLog;
+
+/**
+ * The file a hexdump entry points into (database, WAL archive or rollback
+ * journal).
+ *
+ * The raw bytes of a recovered cell are not kept in memory. A
+ * {@link HexdumpRow} only remembers where they are in the evidence file and
+ * asks its HexSource for them when the user opens the hex view or a BLOB is
+ * exported. The main buffer of a Job is closed once the scan is done, so the
+ * HexSource maps the file again on first access - with small windows, since
+ * only a few bytes are read at a time.
+ *
+ * @author pawlaszc
+ *
+ */
+public final class HexSource {
+
+	/* the hex view reads single cells - keep the mapped windows small */
+	private static final int WINDOW_SIZE = 1024 * 1024;
+	private static final int MAX_WINDOWS = 8;
+
+	private final String path;
+	private volatile BigByteBuffer buffer;
+	private volatile boolean closed;
+
+	/**
+	 * @param path full qualified name of the file
+	 */
+	public HexSource(String path) {
+		this.path = path;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Reads <code>length</code> bytes starting at the given file offset.
+	 *
+	 * @param offset absolute offset within the file
+	 * @param length number of bytes
+	 * @return the bytes or null if the file is not (or no longer) readable
+	 */
+	public byte[] read(long offset, int length) {
+		if (length == 0)
+			return new byte[0];
+
+		BigByteBuffer bb = open();
+		if (bb == null || offset < 0 || length < 0 || offset + length > bb.limit())
+			return null;
+
+		byte[] dst = new byte[length];
+		try {
+			bb.read(offset, dst);
+		} catch (RuntimeException err) {
+			/* closed in the meantime */
+			return null;
+		}
+		return dst;
+	}
+
+	private BigByteBuffer open() {
+		BigByteBuffer bb = buffer;
+		if (bb != null || closed)
+			return bb;
+
+		synchronized (this) {
+			if (buffer == null && !closed) {
+				try {
+					buffer = new BigByteBuffer(new RandomAccessFile(new File(path), "r"), WINDOW_SIZE, MAX_WINDOWS);
+				} catch (IOException | IllegalArgumentException err) {
+					AppLog.error("Cannot open " + path + " for the hex view: " + err.getMessage());
+					closed = true;
+				}
+			}
+			return buffer;
+		}
+	}
+
+	/**
+	 * Unmaps the file. Later reads return null.
+	 */
+	public synchronized void close() {
+		closed = true;
+		if (buffer != null) {
+			try {
+				buffer.close();
+			} catch (IOException err) {
+				AppLog.error("Could not close " + path + ": " + err.getMessage());
+			}
+			buffer = null;
+		}
+	}
+
+}
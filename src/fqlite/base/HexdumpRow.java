@@ -0,0 +1,186 @@
+package fqlite.base;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The raw bytes of one recovered row, stored as references into the
+ * evidence file.
+ *
+ * Up to now every row carried a <code>byte[]</code> copy of its BLOB cells
+ * next to the decoded values, i.e. the data was held twice. But the bytes
+ * are still there in the database, WAL or journal file. A HexdumpRow keeps
+ * only the position of each cell relative to the page it was read from
+ * (two ints per cell) and reads the bytes through its {@link HexSource}
+ * when somebody calls {@link #get(int)} - which happens when the user
+ * clicks a cell or a BLOB preview is built.
+ *
+ * Values that do not exist in the file as they are (a payload assembled
+ * from overflow pages, a header rebuilt by the carver, a ROWID taken from
+ * the cell header) are still stored as byte arrays.
+ *
+ * To the GUI the row is a plain <code>List&lt;byte[]&gt;</code>. It is not
+ * thread-safe.
+ *
+ * @author pawlaszc
+ *
+ */
+public class HexdumpRow extends AbstractList<byte[]> implements RandomAccess {
+
+	private final HexSource source;
+	private final long base;
+
+	/* offset relative to base, -1 if there is no reference */
+	private int[] offs;
+	private int[] lens;
+	/* only allocated when the first inline value is added */
+	private byte[][] inline;
+	private int size;
+
+	/**
+	 * @param source the file the row was read from, may be null
+	 * @param base file offset of the first byte of the parsed buffer, -1 if
+	 *             the buffer does not map 1:1 to the file
+	 */
+	public HexdumpRow(HexSource source, long base) {
+		this.source = source;
+		this.base = (source == null) ? -1 : base;
+		offs = new int[16];
+		lens = new int[16];
+	}
+
+	/**
+	 * @return true if cells of this row can be stored as file references
+	 */
+	public boolean hasBase() {
+		return base >= 0;
+	}
+
+	/**
+	 * @return file offset the references are relative to, -1 if there is none
+	 */
+	long base() {
+		return base;
+	}
+
+	/**
+	 * @return the offset of a file reference relative to {@link #base()}, -1
+	 *         if the entry is an inline value or null
+	 */
+	int refOffset(int index) {
+		check(index);
+		return (inline != null && inline[index] != null) ? -1 : offs[index];
+	}
+
+	/**
+	 * @return the length of a file reference
+	 */
+	int refLength(int index) {
+		check(index);
+		return lens[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public byte[] get(int index) {
+		check(index);
+		if (inline != null && inline[index] != null)
+			return inline[index];
+		if (offs[index] < 0)
+			return null;
+		return source.read(base + offs[index], lens[index]);
+	}
+
+	/**
+	 * Replaces the entry with a reference to <code>length</code> bytes at
+	 * position <code>at</code> of the parsed buffer. Ignored if the row has
+	 * no base offset.
+	 */
+	public void setRef(int index, int at, int length) {
+		check(index);
+		if (base < 0)
+			return;
+		offs[index] = at;
+		lens[index] = length;
+		if (inline != null)
+			inline[index] = null;
+	}
+
+	@Override
+	public void add(int index, byte[] value) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		if (size == offs.length) {
+			int n = size + (size >> 1) + 1;
+			offs = Arrays.copyOf(offs, n);
+			lens = Arrays.copyOf(lens, n);
+			if (inline != null)
+				inline = Arrays.copyOf(inline, n);
+		}
+		int tail = size - index;
+		if (tail > 0) {
+			System.arraycopy(offs, index, offs, index + 1, tail);
+			System.arraycopy(lens, index, lens, index + 1, tail);
+			if (inline != null)
+				System.arraycopy(inline, index, inline, index + 1, tail);
+		}
+		size++;
+		modCount++;
+		store(index, value);
+	}
+
+	@Override
+	public byte[] set(int index, byte[] value) {
+		byte[] old = get(index);
+		store(index, value);
+		return old;
+	}
+
+	@Override
+	public byte[] remove(int index) {
+		byte[] old = get(index);
+		int tail = size - index - 1;
+		if (tail > 0) {
+			System.arraycopy(offs, index + 1, offs, index, tail);
+			System.arraycopy(lens, index + 1, lens, index, tail);
+			if (inline != null)
+				System.arraycopy(inline, index + 1, inline, index, tail);
+		}
+		size--;
+		if (inline != null)
+			inline[size] = null;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		if (inline != null)
+			Arrays.fill(inline, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+	private void store(int index, byte[] value) {
+		offs[index] = -1;
+		lens[index] = 0;
+		if (value != null) {
+			if (inline == null)
+				inline = new byte[offs.length][];
+			inline[index] = value;
+		} else if (inline != null) {
+			inline[index] = null;
+		}
+	}
+
+	private void check(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+}
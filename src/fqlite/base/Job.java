@@ -2,7 +2,6 @@ package fqlite.base;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -27,6 +26,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.function.IntConsumer;
 
 import fqlite.analyzer.BLOBCache;
 import fqlite.descriptor.ADComparator;
@@ -34,8 +34,13 @@ import fqlite.descriptor.AbstractDescriptor;
 import fqlite.descriptor.IndexDescriptor;
 import fqlite.descriptor.TableDescriptor;
 import fqlite.export.CASEExport;
+import fqlite.export.CollectorRecordSink;
+import fqlite.export.HtmlReportWriter;
+import fqlite.fts.SearchIndex;
+import fqlite.export.RecordSink;
 import fqlite.export.SQLiteDatabaseCreator;
 import fqlite.log.AppLog;
+import fqlite.log.Metrics;
 import fqlite.pattern.HeaderPattern;
 import fqlite.sql.DBManager;
 import fqlite.sql.InMemoryDatabase;
@@ -49,13 +54,13 @@ import fqlite.ui.RollbackPropertyPanel;
 import fqlite.ui.WALPropertyPanel;
 import fqlite.util.Auxiliary;
 import fqlite.util.ByteSeqSearcher;
+import fqlite.util.FileDigests;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.TreeItem;
 import javafx.scene.image.Image;
-import org.apache.commons.codec.digest.DigestUtils;
 
 import javax.swing.*;
 
@@ -98,6 +103,9 @@ public class Job {
 	/* the byte buffer representing the database file in RAM */
 	public BigByteBuffer db;
 
+	/* the hexdump entries of recovered rows point into this file - it stays readable after db is closed */
+	public HexSource hexsource;
+
 
 	/* since version 1.2 - support for write-ahead logs WAL */
 	public boolean readWAL = false;
@@ -115,6 +123,12 @@ public class Job {
 	public ConcurrentHashMap<String,ObservableList<ObservableList<String>>> resultlist = new ConcurrentHashMap<>();
 	public ConcurrentHashMap<String,ObservableList<ObservableList<byte[]>>> hexdumplist = new ConcurrentHashMap<>();
 
+	/* every recovered row is handed to this sink - by default it fills the two lists above */
+	public RecordSink sink = new CollectorRecordSink(resultlist, hexdumplist);
+
+	/* full-text index of the rows of the database, the WAL and the journal - only in gui-mode */
+	public SearchIndex fts = null;
+
 
 	/* some constants */
 	final static String MAGIC_HEADER_STRING = "53514c69746520666f726d6174203300";
@@ -135,7 +149,7 @@ public class Job {
 	//public ConcurrentLinkedQueue<Integer> overflowpages = new ConcurrentLinkedQueue<>();
 
 	ConcurrentHashMap<String, String> guitab = new ConcurrentHashMap<String, String>();
-	public HashMap<String,Number> timestamps = new HashMap<String,Number>();
+	public ConcurrentHashMap<String,Number> timestamps = new ConcurrentHashMap<String,Number>();
 
 	/* property panel for the user interface - only in gui-mode */
 	DBPropertyPanel panel = null;
@@ -184,20 +198,54 @@ public class Job {
 	boolean is_default = false;
 	public List<TableDescriptor> headers = new ArrayList<TableDescriptor>();
 	public List<IndexDescriptor> indices = new ArrayList<IndexDescriptor>();
+	/* all tables and indices in the order the carver tries them - one list per job, so that several jobs can run side by side */
+	public List<AbstractDescriptor> tables = new LinkedList<>();
 	public AtomicInteger runningTasks = new AtomicInteger();
 	int tablematch = 0;
 	int indexmatch = 0;
 	public BLOBCache bincache;
 	public AtomicInteger numberofcells = new AtomicInteger();
 
+	/* timings, throughput and cache figures of this import - shown in the GUI, dumped as JSON by the CLI */
+	public final Metrics metrics = new Metrics();
+
+	/* overflow page chains of db, shared by all workers of this job (needs metrics) */
+	public final OverflowChains overflows = new OverflowChains(this);
+
 	Set<Integer> allreadyvisit;
 
-	/* all unfinished tasks are hold in this list*/
-	List<RecoveryTask> tasklist = new ArrayList<RecoveryTask>();
+	/* all unfinished tasks are hold in this list - filled by readFreeList() on a thread of the pool */
+	List<RecoveryTask> tasklist = Collections.synchronizedList(new ArrayList<RecoveryTask>());
 
 	/* this array holds a description of the associated component for each data page, if known */
 	public AbstractDescriptor[] pages;
 
+	/* root pages of all table and index trees - walked in parallel by BTreeWalker */
+	List<BTreeWalker.Root> btreeroots = new ArrayList<>();
+
+	/* worker pool shared by the B-tree walk and the page scan */
+	private ForkJoinPool pool;
+
+	/* set by the batch mode: all jobs then run in this pool, which is not shut down at the end of a job */
+	public ForkJoinPool sharedpool;
+
+	/* leaf pages that were handed to the pool while the B-tree walk was still running */
+	private final Set<Integer> prescanned = ConcurrentHashMap.newKeySet();
+
+	/* tracks the recovery tasks that run beside the scan (free pages, early leaf pages) - the job thread is party 0 */
+	private final Phaser inflight = new Phaser(1);
+
+	/* a Phaser supports at most 65535 parties - the tasks are spread over child phasers of inflight */
+	private static final int TASKS_PER_PHASER = 10000;
+	private Phaser taskphaser;
+	private int taskcount;
+
+	/* records the rows of this run for the scan cache, null if the cache is off or was used */
+	ScanCache.Writer scancache;
+
+	/* completes when the chain of free list trunk pages has been read */
+	private CompletableFuture<Void> freelistread;
+
 	/* each db-page has only one type */
 	int[] pagetype;
 
@@ -222,7 +270,8 @@ public class Job {
 	boolean emptydb = false;
 
 	public SortedSet<Integer> mastertable = new ConcurrentSkipListSet<Integer>();
-	public List<Integer> freelistpages = new ArrayList<Integer>();
+	/* filled by readFreeList() on a thread of the pool */
+	public List<Integer> freelistpages = Collections.synchronizedList(new ArrayList<Integer>());
 
 	public List<WALFrame> checkpointlist = new ArrayList<WALFrame>();
 
@@ -239,6 +288,7 @@ public class Job {
 	private void readFileIntoBuffer() throws IOException {
 		/* read the complete file into a ByteBuffer */
 		db = new BigByteBuffer(path);
+		hexsource = new HexSource(path);
 
 		size = db.limit();
 
@@ -450,9 +500,7 @@ public class Job {
 			if(offset >= db.capacity())
 				continue;
 
-			db.position(offset);
-
-			byte typ = db.get();
+			byte typ = db.getByte(offset);
 
 			String type = "";
 			switch(typ){
@@ -639,19 +687,27 @@ public class Job {
 	 * @throws InterruptedException
 	 * @throws ExecutionException
 	 */
-	@SuppressWarnings("unchecked")
 	protected int processDB() throws InterruptedException, ExecutionException, IOException {
+		try {
+			return analyse();
+		}
+		finally {
+			/* the analysis failed before the results were stored in the scan cache */
+			abortScanCache();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private int analyse() throws InterruptedException, ExecutionException, IOException {
 
 		bincache = new BLOBCache(this);
 
 		allreadyvisit = ConcurrentHashMap.newKeySet();
 
-		// Clear the shared table-descriptor list for this import run.
-		// Since the GUI guard in open_db() ensures only one import runs at a time,
-		// this is safe — no other Job is reading or writing this list concurrently.
-		synchronized (RecoveryTask.tables) {
-			RecoveryTask.tables.clear();
-		}
+		Metrics.Phase total = metrics.begin(Metrics.PHASE_TOTAL);
+
+		// the schema of a previous run (if any) must not leak into this one
+		tables.clear();
 
 		Path p = Paths.get(path);
 		this.filename = p.getFileName().toString();
@@ -728,6 +784,7 @@ public class Job {
 		else {
 			info("sorry. doesn't seem to be an sqlite file. Wrong header.");
 			err("Doesn't seem to be an valid sqlite file. Wrong header");
+			total.end();
 			return -1;
 		}
 
@@ -1163,7 +1220,7 @@ public class Job {
 					/* HeadPattern !!! */
 					Auxiliary.addHeadPattern2Idx(id);
 
-					exploreBTree(id.getRootOffset(), id, bb);
+					btreeroots.add(new BTreeWalker.Root(id.getRootOffset(), id));
 
 					break;
 				}
@@ -1253,10 +1310,10 @@ public class Job {
 				continue;
 
 			/* transfer component information for later recovery */
-			RecoveryTask.tables.add(td);
+			tables.add(td);
 
-			/* explore a component trees and build up page info */
-			exploreBTree(r, td, bb);
+			/* remember the root - all trees are explored together below */
+			btreeroots.add(new BTreeWalker.Root(r, td));
 
 		}
 
@@ -1270,7 +1327,7 @@ public class Job {
 
 			IndexDescriptor id = it.next();
 			int r = id.getRootOffset();
-			AppLog.debug(" root offset for index " + r);
+			if (AppLog.isDebugEnabled()) AppLog.debug(" root offset for index " + r);
 
 			/* update treeview in HexViewFactory - skip this step in console modus */
 			if (null != gui) {
@@ -1318,13 +1375,13 @@ public class Job {
 			}
 
 			/* transfer component information for later recovery */
-			RecoveryTask.tables.add(id);
+			tables.add(id);
 
 
 		}
 
 		try{
-			RecoveryTask.tables.sort(new ADComparator());
+			tables.sort(new ADComparator());
 		}
 		catch(Exception err)
 		{
@@ -1332,6 +1389,13 @@ public class Job {
 			//System.out.println(err);
 		}
 
+		/* the same files were analysed before? then the rows come from the scan cache */
+		boolean fromcache = loadScanCache();
+
+		/* explore all component trees and build up page info */
+		if (!fromcache)
+			exploreBTrees(bb);
+
 
 		int maxcol = 0;
 		for(TableDescriptor t : headers){
@@ -1430,6 +1494,8 @@ public class Job {
 		if(emptydb){
 
 			info("Omit analysis: database file is empty.");
+			shutdownPool();
+			total.end();
 			return 0;
 		}
 
@@ -1464,145 +1530,26 @@ public class Job {
 
 
 		/*
-		 * STEP 1: We start the recovery process by scanning the free list first
+		 * STEP 1: We start the recovery process with the free list. The trunk pages
+		 * are read by a task of the pool. Every free page found there is recovered
+		 * by a task of its own in the same pool - while the regular scan already runs.
 		 */
 
-		if (head > 0) {
-			AppLog.debug("first:: " + start + " 0hx " + Long.toHexString(start));
-
-			long startfp = System.currentTimeMillis();
-			info("Start free page recovery...");
-
-			// seeking file pointer to the first free page entry
-
-			/* create a new threadpool to analyse the freepages */
-			ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Global.numberofThreads);
-
-			/* A list can extend over several memory pages. */
-			boolean morelistpages = false;
-
-			int freepagesum = 0;
-
-			do {
-				/* reserve space for the first/next page of the free list */
-				ByteBuffer fplist = ByteBuffer.allocate(ps);
-
-				db.read(fplist, start);
-
-				// next (possible) freepage list offset or 0xh00000000 + number of entries
-				// example : 00 00 15 3C | 00 00 02 2B
-
-				// now read the first 4 bytes to get the offset for the next free page list
-				byte[] nextlistoffset = new byte[4];
-
-				try {
-					fplist.get(nextlistoffset);
-				}
-				catch(Exception err)
-				{
-					AppLog.error("Error while parsing free list.");
-				}
-
-				/*
-				 * is there a further page - <code>nextlistoffset</code> has a value > 0 in this
-				 * case
-				 */
-				if (!Auxiliary.bytesToHex3(nextlistoffset).equals(NO_MORE_ENTRIES)) {
-
-					ByteBuffer of = ByteBuffer.wrap(nextlistoffset);
-					int nfp = of.getInt();
-					start = (nfp - 1L) * ps;
-					if (!allreadyvisit.contains(nfp))
-						allreadyvisit.add(nfp);
-					else {
-						info("Antiforensiscs found: cyclic freepage list entry");
-					}
-					morelistpages = true;
-
-				}
-				else
-					morelistpages = false;
-
-				// now read the number of entries for this particular page
-				byte[] numberOfEntries = new byte[4];
-				try
-				{
-					fplist.get(numberOfEntries);
-				}
-				catch(Exception err)
-				{
-					AppLog.error(err.getMessage());
-				}
-
-				int entries = 0;
-
-				ByteBuffer e = ByteBuffer.wrap(numberOfEntries);
-				entries = e.getInt();
-
-				info(" Number of Entries in freepage list " + fpnumber);  //2704
-
-				runningTasks.set(0);
-
-				/* iterate through free page list and read free page offsets */
-				for (int zz = 1; zz <= entries; zz++) {
-
-					byte[] next = new byte[4];
-					fplist.position(4 + 4 * zz);
-					fplist.get(next);
-
-					ByteBuffer bf = ByteBuffer.wrap(next);
-					int n = bf.getInt();
-
-					if (n == 0) {
-						continue;
-					}
-					// determine offset for free page
-					long offset = (n - 1L) * ps;
-
-					//pages[n] = this.tdefault;
-					/* remember already scanned pages in a list */
-					freelistpages.add(n);
-					RecoveryTask task1 = new RecoveryTask(new Auxiliary(this), this, offset, n, ps, true);
-					/* add new task to executor queue */
-					runningTasks.incrementAndGet();
-					tasklist.add(task1);
-					// Dispatch to the thread pool
-					executor.execute(task1);
-				}
-				freepagesum += entries;
-
-			} while (morelistpages); // while
-
-			info("Number of pages in the free list: " + freelistpages.size());
-
-
-			executor.shutdown();
-
-			info("ImportDBTask total: " + runningTasks.intValue());
-
-			// wait for Threads to finish the tasks
-			while (runningTasks.intValue() != 0) {
-				try {
-					TimeUnit.MILLISECONDS.sleep(10);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+		if (fromcache) {
+			shutdownPool();
+		}
+		else {
+			if (head > 0) {
+				if (AppLog.isDebugEnabled()) AppLog.debug("first:: " + start + " 0hx " + Long.toHexString(start));
+				info("Start free page recovery...");
+				freelistread = CompletableFuture.runAsync(() -> readFreeList(start), pool());
 			}
 
-			info("Number of cells " + numberofcells.intValue());
-
-			info(" Finished. No further free pages. Scanned " + freepagesum);
-
-			long endfp = System.currentTimeMillis();
-			info("Duration of free page recovery in ms: " + (endfp - startfp));
-
-		} // end of free page list recovery
+			// full db-scan (including all database pages)
+			scan(numberofpages, ps);
 
-		info("Lines after free page recovery: " + resultlist.size());
-
-
-		// full db-scan (including all database pages)
-		scan(numberofpages, ps);
+			commitScanCache();
+		}
 
 		if (gui != null) {
 
@@ -1617,10 +1564,13 @@ public class Job {
 				while (tableKeys.hasMoreElements()) {
 					String tablename = tableKeys.nextElement();
 					String path = guitab.get(tablename);
-					if (null != path) {
+					if (null != path && pending(tablename)) {
+						/* the rows are decoded when the view of the table is opened */
+						gui.defer_table(path, () -> gui.update_table(path, resultlist.get(tablename), hexdumplist.get(tablename), false));
+					} else if (null != path) {
 						gui.update_table(path, resultlist.get(tablename), hexdumplist.get(tablename), false);
 					} else {
-						AppLog.debug("update_table: no guitab entry for '" + tablename + "' — table view will remain empty");
+						if (AppLog.isDebugEnabled()) AppLog.debug("update_table: no guitab entry for '" + tablename + "' — table view will remain empty");
 					}
 				}
 			});
@@ -1630,18 +1580,27 @@ public class Job {
 
 		// Cleanup: post a fence runLater so the JavaFX thread processes all
 		// pending GUI updates *before* we close the db buffer on this thread.
-		java.util.concurrent.CountDownLatch guiFence = new java.util.concurrent.CountDownLatch(1);
-		Platform.runLater(() -> {
-			tasklist.clear();
-			tasklist = null;
-			guiFence.countDown();
-		});
-		try {
-			guiFence.await();
-		} catch (InterruptedException ie) {
-			Thread.currentThread().interrupt();
+		// (CLI mode has no JavaFX toolkit - Platform.runLater() would throw there.)
+		if (gui != null) {
+			java.util.concurrent.CountDownLatch guiFence = new java.util.concurrent.CountDownLatch(1);
+			Platform.runLater(() -> {
+				tasklist.clear();
+				tasklist = null;
+				guiFence.countDown();
+			});
+			try {
+				guiFence.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
 		}
+		/* the mmap window statistics are gone with the buffer */
+		reportCache("db", db);
+		total.pages(numberofpages);
+		total.end();
+
 		// Now safe to close: all JavaFX callbacks that touch db have run.
+		overflows.clear();
 		try {
 			db.close();
 			db = null;   // signal to any late callers (e.g. updatePropertyPanel) that db is gone
@@ -1655,115 +1614,187 @@ public class Job {
 	}
 
 	/**
-	 * If the database is still empty, all changes are still in the WAL file.
-	 * In this case, a snapshot with all changed database pages is stored there.
-	 * This happens quite often, because by default, a commit to the actual database
-	 * only takes place after the WAL archive has reached 1000 pages.
+	 * Looks up the results of an earlier run on the same evidence files (see
+	 * {@link ScanCache}). On a hit the page map is restored - the B-tree walk
+	 * and the scan are skipped. If the rows go into the result lists of the
+	 * job, a table is decoded when it is first needed (see
+	 * {@link ScanCache.LazyTable}), otherwise all rows are handed to the sink.
+	 * On a miss a writer is put in front of the sink that records the rows of
+	 * this run.
+	 *
+	 * The entry is checked before a single row reaches the sink; a damaged
+	 * entry is dropped and the database is analysed again.
+	 *
+	 * @return true, if the results were loaded from the cache
+	 * @throws IOException if the entry could not be read after it was checked -
+	 *         the sink got some of the rows then, they are not recovered again
 	 */
-	private BigByteBuffer readCheckpoint(){
+	private boolean loadScanCache() throws IOException {
 
-		TreeMap<Integer,ByteBuffer> cptable = new TreeMap<Integer,ByteBuffer>();
-
-		BigByteBuffer wal = null;
-		ByteBuffer checkpoint = ByteBuffer.allocate(0);
+		if (!Global.SCAN_CACHE || emptydb)
+			return false;
 
+		long begin = System.currentTimeMillis();
+		String key;
 		try {
-			wal = readWALIntoBuffer(this.path+"-wal");
-		} catch (IOException e) {
-			AppLog.error("Could not access wal-archive");
-			return null;
+			key = ScanCache.key(this);
+		} catch (IOException err) {
+			AppLog.error("Scan cache: cannot hash the evidence files: " + err.getMessage());
+			return false;
 		}
+		info("Scan cache key " + key + " (" + (System.currentTimeMillis() - begin) + " ms)");
 
+		ScanCache.Entry entry = ScanCache.open(key);
+		if (entry != null && entry.matches(this)) {
+			Metrics.Phase phase = metrics.begin(Metrics.PHASE_CACHE);
+			boolean valid = false;
+			try {
+				entry.verify();
+				valid = true;
+			} catch (IOException err) {
+				AppLog.error("Scan cache entry is damaged, the database is analysed again: " + err.getMessage());
+				phase.end();
+			}
+
+			if (valid) {
+				entry.restore(this);
+				long rows = entry.rows();
+				if (sink instanceof CollectorRecordSink) {
+					for (ScanCache.LazyTable t : entry.lazy(hexsource, fts)) {
+						resultlist.put(t.name, t.rows);
+						hexdumplist.put(t.name, t.hexdump);
+					}
+				}
+				else {
+					try {
+						entry.replay(sink, hexsource, pool());
+					} catch (IOException err) {
+						entry.delete();
+						throw new IOException("Scan cache entry could not be read after it was checked, the results are incomplete: "
+								+ err.getMessage(), err);
+					}
+					entry.close();
+				}
+				metrics.add(Metrics.CACHE_ROWS, rows);
+				phase.end();
+				info("Found " + rows + " rows in the scan cache in ms : " + phase.millis());
+				return true;
+			}
+		}
+		if (entry != null)
+			entry.delete();
 
+		try {
+			scancache = new ScanCache.Writer(key, sink);
+			sink = scancache;
+		} catch (IOException err) {
+			AppLog.error("Scan cache: cannot record the results: " + err.getMessage());
+		}
+		return false;
+	}
 
-		boolean next = false;
-		int framestart = 32; // this is the position, where the first frame should be
+	/**
+	 * @return true, if the rows of the table are still in the scan cache
+	 *         and have not been needed so far
+	 */
+	private boolean pending(String tablename) {
+		return resultlist.get(tablename) instanceof ScanCache.LazyList<?> l && !l.loaded();
+	}
 
-		int frame = 1;
+	/**
+	 * Stores the rows recorded during this run in the scan cache and
+	 * removes the writer from the sink chain again.
+	 */
+	private void commitScanCache() {
 
-		do {
+		if (scancache == null)
+			return;
 
-			/* 24 Byte - with six 4-Byte big endian values */
-			byte[] frameheader = new byte[24];
-			if (framestart + 24 > wal.limit()) {
-				AppLog.debug("readCheckpoint: WAL truncated at framestart=" + framestart + " — stopping.");
-				break;
-			}
-			wal.position(framestart);
-			wal.get(frameheader);
-			ByteBuffer fheader = ByteBuffer.wrap(frameheader);
+		sink = scancache.next();
+		try {
+			scancache.commit(this);
+		} catch (IOException err) {
+			AppLog.error("Scan cache: cannot store the results: " + err.getMessage());
+		}
+		scancache = null;
+	}
 
-			/* get the page number of this frame */
-			int pagenumber_maindb = fheader.getInt();
+	/**
+	 * Drops the rows recorded so far if the scan cache writer is still in
+	 * the sink chain, i.e. the analysis did not get to commitScanCache().
+	 */
+	private void abortScanCache() {
 
-			/* number or size of pages for a commit header, otherwise zero. */
-			int commit = fheader.getInt();
-			if (commit > 0)
-				info(" Information of the WAL-archive has been commited successful. ");
-			else
-				info(" No commit so far. this frame holds the latest! version of the page ");
+		if (scancache == null)
+			return;
 
-			long salt1 = fheader.getInt();
-			long salt2 = fheader.getInt();
+		sink = scancache.next();
+		scancache.abort();
+		scancache = null;
+	}
 
-			/* read the db page into buffer */
-			// Copy instead of slice(): page is stored in cptable and read
-			// back much later, long after this window of the (LRU-evicting,
-			// demand-paged) wal BigByteBuffer may have been evicted and its
-			// native mapping unmapped — see readDBPageWithOffset() for the
-			// full explanation of why a live slice() is unsafe here.
-			byte[] pagebytes = new byte[ps];
-			wal.position(framestart + 24);
-			wal.get(pagebytes);
-			ByteBuffer page = ByteBuffer.wrap(pagebytes);
-			page.order(ByteOrder.BIG_ENDIAN);
+	/**
+	 * If the database is still empty, all changes are still in the WAL file.
+	 * In this case, a snapshot with all changed database pages is stored there.
+	 * This happens quite often, because by default, a commit to the actual database
+	 * only takes place after the WAL archive has reached 1000 pages.
+	 */
+	private BigByteBuffer readCheckpoint(){
 
-			framestart += ps +  24;
-			cptable.put(pagenumber_maindb,page);
+		BigByteBuffer wal = null;
 
+		try {
+			wal = readWALIntoBuffer(this.path+"-wal");
+		} catch (IOException | IllegalArgumentException e) {
+			AppLog.error("Could not access wal-archive");
+			return null;
+		}
 
-			WALFrame f = new WALFrame(pagenumber_maindb, frame , salt1, salt2, commit != 0);
-			checkpointlist.add(f);
+		try {
+			/* one pass over the frame headers, then the latest version of every page */
+			List<WALFrame> frames = WALReader.index(wal, ps);
+			WALIndex walindex = new WALIndex(frames);
+			checkpointlist.addAll(frames);
 
+			if (walindex.size() > 0 && walindex.isCommitted(walindex.size() - 1))
+				info(" Information of the WAL-archive has been commited successful. ");
+			else
+				info(" No commit so far. the last frames hold the latest! version of their pages ");
 
-			/*  More pages to analyze? */
-			if(framestart+24+ps < size)
-			{
+			int[] cppages = walindex.pages();
+			if ((long) cppages.length * ps > Integer.MAX_VALUE) {
+				AppLog.error("readCheckpoint: " + cppages.length + " pages do not fit into one buffer.");
+				return null;
+			}
 
-				next = true;
+			/*
+			 * The pages are copied in page order into one array of the final
+			 * size. A copy instead of slice(): the windows of the (LRU-evicting,
+			 * demand-paged) wal BigByteBuffer may be unmapped as soon as it is
+			 * closed - see readDBPageWithOffset() for the full explanation.
+			 */
+			byte[] checkpoint = new byte[cppages.length * ps];
+			for (int i = 0; i < cppages.length; i++) {
+				WALFrame f = walindex.latest(cppages[i]);
+				wal.read(f.offset + 24, checkpoint, i * ps, ps);
 			}
-			else
-				next = false;
 
+			/*
+			 * Important: Whenever the database file is empty and the WAL archive
+			 * has not been committed yet; all information is in the WAL file. This
+			 * also applies to the number of pages in the database.
+			 */
+			pages = new AbstractDescriptor[cppages.length + 1];
 
-			frame++;
+			return BigByteBuffer.wrap(checkpoint);
 		}
-		while(next);
-
-		Set<Integer> cppages = cptable.keySet();
-		Iterator<Integer> it = cppages.iterator();
-
-		while(it.hasNext())
-		{
-			ByteBuffer pp = cptable.get(it.next());
-
-			checkpoint = ByteBuffer.allocate(checkpoint.limit() + pp.limit())
-					.put(checkpoint)
-					.put(pp)
-					.rewind();
+		finally {
+			try {
+				wal.close();
+			} catch (IOException e) {
+				AppLog.error("Could not close wal-archive");
+			}
 		}
-
-		/*
-		 * Important: Whenever the database file is empty and the WAL archive
-		 * has not been committed yet; all information is in the WAL file. This
-		 * also applies to the number of pages in the database.
-		 */
-		pages = new AbstractDescriptor[cptable.size() + 1];
-
-
-
-
-		return new BigByteBuffer(checkpoint);
 	}
 
 	public static String db_info;
@@ -1773,8 +1804,6 @@ public class Job {
 	 */
 	public InMemoryDatabase createInMemoryDB(String filename, String objectname, ExportType exp) {
 
-		String dbname = objectname;
-
 		if (exp == ExportType.SQLITEDB || exp == ExportType.ROLLBACKJOURNAL || exp == ExportType.WALARCHIVE) {
 
 			ConcurrentHashMap<String, ObservableList<ObservableList<String>>> exportlist = switch (exp) {
@@ -1784,49 +1813,20 @@ public class Job {
 				default -> null;
 			};
 
+			/* 1st step: get a database manager instance */
 			if (exp == ExportType.WALARCHIVE || exp == ExportType.ROLLBACKJOURNAL)
-			{
-				/* 1st step: get a database manager instance and create the database schema */
 				mdb = DBManager.get(objectname);
-				try {
-					mdb.createDatabaseAndSchema(headers, objectname, exp == ExportType.WALARCHIVE);
-				} catch (SQLException e) {
-					throw new RuntimeException(e);
-				}
-			}
-			else{
-				/* 1st step: get a database manager instance and create the database schema */
+			else
 				mdb = DBManager.get(filename);
-				try {
-					mdb.createDatabaseAndSchema(headers, objectname, exp == ExportType.WALARCHIVE);
-				} catch (SQLException e) {
-					throw new RuntimeException(e);
-				}
-			}
-
-			/* get all values of the result list*/
-			Enumeration<String> keyset = exportlist.keys();
-
-			/* iterate over all tables inside the file */
-			while (keyset.hasMoreElements()) {
-
-				/* get next table */
-				String tblname = keyset.nextElement();
-				ObservableList<ObservableList<String>> rows = exportlist.get(tblname);
-
-				try {
-					// skip the internal tables
-					if (tblname.equals("sqlite_master") || tblname.startsWith("sqlite_") || tblname.startsWith("fqlite_"))
-						continue;
-
-					mdb.insertRows(bincache, objectname, tblname, headers, rows, exp == ExportType.WALARCHIVE);
-
-				} catch (SQLException e) {
-					AppLog.error("Error while inserting rows for " + tblname);
-					e.printStackTrace();
-					throw new RuntimeException(e);
-				}
 
+			/*
+			 * 2nd step: create the database schema. The rows of a table are
+			 * inserted when a statement refers to the table for the first time.
+			 */
+			try {
+				mdb.attach(bincache, objectname, headers, exportlist, exp == ExportType.WALARCHIVE);
+			} catch (SQLException e) {
+				throw new RuntimeException(e);
 			}
 
 			return mdb;
@@ -1867,26 +1867,11 @@ public class Job {
 				throw new RuntimeException(e);
 			}
 
-			/* get all values of the result list*/
-			Enumeration<String> keyset = exportlist.keys();
-
-			/* iterate over all tables inside the file */
-			while (keyset.hasMoreElements()) {
-
-				/* get next table */
-				String tblname = keyset.nextElement();
-				ObservableList<ObservableList<String>> rows = exportlist.get(tblname);
-
-				try {
-					// skip the internal tables except the freelist
-
-					if(tblname.equals("sqlite_master") || tblname.startsWith("sqlite_"))
-						continue;
-					exporter.insertRows(bincache,filename,tblname,headers,rows,exp == ExportType.WALARCHIVE);
-				} catch (SQLException e) {
-					throw new RuntimeException(e);
-				}
-
+			/* 2nd step: write the rows of all tables - the internal tables are skipped by the exporter */
+			try {
+				exporter.export(bincache, filename, headers, indices, exportlist, exp == ExportType.WALARCHIVE);
+			} catch (SQLException e) {
+				throw new RuntimeException(e);
 			}
 		}
 
@@ -2184,53 +2169,45 @@ public class Job {
 	 */
 	public void exportToHtml(String dbname, String outputPath, String xpath, ExportType exp, boolean isTable, String tname) throws IOException {
 
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath, StandardCharsets.UTF_8))) {
+		ConcurrentHashMap<String, ObservableList<ObservableList<String>>> exportlist = switch (exp) {
+			case ROLLBACKJOURNAL -> this.rol.resultlist;
+			case SQLITEDB -> this.resultlist;
+			case WALARCHIVE -> this.wal.resultlist;
+			default -> null;
+		};
 
-			ConcurrentHashMap<String, ObservableList<ObservableList<String>>> exportlist = switch (exp) {
-				case ROLLBACKJOURNAL -> this.rol.resultlist;
-				case SQLITEDB -> this.resultlist;
-				case WALARCHIVE -> this.wal.resultlist;
-				default -> null;
-			};
-
-			Path p = Paths.get(path);
-			Map<String,Object> attributes = Files.readAttributes(p,"*", LinkOption.NOFOLLOW_LINKS);
-
-			// collect metadata
-			Map<String, String> metaData = new HashMap<>();
-			metaData.put("size", attributes.get("size").toString() + " bytes");
-			if (exp == ExportType.SQLITEDB)
-				metaData.put("path", path + " (database file)");
-			if (exp == ExportType.WALARCHIVE) {
-				int id = walpath.lastIndexOf("/");
-				String wpath = walpath.substring(0, id);
-				metaData.put("path", wpath + " (write-ahead log)");
-			}
-			if (exp == ExportType.ROLLBACKJOURNAL) {
-				int id = rollbackjournalpath.lastIndexOf("/");
-				String rpath = rollbackjournalpath.substring(0, id);
-				metaData.put("path", rpath + " (journal file)");
-			}
-			metaData.put("creationTime", attributes.get("creationTime").toString());
-			metaData.put("lastAccess", attributes.get("lastAccessTime").toString());
-			metaData.put("lastModified", attributes.get("lastModifiedTime").toString());
-			metaData.put("sha1", new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_1).digestAsHex(new File(path)));
-			metaData.put("sha256", new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_256).digestAsHex(new File(path)));
-			metaData.put("md5", new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.MD5).digestAsHex(new File(path)));
-			metaData.put("investigator", System.getProperty("user.name"));
-			metaData.put("toolVersion", "FQlite v" + Global.FQLITE_VERSION);
+		Path p = Paths.get(path);
+		Map<String,Object> attributes = Files.readAttributes(p,"*", LinkOption.NOFOLLOW_LINKS);
+
+		// collect metadata
+		Map<String, String> metaData = new HashMap<>();
+		metaData.put("size", attributes.get("size").toString() + " bytes");
+		if (exp == ExportType.SQLITEDB)
+			metaData.put("path", path + " (database file)");
+		if (exp == ExportType.WALARCHIVE) {
+			int id = walpath.lastIndexOf("/");
+			String wpath = walpath.substring(0, id);
+			metaData.put("path", wpath + " (write-ahead log)");
+		}
+		if (exp == ExportType.ROLLBACKJOURNAL) {
+			int id = rollbackjournalpath.lastIndexOf("/");
+			String rpath = rollbackjournalpath.substring(0, id);
+			metaData.put("path", rpath + " (journal file)");
+		}
+		metaData.put("creationTime", attributes.get("creationTime").toString());
+		metaData.put("lastAccess", attributes.get("lastAccessTime").toString());
+		metaData.put("lastModified", attributes.get("lastModifiedTime").toString());
+		FileDigests.Digests digests = FileDigests.get(path);
+		metaData.put("sha1", digests.sha1());
+		metaData.put("sha256", digests.sha256());
+		metaData.put("md5", digests.md5());
+		metaData.put("investigator", System.getProperty("user.name"));
+		metaData.put("toolVersion", "FQlite v" + Global.FQLITE_VERSION);
+
+		/* the rows are streamed into the report, see HtmlReportWriter */
+		try (HtmlReportWriter report = new HtmlReportWriter(new File(outputPath), dbname, createMetadataSection(metaData))) {
 
 			Enumeration<String> tbls = exportlist.keys();
-
-			writer.write(createHtmlHeader());
-
-			writer.write("<body>\n");
-			writer.write("<div class='container'>\n");
-			writer.write("<h1>database export: " + escapeHtml(dbname) + "</h1>\n");
-
-			// meta data division
-			writer.write(createMetadataSection(metaData));
-
 			while (tbls.hasMoreElements()) {
 				String tblname = tbls.nextElement();
 				if(isTable && !tname.equals(tblname))
@@ -2245,568 +2222,46 @@ public class Job {
 
 				if (table.isEmpty()) continue;
 
-				writer.write("<div class='table-section'>\n");
-				writer.write("<h2>" + escapeHtml(tblname) + "</h2>\n");
-
-				writer.write("<div class='filter-row'>\n");
-				writer.write("<input type='text' class='global-filter-input' ");
-				writer.write("placeholder='Search in complete table...' ");
-				writer.write("onkeyup=\"applyFilters('" + tblname + "')\">\n");
-				writer.write("</div>\n");
-				writer.write("<div class='table-wrapper'>\n");
-				writer.write("<table id='table-" + escapeHtml(tblname) + "' class='data-table'>\n");
-
-				if (!table.isEmpty() && h!=null && h.length>0) {
-					//ObservableList<String> headerRow = table.get(0);
-
-					// Spaltenüberschriften mit Sortierung
-					writer.write("<thead>\n");
-					writer.write("<tr class='header-row'>\n");
-					for (int colIndex = 0; colIndex < h.length; colIndex++) {
-						String header = h[colIndex];
-						writer.write("<th onclick=\"sortTable('" + tblname + "', " + colIndex + ")\">");
-						writer.write(escapeHtml(header));
-						writer.write(" <span class='sort-indicator'></span>");
-						writer.write("</th>\n");
-					}
-					writer.write("</tr>\n");
-
-					writer.write("<tr class='filter-row'>\n");
-					for (int colIndex = 0; colIndex < h.length; colIndex++) {
-						writer.write("<th>");
-						writer.write("<input type='text' class='column-filter' ");
-						writer.write("data-column='" + colIndex + "' ");
-						writer.write("placeholder='Filter...' ");
-						writer.write("onkeyup=\"applyFilters('" + tblname + "')\">");
-						writer.write("</th>\n");
-					}
-					writer.write("</tr>\n");
-					writer.write("</thead>\n");
-				}
+				report.beginTable(tblname, h);
 
-				writer.write("<tbody>\n");
-				//int startIndex = Global.EXPORTTABLEHEADER ? 1 : 0;
-				int startIndex = 0;
+				List<Object> cells = new ArrayList<>();
+				for (int i = 0; i < table.size(); i++) {
+					ObservableList<String> row = table.get(i);
 
+					/* a row the GUI has shown starts with the line number, the table name follows */
+					int first = tblname.equals(row.get(0)) ? 0 : 1;
+					String offset = row.size() > first + 4 ? row.get(first + 4) : "";
 
-				for (int i = startIndex; i < table.size(); i++) {
-					ObservableList<String> row = table.get(i);
-					String offset = row.get(5);
-					writer.write("<tr>\n");
-					int cl = 0;
-					for (String cell : row) {
-						if(cl==1) {
-							cl++;
-							continue;
-						}
+					cells.clear();
+					cells.add(first == 0 ? String.valueOf(i + 1) : row.get(0));
+					for (int cl = first + 1; cl < row.size(); cl++) {
+						String cell = row.get(cl);
 						/* export binary to seperate files - if enabled in the configuration */
-						if(cell.contains("[BLOB")){
+						if(cell != null && cell.contains("[BLOB")){
 
 							if(Global.EXPORT_MODE == Global.EXPORT_MODES.TOSEPARATEFILES)
 							{
 								cell = exportBLOB(dbname,offset,cell,xpath);
-
-								if(cell.endsWith(".png") || cell.endsWith(".jpg") || cell.endsWith(".gif") || cell.endsWith(".jpeg") || cell.endsWith(".bmp")) {
-									cell = "<a href=" + cell + ">"
-										   + "<img src=" + cell + " width=\"40\" height=\"40\" alt=\"preview\"></a>";
-								}
-								else {
-									cell = "<a href=" + cell + ">" + cell + "</a>";
-								}
-								writer.write("<td>" + cell + "</td>\n");
+								boolean image = cell.endsWith(".png") || cell.endsWith(".jpg") || cell.endsWith(".gif") || cell.endsWith(".jpeg") || cell.endsWith(".bmp");
+								cells.add(new HtmlReportWriter.Link(cell, image));
 							}
 							else{
-								writer.write("<td> [BLOB] </td>\n");
+								cells.add(" [BLOB] ");
 							}
 						}
 						else
-							writer.write("<td>" + escapeHtml(cell) + "</td>\n");
-						cl++;
+							cells.add(cell);
 					}
-					writer.write("</tr>\n");
+					report.addRow(cells);
 				}
 
-				writer.write("</tbody>\n");
-				writer.write("</table>\n");
-				writer.write("</div>\n");
-				writer.write("<div class='pagination-container'>\n");
-				writer.write("<div class='pagination-info'>\n");
-				writer.write("<span class='showing-info' id='showing-" + tblname + "'></span>\n");
-				writer.write("</div>\n");
-				writer.write("<div class='pagination-controls'>\n");
-				writer.write("<label>lines per page: ");
-				writer.write("<select class='rows-per-page' onchange=\"changeRowsPerPage('" + tblname + "', this.value)\">\n");
-				writer.write("<option value='10'>10</option>\n");
-				writer.write("<option value='25' selected>25</option>\n");
-				writer.write("<option value='50'>50</option>\n");
-				writer.write("<option value='100'>100</option>\n");
-				writer.write("<option value='all'>all</option>\n");
-				writer.write("</select>\n");
-				writer.write("</label>\n");
-				writer.write("<div class='pagination-buttons' id='pagination-" + tblname + "'></div>\n");
-				writer.write("</div>\n");
-				writer.write("</div>\n");
-
-				writer.write("</div>\n\n");
+				report.endTable();
 			}
 
-			writer.write("</div>\n");
-			writer.write("<script>\n");
-			writer.write("document.addEventListener('DOMContentLoaded', function() {\n");
-
-			Enumeration<String> keysetInit = exportlist.keys();
-			while (keysetInit.hasMoreElements()) {
-
-				String tblname = keysetInit.nextElement();
-
-				// skip index tables
-				String[] h = getExentedColumnNamesForTable(tblname,exp);
-				if (tblname.startsWith("sqlite_")) {continue;}
-
-				writer.write("    initTable('" + tblname + "');\n");
-			}
-
-			writer.write("});\n");
-			writer.write("</script>\n");
-
-			writer.write("</body>\n</html>");
-
-		} // end try-with-resources (writer auto-closed)
-	}
-
-
-	private String createHtmlHeader() {
-		return "<!DOCTYPE html>\n" +
-			   "<html lang='de'>\n" +
-			   "<head>\n" +
-			   "<meta charset='UTF-8'>\n" +
-			   "<meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
-			   "<title>Datenbank Export</title>\n" +
-			   "<style>\n" +
-			   "* {\n" +
-			   "    box-sizing: border-box;\n" +
-			   "}\n" +
-			   "body {\n" +
-			   "    font-family: Arial, sans-serif;\n" +
-			   "    margin: 0;\n" +
-			   "    padding: 20px;\n" +
-			   "    background-color: #f5f5f5;\n" +
-			   "}\n" +
-			   ".container {\n" +
-			   "    max-width: 1400px;\n" +
-			   "    margin: 0 auto;\n" +
-			   "    background: white;\n" +
-			   "    padding: 20px;\n" +
-			   "    border-radius: 8px;\n" +
-			   "    box-shadow: 0 2px 4px rgba(0,0,0,0.1);\n" +
-			   "}\n" +
-			   "h1 {\n" +
-			   "    color: #333;\n" +
-			   "    border-bottom: 3px solid #4CAF50;\n" +
-			   "    padding-bottom: 10px;\n" +
-			   "    margin-top: 0;\n" +
-			   "}\n" +
-			   "h2 {\n" +
-			   "    color: #555;\n" +
-			   "    margin-top: 30px;\n" +
-			   "    margin-bottom: 15px;\n" +
-			   "}\n" +
-			   ".metadata-section {\n" +
-			   "    background-color: #f9f9f9;\n" +
-			   "    border: 1px solid #e0e0e0;\n" +
-			   "    border-radius: 6px;\n" +
-			   "    padding: 20px;\n" +
-			   "    margin-bottom: 30px;\n" +
-			   "}\n" +
-			   ".metadata-section h2 {\n" +
-			   "    margin-top: 0;\n" +
-			   "    color: #333;\n" +
-			   "    font-size: 1.3em;\n" +
-			   "    border-bottom: 2px solid #4CAF50;\n" +
-			   "    padding-bottom: 8px;\n" +
-			   "}\n" +
-			   ".metadata-grid {\n" +
-			   "    display: grid;\n" +
-			   "    grid-template-columns: repeat(auto-fit, minmax(400px, 1fr));\n" +
-			   "    gap: 20px;\n" +
-			   "}\n" +
-			   ".metadata-column {\n" +
-			   "    display: flex;\n" +
-			   "    flex-direction: column;\n" +
-			   "    gap: 12px;\n" +
-			   "}\n" +
-			   ".metadata-row {\n" +
-			   "    display: grid;\n" +
-			   "    grid-template-columns: 150px 1fr;\n" +
-			   "    gap: 10px;\n" +
-			   "    padding: 8px 0;\n" +
-			   "    border-bottom: 1px solid #e8e8e8;\n" +
-			   "}\n" +
-			   ".metadata-row:last-child {\n" +
-			   "    border-bottom: none;\n" +
-			   "}\n" +
-			   ".metadata-label {\n" +
-			   "    font-weight: bold;\n" +
-			   "    color: #555;\n" +
-			   "    align-self: start;\n" +
-			   "}\n" +
-			   ".metadata-value {\n" +
-			   "    color: #333;\n" +
-			   "    word-break: break-all;\n" +
-			   "}\n" +
-			   ".metadata-value.monospace {\n" +
-			   "    font-family: 'Courier New', monospace;\n" +
-			   "    font-size: 0.9em;\n" +
-			   "    background-color: #f5f5f5;\n" +
-			   "    padding: 4px 8px;\n" +
-			   "    border-radius: 3px;\n" +
-			   "}\n" +
-			   ".no-data {\n" +
-			   "    color: #999;\n" +
-			   "    font-style: italic;\n" +
-			   "}\n" +
-			   ".table-section {\n" +
-			   "    margin-bottom: 40px;\n" +
-			   "}\n" +
-			   ".filter-row {\n" +
-			   "    margin-bottom: 15px;\n" +
-			   "}\n" +
-			   ".global-filter-input {\n" +
-			   "    width: 100%;\n" +
-			   "    padding: 10px;\n" +
-			   "    border: 2px solid #ddd;\n" +
-			   "    border-radius: 4px;\n" +
-			   "    font-size: 14px;\n" +
-			   "}\n" +
-			   ".global-filter-input:focus {\n" +
-			   "    outline: none;\n" +
-			   "    border-color: #4CAF50;\n" +
-			   "}\n" +
-			   ".table-wrapper {\n" +
-			   "    overflow-x: auto;\n" +
-			   "    margin-bottom: 15px;\n" +
-			   "}\n" +
-			   ".data-table {\n" +
-			   "    width: 100%;\n" +
-			   "    border-collapse: collapse;\n" +
-			   "    box-shadow: 0 1px 3px rgba(0,0,0,0.1);\n" +
-			   "}\n" +
-			   ".data-table thead {\n" +
-			   "    background-color: #4CAF50;\n" +
-			   "    color: white;\n" +
-			   "    position: sticky;\n" +
-			   "    top: 0;\n" +
-			   "    z-index: 10;\n" +
-			   "}\n" +
-			   ".data-table thead .header-row th {\n" +
-			   "    cursor: pointer;\n" +
-			   "    user-select: none;\n" +
-			   "    position: relative;\n" +
-			   "    padding-right: 25px;\n" +
-			   "}\n" +
-			   ".data-table thead .header-row th:hover {\n" +
-			   "    background-color: #45a049;\n" +
-			   "}\n" +
-			   ".sort-indicator {\n" +
-			   "    position: absolute;\n" +
-			   "    right: 8px;\n" +
-			   "    top: 50%;\n" +
-			   "    transform: translateY(-50%);\n" +
-			   "}\n" +
-			   ".sort-indicator::after {\n" +
-			   "    content: '⇅';\n" +
-			   "    opacity: 0.5;\n" +
-			   "}\n" +
-			   ".sort-indicator.asc::after {\n" +
-			   "    content: '▲';\n" +
-			   "    opacity: 1;\n" +
-			   "}\n" +
-			   ".sort-indicator.desc::after {\n" +
-			   "    content: '▼';\n" +
-			   "    opacity: 1;\n" +
-			   "}\n" +
-			   ".data-table th,\n" +
-			   ".data-table td {\n" +
-			   "    padding: 12px;\n" +
-			   "    text-align: left;\n" +
-			   "    border-bottom: 1px solid #ddd;\n" +
-			   "}\n" +
-			   ".data-table .filter-row {\n" +
-			   "    background-color: #f8f8f8;\n" +
-			   "}\n" +
-			   ".column-filter {\n" +
-			   "    width: 100%;\n" +
-			   "    padding: 6px;\n" +
-			   "    border: 1px solid #ccc;\n" +
-			   "    border-radius: 3px;\n" +
-			   "    font-size: 12px;\n" +
-			   "}\n" +
-			   ".column-filter:focus {\n" +
-			   "    outline: none;\n" +
-			   "    border-color: #4CAF50;\n" +
-			   "}\n" +
-			   ".data-table tbody tr:hover {\n" +
-			   "    background-color: #f5f5f5;\n" +
-			   "}\n" +
-			   ".data-table tbody tr.hidden {\n" +
-			   "    display: none;\n" +
-			   "}\n" +
-			   ".pagination-container {\n" +
-			   "    display: flex;\n" +
-			   "    justify-content: space-between;\n" +
-			   "    align-items: center;\n" +
-			   "    padding: 15px 0;\n" +
-			   "    flex-wrap: wrap;\n" +
-			   "    gap: 15px;\n" +
-			   "}\n" +
-			   ".pagination-info {\n" +
-			   "    color: #666;\n" +
-			   "    font-size: 14px;\n" +
-			   "}\n" +
-			   ".pagination-controls {\n" +
-			   "    display: flex;\n" +
-			   "    align-items: center;\n" +
-			   "    gap: 15px;\n" +
-			   "}\n" +
-			   ".rows-per-page {\n" +
-			   "    padding: 6px 10px;\n" +
-			   "    border: 1px solid #ddd;\n" +
-			   "    border-radius: 4px;\n" +
-			   "    font-size: 14px;\n" +
-			   "}\n" +
-			   ".pagination-buttons {\n" +
-			   "    display: flex;\n" +
-			   "    gap: 5px;\n" +
-			   "}\n" +
-			   ".page-btn {\n" +
-			   "    padding: 6px 12px;\n" +
-			   "    border: 1px solid #ddd;\n" +
-			   "    background-color: white;\n" +
-			   "    cursor: pointer;\n" +
-			   "    border-radius: 4px;\n" +
-			   "    font-size: 14px;\n" +
-			   "    transition: all 0.2s;\n" +
-			   "}\n" +
-			   ".page-btn:hover:not(:disabled) {\n" +
-			   "    background-color: #4CAF50;\n" +
-			   "    color: white;\n" +
-			   "    border-color: #4CAF50;\n" +
-			   "}\n" +
-			   ".page-btn.active {\n" +
-			   "    background-color: #4CAF50;\n" +
-			   "    color: white;\n" +
-			   "    border-color: #4CAF50;\n" +
-			   "}\n" +
-			   ".page-btn:disabled {\n" +
-			   "    opacity: 0.5;\n" +
-			   "    cursor: not-allowed;\n" +
-			   "}\n" +
-			   "@media (max-width: 768px) {\n" +
-			   "    .metadata-grid {\n" +
-			   "        grid-template-columns: 1fr;\n" +
-			   "    }\n" +
-			   "    .metadata-row {\n" +
-			   "        grid-template-columns: 120px 1fr;\n" +
-			   "    }\n" +
-			   "    .pagination-container {\n" +
-			   "        flex-direction: column;\n" +
-			   "    }\n" +
-			   "}\n" +
-			   "</style>\n" +
-			   "<script>\n" +
-			   "// [JavaScript-Code bleibt unverändert wie vorher]\n" +
-			   "const tableStates = {};\n" +
-			   "\n" +
-			   "function initTable(tableName) {\n" +
-			   "    const table = document.getElementById('table-' + tableName);\n" +
-			   "    const tbody = table.querySelector('tbody');\n" +
-			   "    const rows = Array.from(tbody.querySelectorAll('tr'));\n" +
-			   "    \n" +
-			   "    tableStates[tableName] = {\n" +
-			   "        allRows: rows,\n" +
-			   "        filteredRows: rows,\n" +
-			   "        currentPage: 1,\n" +
-			   "        rowsPerPage: 25,\n" +
-			   "        sortColumn: -1,\n" +
-			   "        sortDirection: 'asc'\n" +
-			   "    };\n" +
-			   "    \n" +
-			   "    updatePagination(tableName);\n" +
-			   "}\n" +
-			   "\n" +
-			   "function applyFilters(tableName) {\n" +
-			   "    const table = document.getElementById('table-' + tableName);\n" +
-			   "    const state = tableStates[tableName];\n" +
-			   "    \n" +
-			   "    const globalFilter = table.closest('.table-section').querySelector('.global-filter-input').value.toLowerCase();\n" +
-			   "    const columnFilters = Array.from(table.querySelectorAll('.column-filter')).map(input => ({\n" +
-			   "        column: parseInt(input.dataset.column),\n" +
-			   "        value: input.value.toLowerCase()\n" +
-			   "    }));\n" +
-			   "    \n" +
-			   "    state.filteredRows = state.allRows.filter(row => {\n" +
-			   "        const cells = Array.from(row.querySelectorAll('td'));\n" +
-			   "        \n" +
-			   "        if (globalFilter) {\n" +
-			   "            const rowText = cells.map(cell => cell.textContent).join(' ').toLowerCase();\n" +
-			   "            if (rowText.indexOf(globalFilter) === -1) return false;\n" +
-			   "        }\n" +
-			   "        \n" +
-			   "        for (const filter of columnFilters) {\n" +
-			   "            if (filter.value && cells[filter.column]) {\n" +
-			   "                const cellText = cells[filter.column].textContent.toLowerCase();\n" +
-			   "                if (cellText.indexOf(filter.value) === -1) return false;\n" +
-			   "            }\n" +
-			   "        }\n" +
-			   "        \n" +
-			   "        return true;\n" +
-			   "    });\n" +
-			   "    \n" +
-			   "    state.currentPage = 1;\n" +
-			   "    updatePagination(tableName);\n" +
-			   "}\n" +
-			   "\n" +
-			   "function sortTable(tableName, columnIndex) {\n" +
-			   "    const state = tableStates[tableName];\n" +
-			   "    const table = document.getElementById('table-' + tableName);\n" +
-			   "    \n" +
-			   "    if (state.sortColumn === columnIndex) {\n" +
-			   "        state.sortDirection = state.sortDirection === 'asc' ? 'desc' : 'asc';\n" +
-			   "    } else {\n" +
-			   "        state.sortColumn = columnIndex;\n" +
-			   "        state.sortDirection = 'asc';\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    table.querySelectorAll('.sort-indicator').forEach(indicator => {\n" +
-			   "        indicator.className = 'sort-indicator';\n" +
-			   "    });\n" +
-			   "    \n" +
-			   "    const indicators = table.querySelectorAll('.sort-indicator');\n" +
-			   "    if (indicators[columnIndex]) {\n" +
-			   "        indicators[columnIndex].classList.add(state.sortDirection);\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    state.filteredRows.sort((a, b) => {\n" +
-			   "        const cellA = a.querySelectorAll('td')[columnIndex].textContent.trim();\n" +
-			   "        const cellB = b.querySelectorAll('td')[columnIndex].textContent.trim();\n" +
-			   "        \n" +
-			   "        const numA = parseFloat(cellA);\n" +
-			   "        const numB = parseFloat(cellB);\n" +
-			   "        \n" +
-			   "        if (!isNaN(numA) && !isNaN(numB)) {\n" +
-			   "            return state.sortDirection === 'asc' ? numA - numB : numB - numA;\n" +
-			   "        }\n" +
-			   "        \n" +
-			   "        const comparison = cellA.localeCompare(cellB, 'de');\n" +
-			   "        return state.sortDirection === 'asc' ? comparison : -comparison;\n" +
-			   "    });\n" +
-			   "    \n" +
-			   "    updatePagination(tableName);\n" +
-			   "}\n" +
-			   "\n" +
-			   "function changeRowsPerPage(tableName, value) {\n" +
-			   "    const state = tableStates[tableName];\n" +
-			   "    state.rowsPerPage = value === 'all' ? state.filteredRows.length : parseInt(value);\n" +
-			   "    state.currentPage = 1;\n" +
-			   "    updatePagination(tableName);\n" +
-			   "}\n" +
-			   "\n" +
-			   "function changePage(tableName, page) {\n" +
-			   "    const state = tableStates[tableName];\n" +
-			   "    state.currentPage = page;\n" +
-			   "    updatePagination(tableName);\n" +
-			   "}\n" +
-			   "\n" +
-			   "function updatePagination(tableName) {\n" +
-			   "    const state = tableStates[tableName];\n" +
-			   "    const totalRows = state.filteredRows.length;\n" +
-			   "    const totalPages = Math.ceil(totalRows / state.rowsPerPage);\n" +
-			   "    \n" +
-			   "    state.allRows.forEach(row => row.classList.add('hidden'));\n" +
-			   "    \n" +
-			   "    const startIndex = (state.currentPage - 1) * state.rowsPerPage;\n" +
-			   "    const endIndex = Math.min(startIndex + state.rowsPerPage, totalRows);\n" +
-			   "    \n" +
-			   "    for (let i = startIndex; i < endIndex; i++) {\n" +
-			   "        state.filteredRows[i].classList.remove('hidden');\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    const showingInfo = document.getElementById('showing-' + tableName);\n" +
-			   "    if (totalRows === 0) {\n" +
-			   "        showingInfo.textContent = 'Keine Ergebnisse';\n" +
-			   "    } else {\n" +
-			   "        showingInfo.textContent = `Zeige ${startIndex + 1}-${endIndex} von ${totalRows} Zeilen`;\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    const paginationDiv = document.getElementById('pagination-' + tableName);\n" +
-			   "    paginationDiv.innerHTML = '';\n" +
-			   "    \n" +
-			   "    if (totalPages <= 1) return;\n" +
-			   "    \n" +
-			   "    const prevBtn = document.createElement('button');\n" +
-			   "    prevBtn.className = 'page-btn';\n" +
-			   "    prevBtn.textContent = '«';\n" +
-			   "    prevBtn.disabled = state.currentPage === 1;\n" +
-			   "    prevBtn.onclick = () => changePage(tableName, state.currentPage - 1);\n" +
-			   "    paginationDiv.appendChild(prevBtn);\n" +
-			   "    \n" +
-			   "    const maxButtons = 5;\n" +
-			   "    let startPage = Math.max(1, state.currentPage - Math.floor(maxButtons / 2));\n" +
-			   "    let endPage = Math.min(totalPages, startPage + maxButtons - 1);\n" +
-			   "    \n" +
-			   "    if (endPage - startPage < maxButtons - 1) {\n" +
-			   "        startPage = Math.max(1, endPage - maxButtons + 1);\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    if (startPage > 1) {\n" +
-			   "        const firstBtn = document.createElement('button');\n" +
-			   "        firstBtn.className = 'page-btn';\n" +
-			   "        firstBtn.textContent = '1';\n" +
-			   "        firstBtn.onclick = () => changePage(tableName, 1);\n" +
-			   "        paginationDiv.appendChild(firstBtn);\n" +
-			   "        \n" +
-			   "        if (startPage > 2) {\n" +
-			   "            const dots = document.createElement('span');\n" +
-			   "            dots.textContent = '...';\n" +
-			   "            dots.style.padding = '6px';\n" +
-			   "            paginationDiv.appendChild(dots);\n" +
-			   "        }\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    for (let i = startPage; i <= endPage; i++) {\n" +
-			   "        const pageBtn = document.createElement('button');\n" +
-			   "        pageBtn.className = 'page-btn' + (i === state.currentPage ? ' active' : '');\n" +
-			   "        pageBtn.textContent = i;\n" +
-			   "        pageBtn.onclick = () => changePage(tableName, i);\n" +
-			   "        paginationDiv.appendChild(pageBtn);\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    if (endPage < totalPages) {\n" +
-			   "        if (endPage < totalPages - 1) {\n" +
-			   "            const dots = document.createElement('span');\n" +
-			   "            dots.textContent = '...';\n" +
-			   "            dots.style.padding = '6px';\n" +
-			   "            paginationDiv.appendChild(dots);\n" +
-			   "        }\n" +
-			   "        \n" +
-			   "        const lastBtn = document.createElement('button');\n" +
-			   "        lastBtn.className = 'page-btn';\n" +
-			   "        lastBtn.textContent = totalPages;\n" +
-			   "        lastBtn.onclick = () => changePage(tableName, totalPages);\n" +
-			   "        paginationDiv.appendChild(lastBtn);\n" +
-			   "    }\n" +
-			   "    \n" +
-			   "    const nextBtn = document.createElement('button');\n" +
-			   "    nextBtn.className = 'page-btn';\n" +
-			   "    nextBtn.textContent = '»';\n" +
-			   "    nextBtn.disabled = state.currentPage === totalPages;\n" +
-			   "    nextBtn.onclick = () => changePage(tableName, state.currentPage + 1);\n" +
-			   "    paginationDiv.appendChild(nextBtn);\n" +
-			   "}\n" +
-			   "</script>\n" +
-			   "</head>\n";
+		} // end try-with-resources (report finished and closed)
 	}
 
+
 	private String escapeHtml(String text) {
 		if (text == null) return "";
 		return text.replace("&", "&amp;")
@@ -3063,49 +2518,54 @@ public class Job {
 
 
 	/**
-	 * The method creates an ImportDBTask object for each page to be scanned.
-	 * Each task is then scheduled into a worker thread's To-Do list.
-	 * After all tasks are assigned, the worker threads are started
-	 * and begin processing.
+	 * The method collects the numbers of all pages to be scanned and hands
+	 * them to a ForkJoinPool as one ScanTask. The task splits the page range
+	 * adaptively and idle threads steal work from busy ones (see ScanTask).
+	 * The method returns as soon as every page has been analysed.
 	 * @param number number of threads
 	 * @param ps page size
 	 */
 	public void scan(int number, int ps) {
 		info("Start with scan...");
 
-		/* create a new thread pool to analyse the freepages */
-		ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Global.numberofThreads);
-
 		long begin = System.currentTimeMillis();
+		Metrics.Phase phase = metrics.begin(Metrics.PHASE_SCAN);
 
-		/* first start scan of regular pages */
-
-		Worker[] worker = new Worker[Global.numberofThreads];
-		for (int i = 0; i < Global.numberofThreads; i++)
-		{
-			worker[i] = new Worker(this);
+		/* freelistpages is complete once the trunk pages have been read */
+		if (freelistread != null) {
+			try {
+				freelistread.join();
+			}
+			catch (CompletionException err) {
+				AppLog.error("Could not read the free list: " + err.getCause());
+			}
 		}
 
+		/* first collect the regular pages to scan */
+		int[] todo = new int[pages.length];
+		int n = 0;
+
 		for (int cc = 1; cc < pages.length; cc++) {
 
 
 			if (cc == 1) {
-				RecoveryTask task = new RecoveryTask(worker[cc % Global.numberofThreads].util,this, 100, cc, ps, false);
-				worker[cc % Global.numberofThreads].addTask(task);
+				todo[n++] = cc;
 				runningTasks.incrementAndGet();
 			}
 			else if (null == pages[cc])
 			{
-				AppLog.debug("page " + cc + " is no regular leaf page component. Maybe a indices or overflow or dropped component page.");
+				if (AppLog.isDebugEnabled()) AppLog.debug("page " + cc + " is no regular leaf page component. Maybe a indices or overflow or dropped component page.");
 			}
 			else
 			{
-				AppLog.debug("page " + cc + " is a regular leaf page. ");
-				AppLog.debug("table: " + pages[cc].getName());
+				if (AppLog.isDebugEnabled()) {
+					AppLog.debug("page " + cc + " is a regular leaf page. ");
+					AppLog.debug("table: " + pages[cc].getName());
+				}
 
 
 				if (pages[cc].doNotScan) {
-					AppLog.debug("Skip page " + cc + " since it was already scanned while free list lookup");
+					if (AppLog.isDebugEnabled()) AppLog.debug("Skip page " + cc + " since it was already scanned while free list lookup");
 					continue;
 				}
 
@@ -3116,65 +2576,51 @@ public class Job {
 				if(freelistpages.contains(cc))
 					continue;
 
-				RecoveryTask task = new RecoveryTask(worker[cc % Global.numberofThreads].util,this, offset, cc, ps, false);
-				worker[cc % Global.numberofThreads].addTask(task);
+				/* already scanned while the B-tree walk was running */
+				if (prescanned.contains(cc))
+					continue;
+
+				/* page lies behind the end of file (truncated database) */
+				if (offset >= size) {
+					if (AppLog.isDebugEnabled()) AppLog.debug("page " + cc + " exceeds file size " + size + " — skipped.");
+					continue;
+				}
+
+				todo[n++] = cc;
 				runningTasks.incrementAndGet();
 			}
 		}
-		AppLog.debug("ImportDBTask total: " + runningTasks.intValue() + " worker threads " + Global.numberofThreads);
-
-		//int c = 1;
-		/* start executing the work threads */
-		for (Worker w: worker)
-		{
-			//System.out.println(" Start worker thread" + c++);
-			// Dispatch each worker to the thread pool instead of calling
-			// run() directly on the calling thread.
-			// executor.shutdown()/awaitTermination() and the runningTasks
-			// wait loop below already assume tasks complete asynchronously.
-			executor.execute(w);
-		}
+		if (AppLog.isDebugEnabled()) AppLog.debug("ImportDBTask total: " + runningTasks.intValue() + " worker threads " + Global.numberofThreads);
 
+		/* start the work-stealing pool and wait until all pages are done */
 		try {
-			executor.shutdown();
-			// Wait up to 5 minutes for all recovery tasks to complete
-			boolean finished = executor.awaitTermination(5, TimeUnit.MINUTES);
-			if (!finished) {
-				AppLog.error("scan(): executor did not finish within timeout — some pages may be incomplete.");
-			}
-		}
-		catch (InterruptedException e) {
-			AppLog.error("scan(): interrupted while waiting for tasks");
-			Thread.currentThread().interrupt();
+			pool().invoke(new ScanTask(this, todo, 0, n, ps));
+
+			/* wait for the free pages and the leaf pages handed over during the B-tree walk */
+			inflight.arriveAndAwaitAdvance();
 		}
 		finally {
-			if (!executor.isTerminated()) {
-				AppLog.error("scan(): cancelling non-finished tasks");
-				executor.shutdownNow();
-			}
+			shutdownPool();
 		}
 
-		// wait for runningTasks counter (decremented inside RecoveryTask.run())
-		while (runningTasks.intValue() != 0) {
-			try {
-				TimeUnit.MILLISECONDS.sleep(100);
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				break;
-			}
-		}
+		phase.pages(n + prescanned.size());
+		phase.end();
 
 		long ende = System.currentTimeMillis();
 		info("Duration of scanning all pages in ms : " + (ende-begin));
 		info("End of Scan...");
 
-		executor = null;
-
 	}
 
 
 	protected void setGUI(GUI gui) {
 		this.gui = gui;
+
+		/* the rows are put into the search index while they are recovered */
+		if (fts == null && sink instanceof CollectorRecordSink) {
+			fts = new SearchIndex();
+			sink = new CollectorRecordSink(resultlist, hexdumplist, fts, SearchIndex.DB);
+		}
 	}
 
 	public void setPath(String path) {
@@ -3205,6 +2651,17 @@ public class Job {
 			return;
 	}
 
+	/**
+	 * Hands a recovered row and its hex dump to the job's record sink.
+	 * Called by the scan threads concurrently.
+	 *
+	 * @param line the recovered row, first column is the table name
+	 * @param hexdump the raw bytes of the row's columns
+	 */
+	public void addResultRow(List<String> line, List<byte[]> hexdump) {
+		sink.accept(new DataRow(line, hexdump));
+	}
+
 	public void info(String message) {
 		if (gui != null)
 			gui.doLog(message);
@@ -3272,7 +2729,7 @@ public class Job {
 		if ((offset > db.limit()) || (offset < 0))
 		{
 
-			AppLog.debug("readDBPageWithOffset: offset " + offset + " > db limit " + db.limit());
+			if (AppLog.isDebugEnabled()) AppLog.debug("readDBPageWithOffset: offset " + offset + " > db limit " + db.limit());
 
 			return null;
 		}
@@ -3290,8 +2747,7 @@ public class Job {
 		// front makes the returned page's lifetime
 		// fully independent of the cache.
 		byte[] copy = new byte[toRead];
-		db.position(offset);
-		db.get(copy);
+		db.read(offset, copy);
 
 		ByteBuffer page = ByteBuffer.wrap(copy);
 		page.order(ByteOrder.BIG_ENDIAN);
@@ -3300,109 +2756,48 @@ public class Job {
 
 
 	/**
-	 * Read a WAL page from a given offset with a fixed pagesize.
+	 * Reads the version of a WAL page that the record of a given frame sees
+	 * (see {@link WALIndex#latest(int, int)}).
 	 *
+	 * @param frame 0-based number of the frame with the record
 	 * @param pagenumber in the database
 	 * @param pagesize number of bytes for one database page
-	 * @return  A <code>ByteBuffer</code> object containing the page content.
+	 * @param firstpage first page of the overflow chain
+	 * @return  A <code>ByteBuffer</code> object containing the page content or <code>null</code> if the page is not in the WAL archive.
 	 */
 	public ByteBuffer readWALOverflowPage(int frame, int pagenumber, int pagesize, int firstpage) {
 
-		// WAL in memory file
-		ByteBuffer db = wal.wal;
-
-		// overflow pages until here
-		HashMap<Integer,ByteBuffer> overflow = wal.overflow;
-
-		int pnumber = -1;
-
-		// determine the RVA for the next frame
-		int offset =  32 + frame*(pagesize + 24) + pagesize + 24;
-
-
-		do
-		{
-			// Check if frame is committed?
-			boolean isCommited = isCommitted(frame);
-
-			if (offset >= db.capacity()){
-				return null;
-			}
-
-			db.position(offset);
-
-			// get the page number of the WAL frame
-			pnumber = db.getInt();
-
-			//Did we find the overflow page?
-			if(pnumber == pagenumber){
-
-				if ((offset >  db.limit()) || (offset < 0)){
-
-					AppLog.debug("readWALOverflowPage: offset " + offset + " > db limit " + db.limit());
-					return null;
-				}
-
-
-				/* Note: the maximum size for a WAL-Archive at the moment is 2,1 GB */
-				db.position(offset+24);
-
-
-				ByteBuffer page = db.slice();
-				if (page.capacity() == 0) {
-					return null;
-				}
-				else
-				{
-					page.limit(pagesize);
-				}
-
-				overflow.put(pnumber,page);
-				return page;
-
-			}
-			else{
-
-				if (isCommited && overflow.containsKey(pagenumber)){
-
-					return overflow.get(pagenumber);
-				}
+		// WAL file, mapped on demand
+		if (wal == null || wal.wal == null || wal.walindex == null)
+			return null;
+		BigByteBuffer db = wal.wal;
 
+		WALFrame version = wal.walindex.latest(pagenumber, frame);
 
-			}
-			frame++;
+		// we could not find any page with this number inside the wal archive
+		if (version == null)
+			return null;
 
-			offset =  32 + frame*(pagesize + 24) + pagesize + 24;
+		long offset = version.offset + 24;
+		if (offset < 0 || offset + pagesize > db.limit()){
 
+			if (AppLog.isDebugEnabled()) AppLog.debug("readWALOverflowPage: offset " + offset + " > db limit " + db.limit());
+			return null;
 		}
-		while(pnumber != pagenumber);
 
-		// we could not find any page with this number inside the wal archive -> let's have look at the database
-
-		// this part will hopefully never be reached ;-)
-		return null;
+		// the page is copied - the mmap window it lies in may be unmapped at any time
+		byte[] content = new byte[pagesize];
+		db.read(offset, content);
+		return ByteBuffer.wrap(content);
 	}
 
+	/**
+	 * @param frame 0-based frame number
+	 * @return true, if the frame belongs to a committed transaction of the WAL archive
+	 */
 	public boolean isCommitted(int frame) {
 
-		// read up until next commit! frame
-		for (WALFrame f: checkpointlist){
-
-			if (f.framenumber == frame){
-				if (f.committed) {
-
-					return true;
-				}
-				else
-				{
-					return false;
-				}
-
-			}
-		}
-
-		return false;
-
+		return wal != null && wal.walindex != null && wal.walindex.isCommitted(frame);
 	}
 
 
@@ -3445,7 +2840,7 @@ public class Job {
 		if ((offset > bb.limit()) || (offset < 0))
 		{
 
-			AppLog.debug("readPageWithNumberFromBuffer: offset " + offset + " > buffer limit " + bb.limit());
+			if (AppLog.isDebugEnabled()) AppLog.debug("readPageWithNumberFromBuffer: offset " + offset + " > buffer limit " + bb.limit());
 
 			return null;
 		}
@@ -3460,8 +2855,7 @@ public class Job {
 		// returned page's lifetime doesn't depend on this window still
 		// being resident in bb's LRU cache later on.
 		byte[] copy = new byte[toRead];
-		bb.position(offset);
-		bb.get(copy);
+		bb.read(offset, copy);
 
 		ByteBuffer page = ByteBuffer.wrap(copy);
 		page.order(ByteOrder.BIG_ENDIAN);
@@ -3473,189 +2867,222 @@ public class Job {
 	 * The B-tree, or, more specifically, the B+-tree,
 	 * is the most widely used physical database structure
 	 * for primary and secondary indexes on database relations.
-	 * This method can be called to traverse all nodes of
-	 * a table-tree.
-	 * Attention! This is a recursive function.
+	 * This method traverses all nodes of all table and index trees
+	 * (see <code>btreeroots</code>) in parallel and assigns each page
+	 * to its component (see BTreeWalker).
 	 *
+	 * When the pages are read from the database file itself, a leaf page
+	 * is handed to the scan as soon as its owner is final, i.e. no tree
+	 * that comes later in <code>btreeroots</code> can take it over any more.
+	 * The scan of these leaves then runs while the rest of the trees is
+	 * still explored.
 	 *
-	 * @param root the root node.
-	 * @param td this reference holds a Descriptor for the page type.
-	 * @throws IOException
+	 * @param filebuffer the buffer holding the database pages
 	 */
-	private void exploreBTree(int root, AbstractDescriptor td, BigByteBuffer filebuffer) throws IOException {
-		exploreBTree(root, td, filebuffer, new HashSet<>());
-	}
+	private void exploreBTrees(BigByteBuffer filebuffer) {
 
-	private void exploreBTree(int root, AbstractDescriptor td, BigByteBuffer filebuffer, Set<Integer> visited) throws IOException {
+		long begin = System.currentTimeMillis();
+		Metrics.Phase phase = metrics.begin(Metrics.PHASE_BTREE);
 
-		if (!visited.add(root)) {
-			AppLog.debug("exploreBTree: cycle detected at page " + root + " — stopping.");
-			return;
-		}
+		/* leaf pages can only be scanned right away if they come from the database itself */
+		IntConsumer onLeaf = (filebuffer == db && !emptydb) ? this::scanLeaf : null;
 
-		if (root < pages.length && root >= 0)
-			pages[root] = td;
-		else
-			return;
+		BTreeWalker.walk(this, pool(), filebuffer, btreeroots, onLeaf);
+
+		int assigned = 0;
+		for (AbstractDescriptor ad : pages)
+			if (ad != null)
+				assigned++;
+		phase.pages(assigned);
+		phase.end();
 
-		// pagesize * (rootindex - 1) -> go to the start of this page
-		long offset = ps * (root - 1);
+		info("Duration of B-tree exploration in ms : " + (System.currentTimeMillis() - begin));
+	}
 
-		if(offset <= 0)
+	/**
+	 * Starts the scan of a leaf page found by the B-tree walk.
+	 * The scan of the page runs in the pool of this job,
+	 * scan() waits for it later.
+	 *
+	 * @param pagenumber the leaf page, its entry in <code>pages[]</code> is final
+	 */
+	private void scanLeaf(int pagenumber) {
+
+		/* the first page is always scanned by scan() */
+		if (pagenumber == 1)
 			return;
 
-		if (root <  0)
-		{
+		AbstractDescriptor ad = pages[pagenumber];
+		if (ad == null || ad.doNotScan)
 			return;
-		}
 
+		/* page lies behind the end of file (truncated database) */
+		if ((pagenumber - 1L) * ps >= size)
+			return;
 
-		// read type byte
-		filebuffer.position(offset);
-		byte typ = filebuffer.get();
+		if (!prescanned.add(pagenumber))
+			return;
 
+		runningTasks.incrementAndGet();
+		recoverAsync(new ScanTask(this, new int[] { pagenumber }, 0, 1, ps)::invoke);
+	}
 
-		/* not supported yet */
-		if (typ == 2)
-		{
-			AppLog.debug(" page number" + root + " is a  INDEXINTERIORPAGE.");
-			int rightChildptr = filebuffer.getInt(offset + 8);
+	/**
+	 * Runs a recovery task in the pool of this job. The task is tracked
+	 * by the <code>inflight</code> phaser, scan() waits for all of them.
+	 *
+	 * @param task the task
+	 */
+	private void recoverAsync(Runnable task) {
+		Phaser ph = registerTask();
+		try {
+			pool().execute(() -> {
+				try {
+					task.run();
+				}
+				finally {
+					ph.arriveAndDeregister();
+				}
+			});
+		}
+		catch (RejectedExecutionException err) {
+			ph.arriveAndDeregister();
+			throw err;
+		}
+	}
 
-			exploreBTree(rightChildptr, td, filebuffer, visited);
+	private synchronized Phaser registerTask() {
+		if (taskphaser == null || taskcount == TASKS_PER_PHASER) {
+			taskphaser = new Phaser(inflight);
+			taskcount = 0;
+		}
+		taskcount++;
+		taskphaser.register();
+		return taskphaser;
+	}
 
-			if (root <= 0)
-				return;
-			ByteBuffer buffer = readPageWithNumberFromBuffer(root - 1, ps, filebuffer);
+	/**
+	 * Follows the chain of free list trunk pages and starts a recovery
+	 * task for every free (leaf) page listed there. This runs as a task of
+	 * the pool, the recovery of the first free pages starts while further
+	 * trunk pages are still read.
+	 *
+	 * @param start file offset of the first trunk page
+	 */
+	private void readFreeList(long start) {
 
-			if (buffer == null)
-				return;
+		long startfp = System.currentTimeMillis();
+		Metrics.Phase phase = metrics.begin(Metrics.PHASE_FREELIST);
 
-			byte[] numberofcells = new byte[2];
-			buffer.position(3);
+		/* A list can extend over several memory pages. */
+		boolean morelistpages = false;
 
-			buffer.get(numberofcells);
-			ByteBuffer noc = ByteBuffer.wrap(numberofcells);
-			int e = Auxiliary.TwoByteBuffertoInt(noc);
+		int freepagesum = 0;
 
+		do {
+			if (start < 0 || start + ps > db.limit()) {
+				AppLog.error("Free list trunk page at offset " + start + " lies outside the database file.");
+				break;
+			}
 
-			byte[] cpn = new byte[2];
-			buffer.position(5);
+			/* read the first/next page of the free list */
+			byte[] trunk = new byte[ps];
+			db.read(start, trunk);
+			ByteBuffer fplist = ByteBuffer.wrap(trunk);
 
-			buffer.get(cpn);
+			// next (possible) freepage list offset or 0xh00000000 + number of entries
+			// example : 00 00 15 3C | 00 00 02 2B
 
-			/* go on with the cell pointer array */
-			for (int i = 0; i < e; i++) {
+			/*
+			 * is there a further page - the first 4 bytes have a value > 0 in this
+			 * case
+			 */
+			int nfp = fplist.getInt(0);
+			if (nfp != 0) {
 
-				// address of the next cell pointer
-				byte[] pointer = new byte[2];
-				buffer.position(12 + 2 * i);
-				if (buffer.capacity() <= buffer.position()+2)
-					continue;
-				buffer.get(pointer);
-				ByteBuffer celladdr = ByteBuffer.wrap(pointer);
-				int celloff = Auxiliary.TwoByteBuffertoInt(celladdr);
-
-				AppLog.debug(" celloff " + celloff);
-				// read page number of next node in the b*tree
-				byte[] pnext = new byte[4];
-				if (celloff >= buffer.capacity() || celloff < 0)
-					continue;
-				if (celloff > ps)
-					continue;
-				buffer.position(celloff);
-				buffer.get(pnext);
-				int p = ByteBuffer.wrap(pnext).getInt();
-				// unfolding the next level of the tree
-				AppLog.debug(" child page " + p);
-				exploreBTree(p, td, filebuffer, visited);
+				start = (nfp - 1L) * ps;
+				morelistpages = allreadyvisit.add(nfp);
+				if (!morelistpages) {
+					info("Antiforensiscs found: cyclic freepage list entry");
+				}
 			}
+			else
+				morelistpages = false;
 
+			// now read the number of entries for this particular page
+			int entries = fplist.getInt(4);
 
-		}
-		/* type is either a data interior page (12) */
-		else if (typ == 5) {
-
-			AppLog.debug("page number " + root + " is a interior data page ");
-
-			int rightChildptr = filebuffer.getInt(offset + 8);
+			info(" Number of Entries in freepage list " + entries);
 
-			/* recursive */
-			exploreBTree(rightChildptr, td, filebuffer, visited);
+			/* iterate through free page list and read free page offsets */
+			for (int zz = 1; zz <= entries; zz++) {
 
+				if (4 + 4 * zz + 4 > fplist.limit())
+					break;
 
-			/* now we have to read the cell pointer list with offsets for the other pages */
-			/* read the complete internal page into buffer */
-			if (root <= 0)
-				return;
-			ByteBuffer buffer = readPageWithNumberFromBuffer(root - 1, ps, filebuffer);
+				int n = fplist.getInt(4 + 4 * zz);
 
-			if (buffer == null)
-				return;
+				if (n == 0) {
+					continue;
+				}
+				// determine offset for free page
+				long offset = (n - 1L) * ps;
 
-			byte[] numberofcells = new byte[2];
-			buffer.position(3);
+				/* remember already scanned pages in a list */
+				freelistpages.add(n);
 
-			buffer.get(numberofcells);
-			ByteBuffer noc = ByteBuffer.wrap(numberofcells);
-			int e = Auxiliary.TwoByteBuffertoInt(noc);
+				/* a leaf of a B-tree that was already scanned during the walk (corrupted file) */
+				if (prescanned.contains(n))
+					continue;
 
+				RecoveryTask task1 = new RecoveryTask(new Auxiliary(this), this, offset, n, ps, true);
+				runningTasks.incrementAndGet();
+				tasklist.add(task1);
+				recoverAsync(task1);
+			}
+			freepagesum += entries;
 
-			byte[] cpn = new byte[2];
-			buffer.position(5);
+		} while (morelistpages); // while
 
-			buffer.get(cpn);
+		info("Number of pages in the free list: " + freelistpages.size());
+		info(" Finished. No further free pages. Scanned " + freepagesum);
 
-			/* go on with the cell pointer array */
-			for (int i = 0; i < e; i++) {
+		phase.pages(freepagesum);
+		phase.end();
 
-				// address of the next cell pointer
-				byte[] pointer = new byte[2];
-				buffer.position(12 + 2 * i);
-				if (buffer.capacity() <= buffer.position()+2)
-					continue;
-				buffer.get(pointer);
-				ByteBuffer celladdr = ByteBuffer.wrap(pointer);
-				int celloff = Auxiliary.TwoByteBuffertoInt(celladdr);
-
-				AppLog.debug(" celloff " + celloff);
-				// read page number of next node in the btree
-				byte[] pnext = new byte[4];
-				if (celloff >= buffer.capacity() || celloff < 0)
-					continue;
-				if (celloff > ps)
-					continue;
-				buffer.position(celloff);
-				buffer.get(pnext);
-				int p = ByteBuffer.wrap(pnext).getInt();
-				// unfolding the next level of the tree
-				AppLog.debug(" child page " + p);
-				exploreBTree(p, td, filebuffer, visited);
-			}
+		long endfp = System.currentTimeMillis();
+		info("Duration of reading the free list in ms: " + (endfp - startfp));
+	}
 
-		}
-		else if (typ == 8 || typ == 10 || typ == 13) {
-			AppLog.debug("page number " + root + " is a leaf page " + " set component/index to " + td.getName());
-			if (root >  numberofpages)
-				return;
-			if (null == pages[root])
-				pages[root] = td;
-			else {
-				// M-fix: was comparing td.getName() with itself — now compares with existing assignment
-				if (!td.getName().equals(pages[root].getName()))
-					AppLog.debug("Page " + root + " has already a B+Tree assignment with table " + pages[root].getName()
-								 + " — attempted re-assignment to " + td.getName());
-			}
-		}
-		else {
-			AppLog.debug("Page" + root + " is neither a leaf page nor a internal page. Try to set component to " + td.getName());
+	/**
+	 * Copies the window cache statistics of a buffer into the metrics,
+	 * before the buffer is closed.
+	 *
+	 * @param name db, wal or journal
+	 * @param bb the buffer
+	 */
+	public void reportCache(String name, BigByteBuffer bb) {
+		if (bb == null)
+			return;
+		metrics.add("mmap." + name + ".hits", bb.cacheHits());
+		metrics.add("mmap." + name + ".misses", bb.cacheMisses());
+		metrics.add("mmap." + name + ".evictions", bb.cacheEvictions());
+	}
 
-			if (root >  numberofpages)
-				return;
-			if (null == pages[root])
-				pages[root] = td;
+	synchronized ForkJoinPool pool() {
+		if (sharedpool != null)
+			return sharedpool;
+		if (pool == null)
+			pool = new ForkJoinPool(Math.max(1, Global.numberofThreads));
+		return pool;
+	}
 
+	synchronized void shutdownPool() {
+		/* a shared pool belongs to the caller */
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
 		}
-
 	}
 
 
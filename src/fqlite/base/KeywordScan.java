@@ -0,0 +1,307 @@
+package fqlite.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import fqlite.descriptor.AbstractDescriptor;
+import fqlite.log.AppLog;
+import fqlite.util.MultiPatternSearcher;
+
+/**
+ * Raw keyword search over a whole file - database, WAL, journal or an image
+ * that is not a SQLite file at all.
+ *
+ * All keywords are searched in one pass (see {@link MultiPatternSearcher}),
+ * each one
+ *
+ * <ul>
+ * <li>encoded as UTF-8, UTF-16LE and UTF-16BE - the three text encodings of
+ *     SQLite</li>
+ * <li>without regard to the case of ASCII letters, and in its lower- and
+ *     upper-case form for other letters</li>
+ * </ul>
+ *
+ * The file is split into chunks of {@link #CHUNK} bytes. Each chunk is
+ * mapped on its own and searched by a task of a ForkJoinPool. Neighbouring
+ * chunks overlap by the length of the longest pattern minus one, so a
+ * keyword across a chunk border is found - by the chunk it starts in.
+ *
+ * If the file is the database of a job, every hit is mapped to its page,
+ * the type of the page and the table or index that owns it (from
+ * {@link Job#pages}).
+ *
+ * @author pawlaszc
+ *
+ */
+public class KeywordScan {
+
+	/* bytes searched by one task */
+	static final int CHUNK = 32 * 1024 * 1024;
+
+	static final Charset[] ENCODINGS = { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE };
+
+	/**
+	 * A keyword found in the file.
+	 *
+	 * @param keyword the keyword as given
+	 * @param encoding the encoding it was found in
+	 * @param offset file offset of the first byte
+	 * @param page database page (1-based) or 0 if the file is not the database of the job
+	 * @param pagetype type of the page, read from its header
+	 * @param owner the table or index of the page, "free list" or empty if not known
+	 */
+	public record Hit(String keyword, String encoding, long offset, int page, String pagetype, String owner) {
+	}
+
+	private final MultiPatternSearcher searcher;
+
+	/* pattern -> keyword and encoding */
+	private final String[] keyword;
+	private final String[] encoding;
+
+	/**
+	 * Prepares the search.
+	 *
+	 * @param keywords the keywords, empty ones are ignored
+	 */
+	public KeywordScan(List<String> keywords) {
+
+		List<byte[]> patterns = new ArrayList<>();
+		List<String> kw = new ArrayList<>();
+		List<String> enc = new ArrayList<>();
+
+		/* two forms that differ only in the case of ASCII letters are one pattern */
+		Set<String> seen = new HashSet<>();
+		for (String k : keywords) {
+			if (k == null || k.isEmpty())
+				continue;
+			Set<String> forms = new LinkedHashSet<>(List.of(k, k.toLowerCase(Locale.ROOT), k.toUpperCase(Locale.ROOT)));
+			for (Charset cs : ENCODINGS) {
+				for (String form : forms) {
+					byte[] b = form.getBytes(cs);
+					if (seen.add(folded(b))) {
+						patterns.add(b);
+						kw.add(k);
+						enc.add(cs.name());
+					}
+				}
+			}
+		}
+
+		if (patterns.isEmpty())
+			throw new IllegalArgumentException("no keywords");
+
+		searcher = new MultiPatternSearcher(patterns, true);
+		keyword = kw.toArray(new String[0]);
+		encoding = enc.toArray(new String[0]);
+	}
+
+	/**
+	 * Reads a keyword list - one keyword per line, lines starting with '#'
+	 * are comments.
+	 *
+	 * @param file the list
+	 * @return the keywords
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<String> readKeywords(Path file) throws IOException {
+		List<String> keywords = new ArrayList<>();
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			String k = line.strip();
+			if (!k.isEmpty() && !k.startsWith("#"))
+				keywords.add(k);
+		}
+		return keywords;
+	}
+
+	/**
+	 * Searches a file.
+	 *
+	 * @param file the file to search
+	 * @param job the job, if the file is its database - for page, page type and owner; may be null
+	 * @param pool runs the chunk tasks
+	 * @return the hits, ordered by offset
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<Hit> search(Path file, Job job, ForkJoinPool pool) throws IOException {
+
+		long start = System.currentTimeMillis();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int chunks = (int) ((size + CHUNK - 1) / CHUNK);
+
+			List<ChunkTask> tasks = new ArrayList<>(chunks);
+			for (int c = 0; c < chunks; c++)
+				tasks.add(new ChunkTask(channel, (long) c * CHUNK, Math.min(size, (long) (c + 1) * CHUNK), size));
+
+			List<long[]> found = new ArrayList<>();
+			try {
+				for (ChunkTask t : tasks)
+					pool.execute(t);
+				for (ChunkTask t : tasks)
+					found.addAll(t.join());
+			} catch (RuntimeException err) {
+				throw err.getCause() instanceof IOException io ? io : new IOException(err);
+			}
+
+			found.sort(Comparator.<long[]>comparingLong(h -> h[1]).thenComparingLong(h -> h[0]));
+
+			List<Hit> hits = new ArrayList<>(found.size());
+			PageInfo pages = new PageInfo(channel, job);
+			for (long[] h : found) {
+				int p = (int) h[0];
+				hits.add(pages.hit(keyword[p], encoding[p], h[1]));
+			}
+
+			AppLog.info("Keyword search of " + file + ": " + hits.size() + " hits in "
+					+ (System.currentTimeMillis() - start) + " ms");
+			return hits;
+		}
+	}
+
+	/**
+	 * Writes the hits as CSV.
+	 *
+	 * @param hits the hits
+	 * @param target the CSV file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeCsv(List<Hit> hits, File target) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8))) {
+			out.println("keyword,encoding,offset,page,pagetype,owner");
+			for (Hit h : hits)
+				out.println(csv(h.keyword()) + "," + h.encoding() + "," + h.offset() + ","
+						+ (h.page() > 0 ? h.page() : "") + "," + csv(h.pagetype()) + "," + csv(h.owner()));
+		}
+	}
+
+	/* the pattern as the searcher sees it - only ASCII letters are folded */
+	private static String folded(byte[] b) {
+		char[] c = new char[b.length];
+		for (int i = 0; i < b.length; i++) {
+			int v = b[i] & 0xFF;
+			c[i] = (char) (v >= 'A' && v <= 'Z' ? v + 32 : v);
+		}
+		return new String(c);
+	}
+
+	private static String csv(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+			return s;
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Searches one chunk: [from, to) plus the overlap into the next chunk.
+	 * Returns the hits as {pattern, offset}.
+	 */
+	private class ChunkTask extends RecursiveTask<List<long[]>> {
+
+		private static final long serialVersionUID = 1L;
+
+		final FileChannel channel;
+		final long from;
+		final long to;
+		final long size;
+
+		ChunkTask(FileChannel channel, long from, long to, long size) {
+			this.channel = channel;
+			this.from = from;
+			this.to = to;
+			this.size = size;
+		}
+
+		@Override
+		protected List<long[]> compute() {
+
+			long end = Math.min(size, to + searcher.maxLength() - 1);
+			List<long[]> hits = new ArrayList<>();
+			try {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, end - from);
+				searcher.search(window, 0, (int) (end - from), from, (p, offset) -> {
+					/* a match that starts in the overlap belongs to the next chunk */
+					if (offset < to)
+						hits.add(new long[] { p, offset });
+				});
+			} catch (IOException err) {
+				throw new RuntimeException(err);
+			}
+			return hits;
+		}
+	}
+
+	/**
+	 * Maps an offset of the database to its page, page type and owner.
+	 */
+	private static class PageInfo {
+
+		final FileChannel channel;
+		final int ps;
+		final AbstractDescriptor[] pages;
+		final Set<Integer> freelist;
+		final Map<Integer, String> types = new HashMap<>();
+
+		PageInfo(FileChannel channel, Job job) {
+			this.channel = channel;
+			this.ps = job != null ? job.ps : 0;
+			this.pages = job != null ? job.pages : null;
+			this.freelist = job != null ? new HashSet<>(job.freelistpages) : Set.of();
+		}
+
+		Hit hit(String keyword, String encoding, long offset) {
+			if (ps <= 0)
+				return new Hit(keyword, encoding, offset, 0, "", "");
+
+			int page = (int) (offset / ps) + 1;
+
+			String owner = "";
+			if (pages != null && page < pages.length && pages[page] != null)
+				owner = pages[page].getName();
+			else if (freelist.contains(page))
+				owner = "free list";
+
+			return new Hit(keyword, encoding, offset, page, types.computeIfAbsent(page, this::type), owner);
+		}
+
+		/* the first byte of the page header - page 1 starts with the 100 byte database header */
+		private String type(int page) {
+			long offset = (page - 1L) * ps + (page == 1 ? 100 : 0);
+			ByteBuffer b = ByteBuffer.allocate(1);
+			try {
+				if (channel.read(b, offset) < 1)
+					return "";
+			} catch (IOException err) {
+				return "";
+			}
+			return switch (b.get(0)) {
+				case 2 -> "interior index b-tree page";
+				case 5 -> "interior table b-tree page";
+				case 10 -> "leaf index b-tree page";
+				case 13 -> "leaf table b-tree page";
+				default -> "overflow, free or unassigned";
+			};
+		}
+	}
+
+}
@@ -1,9 +1,18 @@
  package fqlite.base;
 
+import fqlite.export.RecordSink;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 
@@ -20,6 +29,12 @@ public class MAIN {
 
 	public static void main(String[] args) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException {
 
+		/* with JSON progress, standard output is for the progress lines only - everything else goes to stderr */
+		boolean jsonprogress = Arrays.asList(args).contains("--progress:json");
+		PrintStream stdout = System.out;
+		if (jsonprogress)
+			System.setOut(System.err);
+
 		System.out.println("**************************************************************");
 		System.out.println("* FQlite - Forensic SQLite Data Recovery Tool                *");
 		System.out.println("*                                              version: "+ Global.FQLITE_VERSION +" *");
@@ -44,7 +59,25 @@ public class MAIN {
 			job.path = args[args.length-1];
 			long start = System.currentTimeMillis();
 
-			if (args.length > 1) {
+			/* streaming export (optional) - rows are written out instead of kept in RAM */
+			String exportformat = null;
+			String exportfolder = ".";
+
+			/* batch mode (optional) - a whole folder or manifest instead of a single file */
+			String batchsource = null;
+			int batchjobs = Math.min(4, Runtime.getRuntime().availableProcessors());
+			int batchmemory = 0;
+
+			/* performance figures (optional) - "-" prints them to standard output */
+			String metricsfile = null;
+
+			/* JFR recording (optional) - "" means default file below ~/.fqlite/recordings */
+			String jfrfile = null;
+
+			/* raw keyword search (optional) - one keyword per line */
+			String keywordfile = null;
+
+			if (args.length > 1 || args[0].startsWith("--batch:")) {
 
                 for (String option: args) {
                     /* check parameters */
@@ -73,6 +106,50 @@ public class MAIN {
                         }
 
                     }
+                    if (option.startsWith("--export:")) {
+                        exportformat = option.substring(9);
+                        System.out.println("export format: " + exportformat);
+                    }
+                    if (option.startsWith("--out:")) {
+                        exportfolder = option.substring(6);
+                        System.out.println("export folder: " + exportfolder);
+                    }
+                    if (option.equals("--metrics")) {
+                        metricsfile = "-";
+                    } else if (option.startsWith("--metrics:")) {
+                        metricsfile = option.substring(10);
+                    }
+                    if (option.equals("--jfr")) {
+                        jfrfile = "";
+                    } else if (option.startsWith("--jfr:")) {
+                        jfrfile = option.substring(6);
+                    }
+                    if (option.equals("--cache")) {
+                        Global.SCAN_CACHE = true;
+                    }
+                    if (option.equals("--nocache")) {
+                        Global.SCAN_CACHE = false;
+                    }
+                    if (option.startsWith("--keywords:")) {
+                        keywordfile = option.substring(11);
+                    }
+                    if (option.startsWith("--batch:")) {
+                        batchsource = option.substring(8);
+                    }
+                    if (option.startsWith("--jobs:")) {
+                        try {
+                            batchjobs = Integer.parseInt(option.substring(7));
+                        } catch (NumberFormatException err) {
+                            System.out.println(" wrong parameter: " + option.substring(7));
+                        }
+                    }
+                    if (option.startsWith("--memory:")) {
+                        try {
+                            batchmemory = Integer.parseInt(option.substring(9));
+                        } catch (NumberFormatException err) {
+                            System.out.println(" wrong parameter: " + option.substring(9));
+                        }
+                    }
                     if (option.contains("--loglevel:")) {
                         String loglv = option.substring(11);
 
@@ -110,20 +187,164 @@ public class MAIN {
 
 			}
 
+			if (jfrfile != null) {
+				try {
+					Flight.start(jfrfile.isEmpty() ? Flight.defaultFile() : Path.of(jfrfile));
+				} catch (IOException | IllegalStateException e) {
+					System.err.println("Cannot start JFR recording: " + e.getMessage());
+				}
+			}
+
+			if (batchsource != null) {
+				AppLog.setLevel(Global.LOGLEVEL);
+				int failed = 0;
+				try {
+					/* batch mode always streams - there is no result list to look at afterwards */
+					failed = new Batch(batchsource, exportformat != null ? exportformat : "jsonl", exportfolder,
+							batchjobs, batchmemory, jsonprogress, stdout).run();
+				} catch (IOException e) {
+					System.err.println("Cannot read " + batchsource + ": " + e.getMessage());
+					failed = 1;
+				}
+				System.out.println("Duration in ms: " + (System.currentTimeMillis() - start));
+				stopRecording();
+				System.exit(failed == 0 ? 0 : 1);
+			}
+
+			boolean failed = false;
 			try {
-				/* start processing the db-file */
-				job.processDB();
+				if (exportformat != null)
+					job.sink = openSink(exportformat, exportfolder, job.path, "");
 
-			} catch (IOException | InterruptedException | ExecutionException e) {
+				/* start processing the db-file - the sink is closed in any case, a writer thread of it may wait for the end */
+				try {
+					job.processDB();
+				} finally {
+					job.sink.close();
+				}
+
+				/* companion files go into sinks of their own */
+				if (exportformat != null && job.readWAL) {
+					WALReader wal = new WALReader(job.walpath, job);
+					wal.sink = openSink(exportformat, exportfolder, job.path, "-wal");
+					try {
+						wal.parse();
+					} finally {
+						wal.sink.close();
+					}
+				}
+				if (exportformat != null && job.readRollbackJournal) {
+					RollbackJournalReader rol = new RollbackJournalReader(job.rollbackjournalpath, job);
+					rol.ps = job.ps;
+					rol.sink = openSink(exportformat, exportfolder, job.path, "-journal");
+					try {
+						rol.parse();
+					} finally {
+						rol.sink.close();
+					}
+				}
+
+			} catch (IOException | InterruptedException | ExecutionException | IllegalArgumentException e) {
 				e.printStackTrace();
+				failed = true;
 			}
 
+			if (keywordfile != null)
+				searchKeywords(job, keywordfile, exportfolder);
+
+			if (metricsfile != null)
+				writeMetrics(job, metricsfile);
+			stopRecording();
+
 			long end = System.currentTimeMillis();
 			System.out.println("Duration in ms: " + (end - start));
             AppLog.info("Duration in ms: " + (end - start));
+
+			if (failed)
+				System.exit(1);
+		}
+	}
+
+	/**
+	 * Opens a streaming sink for the given database file.
+	 *
+	 * @param format csv, jsonl or sqlite
+	 * @param folder output folder
+	 * @param dbpath path of the analysed database
+	 * @param suffix added to the file name for WAL/journal output
+	 * @return the new sink
+	 * @throws IOException if the output cannot be created
+	 */
+	static RecordSink openSink(String format, String folder, String dbpath, String suffix) throws IOException {
+		String name = new File(dbpath).getName() + suffix + RecordSink.suffix(format);
+		File target = new File(folder, name);
+		System.out.println("writing results to: " + target.getAbsolutePath());
+		return RecordSink.create(format, target);
+	}
+
+	/**
+	 * Searches the database and its companion files for the keywords of a
+	 * list and writes the hits to &lt;db&gt;_keywords.csv (and -wal/-journal).
+	 *
+	 * @param job the finished job - hits in the database are mapped to pages and tables
+	 * @param keywordfile the keyword list
+	 * @param folder output folder
+	 */
+	static void searchKeywords(Job job, String keywordfile, String folder) {
+		try {
+			KeywordScan scan = new KeywordScan(KeywordScan.readKeywords(Path.of(keywordfile)));
+			String name = new File(job.path).getName();
+
+			String[][] files = {
+				{ job.path, "" },
+				{ job.readWAL ? job.walpath : null, "-wal" },
+				{ job.readRollbackJournal ? job.rollbackjournalpath : null, "-journal" }
+			};
+			for (String[] f : files) {
+				if (f[0] == null || !new File(f[0]).isFile())
+					continue;
+				/* pages and tables are only known for the database itself */
+				List<KeywordScan.Hit> hits = scan.search(Path.of(f[0]), f[1].isEmpty() ? job : null, job.pool());
+				File target = new File(folder, name + f[1] + "_keywords.csv");
+				KeywordScan.writeCsv(hits, target);
+				System.out.println(hits.size() + " keyword hits written to: " + target.getAbsolutePath());
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Keyword search failed: " + e.getMessage());
+		} finally {
+			job.shutdownPool();
 		}
 	}
 
+	/**
+	 * Writes the metrics of the job as JSON.
+	 *
+	 * @param job the finished job
+	 * @param target file name or "-" for standard output
+	 */
+	static void writeMetrics(Job job, String target) {
+		String json = job.metrics.toJson();
+		if ("-".equals(target)) {
+			System.out.print(json);
+			return;
+		}
+		try {
+			Files.writeString(Path.of(target), json, StandardCharsets.UTF_8);
+			System.out.println("metrics written to: " + Path.of(target).toAbsolutePath());
+		} catch (IOException e) {
+			System.err.println("Cannot write metrics to " + target + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the JFR recording (if any) and tells where it went.
+	 */
+	static void stopRecording() {
+		Path jfr = Flight.stop();
+		if (jfr != null)
+			System.out.println("JFR recording written to: " + jfr.toAbsolutePath());
+	}
+
 	protected static void printOptions() {
 
 		System.out.println("    ");
@@ -145,8 +366,37 @@ public class MAIN {
 		System.out.println("            try to find a companion rollback journal-file and analyse it");
 		System.out.println("  --threads:<number of threads>");
 		System.out.println("            start concurrent processing with x threads (only for large files)");
+		System.out.println("  --export:<csv|jsonl|sqlite>");
+		System.out.println("            stream recovered records into files instead of keeping them in memory");
+		System.out.println("  --out:<folder>");
+		System.out.println("            folder for the --export files (default: current folder)");
 		System.out.println("  --loglevel:<ERROR|INFO|DEBUG|>");
 		System.out.println("            logmessage details");
+		System.out.println("  --metrics[:<file>]");
+		System.out.println("            print timings, pages/s, carving and cache figures as JSON after the run");
+		System.out.println("            (or write them to <file>); in batch mode always written per database");
+		System.out.println("  --jfr[:<file>]");
+		System.out.println("            record JDK Flight Recorder events (pages, carving, WAL frames, overflow chains,");
+		System.out.println("            remaps) to <file> (default: ~/.fqlite/recordings/fqlite-<date>.jfr)");
+		System.out.println("  --cache");
+		System.out.println("            load the results of an earlier run on the same files from ~/.fqlite/cache and store");
+		System.out.println("            the results of this run there (the evidence files are hashed in full)");
+		System.out.println("  --nocache");
+		System.out.println("            always analyse the database, do not load nor store results (the default)");
+		System.out.println("  --keywords:<file>");
+		System.out.println("            search the raw bytes of the database (and --wal/--rjournal files) for the keywords");
+		System.out.println("            in <file> (one per line) as UTF-8/UTF-16, ignoring case; hits with page, page type");
+		System.out.println("            and owning table go to <db>_keywords.csv in the --out folder");
+		System.out.println("  --batch:<folder|manifest>");
+		System.out.println("            analyse all databases below the folder (or listed in the manifest, one per line)");
+		System.out.println("            together with their -wal/-journal files; results go to one subfolder per");
+		System.out.println("            database below --out (format: --export, default jsonl); no <filename> needed");
+		System.out.println("  --jobs:<number of databases>");
+		System.out.println("            databases analysed at the same time in batch mode (default: 4)");
+		System.out.println("  --memory:<MB>");
+		System.out.println("            memory budget of all running batch jobs (default: 3/4 of the heap)");
+		System.out.println("  --progress:json");
+		System.out.println("            print the batch progress as JSON lines on standard output");
 		System.out.println(" ");
 		System.out.println("Example:");
 		System.out.println("    ");
@@ -155,6 +405,9 @@ public class MAIN {
 		System.out.println("    		use 4 threads to analyze the data records");
 		System.out.println("    		print only ERROR messages to standard output");
 		System.out.println("    		the name of the database file is <foo.db>");
+		System.out.println("    ");
+		System.out.println("  java jar fqlite_<version>.jar nogui --batch:/cases/extraction --jobs:8 --out:/cases/results --progress:json");
+		System.out.println("  	    	analyse every SQLite database of the extraction, 8 at a time ");
 		System.out.println("    ");		
 		
 		
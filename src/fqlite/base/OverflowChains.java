@@ -0,0 +1,375 @@
+package fqlite.base;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
+
+/**
+ * Job-wide index of the overflow page chains of a database.
+ *
+ * A record that does not fit into its page spills into a linked list of
+ * overflow pages: the first 4 bytes of each overflow page hold the number
+ * of the next one. A record with a large BLOB is asked for twice - once
+ * from the cell pointer and once more when the gap is carved.
+ *
+ * To keep the cost per record low
+ *
+ * <ul>
+ * <li>the next pointer of every overflow page is read once per job and
+ *     kept in a flat int array (4 bytes per page, allocated on the first
+ *     overflow)</li>
+ * <li>the chains (lists of page numbers) are kept in a small LRU cache,
+ *     so a chain that is asked for again is not walked at all</li>
+ * <li>the payload is handed out as a {@link Payload}, a gather view that
+ *     reads the cell part from the page and the overflow part directly
+ *     from the mmap windows of {@link Job#db} - the column values are
+ *     copied once, into the arrays the decoder needs anyway</li>
+ * </ul>
+ *
+ * Page numbers are 0-based here, like in
+ * {@link Job#readPageWithNumber(int, int)}.
+ *
+ * @author pawlaszc
+ *
+ */
+public class OverflowChains {
+
+	/* upper bound for the number of page numbers kept in the chain cache */
+	private static final int MAX_CACHED_PAGES = 1 << 16;
+
+	/* chains longer than this use a HashSet for the cycle check */
+	private static final int LINEAR_CYCLE_CHECK = 32;
+
+	private final Job job;
+
+	/*
+	 * next pointer per page: 0 = not read yet, -1 = ends the chain
+	 * (invalid pointer), otherwise pointer + 1
+	 */
+	private volatile AtomicIntegerArray next;
+
+	/* first page -> complete chain, in access order */
+	private final LinkedHashMap<Integer, int[]> chains = new LinkedHashMap<>(256, 0.75f, true);
+	private int cachedpages = 0;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	public OverflowChains(Job job) {
+		this.job = job;
+		this.hits = job.metrics.counter(Metrics.OVERFLOW_CACHE_HITS);
+		this.misses = job.metrics.counter(Metrics.OVERFLOW_CACHE_MISSES);
+	}
+
+	/**
+	 * Returns the pages of the overflow chain that starts with the given
+	 * page - from the cache or by following the next pointers.
+	 *
+	 * @param first 0-based number of the first overflow page
+	 * @return the 0-based page numbers (empty if the database is closed)
+	 */
+	public int[] chain(int first) {
+		int[] pages;
+		synchronized (chains) {
+			pages = chains.get(first);
+		}
+		if (pages != null) {
+			hits.increment();
+			job.metrics.distribution(Metrics.OVERFLOW_CHAIN).record(pages.length);
+			return pages;
+		}
+		misses.increment();
+
+		Flight.OverflowChain ev = Flight.enabled ? new Flight.OverflowChain() : null;
+		if (ev != null)
+			ev.begin();
+
+		pages = walk(first);
+		job.metrics.distribution(Metrics.OVERFLOW_CHAIN).record(pages.length);
+
+		if (ev != null) {
+			ev.page = first;
+			ev.pages = pages.length;
+			ev.commit();
+		}
+
+		if (pages.length > 0 && pages.length < MAX_CACHED_PAGES) {
+			synchronized (chains) {
+				if (chains.put(first, pages) == null)
+					cachedpages += pages.length;
+				var it = chains.entrySet().iterator();
+				while (cachedpages > MAX_CACHED_PAGES && it.hasNext()) {
+					Map.Entry<Integer, int[]> eldest = it.next();
+					cachedpages -= eldest.getValue().length;
+					it.remove();
+				}
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Returns a view of a spilled payload.
+	 *
+	 * @param page the page with the cell
+	 * @param from index of the first payload byte in the page
+	 * @param headlen number of payload bytes stored in the page
+	 * @param first 0-based number of the first overflow page
+	 * @param overflowlen number of payload bytes in the overflow pages
+	 * @param limit size of the view, missing bytes read as zero
+	 * @return the gather view
+	 */
+	public Payload payload(ByteBuffer page, int from, int headlen, int first, int overflowlen, int limit) {
+		BigByteBuffer db = job.db;
+		if (db == null)
+			return new Payload(page, from, headlen, null, new long[0], new int[0], 0, limit);
+
+		int[] pages = chain(first);
+		long[] offsets = new long[pages.length];
+		int[] lengths = new int[pages.length];
+		int total = 0;
+		for (int i = 0; i < pages.length && total < overflowlen; i++) {
+			offsets[i] = (long) pages[i] * job.ps + 4;
+			lengths[i] = (int) Math.max(0, Math.min(job.ps - 4, db.limit() - offsets[i]));
+			lengths[i] = Math.min(lengths[i], overflowlen - total);
+			total += lengths[i];
+		}
+		return new Payload(page, from, headlen, db, offsets, lengths, total, limit);
+	}
+
+	/**
+	 * Reads the content of all pages of a chain into one array.
+	 *
+	 * @param first 0-based number of the first overflow page
+	 * @return the concatenated page contents without the next pointers
+	 */
+	public byte[] read(int first) {
+		Payload p = payload(null, 0, 0, first, Integer.MAX_VALUE, 0);
+		return p.overflow();
+	}
+
+	/**
+	 * Drops the cache and the index, e.g. when the database buffer is closed.
+	 */
+	public void clear() {
+		synchronized (chains) {
+			chains.clear();
+			cachedpages = 0;
+		}
+		next = null;
+	}
+
+	/**
+	 * Follows the next pointers, stops at the end of the file, at a zero
+	 * pointer or when a page shows up a second time.
+	 */
+	private int[] walk(int first) {
+		BigByteBuffer db = job.db;
+		if (db == null)
+			return new int[0];
+
+		int[] pages = new int[8];
+		int n = 0;
+		Set<Integer> seen = null;
+
+		int p = first;
+		while (p >= 0 && (long) p * job.ps + 4 <= db.limit()) {
+
+			boolean cycle;
+			if (seen != null)
+				cycle = !seen.add(p);
+			else {
+				cycle = false;
+				for (int i = 0; i < n && !cycle; i++)
+					cycle = pages[i] == p;
+				if (!cycle && n >= LINEAR_CYCLE_CHECK) {
+					seen = new HashSet<>();
+					for (int i = 0; i < n; i++)
+						seen.add(pages[i]);
+					seen.add(p);
+				}
+			}
+			if (cycle) {
+				if (AppLog.isDebugEnabled()) AppLog.debug("OverflowChains: cycle detected at page " + p + " — stopping.");
+				break;
+			}
+
+			if (n == pages.length)
+				pages = Arrays.copyOf(pages, n * 2);
+			pages[n++] = p;
+
+			p = nextPage(db, p);
+		}
+		return Arrays.copyOf(pages, n);
+	}
+
+	/**
+	 * @return the 0-based number of the page after p, or -1 at the end
+	 */
+	private int nextPage(BigByteBuffer db, int p) {
+		AtomicIntegerArray idx = index();
+		if (p < idx.length()) {
+			int v = idx.get(p);
+			if (v != 0)
+				return v < 0 ? -1 : v - 2;
+		}
+
+		int raw = db.getInt((long) p * job.ps);
+
+		/* a pointer beyond the file or a negative one ends the chain */
+		int v = (raw < 0 || raw == Integer.MAX_VALUE) ? -1 : raw + 1;
+		if (p < idx.length())
+			idx.set(p, v);
+		return v < 0 ? -1 : v - 2;
+	}
+
+	private AtomicIntegerArray index() {
+		AtomicIntegerArray idx = next;
+		if (idx == null) {
+			synchronized (this) {
+				idx = next;
+				if (idx == null)
+					next = idx = new AtomicIntegerArray(Math.max(job.numberofpages, 1));
+			}
+		}
+		return idx;
+	}
+
+	/**
+	 * Gather view of a spilled payload: the part in the cell page followed
+	 * by the parts in the overflow pages. Reads beyond the payload, up to
+	 * {@link #limit()}, return zero bytes - the same as the zero padded
+	 * array that was built before.
+	 *
+	 * Not thread-safe, like a ByteBuffer; one view belongs to one record.
+	 */
+	public static final class Payload {
+
+		private final ByteBuffer head;
+		private final int headfrom;
+		private final int headlen;
+		private final BigByteBuffer src;
+		private final long[] offsets;
+		private final int[] lengths;
+		private final int overflowlen;
+		private final int limit;
+		private int pos = 0;
+
+		Payload(ByteBuffer head, int headfrom, int headlen, BigByteBuffer src, long[] offsets, int[] lengths,
+				int overflowlen, int limit) {
+			this.head = head;
+			this.headfrom = headfrom;
+			this.headlen = head == null ? 0 : Math.max(0, Math.min(headlen, head.limit() - headfrom));
+			this.src = src;
+			this.offsets = offsets;
+			this.lengths = lengths;
+			this.overflowlen = overflowlen;
+			this.limit = limit;
+		}
+
+		/**
+		 * A view over an overflow part that is already in memory, e.g. one
+		 * read from a WAL archive.
+		 */
+		public static Payload of(ByteBuffer head, int headfrom, int headlen, byte[] overflow, int overflowlen, int limit) {
+			if (overflow == null)
+				return new Payload(head, headfrom, headlen, null, new long[0], new int[0], 0, limit);
+			int len = Math.max(0, Math.min(overflow.length, overflowlen));
+			return new Payload(head, headfrom, headlen, BigByteBuffer.wrap(overflow), new long[] { 0 },
+					new int[] { len }, len, limit);
+		}
+
+		/**
+		 * A view over a page without overflow.
+		 */
+		public static Payload of(ByteBuffer page) {
+			return new Payload(page, 0, page.limit(), null, new long[0], new int[0], 0, page.limit());
+		}
+
+		public int position() {
+			return pos;
+		}
+
+		public Payload position(int newpos) {
+			if (newpos < 0 || newpos > limit)
+				throw new IllegalArgumentException();
+			pos = newpos;
+			return this;
+		}
+
+		public int limit() {
+			return limit;
+		}
+
+		public int remaining() {
+			return limit - pos;
+		}
+
+		/**
+		 * Relative bulk get, like {@link ByteBuffer#get(byte[])}.
+		 */
+		public Payload get(byte[] dst) {
+			if (dst.length > remaining())
+				throw new BufferUnderflowException();
+			copy(pos, dst, 0, dst.length);
+			pos += dst.length;
+			return this;
+		}
+
+		/**
+		 * @return number of payload bytes found in the overflow pages
+		 */
+		public int overflowLength() {
+			return overflowlen;
+		}
+
+		/**
+		 * @return the overflow part as one array
+		 */
+		public byte[] overflow() {
+			byte[] out = new byte[overflowlen];
+			copy(headlen, out, 0, overflowlen);
+			return out;
+		}
+
+		private void copy(int at, byte[] dst, int off, int len) {
+			/* part in the cell page */
+			if (at < headlen) {
+				int n = Math.min(len, headlen - at);
+				head.get(headfrom + at, dst, off, n);
+				at += n;
+				off += n;
+				len -= n;
+			}
+
+			/* parts in the overflow pages - straight from the mmap windows */
+			int skip = at - headlen;
+			for (int i = 0; i < offsets.length && len > 0; i++) {
+				if (skip >= lengths[i]) {
+					skip -= lengths[i];
+					continue;
+				}
+				int n = Math.min(len, lengths[i] - skip);
+				src.read(offsets[i] + skip, dst, off, n);
+				skip = 0;
+				off += n;
+				len -= n;
+			}
+
+			/* behind the payload */
+			if (len > 0)
+				Arrays.fill(dst, off, off + len, (byte) 0);
+		}
+	}
+
+}
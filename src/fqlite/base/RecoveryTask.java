@@ -7,6 +7,8 @@ import fqlite.descriptor.AbstractDescriptor;
 import fqlite.descriptor.IndexDescriptor;
 import fqlite.descriptor.TableDescriptor;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
 import fqlite.pattern.SerialTypeMatcher;
 import fqlite.types.CarverTypes;
 import fqlite.util.Auxiliary;
@@ -28,11 +30,13 @@ public class RecoveryTask implements Runnable {
 	public long offset;
 	public ByteBuffer buffer;
 	public BitSet visit;
-	public static List<AbstractDescriptor> tables = new LinkedList<>();
 	public int pagenumber;
 	private final Job job;
 	private final Auxiliary ct;
 	private boolean freeList;
+	/* page type and number of cells, as found by recover() */
+	private int pagetype = -1;
+	private int cells = 0;
 
 	/**
 	 * Constructor method.
@@ -45,7 +49,7 @@ public class RecoveryTask implements Runnable {
 
 
 		if (job.size < offset) {
-			AppLog.debug("RecoveryTask: offset " + offset + " exceeds file size " + job.size + " — task skipped.");
+			if (AppLog.isDebugEnabled()) AppLog.debug("RecoveryTask: offset " + offset + " exceeds file size " + job.size + " — task skipped.");
 			throw new IllegalArgumentException("offset " + offset + " exceeds file size " + job.size);
 		}
 
@@ -70,31 +74,28 @@ public class RecoveryTask implements Runnable {
 
 		try {
 
-			AppLog.debug("Offset in recover()::" + offset);
+			if (AppLog.isDebugEnabled()) AppLog.debug("Offset in recover()::" + offset);
 
 			/* read the db page into buffer */
 			buffer = job.readDBPageWithOffset(offset, pagesize);
-			/* convert byte array into a string representation */
 			if (null == buffer)
 				return -1;
-			String content = Auxiliary.bytesToHex2(buffer);
 
-			// offset 0
+			/*
+			 * The page is parsed directly on the ByteBuffer: the header fields and
+			 * cell pointers are read with absolute gets, no copy of the page is made.
+			 */
 			buffer.position(0);
 
-			/* check type of the page by reading the first two bytes */
-			int type = Auxiliary.getPageType(Objects.requireNonNull(content));
+			/* check type of the page by reading the first byte */
+			int type = Auxiliary.getPageType(buffer, 0);
+			pagetype = type;
 
 			/* mark bytes as visited */
 			visit.set(0, 2);
 
 			/* first page -> we need to check from offset 100 */
 			if(offset == 0 || offset == 100){
-				// offset 0
-				//buffer.position(100);
-
-				/* check type of the page by reading the first two bytes */
-				type = Auxiliary.getPageType(content);
 
 				/* mark bytes as visited */
 				visit.set(0,102);
@@ -120,13 +121,12 @@ public class RecoveryTask implements Runnable {
 			if (type == 0) {
 
 				/* if page was dropped - because of a DROP TABLE command - first 8 Bytes are zero-bytes */
-				buffer.position(0);
-				int checksum = buffer.getInt();
+				int checksum = buffer.getInt(0);
 				/* was page dropped? */
 				if (checksum == 0)
 				{
 					/* no overflow page -> carve for data records - we do our best! ;-)*/
-					carve(content,null);
+					carve(null);
 				}
 				/* Otherwise, it seems to be an overflow page; however, that is not 100% safe. */
 
@@ -138,22 +138,22 @@ public class RecoveryTask implements Runnable {
 
 			// no leaf page -> skip this page
 			if (type < 0) {
-				AppLog.debug("No Data page. " + pagenumber);
+				if (AppLog.isDebugEnabled()) AppLog.debug("No Data page. " + pagenumber);
 				return -1;
 			}
 			else if(type == 5){
-				AppLog.debug("Inner Table page (only references no data). Page:" + pagenumber);
+				if (AppLog.isDebugEnabled()) AppLog.debug("Inner Table page (only references no data). Page:" + pagenumber);
 
 
 				if(pagenumber == 1)
 					return 0;
 			}
 			else if (type == 10) {
-				AppLog.debug("Index leaf page " + pagenumber);
+				if (AppLog.isDebugEnabled()) AppLog.debug("Index leaf page " + pagenumber);
 				// note: WITHOUT ROWID tables are saved here.
 				withoutROWID=true;
 			} else {
-				AppLog.debug("Data page " + pagenumber + " Offset: " + offset);
+				if (AppLog.isDebugEnabled()) AppLog.debug("Data page " + pagenumber + " Offset: " + offset);
 
 			}
 
@@ -161,18 +161,11 @@ public class RecoveryTask implements Runnable {
 			// hx8 or hxD
 			if (type == 8 || type == 13)
 			{
-				// offset 1-2 let us find the first free block offset for carving
-				byte[] fboffset = new byte[2];
-				buffer.position(1);
-				buffer.get(fboffset);
-
 				// Note: The two-byte integer at offset 1 of the page gives the start of the first free block
 				// on the page, or is zero if there are no free blocks.
 				// A free block marks an area between 2 normal cells (that was removed, for example)
 				// every byte before the cell content region (on offset 5) is no part of the freeblock!!!
-
-				ByteBuffer firstfb = ByteBuffer.wrap(fboffset);
-				fbstart = Auxiliary.TwoByteBuffertoInt(firstfb);
+				fbstart = Auxiliary.readUnsignedShort(buffer, 1);
 
 			}
 
@@ -180,22 +173,13 @@ public class RecoveryTask implements Runnable {
 			boolean firstColumnIsROWID = false;
 
 			// found Data-Page - determine number of cell pointers at offset 3-4 of this page
-			byte[] cpn = new byte[2];
-			buffer.position(3);
-			buffer.get(cpn);
-
-			// get start pointer for the cell content region
-			byte[] ccr = new byte[2];
-			buffer.position(5);
-			buffer.get(ccr);
+			int cp = Auxiliary.readUnsignedShort(buffer, 3);
+			cells = cp;
 
 			/* mark as visited */
 			visit.set(2, 8);
 
-			ByteBuffer size = ByteBuffer.wrap(cpn);
-			int cp = Auxiliary.TwoByteBuffertoInt(size);
-
-			AppLog.debug(" number of cells: " + cp + " type of page " +  type);
+			if (AppLog.isDebugEnabled()) AppLog.debug(" number of cells: " + cp + " type of page " +  type);
 			job.numberofcells.addAndGet(cp);
 			if (0 == cp)
 				AppLog.debug(" Page seems to be dropped. No cell entries.");
@@ -245,17 +229,17 @@ public class RecoveryTask implements Runnable {
 				boolean goon = false;
 
 				do {
-					// go to next free block
-					buffer.position(fbstart);
-
-					// read the next 2 bytes -> this value represents the length of the
-					// freeblock. Remember: The maximum size of a database page is 64kb (2^16 bytes)
-					int next = Auxiliary.TwoByteBuffertoInt(buffer);
+					// read the next 2 bytes -> this value represents the offset of the
+					// next freeblock. Remember: The maximum size of a database page is 64kb (2^16 bytes)
+					int next = Auxiliary.readUnsignedShort(buffer, fbstart);
 
 					// Note: The third and fourth bytes of each freeblock form a big-endian integer, which is the size of the freeblock in bytes.
 					// including the 4-byte header
-					int freeblocksize = Auxiliary.TwoByteBuffertoInt(buffer);
+					int freeblocksize = Auxiliary.readUnsignedShort(buffer, fbstart + 2);
 					freeblocksize-=2;
+
+					// go to the freeblock body
+					buffer.position(fbstart + 4);
 					int remaining = freeblocksize;
 					int pos = 0;
 
@@ -381,14 +365,7 @@ public class RecoveryTask implements Runnable {
 			for (int i = 0; i < cp; i++) {
 
 				// address of the next cell pointer
-				byte[] pointer = new byte[2];
-				if (type == 5)
-					buffer.position(12+2*i);
-				else
-					buffer.position(8+2*i);
-				buffer.get(pointer);
-				ByteBuffer celladdr = ByteBuffer.wrap(pointer);
-				int celloff = Auxiliary.TwoByteBuffertoInt(celladdr);
+				int celloff = Auxiliary.readUnsignedShort(buffer, (type == 5 ? 12 : 8) + 2 * i);
 
 				if (offset == 100){
 					celloff-=100;
@@ -402,7 +379,7 @@ public class RecoveryTask implements Runnable {
 				last = celloff;
 
 				String hls = Auxiliary.Int2Hex(celloff); // Integer.toHexString(celloff);
-				AppLog.debug(pagenumber + " -> " + celloff + " " + "0" + hls);
+				if (AppLog.isDebugEnabled()) AppLog.debug(pagenumber + " -> " + celloff + " " + "0" + hls);
 
 
 
@@ -485,7 +462,7 @@ public class RecoveryTask implements Runnable {
 
 							/* Need at least 4 bytes: 2 for the skipped header + 2 for entries count */
 							if (bf.remaining() < 4) {
-								AppLog.debug("rtree _node BLOB too short (" + bf.remaining() + " bytes) — skipping.");
+								if (AppLog.isDebugEnabled()) AppLog.debug("rtree _node BLOB too short (" + bf.remaining() + " bytes) — skipping.");
 								continue;
 							}
 
@@ -495,7 +472,7 @@ public class RecoveryTask implements Runnable {
 							/* first get the total number of entries for this rtree branch */
 							int entries = bf.getShort();
 
-							AppLog.debug("Virtual Table "+ tbln + " entries: " + entries);
+							if (AppLog.isDebugEnabled()) AppLog.debug("Virtual Table "+ tbln + " entries: " + entries);
 
 							/* create a new line for every data row */
 							while(entries > 0)
@@ -531,7 +508,7 @@ public class RecoveryTask implements Runnable {
 										}
 										number--;
 									}catch(Exception err){
-										AppLog.debug("rtree column read error at number=" + number + ": " + err.getMessage());
+										if (AppLog.isDebugEnabled()) AppLog.debug("rtree column read error at number=" + number + ": " + err.getMessage());
 										number--;
 									}
 								}
@@ -585,7 +562,7 @@ public class RecoveryTask implements Runnable {
 				return 0;
 
 			if(offset != 100)
-				carve(content,null);
+				carve(null);
 
 		} catch (Exception err) {
 			err.printStackTrace();
@@ -602,29 +579,7 @@ public class RecoveryTask implements Runnable {
 	 */
 	private void updateResultSet(DataRow row)
 	{
-		int empty_columns = 0;
-
-		// entry for table name already exists
-		if (job.resultlist.containsKey(row.line().getFirst()))
-		{
-			ObservableList<ObservableList<String>> tablelist = job.resultlist.get(row.line().getFirst());
-			tablelist.add(FXCollections.observableList(row.line()));  // add row
-
-			// save the original hex-values of a table row separately to a different list
-			ObservableList<ObservableList<byte[]>> hexlist = job.hexdumplist.get(row.line().getFirst());
-			hexlist.add(FXCollections.observableList(row.hexdump()));
-		}
-
-		// create a new dataset since the table name occurs for the first time
-		else {
-			ObservableList<ObservableList<String>> tablelist = FXCollections.observableArrayList();
-			tablelist.add(FXCollections.observableList(row.line()));  // add row
-			job.resultlist.put(row.line().getFirst(),tablelist);
-
-			ObservableList<ObservableList<byte[]>> hexlist = FXCollections.observableArrayList();
-			hexlist.add(FXCollections.observableList(row.hexdump()));
-			job.hexdumplist.put(row.line().getFirst(),hexlist);
-		}
+		job.addResultRow(row.line(), row.hexdump());
 	}
 
 	/**
@@ -685,7 +640,7 @@ public class RecoveryTask implements Runnable {
 					else {
 						Gap g = new Gap(from, to);
 						if (!gaps.contains(g))
-							AppLog.debug("ohne match : " + (job.ps * (pagenumber - 1) + from) + " - "
+							if (AppLog.isDebugEnabled()) AppLog.debug("ohne match : " + (job.ps * (pagenumber - 1) + from) + " - "
 										 + (job.ps * (pagenumber - 1) + to) + " Bytes");
 						gaps.add(g);
 					}
@@ -704,9 +659,9 @@ public class RecoveryTask implements Runnable {
 	/**
 	 * This method is called to carve a data page for records.
 	 *
-	 * @param content page content as a hex-string
+	 * @param crv carver to use or <code>null</code> to create one for the current page
 	 */
-	public void carve(String content, Carver crv) {
+	public void carve(Carver crv) {
 
 		Carver c = crv;
 
@@ -714,7 +669,10 @@ public class RecoveryTask implements Runnable {
 			/* no type could be found in the first two bytes */
 			/* Maybe the whole page was dropped because of a drop component command? */
 			/* start carving on the complete page */
-			c = new Carver(job, buffer, content, visit, pagenumber);
+			c = new Carver(job, buffer, visit, pagenumber);
+
+		/* the page buffer starts at this file offset */
+		c.fileoffset = offset;
 
 		/* try to get component schema for the current page, if possible */
 		AbstractDescriptor tdesc = null;
@@ -727,7 +685,7 @@ public class RecoveryTask implements Runnable {
 				tdesc = (IndexDescriptor) ad;
 		}
 		List<AbstractDescriptor> tab = new ArrayList<AbstractDescriptor>();
-		AppLog.debug(" tables :: " + RecoveryTask.tables.size());
+		if (AppLog.isDebugEnabled()) AppLog.debug(" tables :: " + job.tables.size());
 
 		if (null != tdesc) {
 			/* there is a schema for this page */
@@ -736,7 +694,7 @@ public class RecoveryTask implements Runnable {
 			AppLog.debug(" added tdsec ");
 		} else {
 			AppLog.debug(" No component description!");
-			tab = RecoveryTask.tables;
+			tab = job.tables;
 		}
 
 
@@ -776,8 +734,10 @@ public class RecoveryTask implements Runnable {
 					continue;
 
 
-				AppLog.debug("pagenumber :: " + pagenumber + " component size :: " + tab.size());
-				AppLog.debug("n " + n);
+				if (AppLog.isDebugEnabled()) {
+					AppLog.debug("pagenumber :: " + pagenumber + " component size :: " + tab.size());
+					AppLog.debug("n " + n);
+				}
 
 
 
@@ -841,6 +801,10 @@ public class RecoveryTask implements Runnable {
 	@Override
 	public void run() {
 
+		long begin = System.nanoTime();
+		Flight.PageRecovery ev = Flight.enabled ? new Flight.PageRecovery() : null;
+		if (ev != null)
+			ev.begin();
 		try
 		{
 			recover();
@@ -848,10 +812,26 @@ public class RecoveryTask implements Runnable {
 		catch(Exception err)
 		{
 			AppLog.error("RecoveryTask failed on page " + pagenumber + ": " + err.getClass().getSimpleName() + " — " + err.getMessage());
-			AppLog.debug("RecoveryTask stack trace: " + Arrays.toString(err.getStackTrace()));
+			if (AppLog.isDebugEnabled()) AppLog.debug("RecoveryTask stack trace: " + Arrays.toString(err.getStackTrace()));
 		}
 		finally
 		{
+			job.metrics.busy(System.nanoTime() - begin);
+			job.metrics.counter(Metrics.PAGES_RECOVERED).increment();
+
+			if (ev != null) {
+				ev.end();
+				if (ev.shouldCommit()) {
+					ev.page = pagenumber;
+					ev.type = pagetype;
+					ev.cells = cells;
+					ev.freelist = freeList;
+					if (pagenumber >= 0 && pagenumber < job.pages.length && job.pages[pagenumber] != null)
+						ev.table = job.pages[pagenumber].getName();
+					ev.commit();
+				}
+			}
+
 			/* if task has finished, decrement this counter to inform the main-thread */
 			job.runningTasks.decrementAndGet();
 		}
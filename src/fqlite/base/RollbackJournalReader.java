@@ -2,20 +2,22 @@ package fqlite.base;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import fqlite.analyzer.DatabaseComparator;
 import fqlite.descriptor.AbstractDescriptor;
 import fqlite.descriptor.TableDescriptor;
+import fqlite.export.CollectorRecordSink;
+import fqlite.export.RecordSink;
+import fqlite.fts.SearchIndex;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
 import fqlite.pattern.SerialTypeMatcher;
 import fqlite.types.CarverTypes;
 import fqlite.util.Auxiliary;
@@ -40,15 +42,18 @@ public class RollbackJournalReader{
 
 	public static final String MAGIC_HEADER_STRING = "d9d505f920a163d7";
 	
-	/* An asynchronous channel for reading, writing, and manipulating a file. */
-	public AsynchronousFileChannel file;
-
 	/* this is a multi-threaded program -> all data are saved to the list first*/
     public ConcurrentHashMap<String,ObservableList<ObservableList<String>>> resultlist = new ConcurrentHashMap<>();
 	public ConcurrentHashMap<String,ObservableList<ObservableList<byte[]>>> hexdumplist = new ConcurrentHashMap<>();
 
-	/* This buffer holds RollbackJournal-file in RAM */
-	ByteBuffer rollbackjournal;
+	/* every recovered row is handed to this sink - by default it fills the two lists above */
+	public RecordSink sink = new CollectorRecordSink(resultlist, hexdumplist);
+
+	/* the hexdump entries of the rows above point into this file */
+	public HexSource hexsource;
+
+	/* the RollbackJournal-file, mapped window by window on demand (see BigByteBuffer) */
+	BigByteBuffer rollbackjournal;
 
 	/* total size of RollbackJournal-file in bytes */
 	long size;
@@ -69,6 +74,9 @@ public class RollbackJournalReader{
 	/* number of pages that is currently analysed */
 	int pagenumber_rol;
 	int pagenumber_maindb;
+
+	/* file offset of the page that is currently analysed */
+	long pagestart = -1;
 	long pagecount;
 	long nounce;
 	long pages;
@@ -87,7 +95,8 @@ public class RollbackJournalReader{
 	/* buffer that holds the current page */
 	ByteBuffer buffer;
 
-	public static List<TableDescriptor> tables = new ArrayList<TableDescriptor>();
+	/* schemas tried when a page of the journal has no component - one list per reader, batch jobs run side by side */
+	public final List<TableDescriptor> tables = new ArrayList<TableDescriptor>();
 
 	//ConcurrentLinkedQueue<LinkedList<String>> output = new ConcurrentLinkedQueue<LinkedList<String>>();
 
@@ -107,6 +116,36 @@ public class RollbackJournalReader{
 		this.path = path;
 		this.job = job;
 		this.ct = new Auxiliary(job);
+		this.hexsource = new HexSource(path);
+		this.ct.hexsource = hexsource;
+
+		/* in gui-mode the rows go into the search index of the job, too */
+		if (job.fts != null)
+			this.sink = new CollectorRecordSink(resultlist, hexdumplist, job.fts, SearchIndex.JOURNAL);
+	}
+
+	/**
+	 * Creates a reader for one worker thread of {@link #parse()}. It shares
+	 * the mapped journal, the results and the sink with its parent, but has
+	 * a page buffer, a BitSet and an Auxiliary object of its own.
+	 *
+	 * @param parent the reader that analyses the journal
+	 */
+	private RollbackJournalReader(RollbackJournalReader parent) {
+		this.path = parent.path;
+		this.job = parent.job;
+		this.ps = parent.ps;
+		this.resultlist = parent.resultlist;
+		this.hexdumplist = parent.hexdumplist;
+		this.sink = parent.sink;
+		this.hexsource = parent.hexsource;
+		this.rollbackjournal = parent.rollbackjournal;
+		this.size = parent.size;
+		this.pageOwner = parent.pageOwner;
+		this.records = parent.records;
+		this.ct = new Auxiliary(job);
+		this.ct.hexsource = hexsource;
+		this.visit = new BitSet(ps);
 	}
 
 	/**
@@ -117,43 +156,43 @@ public class RollbackJournalReader{
 	 */
 	public void parse() throws IOException {
 
-		Path p = Paths.get(path);
-
-		RollbackjournalAnalyzer.analyzeJournal(this);
-		
 		/*
-		 * We have to do this before we open the database because of the concurrent
-		 * access
+		 * The journal is not read into RAM any more: BigByteBuffer maps it
+		 * window by window and only the pages that are analysed are copied.
+		 * That keeps the memory bounded and there is no 2 GB limit.
 		 */
-
-		/* try to open the db-file in read-only mode */
 		try {
-			file = AsynchronousFileChannel.open(p, StandardOpenOption.READ);
-		} catch (Exception e) {
-            AppLog.error("Cannot open RollbackJournal-file" + p.getFileName());
+			rollbackjournal = new BigByteBuffer(path);
+		} catch (IOException | IllegalArgumentException e) {
+            AppLog.error("Cannot open RollbackJournal-file " + Paths.get(path).getFileName());
 			return;
 		}
+		size = rollbackjournal.limit();
 
-		/** Caution!!! We read the complete file into RAM **/
 		try {
-			readFileIntoBuffer();
-		} catch (IOException e) {
-
-			e.printStackTrace();
-		}
-		
-		try {
-			if(file.size() <= 512)
-			{	
+			if (size <= 512)
+			{
 				System.out.println("RollbackJournal-File is empty. Skip analyzing.");
-					return;
+				return;
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}	
-		
-		
-		
+
+			RollbackjournalAnalyzer.analyzeJournal(this);
+
+			readHeader();
+			analyzeRecords();
+		}
+		finally {
+			job.reportCache("journal", rollbackjournal);
+			rollbackjournal.close();
+			rollbackjournal = null;
+		}
+	}
+
+	/**
+	 * Reads the fields of the journal header.
+	 */
+	private void readHeader() {
+
 		/*
 		 * In practice, when a transaction is committed, it seems that the journal
 		 * The header is normally zeroed, and the data in the journal remains.
@@ -176,15 +215,10 @@ public class RollbackJournalReader{
 		 * 24 		4 		Size of pages in this journal. 
 		 */
 		
-		/* read header of the WAL file - the first 28 bytes */
-		ByteBuffer header = ByteBuffer.allocate(28);
-		Future<Integer> result = file.read(header, 0); // position = 0
-		while (!result.isDone()) {
-
-			// we can do something in between or just wait ;-).
-		}
-
-		header.flip();
+		/* read header of the journal file - the first 28 bytes */
+		byte[] hbytes = new byte[28];
+		rollbackjournal.read(0, hbytes);
+		ByteBuffer header = ByteBuffer.wrap(hbytes);
 		
 		
 		byte head[] = new byte[8];
@@ -216,71 +250,110 @@ public class RollbackJournalReader{
 		AppLog.info(" journal page size  " + journalpagesize);
 
 	    journalpointer = 512; // this is the position, where the first frame should be
+	}
 
-		/* initialise the BitSet for already visited location within */
-		visit = new BitSet(ps);
-
-		int i = 0;
-		for(RollbackjournalAnalyzer.PageRecord r: records){
-
-			long offset = r.recordOffset();
-			long page = r.pageNumber();
+	/**
+	 * Analyses all page records found by the RollbackjournalAnalyzer. The
+	 * records do not depend on each other, so they are spread over the
+	 * worker threads of the job (see {@link RecordTask}).
+	 */
+	private void analyzeRecords() {
 
-			/* read the db page into buffer */
-			buffer = readPage((int)offset+4);
+		Metrics.Phase phase = job.metrics.begin(Metrics.PHASE_JOURNAL);
 
-			analyzePage(i, (int)page,(int)offset + 4); // we need the original page number to compute the offset for the diff between journal and database
-			i++;
+		try {
+			job.pool().invoke(new RecordTask(this, 0, records.size()));
+		}
+		finally {
+			job.shutdownPool();
 		}
 
+		phase.pages(records.size());
+		phase.end();
+
 		//AppLog.info("Lines after RollbackJournal-file recovery: " + output.size());
 		AppLog.info("Number of pages in RollbackJournal-file" + records.size());
 	
 	}
-	
-	private void updateResultSet(DataRow row)
-	{
-		// entry for table name already exists
-		if (resultlist.containsKey(row.line().getFirst()))
-		{
-			ObservableList<ObservableList<String>> tablelist = resultlist.get(row.line().getFirst());
-			tablelist.add(FXCollections.observableList(row.line()));  // add row
 
-			// save the original bytes-values of the table row separately to a different list
-			ObservableList<ObservableList<byte[]>> hexlist = hexdumplist.get(row.line().getFirst());
-			hexlist.add(FXCollections.observableList(row.hexdump()));
+	/**
+	 * A range of page records, analysed inside the ForkJoinPool of the job.
+	 * Like a {@link ScanTask} the range is halved until it is small enough,
+	 * idle threads steal the other halves.
+	 */
+	private static class RecordTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final RollbackJournalReader reader;
+		final int from;
+		final int to;
+
+		RecordTask(RollbackJournalReader reader, int from, int to) {
+			this.reader = reader;
+			this.from = from;
+			this.to = to;
 		}
 
-		// create a new data set since the table name occurs for the first time
-		else {
-			ObservableList<ObservableList<String>> tablelist = FXCollections.observableArrayList();
-			tablelist.add(FXCollections.observableList(row.line())); // add row
-			resultlist.put(row.line().getFirst(),tablelist);
+		@Override
+		protected void compute() {
+
+			if (to - from > ScanTask.THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new RecordTask(reader, from, mid), new RecordTask(reader, mid, to));
+				return;
+			}
+
+			/* small enough - one reader for the whole range */
+			RollbackJournalReader worker = new RollbackJournalReader(reader);
+			for (int i = from; i < to; i++) {
+				RollbackjournalAnalyzer.PageRecord r = reader.records.get(i);
+
+				long offset = r.recordOffset() + 4;
+
+				/* read the db page into buffer */
+				worker.buffer = worker.readPage(offset);
+				if (worker.buffer == null)
+					continue;
+				worker.visit.clear();
 
-			ObservableList<ObservableList<byte[]>> hexlist = FXCollections.observableArrayList();
-			hexlist.add(FXCollections.observableList(row.hexdump()));
-			hexdumplist.put(row.line().getFirst(),hexlist);
+				Flight.PageRecovery ev = Flight.enabled ? new Flight.PageRecovery() : null;
+				if (ev != null)
+					ev.begin();
+
+				worker.analyzePage(i, (int) r.pageNumber(), offset); // we need the original page number to compute the offset for the diff between journal and database
+
+				if (ev != null) {
+					ev.page = (int) r.pageNumber();
+					ev.type = r.pageTypeByte();
+					ev.table = r.ownerName();
+					ev.commit();
+				}
+			}
 		}
 	}
+	
+	private void updateResultSet(DataRow row)
+	{
+		sink.accept(row);
+	}
 
 	/**
 	 * Analyse the actual database page and try to recover regular and deleted content.
 	 * 
 	 * @return int success
 	 */
-	public int analyzePage(int page, int originalpagenumber,int pageoffset) {
+	public int analyzePage(int page, int originalpagenumber,long pageoffset) {
 
 		withoutROWID = false;
 		pagenumber_maindb = originalpagenumber;
+		pagestart = pageoffset;
 		
-		/* convert byte array into a string representation */
-		String content = Auxiliary.bytesToHex2(buffer);
-
 		// offset 0
 		buffer.position(0);
 
-		/* check type of the page by reading the first two bytes */
-		int type = Auxiliary.getPageType(content);
+		/* check type of the page by reading the first byte */
+		int type = Auxiliary.getPageType(buffer, 0);
 		/* mark bytes as visited */
 		visit.set(0, 2);
 
@@ -308,7 +381,7 @@ public class RollbackJournalReader{
 			if (checksum == 0) {
 				System.out.println(" DROPPED PAGE !!!");
 				/* no overflow page -> carve for data records - we do our best! ;-) */
-				carve(content, null);
+				carve(null);
 			}
 			/*
 			 * otherwise it seems to be an overflow page - however, that is not 100% safe!!!
@@ -368,7 +441,7 @@ public class RollbackJournalReader{
 		ByteBuffer size = ByteBuffer.wrap(cpn);
 		int cp = Auxiliary.TwoByteBuffertoInt(size);
 
-		AppLog.debug(" number of cells: " + cp + " type of page " + type);
+		if (AppLog.isDebugEnabled()) AppLog.debug(" number of cells: " + cp + " type of page " + type);
 		job.numberofcells.addAndGet(cp);
 		if (0 == cp)
 			AppLog.debug(" Page seems to be dropped. No cell entries.");
@@ -405,24 +478,16 @@ public class RollbackJournalReader{
 			last = celloff;
 				String hls = Auxiliary.Int2Hex(celloff); 
 
-				AppLog.debug(page + " -> " + celloff + " " + "0" + hls);
+				if (AppLog.isDebugEnabled()) AppLog.debug(page + " -> " + celloff + " " + "0" + hls);
 			hls.trim();
 			
             // List, not LinkedList: holds DataRow.line(), now ArrayList-backed
             // for the dominant readRecord() path (see DataRow.java).
             List<String> record = null;
 
-			String tname = null;
-
-			for (RollbackjournalAnalyzer.PageRecord re : records){
-				if (re.pageNumber()== pagenumber_maindb){
-					tname = re.ownerName();
-				}
-			}
-
-			if (tname == null) {
-				tname = "unkown";
-			}
+			/* the owner of a page comes straight from the page-to-owner map of the analyzer */
+			RollbackjournalAnalyzer.SchemaEntry owner = pageOwner.get((long) pagenumber_maindb);
+			String tname = owner != null ? owner.name() : "<unattributed>";
 
 			try {
 				DataRow r = ct.readRecord(celloff, buffer, pagenumber_maindb, visit, Integer.MAX_VALUE, withoutROWID, Global.ROLLBACK_JOURNAL_FILE, pageoffset + celloff, tname);
@@ -484,54 +549,20 @@ public class RollbackJournalReader{
 	}
 
 	/**
-	 * This method is used to read the database file into RAM.
+	 * Reads the db page at the given offset of the journal. The page is
+	 * copied out of the mapped file, so it stays valid when the window
+	 * is unmapped.
 	 * 
-	 * @return a read-only ByteBuffer representing the RollbackJournal file content
-	 * @throws IOException
+	 * @param offset file offset of the page
+	 * @return the page or <code>null</code> if it lies behind the end of the file
 	 */
-	private void readFileIntoBuffer() throws IOException {
-
-		/* read the complete file into a ByteBuffer */
-		size = file.size();
+	protected ByteBuffer readPage(long offset) {
 
-		rollbackjournal = ByteBuffer.allocateDirect((int) size);
-
-		Future<Integer> result = file.read(rollbackjournal, 0); // position = 0
-
-		while (!result.isDone()) {
-
-			// we can do something in between or we can do nothing ;-).
-		}
-
-		// set filepointer to the beginning of the file
-		rollbackjournal.position(0);
-
-	}
-
-	/**
-	 * Starting with the current position of the RollbackJournal-ByteBuffer 
-	 * 
-	 * Read the next DB page.
-	 * 
-	 * @return
-	 */
-	protected ByteBuffer readPage() {
-
-		byte [] page = new byte[ps];
-		
-		rollbackjournal.get(page);
-		
-		ByteBuffer content = ByteBuffer.wrap(page);
-		
-		return content;
-	}
-
-	protected ByteBuffer readPage(int offset) {
+		if (offset < 0 || offset + ps > size)
+			return null;
 
 		byte [] page = new byte[ps];
-
-		rollbackjournal.position(offset);
-		rollbackjournal.get(page);
+		rollbackjournal.read(offset, page);
 
 		ByteBuffer content = ByteBuffer.wrap(page);
 
@@ -541,9 +572,10 @@ public class RollbackJournalReader{
 	/**
 	 * This method is called to carve a data page for records.
 	 * 
-	 * @param content page content as hex string
+	 * @param buffer the page content
+	 * @param crv carver to use or <code>null</code> to create one for the page
 	 */
-	public void carve(ByteBuffer buffer, String content, Carver crv) {
+	public void carve(ByteBuffer buffer, Carver crv) {
 
 		Carver c = crv;
 
@@ -551,7 +583,10 @@ public class RollbackJournalReader{
 			/* no type could be found in the first two bytes */
 			/* Maybe the whole page was dropped because of a drop component command? */
 			/* start carving on the complete page */
-			c = new Carver(job, buffer, content, visit, ps);
+			c = new Carver(job, buffer, visit, ps);
+
+		c.hexsource = hexsource;
+		c.fileoffset = pagestart;
 
 
 		/* try to get component schema for the current page, if possible */
@@ -563,7 +598,7 @@ public class RollbackJournalReader{
 		}
 
 		List<TableDescriptor> tab = tables;
-		AppLog.debug(" tables :: " + tables.size());
+		if (AppLog.isDebugEnabled()) AppLog.debug(" tables :: " + tables.size());
 
 		if (null != tdesc) {
 			/* there is a schema for this page */
@@ -584,8 +619,10 @@ public class RollbackJournalReader{
 		/* try out all component schema(s) */
 		for (int n = 0; n < tab.size(); n++) {
 			tdesc = tab.get(n);
-			AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
-			AppLog.debug("n " + n);
+			if (AppLog.isDebugEnabled()) {
+				AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
+				AppLog.debug("n " + n);
+			}
 			// TableDescriptor tdb = tab.get(n);
 
 			/* access pattern for a particular component */
@@ -786,9 +823,9 @@ public class RollbackJournalReader{
 	/**
 	 * This method is called to carve a data page for records.
 	 * 
-	 * @param content page content as hex string
+	 * @param crv carver to use or <code>null</code> to create one for the current page
 	 */
-	public void carve(String content, Carver crv) {
+	public void carve(Carver crv) {
 
 		Carver c = crv;
 
@@ -796,7 +833,10 @@ public class RollbackJournalReader{
 			/* no type could be found in the first two bytes */
 			/* Maybe the whole page was dropped because of a drop component command? */
 			/* start carving on the complete page */
-			c = new Carver(job, buffer, content, visit, pagenumber_maindb);
+			c = new Carver(job, buffer, visit, pagenumber_maindb);
+
+		c.hexsource = hexsource;
+		c.fileoffset = pagestart;
 
 		// Matcher mat = null;
 		// boolean match = false;
@@ -810,7 +850,7 @@ public class RollbackJournalReader{
 		}
 
 		List<TableDescriptor> tab = tables;
-		AppLog.debug(" tables :: " + tables.size());
+		if (AppLog.isDebugEnabled()) AppLog.debug(" tables :: " + tables.size());
 
 		if (null != tdesc) {
 			/* there is a schema for this page */
@@ -831,13 +871,15 @@ public class RollbackJournalReader{
 		/* try out all component schema(s) */
 		for (int n = 0; n < tab.size(); n++) {
 			tdesc = tab.get(n);
-			AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
-			AppLog.debug("n " + n);
+			if (AppLog.isDebugEnabled()) {
+				AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
+				AppLog.debug("n " + n);
+			}
 			// TableDescriptor tdb = tab.get(n);
 
 			/* access pattern for a particular component */
 			String tablename = tab.get(n).tblname;
-			AppLog.debug("Check component : " + tablename);
+			if (AppLog.isDebugEnabled()) AppLog.debug("Check component : " + tablename);
 			if (tablename.startsWith("fqlite_freelist"))
 				continue;
 			/* create matcher object for constraint check */
@@ -89,8 +89,9 @@ public class RollbackjournalAnalyzer {
         sep(); System.out.println("  DB     : " + dbPath.toAbsolutePath());
         System.out.println("  Journal: " + journalPath.toAbsolutePath()); sep();
 
-        byte[] journal = Files.readAllBytes(journalPath);
-        if (journal.length < 28) throw new IOException("Journal file too small.");
+        // the journal is already mapped by the reader - it is not copied into RAM
+        BigByteBuffer journal = reader.rollbackjournal;
+        if (journal == null || journal.limit() < 28) throw new IOException("Journal file too small.");
 
         // 1. Read page size — prefer journal header, fall back to DB header
         int pageSize = readJournalPageSize(journal, dbPath);
@@ -144,8 +145,8 @@ public class RollbackjournalAnalyzer {
         sep(); System.out.println("  DB     : " + dbPath.toAbsolutePath());
         System.out.println("  Journal: " + journalPath.toAbsolutePath()); sep();
 
-        byte[] journal = Files.readAllBytes(journalPath);
-        if (journal.length < 28) throw new IOException("Journal file too small.");
+        BigByteBuffer journal = new BigByteBuffer(journalPath.toString());
+        if (journal.limit() < 28) throw new IOException("Journal file too small.");
 
         // 1. Read page size — prefer journal header, fall back to DB header
         int pageSize = readJournalPageSize(journal, dbPath);
@@ -218,7 +219,7 @@ public class RollbackjournalAnalyzer {
             List<Long[]> records     // each: [pageNumber, dataOffset, checksum]
     ) {}
 
-    static int readJournalPageSize(byte[] journal, Path dbPath) throws IOException {
+    static int readJournalPageSize(BigByteBuffer journal, Path dbPath) throws IOException {
         long raw = u32(journal, 24);
         if (raw > 0) return (raw == 1) ? 65536 : (int) raw;
         // Fall back to DB header bytes 16-17
@@ -227,7 +228,7 @@ public class RollbackjournalAnalyzer {
         return (dbRaw == 1) ? 65536 : dbRaw;
     }
 
-    static List<Segment> parseSegments(byte[] journal, int pageSize) {
+    static List<Segment> parseSegments(BigByteBuffer journal, int pageSize) {
         List<Segment> segments = new ArrayList<>();
 
         int sectorSize = (int) u32(journal, 20);
@@ -236,9 +237,9 @@ public class RollbackjournalAnalyzer {
         long offset = 0;
         int  segIdx = 0;
 
-        while (offset + 28 <= journal.length) {
-            boolean hasReal = matchesMagic(journal, (int) offset, JOURNAL_MAGIC);
-            boolean hasZero = matchesMagic(journal, (int) offset, ZERO_MAGIC);
+        while (offset + 28 <= journal.limit()) {
+            boolean hasReal = matchesMagic(journal, offset, JOURNAL_MAGIC);
+            boolean hasZero = matchesMagic(journal, offset, ZERO_MAGIC);
 
             // Accept both committed (real magic) and hot (zeroed magic) segments.
             // A zeroed header is only valid at offset 0 or after a committed segment,
@@ -246,14 +247,14 @@ public class RollbackjournalAnalyzer {
             if (!hasReal && !hasZero) break;
 
             // A segment of all zeros at an arbitrary offset is likely just padding
-            if (hasZero && offset > 0 && !hasValidHeader(journal, (int) offset)) break;
+            if (hasZero && offset > 0 && !hasValidHeader(journal, offset)) break;
 
             segIdx++;
             boolean isHot      = hasZero;
-            int  declared      = (int) u32(journal, (int) offset + 8);
-            long nonce         = u32(journal, (int) offset + 12);
-            long dbPageCount   = u32(journal, (int) offset + 16);
-            int  segSector     = (int) u32(journal, (int) offset + 20);
+            int  declared      = (int) u32(journal, offset + 8);
+            long nonce         = u32(journal, offset + 12);
+            long dbPageCount   = u32(journal, offset + 16);
+            int  segSector     = (int) u32(journal, offset + 20);
             if (segSector < 512 || segSector > 65536) segSector = sectorSize;
 
             long recordsStart  = offset + segSector;
@@ -262,15 +263,15 @@ public class RollbackjournalAnalyzer {
             // Determine max records: use declared count if valid, otherwise scan
             int maxRecords = (declared > 0 && declared != 0xFFFFFFFF)
                     ? declared
-                    : (int)((journal.length - recordsStart) / recordSize);
+                    : (int)((journal.limit() - recordsStart) / recordSize);
 
             List<Long[]> records = new ArrayList<>();
             for (int i = 0; i < maxRecords; i++) {
                 long recOffset = recordsStart + (long) i * recordSize;
-                if (recOffset + recordSize > journal.length) break;
-                long pgNo = u32(journal, (int) recOffset);
+                if (recOffset + recordSize > journal.limit()) break;
+                long pgNo = u32(journal, recOffset);
                 if (pgNo == 0) break; // end-of-segment sentinel
-                long cs   = u32(journal, (int)(recOffset + 4 + pageSize));
+                long cs   = u32(journal, recOffset + 4 + pageSize);
                 records.add(new Long[]{pgNo, recOffset + 4, cs});
             }
 
@@ -293,31 +294,28 @@ public class RollbackjournalAnalyzer {
      * matching SQLite's own recovery behaviour.
      */
     static Map<Long, byte[]> extractJournalPages(List<Segment> segments,
-                                                 byte[] journal, int pageSize) {
+                                                 BigByteBuffer journal, int pageSize) {
         Map<Long, byte[]> pages = new HashMap<>();
         for (Segment seg : segments) {
             for (Long[] rec : seg.records()) {
                 long pageNo    = rec[0];
                 long dataStart = rec[1]; // already points past the 4-byte page-number field
-                byte[] data    = Arrays.copyOfRange(journal,
-                        (int) dataStart,
-                        (int)(dataStart + pageSize));
-                pages.put(pageNo, data);
+                pages.put(pageNo, readBytes(journal, dataStart, pageSize));
             }
         }
         return pages;
     }
 
-    static boolean matchesMagic(byte[] data, int offset, byte[] magic) {
-        if (offset + magic.length > data.length) return false;
+    static boolean matchesMagic(BigByteBuffer data, long offset, byte[] magic) {
+        if (offset + magic.length > data.limit()) return false;
         for (int i = 0; i < magic.length; i++)
-            if (data[offset + i] != magic[i]) return false;
+            if (data.getByte(offset + i) != magic[i]) return false;
         return true;
     }
 
     /** Sanity-check a potential header: nonce and dbPageCount must be non-zero. */
-    static boolean hasValidHeader(byte[] data, int offset) {
-        if (offset + 28 > data.length) return false;
+    static boolean hasValidHeader(BigByteBuffer data, long offset) {
+        if (offset + 28 > data.limit()) return false;
         long nonce = u32(data, offset + 12);
         long dbPgs = u32(data, offset + 16);
         return nonce != 0 || dbPgs != 0;
@@ -326,7 +324,7 @@ public class RollbackjournalAnalyzer {
     // =========================================================================
     // RECORD ATTRIBUTION
     // =========================================================================
-    static List<PageRecord> attributeRecords(List<Segment> segments, byte[] journal,
+    static List<PageRecord> attributeRecords(List<Segment> segments, BigByteBuffer journal,
                                              int pageSize,
                                              Map<Long, SchemaEntry> pageOwner) {
         List<PageRecord> result = new ArrayList<>();
@@ -338,9 +336,7 @@ public class RollbackjournalAnalyzer {
                 long dataOffset = rec[1];
                 long checksum   = rec[2];
 
-                byte[] pageData = Arrays.copyOfRange(journal,
-                        (int) dataOffset,
-                        (int)(dataOffset + pageSize));
+                byte[] pageData = readBytes(journal, dataOffset, pageSize);
 
                 // Verify checksum: XOR of each 32-bit word of page data, XOR'd with nonce
                 boolean csValid = verifyChecksum(pageData, checksum, seg.nonce());
@@ -631,6 +627,17 @@ public class RollbackjournalAnalyzer {
                |((long)(b[off+2]&0xFF)<< 8)|(long)(b[off+3]&0xFF);
     }
 
+    static long u32(BigByteBuffer b, long off) {
+        return Integer.toUnsignedLong(b.getInt(off));
+    }
+
+    /** Copies a range of the mapped journal - only the pages that are needed. */
+    static byte[] readBytes(BigByteBuffer b, long off, int length) {
+        byte[] buf = new byte[length];
+        b.read(off, buf);
+        return buf;
+    }
+
     static long readSignedInt(byte[] b, int off, int bytes) {
         long v=0; for(int i=0;i<bytes;i++) v=(v<<8)|(b[off+i]&0xFF);
         int s=64-bytes*8; return (v<<s)>>s;
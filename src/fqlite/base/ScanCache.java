@@ -0,0 +1,1163 @@
+package fqlite.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import fqlite.descriptor.AbstractDescriptor;
+import fqlite.export.RecordSink;
+import fqlite.fts.SearchIndex;
+import fqlite.log.AppLog;
+import javafx.collections.FXCollections;
+import javafx.collections.ModifiableObservableListBase;
+import javafx.collections.ObservableList;
+
+/**
+ * On-disk cache of the recovered rows of a database.
+ *
+ * Opening a large database that was analysed before repeated the complete
+ * recovery - B-tree walk, scan of every page, carving. The result only
+ * depends on the content of the evidence files and a few settings, so it
+ * is stored below <code>~/.fqlite/cache</code> and loaded again when the
+ * same files are opened.
+ *
+ * <p>
+ * <b>Key.</b> SHA-256 over the content of the database file, its
+ * <code>-wal</code> and <code>-journal</code> companions (those feed the
+ * schema and checkpoint reading of {@link Job#processDB()}), the cache
+ * format, the FQLite version and the timestamp settings that are baked
+ * into the rows (format, UTC or local time, and the local time zone). The files are hashed in 64 MB chunks in parallel. Any
+ * changed byte gives a different key, old entries are never read again
+ * and are removed by the size limit.
+ * </p>
+ *
+ * <p>
+ * <b>Entry.</b> One file per key. The rows of each table are written in
+ * blocks of about 256 KB while the scan runs; a row never spans two
+ * blocks. Every cell is stored with its kind (see {@link CompactRow}):
+ * numbers as var-ints, short texts (table name, status flag, repeated
+ * values) through a per-table dictionary. The hex dump cells are file
+ * references (see {@link HexdumpRow}), so no BLOB is copied. At the end of
+ * the file follow
+ * </p>
+ *
+ * <ul>
+ * <li>a fingerprint of the schema descriptors the rows belong to</li>
+ * <li>the page map (the table or index of every page) together with the
+ *     master table and free list pages</li>
+ * <li>the directory: rows and blocks (offset, length, CRC-32, rows) per table</li>
+ * </ul>
+ *
+ * The entry is written to a temporary file and renamed when complete - a
+ * cancelled run leaves no half-written entry behind. Before a single row of
+ * an entry is used, the CRCs and row counts of all blocks are checked
+ * ({@link Entry#verify()}); a damaged entry is dropped and the database is
+ * analysed again.
+ *
+ * <p>
+ * The directory allows to decode a single table. When the rows go into the
+ * result lists of the job, every table is decoded when it is first needed
+ * - when its view is opened, or by an export or a search (see
+ * {@link LazyTable}). Any other sink gets all tables at once, decoded in
+ * parallel.
+ * </p>
+ *
+ * @author pawlaszc
+ *
+ */
+public final class ScanCache {
+
+	/* bump on every change of the file format - it is part of the key */
+	static final int VERSION = 2;
+
+	private static final int MAGIC = 0x4651_4331; // "FQC1"
+	private static final String SUFFIX = ".fqc";
+	private static final String TEMP = ".tmp";
+
+	private static final int CHUNK = 64 << 20;
+	private static final int BLOCK = 256 << 10;
+
+	/* texts up to this length go into the dictionary of their table */
+	private static final int DICT_MAXLEN = 64;
+	private static final int DICT_MAXSIZE = 1 << 16;
+
+	/* cell tags */
+	private static final byte NULL = 0;
+	private static final byte TEXT = 1;
+	private static final byte DICT = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte PAYLOAD = 5;
+
+	/* hex dump tags */
+	private static final byte PLAIN = 0;
+	private static final byte REFS = 1;
+	private static final byte REF = 1;
+	private static final byte INLINE = 2;
+
+	private ScanCache() {
+	}
+
+	/**
+	 * @return the cache folder
+	 */
+	public static File dir() {
+		return new File(Global.baseDir, "cache");
+	}
+
+	/**
+	 * Computes the key of a job: content hash of the evidence files plus
+	 * the settings that change the recovered rows.
+	 *
+	 * @param job the job, path must be set
+	 * @return the key as hex string
+	 * @throws IOException if a file cannot be read
+	 */
+	static String key(Job job) throws IOException {
+		MessageDigest md = sha256();
+		md.update(("fqlite-scan-cache/" + VERSION + "/" + Global.FQLITE_VERSION + "/"
+				+ Global.TIMESTAMP_FORMAT + "/" + Global.TIMESTAMP_USE_UTC + "/" + ZoneId.systemDefault().getId())
+				.getBytes(StandardCharsets.UTF_8));
+
+		String[] files = { job.path, job.path + "-wal", job.path + "-journal" };
+		for (String f : files) {
+			File file = new File(f);
+			md.update((byte) 0);
+			if (file.isFile())
+				md.update(hash(file, job.pool()));
+		}
+		return HexFormat.of().formatHex(md.digest());
+	}
+
+	/**
+	 * Hashes a file in chunks of 64 MB, in parallel. The result is the
+	 * SHA-256 of the file length followed by the SHA-256 of each chunk.
+	 */
+	static byte[] hash(File file, ForkJoinPool pool) throws IOException {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long len = ch.size();
+			int n = (int) ((len + CHUNK - 1) / CHUNK);
+			byte[][] parts = new byte[n][];
+			try {
+				if (n > 0)
+					pool.invoke(new HashTask(ch, len, parts, 0, n));
+			} catch (UncheckedIOException err) {
+				throw err.getCause();
+			}
+
+			MessageDigest md = sha256();
+			md.update(ByteBuffer.allocate(8).putLong(0, len));
+			for (byte[] p : parts)
+				md.update(p);
+			return md.digest();
+		}
+	}
+
+	/**
+	 * A range of chunks. Like a {@link ScanTask} the range is halved until
+	 * it holds a single chunk.
+	 */
+	private static class HashTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final FileChannel ch;
+		final long len;
+		final byte[][] parts;
+		final int from;
+		final int to;
+
+		HashTask(FileChannel ch, long len, byte[][] parts, int from, int to) {
+			this.ch = ch;
+			this.len = len;
+			this.parts = parts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new HashTask(ch, len, parts, from, mid), new HashTask(ch, len, parts, mid, to));
+				return;
+			}
+
+			MessageDigest md = sha256();
+			ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+			long pos = (long) from * CHUNK;
+			long end = Math.min(len, pos + CHUNK);
+			try {
+				while (pos < end) {
+					buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+					int r = ch.read(buf, pos);
+					if (r < 0)
+						throw new IOException("unexpected end of file");
+					md.update(buf.flip());
+					pos += r;
+				}
+			} catch (IOException err) {
+				throw new UncheckedIOException(err);
+			}
+			parts[from] = md.digest();
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			/* every JRE has to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Fingerprint of the tables and indices the rows belong to. The schema
+	 * is read again on every run; if it does not give the same descriptors
+	 * the entry is not used.
+	 */
+	static String schema(Job job) {
+		MessageDigest md = sha256();
+		for (AbstractDescriptor ad : job.tables) {
+			md.update(String.valueOf(ad.getName()).getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+			md.update(String.valueOf(ad.sql).getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+			md.update(String.valueOf(ad.columnnames).getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+		}
+		return HexFormat.of().formatHex(md.digest());
+	}
+
+	/**
+	 * Looks up the entry for a key.
+	 *
+	 * @param key see {@link #key(Job)}
+	 * @return the entry or <code>null</code> if there is none or it cannot be read
+	 */
+	static Entry open(String key) {
+		File file = new File(dir(), key + SUFFIX);
+		if (!file.isFile())
+			return null;
+		try {
+			Entry e = new Entry(file);
+			if (!key.equals(e.key)) {
+				e.delete();
+				return null;
+			}
+			/* least recently used entries go first */
+			file.setLastModified(System.currentTimeMillis());
+			return e;
+		} catch (IOException | RuntimeException err) {
+			AppLog.error("Scan cache entry " + file.getName() + " is damaged and is removed: " + err.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of rows of a result list. The rows of a table
+	 * from the cache are not decoded for this; as long as the table is
+	 * not loaded, the count comes from the directory of the entry.
+	 *
+	 * @param rows a result list of a job
+	 * @return the number of rows
+	 */
+	public static int size(List<?> rows) {
+		if (rows instanceof LazyList<?> l && !l.loaded())
+			return (int) l.table.count;
+		return rows.size();
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache fits into
+	 * {@link Global#SCAN_CACHE_LIMIT_MB}, and temporary files of cancelled
+	 * runs.
+	 */
+	static void prune() {
+		File[] files = dir().listFiles();
+		if (files == null)
+			return;
+
+		long day = System.currentTimeMillis() - 24L * 3600 * 1000;
+		List<File> entries = new ArrayList<>();
+		long total = 0;
+		for (File f : files) {
+			if (f.getName().endsWith(TEMP) && f.lastModified() < day)
+				f.delete();
+			else if (f.getName().endsWith(SUFFIX)) {
+				entries.add(f);
+				total += f.length();
+			}
+		}
+
+		entries.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+		long limit = Global.SCAN_CACHE_LIMIT_MB * 1024L * 1024L;
+		for (int i = 0; i < entries.size() && total > limit; i++) {
+			total -= entries.get(i).length();
+			entries.get(i).delete();
+		}
+	}
+
+
+	/**
+	 * Rows, blocks and dictionary of one table.
+	 */
+	private static final class Section {
+		final String name;
+		long rows;
+		final List<long[]> blocks = new ArrayList<>();
+
+		/* writer side */
+		Out out;
+		Map<String, Integer> dict;
+		long blockrows;
+
+		Section(String name) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Records the rows of a run. The writer is put between the scan and
+	 * the sink of the job; every row is handed on unchanged and encoded
+	 * into the block of its table. Full blocks are appended to the
+	 * temporary entry file. Thread-safe like any sink.
+	 */
+	static final class Writer implements RecordSink {
+
+		private final String key;
+		private final RecordSink next;
+		private final File temp;
+		private final RandomAccessFile raf;
+		private final Map<String, Section> sections = new LinkedHashMap<>();
+		private volatile boolean failed = false;
+
+		/**
+		 * @param key see {@link ScanCache#key(Job)}
+		 * @param next the sink the rows are handed on to
+		 * @throws IOException if the temporary file cannot be created
+		 */
+		Writer(String key, RecordSink next) throws IOException {
+			this.key = key;
+			this.next = next;
+			File dir = dir();
+			if (!dir.isDirectory() && !dir.mkdirs())
+				throw new IOException("cannot create " + dir);
+			/* two jobs on files with the same content (batch mode) record the same key at the same time */
+			temp = File.createTempFile(key + "-", TEMP, dir);
+			raf = new RandomAccessFile(temp, "rw");
+		}
+
+		/**
+		 * @return the sink behind the writer
+		 */
+		RecordSink next() {
+			return next;
+		}
+
+		@Override
+		public void accept(DataRow row) {
+			next.accept(row);
+			if (failed)
+				return;
+
+			String name = row.line().getFirst();
+			Section s;
+			synchronized (sections) {
+				s = sections.computeIfAbsent(name, Section::new);
+			}
+			synchronized (s) {
+				if (s.out == null) {
+					s.out = new Out(BLOCK + 4096);
+					s.dict = new HashMap<>();
+				}
+				encode(s, row);
+				s.rows++;
+				s.blockrows++;
+				if (s.out.pos >= BLOCK)
+					flush(s);
+			}
+		}
+
+		private void flush(Section s) {
+			if (s.out.pos == 0)
+				return;
+			CRC32 crc = new CRC32();
+			crc.update(s.out.buf, 0, s.out.pos);
+			try {
+				synchronized (raf) {
+					long offset = raf.length();
+					raf.seek(offset);
+					raf.write(s.out.buf, 0, s.out.pos);
+					s.blocks.add(new long[] { offset, s.out.pos, crc.getValue(), s.blockrows });
+				}
+			} catch (IOException err) {
+				AppLog.error("Cannot write scan cache: " + err.getMessage());
+				failed = true;
+			}
+			s.out.pos = 0;
+			s.blockrows = 0;
+		}
+
+		/**
+		 * Writes the schema fingerprint, the page map and the directory
+		 * and publishes the entry.
+		 *
+		 * @param job the finished job
+		 * @throws IOException if the entry cannot be written
+		 */
+		void commit(Job job) throws IOException {
+			try {
+				for (Section s : sections.values())
+					synchronized (s) {
+						flush(s);
+						s.out = null;
+						s.dict = null;
+					}
+				if (failed)
+					throw new IOException("incomplete entry");
+
+				long meta = raf.length();
+				raf.seek(meta);
+				Out out = new Out(1 << 16);
+				out.string(key);
+				out.string(schema(job));
+
+				/* page map: descriptor names, then one name index per page */
+				Map<String, Integer> names = new LinkedHashMap<>();
+				int[] map = new int[job.pages == null ? 0 : job.pages.length];
+				for (int i = 0; i < map.length; i++) {
+					AbstractDescriptor ad = job.pages[i];
+					map[i] = ad == null ? -1 : names.computeIfAbsent(ad.getName(), k -> names.size());
+				}
+				out.varint(names.size());
+				for (String n : names.keySet())
+					out.string(n);
+				out.varint(map.length);
+				for (int p : map)
+					out.varint(p + 1);
+
+				out.varint(job.mastertable.size());
+				for (int p : job.mastertable)
+					out.varint(p);
+				out.varint(job.freelistpages.size());
+				for (int p : job.freelistpages)
+					out.varint(p);
+
+				out.varint(sections.size());
+				for (Section s : sections.values()) {
+					out.string(s.name);
+					out.varint(s.rows);
+					out.varint(s.blocks.size());
+					for (long[] b : s.blocks) {
+						out.varint(b[0]);
+						out.varint(b[1]);
+						out.varint(b[2]);
+						out.varint(b[3]);
+					}
+				}
+				raf.write(out.buf, 0, out.pos);
+				raf.writeLong(meta);
+				raf.writeInt(MAGIC);
+				raf.close();
+
+				Files.move(temp.toPath(), new File(dir(), key + SUFFIX).toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				abort();
+			}
+			prune();
+		}
+
+		/**
+		 * Drops the temporary file (nothing happens after a commit).
+		 */
+		void abort() {
+			try {
+				raf.close();
+			} catch (IOException err) {
+				// nothing left to do
+			}
+			temp.delete();
+		}
+
+		private static void encode(Section s, DataRow row) {
+			Out out = s.out;
+			List<String> line = row.line();
+			int n = line.size();
+			out.varint(n);
+			if (line instanceof CompactRow cr) {
+				for (int i = 0; i < n; i++) {
+					switch (cr.kind(i)) {
+						case CompactRow.LONG -> {
+							out.put(LONG);
+							out.varint(zigzag(cr.bits(i)));
+						}
+						case CompactRow.DOUBLE -> {
+							out.put(DOUBLE);
+							out.fixed(cr.bits(i));
+						}
+						case CompactRow.PAYLOAD -> {
+							out.put(PAYLOAD);
+							out.fixed(cr.bits(i));
+						}
+						default -> text(s, cr.get(i));
+					}
+				}
+			} else {
+				for (String v : line)
+					text(s, v);
+			}
+
+			List<byte[]> hex = row.hexdump();
+			if (hex instanceof HexdumpRow hr && hr.hasBase()) {
+				out.put(REFS);
+				out.varint(hr.base());
+				out.varint(hr.size());
+				for (int i = 0; i < hr.size(); i++) {
+					int off = hr.refOffset(i);
+					if (off >= 0) {
+						out.put(REF);
+						out.varint(off);
+						out.varint(hr.refLength(i));
+					} else
+						bytes(out, hr.get(i));
+				}
+			} else {
+				out.put(PLAIN);
+				out.varint(hex == null ? 0 : hex.size());
+				if (hex != null)
+					for (byte[] b : hex)
+						bytes(out, b);
+			}
+		}
+
+		private static void text(Section s, String v) {
+			Out out = s.out;
+			if (v == null) {
+				out.put(NULL);
+				return;
+			}
+			Integer id = s.dict.get(v);
+			if (id != null) {
+				out.put(DICT);
+				out.varint(id);
+				return;
+			}
+			out.put(TEXT);
+			out.string(v);
+			if (v.length() <= DICT_MAXLEN && s.dict.size() < DICT_MAXSIZE)
+				s.dict.put(v, s.dict.size());
+		}
+
+		private static void bytes(Out out, byte[] b) {
+			if (b == null) {
+				out.put(NULL);
+				return;
+			}
+			out.put(INLINE);
+			out.varint(b.length);
+			out.put(b, 0, b.length);
+		}
+	}
+
+	/**
+	 * An entry of the cache, opened for reading. Only the directory is
+	 * read when the entry is opened; the blocks are read by verify() and
+	 * again when the rows are decoded.
+	 */
+	static final class Entry {
+
+		private final File file;
+		final String key;
+		final String schema;
+		private final String[] names;
+		private final int[] map;
+		private final int[] master;
+		private final int[] freelist;
+		private final Map<String, Section> sections = new LinkedHashMap<>();
+		private FileChannel ch;
+
+		Entry(File file) throws IOException {
+			this.file = file;
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				long len = raf.length();
+				if (len < 12)
+					throw new IOException("truncated");
+				raf.seek(len - 12);
+				long meta = raf.readLong();
+				if (raf.readInt() != MAGIC || meta < 0 || meta > len - 12)
+					throw new IOException("bad trailer");
+
+				byte[] b = new byte[(int) (len - 12 - meta)];
+				raf.seek(meta);
+				raf.readFully(b);
+				In in = new In(b);
+
+				key = in.string();
+				schema = in.string();
+				names = new String[(int) in.varint()];
+				for (int i = 0; i < names.length; i++)
+					names[i] = in.string();
+				map = new int[(int) in.varint()];
+				for (int i = 0; i < map.length; i++)
+					map[i] = (int) in.varint() - 1;
+				master = new int[(int) in.varint()];
+				for (int i = 0; i < master.length; i++)
+					master[i] = (int) in.varint();
+				freelist = new int[(int) in.varint()];
+				for (int i = 0; i < freelist.length; i++)
+					freelist[i] = (int) in.varint();
+
+				int n = (int) in.varint();
+				for (int i = 0; i < n; i++) {
+					Section s = new Section(in.string());
+					s.rows = in.varint();
+					int blocks = (int) in.varint();
+					for (int j = 0; j < blocks; j++)
+						s.blocks.add(new long[] { in.varint(), in.varint(), in.varint(), in.varint() });
+					sections.put(s.name, s);
+				}
+			}
+		}
+
+		/**
+		 * @return the names of the tables with rows
+		 */
+		List<String> tables() {
+			return new ArrayList<>(sections.keySet());
+		}
+
+		/**
+		 * @return true, if the entry belongs to the schema the job just read
+		 */
+		boolean matches(Job job) {
+			return schema.equals(schema(job)) && job.pages != null && job.pages.length == map.length;
+		}
+
+		/**
+		 * Restores the page map, the master table and the free list pages.
+		 * Pages of descriptors that are not part of the schema (e.g. the
+		 * sqlite_master table of the GUI) stay empty, the job assigns them
+		 * again.
+		 */
+		void restore(Job job) {
+			Map<String, AbstractDescriptor> byname = new HashMap<>();
+			for (AbstractDescriptor ad : job.tables)
+				byname.putIfAbsent(ad.getName(), ad);
+			for (int i = 0; i < map.length; i++)
+				job.pages[i] = map[i] < 0 ? null : byname.get(names[map[i]]);
+			for (int p : master)
+				job.mastertable.add(p);
+			for (int p : freelist)
+				job.freelistpages.add(p);
+		}
+
+		/**
+		 * @return the number of rows of all tables
+		 */
+		long rows() {
+			long rows = 0;
+			for (Section s : sections.values())
+				rows += s.rows;
+			return rows;
+		}
+
+		/**
+		 * Reads every block and checks its CRC, and checks the row counts
+		 * of the blocks against those of the tables. Called before any row
+		 * of the entry is handed out.
+		 *
+		 * @throws IOException if the entry cannot be read or is damaged
+		 */
+		void verify() throws IOException {
+			for (Section s : sections.values()) {
+				long rows = 0;
+				for (long[] b : s.blocks) {
+					read(s.name, b);
+					rows += b[3];
+				}
+				if (rows != s.rows)
+					throw new IOException("table " + s.name + ": " + rows + " of " + s.rows + " rows");
+			}
+		}
+
+		/**
+		 * Decodes the rows of one table and hands them to a sink. A block is
+		 * decoded completely before its rows are handed on.
+		 *
+		 * @param name the table
+		 * @param sink receives the rows in the order they were recorded
+		 * @param source the file the hex dump references point into
+		 * @return number of rows
+		 * @throws IOException if the entry cannot be read or is damaged
+		 */
+		long table(String name, RecordSink sink, HexSource source) throws IOException {
+			Section s = sections.get(name);
+			if (s == null)
+				return 0;
+
+			List<String> dict = new ArrayList<>();
+			long rows = 0;
+			for (long[] b : s.blocks) {
+				for (DataRow row : block(name, b, dict, source))
+					sink.accept(row);
+				rows += b[3];
+			}
+			return rows;
+		}
+
+		/**
+		 * Decodes all rows of one table.
+		 *
+		 * @param name the table
+		 * @param source the file the hex dump references point into
+		 * @return the rows in the order they were recorded
+		 * @throws IOException if the entry cannot be read or is damaged
+		 */
+		List<DataRow> rows(String name, HexSource source) throws IOException {
+			Section s = sections.get(name);
+			if (s == null)
+				return List.of();
+
+			List<String> dict = new ArrayList<>();
+			List<DataRow> rows = new ArrayList<>((int) Math.min(s.rows, Integer.MAX_VALUE));
+			for (long[] b : s.blocks)
+				rows.addAll(block(name, b, dict, source));
+			return rows;
+		}
+
+		/**
+		 * Decodes all tables in parallel, one task per table. The entry
+		 * has to be verified before.
+		 *
+		 * @return number of rows
+		 * @throws IOException if the entry cannot be read
+		 */
+		long replay(RecordSink sink, HexSource source, ForkJoinPool pool) throws IOException {
+			List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+			for (String name : sections.keySet())
+				tasks.add(pool.submit(() -> {
+					try {
+						return table(name, sink, source);
+					} catch (IOException err) {
+						throw new UncheckedIOException(err);
+					}
+				}));
+
+			long rows = 0;
+			IOException first = null;
+			for (ForkJoinTask<Long> t : tasks) {
+				try {
+					rows += t.join();
+				} catch (UncheckedIOException err) {
+					if (first == null)
+						first = err.getCause();
+				} catch (RuntimeException err) {
+					if (first == null)
+						first = new IOException(err.toString(), err);
+				}
+			}
+			if (first != null)
+				throw first;
+			return rows;
+		}
+
+		/**
+		 * Creates a {@link LazyTable} for every table of the entry. The
+		 * entry is closed when the last of them is loaded. The entry has to
+		 * be verified before.
+		 *
+		 * @param source the file the hex dump references point into
+		 * @param index receives the rows of a table when it is loaded, may be null
+		 * @return the tables
+		 */
+		List<LazyTable> lazy(HexSource source, SearchIndex index) {
+			List<LazyTable> tables = new ArrayList<>();
+			AtomicInteger pending = new AtomicInteger(sections.size());
+			for (String name : sections.keySet())
+				tables.add(new LazyTable(this, name, sections.get(name).rows, source, index, () -> {
+					if (pending.decrementAndGet() == 0)
+						close();
+				}));
+			if (tables.isEmpty())
+				close();
+			return tables;
+		}
+
+		/**
+		 * Closes the file of the entry.
+		 */
+		synchronized void close() {
+			if (ch == null)
+				return;
+			try {
+				ch.close();
+			} catch (IOException err) {
+				// nothing left to do
+			}
+			ch = null;
+		}
+
+		void delete() {
+			close();
+			file.delete();
+		}
+
+		/*
+		 * The file stays open from the check until the rows are loaded - the
+		 * size limit of the cache (see prune()) cannot take it away meanwhile.
+		 */
+		private synchronized FileChannel channel() throws IOException {
+			if (ch == null)
+				ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return ch;
+		}
+
+		/* reads a block and checks its CRC */
+		private byte[] read(String name, long[] b) throws IOException {
+			FileChannel c = channel();
+			ByteBuffer buf = ByteBuffer.allocate((int) b[1]);
+			while (buf.hasRemaining())
+				if (c.read(buf, b[0] + buf.position()) < 0)
+					throw new IOException("truncated block");
+			CRC32 crc = new CRC32();
+			crc.update(buf.array());
+			if (crc.getValue() != b[2])
+				throw new IOException("checksum error in table " + name);
+			return buf.array();
+		}
+
+		/* reads and decodes a block - the dictionary of the table grows from block to block */
+		private List<DataRow> block(String name, long[] b, List<String> dict, HexSource source) throws IOException {
+			In in = new In(read(name, b));
+			List<DataRow> rows = new ArrayList<>((int) b[3]);
+			try {
+				while (in.pos < in.buf.length)
+					rows.add(decode(in, dict, source));
+			} catch (RuntimeException err) {
+				throw new IOException("cannot decode table " + name + ": " + err, err);
+			}
+			if (rows.size() != b[3])
+				throw new IOException("table " + name + ": block with " + rows.size() + " of " + b[3] + " rows");
+			return rows;
+		}
+
+		private static DataRow decode(In in, List<String> dict, HexSource source) {
+			int n = (int) in.varint();
+			CompactRow line = new CompactRow(n);
+			for (int i = 0; i < n; i++) {
+				byte tag = in.get();
+				switch (tag) {
+					case NULL -> line.add(null);
+					case TEXT -> {
+						String v = in.string();
+						if (v.length() <= DICT_MAXLEN && dict.size() < DICT_MAXSIZE)
+							dict.add(v);
+						line.add(v);
+					}
+					case DICT -> line.add(dict.get((int) in.varint()));
+					case LONG -> line.addLong(unzigzag(in.varint()));
+					case DOUBLE -> line.addDouble(Double.longBitsToDouble(in.fixed()));
+					case PAYLOAD -> {
+						long v = in.fixed();
+						line.addPayload(i, (int) (v >>> 32), (int) v);
+					}
+					default -> throw new IllegalStateException("unknown cell tag " + tag);
+				}
+			}
+
+			List<byte[]> hex;
+			if (in.get() == REFS) {
+				HexdumpRow hr = new HexdumpRow(source, in.varint());
+				int m = (int) in.varint();
+				for (int i = 0; i < m; i++) {
+					byte tag = in.get();
+					if (tag == REF) {
+						hr.add(null);
+						hr.setRef(i, (int) in.varint(), (int) in.varint());
+					} else
+						hr.add(tag == INLINE ? in.bytes() : null);
+				}
+				hex = hr;
+			} else {
+				int m = (int) in.varint();
+				hex = new ArrayList<>(m);
+				for (int i = 0; i < m; i++)
+					hex.add(in.get() == INLINE ? in.bytes() : null);
+			}
+			return new DataRow(line, hex);
+		}
+	}
+
+
+	/**
+	 * The rows of one table of a cache entry, decoded when they are first
+	 * needed. The two lists are put into the result lists of the job in
+	 * place of the lists the CollectorRecordSink would fill. The first call
+	 * of size(), get() or a change of either list decodes the table - the
+	 * GUI does so when the view of the table is opened, an export or a
+	 * search when it reads the table. Other threads wait for the load.
+	 */
+	static final class LazyTable {
+
+		final String name;
+		final long count;
+		final LazyList<ObservableList<String>> rows = new LazyList<>(this);
+		final LazyList<ObservableList<byte[]>> hexdump = new LazyList<>(this);
+
+		private final Entry entry;
+		private final HexSource source;
+		private final SearchIndex index;
+		private final Runnable done;
+		private volatile boolean loaded = false;
+
+		LazyTable(Entry entry, String name, long count, HexSource source, SearchIndex index, Runnable done) {
+			this.entry = entry;
+			this.name = name;
+			this.count = count;
+			this.source = source;
+			this.index = index;
+			this.done = done;
+		}
+
+		/**
+		 * @return true, if the rows were decoded
+		 */
+		boolean loaded() {
+			return loaded;
+		}
+
+		/**
+		 * Decodes the table unless this was done before. A table that
+		 * cannot be read stays empty; the entry was verified, so this only
+		 * happens if the file cannot be read any more.
+		 */
+		void load() {
+			if (loaded)
+				return;
+
+			synchronized (this) {
+				if (loaded)
+					return;
+
+				long begin = System.currentTimeMillis();
+				List<DataRow> data;
+				try {
+					data = entry.rows(name, source);
+				} catch (IOException err) {
+					AppLog.error("Scan cache: the rows of table " + name + " cannot be loaded: " + err.getMessage());
+					data = List.of();
+				}
+
+				for (int i = 0; i < data.size(); i++) {
+					DataRow row = data.get(i);
+					/* the rows of an entry are always CompactRows */
+					rows.inner.add((CompactRow) row.line());
+					hexdump.inner.add(FXCollections.observableList(row.hexdump()));
+					if (index != null)
+						index.add(SearchIndex.DB, name, i, row.line());
+				}
+				loaded = true;
+				AppLog.info("Loaded " + data.size() + " rows of table " + name + " from the scan cache in ms : "
+						+ (System.currentTimeMillis() - begin));
+			}
+
+			/* listeners may read the lists again - only after the lock is released */
+			rows.fireLoaded();
+			hexdump.fireLoaded();
+			done.run();
+		}
+	}
+
+	/**
+	 * A list of a {@link LazyTable}. Every access loads the table first.
+	 */
+	static final class LazyList<E> extends ModifiableObservableListBase<E> {
+
+		private final LazyTable table;
+		private final List<E> inner = new ArrayList<>();
+
+		LazyList(LazyTable table) {
+			this.table = table;
+		}
+
+		/**
+		 * @return true, if the rows were decoded
+		 */
+		boolean loaded() {
+			return table.loaded();
+		}
+
+		@Override
+		public E get(int index) {
+			table.load();
+			return inner.get(index);
+		}
+
+		@Override
+		public int size() {
+			table.load();
+			return inner.size();
+		}
+
+		@Override
+		protected void doAdd(int index, E element) {
+			table.load();
+			inner.add(index, element);
+		}
+
+		@Override
+		protected E doSet(int index, E element) {
+			table.load();
+			return inner.set(index, element);
+		}
+
+		@Override
+		protected E doRemove(int index) {
+			table.load();
+			return inner.remove(index);
+		}
+
+		/* tells the listeners about the decoded rows */
+		private void fireLoaded() {
+			if (hasListeners() && !inner.isEmpty()) {
+				beginChange();
+				nextAdd(0, inner.size());
+				endChange();
+			}
+		}
+	}
+
+
+	private static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * Growable byte array with var-int encoding - a DataOutputStream
+	 * without the synchronisation and with LEB128 numbers.
+	 */
+	private static final class Out {
+		byte[] buf;
+		int pos;
+
+		Out(int capacity) {
+			buf = new byte[capacity];
+		}
+
+		private void ensure(int n) {
+			if (pos + n > buf.length)
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+		}
+
+		void put(byte b) {
+			ensure(1);
+			buf[pos++] = b;
+		}
+
+		void put(byte[] b, int off, int len) {
+			ensure(len);
+			System.arraycopy(b, off, buf, pos, len);
+			pos += len;
+		}
+
+		void varint(long v) {
+			ensure(10);
+			while ((v & ~0x7FL) != 0) {
+				buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			buf[pos++] = (byte) v;
+		}
+
+		void fixed(long v) {
+			ensure(8);
+			for (int i = 56; i >= 0; i -= 8)
+				buf[pos++] = (byte) (v >>> i);
+		}
+
+		void string(String s) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			varint(b.length);
+			put(b, 0, b.length);
+		}
+	}
+
+	/**
+	 * Reading counterpart of {@link Out}.
+	 */
+	private static final class In {
+		final byte[] buf;
+		int pos;
+
+		In(byte[] buf) {
+			this.buf = buf;
+		}
+
+		byte get() {
+			return buf[pos++];
+		}
+
+		long varint() {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = buf[pos++];
+				v |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return v;
+			}
+			throw new IllegalStateException("malformed var-int");
+		}
+
+		long fixed() {
+			long v = 0;
+			for (int i = 0; i < 8; i++)
+				v = (v << 8) | (buf[pos++] & 0xFF);
+			return v;
+		}
+
+		byte[] bytes() {
+			int len = (int) varint();
+			byte[] b = Arrays.copyOfRange(buf, pos, pos + len);
+			pos += len;
+			return b;
+		}
+
+		String string() {
+			int len = (int) varint();
+			String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+			pos += len;
+			return s;
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package fqlite.base;
+
+import java.util.concurrent.RecursiveAction;
+
+import fqlite.util.Auxiliary;
+
+/**
+*  The analysis of the individual database pages can be executed in parallel.
+*  A ScanTask covers a range of pages and is executed inside a ForkJoinPool.
+*
+*  The cost of a page varies a lot: a dropped page is carved against every
+*  table, while an overflow page is skipped almost immediately. A static
+*  split of the pages onto a fixed number of workers therefore leaves cores
+*  idle while one worker is still busy. Instead, a ScanTask halves its range
+*  until it is small enough and leaves the other half in its work queue.
+*  Idle threads of the pool steal those halves, so the load balances itself.
+*
+*  The caller simply waits for {@link java.util.concurrent.ForkJoinPool#invoke}
+*  to return - there is no time limit and no polling.
+*/
+public class ScanTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Ranges with at most this many pages are not split any further. */
+	static final int THRESHOLD = 16;
+
+	final Job job;
+	final int[] pagenumbers;
+	final int from;
+	final int to;
+	final int ps;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param job the job the pages belong to
+	 * @param pagenumbers the numbers of all pages to scan
+	 * @param from first index into <code>pagenumbers</code> (inclusive)
+	 * @param to last index into <code>pagenumbers</code> (exclusive)
+	 * @param ps page size
+	 */
+	public ScanTask(Job job, int[] pagenumbers, int from, int to, int ps) {
+		this.job = job;
+		this.pagenumbers = pagenumbers;
+		this.from = from;
+		this.to = to;
+		this.ps = ps;
+	}
+
+	@Override
+	protected void compute() {
+
+		if (to - from > THRESHOLD) {
+			int mid = (from + to) >>> 1;
+			invokeAll(new ScanTask(job, pagenumbers, from, mid, ps),
+					  new ScanTask(job, pagenumbers, mid, to, ps));
+			return;
+		}
+
+		/* small enough - do the work on this thread */
+		Auxiliary util = new Auxiliary(job);
+		for (int i = from; i < to; i++) {
+			int cc = pagenumbers[i];
+
+			/* page 1 starts behind the 100 byte database header */
+			long offset = (cc == 1) ? 100 : (cc - 1L) * ps;
+
+			RecoveryTask task = new RecoveryTask(util, job, offset, cc, ps, false);
+			task.run();
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package fqlite.base;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -11,6 +12,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Properties;
 import java.util.logging.Level;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
 import fqlite.timemap.BeaconDbClient;
 import fqlite.timemap.CellTowerResolver;
 import javafx.application.Application;
@@ -182,11 +184,38 @@ public class SettingsDialog extends Application {
 
         tsBox.getChildren().addAll(tsPatternRow, tsPreviewRow, tzRow, tsQuickRow);
 
+        // ── Diagnostics ───────────────────────────────────────────────────────
+        Label heading5 = new Label("Diagnostics");
+        heading5.setFont(Font.font("Verdana", FontWeight.BOLD, 12));
+
+        CheckBox jfrBox = new CheckBox("record JDK Flight Recorder events");
+        jfrBox.setSelected(Flight.recording());
+        jfrBox.setTooltip(new Tooltip(
+                "Records one event per recovered page, carving run, WAL frame,\n" +
+                "overflow chain and mmap remap (page number, table, duration).\n" +
+                "The .jfr file is written to ~/.fqlite/recordings when the switch\n" +
+                "is turned off or FQLite is closed. Open it with JDK Mission Control."));
+
+        CheckBox cacheBox = new CheckBox("reuse the results of earlier runs (scan cache)");
+        cacheBox.setSelected(Global.SCAN_CACHE);
+        cacheBox.setTooltip(new Tooltip(
+                "The recovered records of a database are stored in ~/.fqlite/cache.\n" +
+                "When the same database (same content of db, -wal and -journal file)\n" +
+                "is opened again, they are loaded instead of analysing it once more.\n" +
+                "The cache keeps at most " + Global.SCAN_CACHE_LIMIT_MB + " MB, oldest entries are removed first.\n" +
+                "Off by default: the evidence files are hashed in full and a copy of\n" +
+                "the recovered records is kept outside the case folder."));
+
+        VBox diagBox = new VBox(5, jfrBox, cacheBox);
+        diagBox.setPadding(new Insets(5));
+        diagBox.setStyle(cssLayout);
+
         commonContent.getChildren().addAll(
                 heading,  fileexportproperties,
                 heading2, exportBox,
                 heading3, loggrp,
-                heading4, tsBox);
+                heading4, tsBox,
+                heading5, diagBox);
 
         ScrollPane commonScroll = new ScrollPane(commonContent);
         commonScroll.setFitToWidth(true);
@@ -578,6 +607,22 @@ public class SettingsDialog extends Application {
                     Global.TIMESTAMP_USE_UTC = tsUTC.isSelected();
                     appProps.setProperty("TIMESTAMP_USE_UTC", Global.TIMESTAMP_USE_UTC ? "true" : "false");
 
+                    // JFR events
+                    if (jfrBox.isSelected() && !Flight.recording()) {
+                        try {
+                            Flight.start(Flight.defaultFile());
+                        } catch (IOException | IllegalStateException jfrEx) {
+                            AppLog.error("Cannot start JFR recording: " + jfrEx.getMessage());
+                        }
+                    } else if (!jfrBox.isSelected() && Flight.recording()) {
+                        Flight.stop();
+                    }
+                    appProps.setProperty("JFR_EVENTS", jfrBox.isSelected() ? "true" : "false");
+
+                    // scan cache
+                    Global.SCAN_CACHE = cacheBox.isSelected();
+                    appProps.setProperty("SCAN_CACHE", Global.SCAN_CACHE ? "true" : "false");
+
                     // MBTiles offline map
                     String mbtPath = mbtField.getText().trim();
                     if (!mbtPath.isBlank()) {
@@ -94,7 +94,7 @@ public class SqliteElement {
 		else if (type == SerialTypes.INT64)
 			return String.valueOf(decodeInt64(value));
 		else if (type == SerialTypes.FLOAT64)
-			return String.valueOf(decodeFloat64(value)).replace(",",".");
+			return decodeFloat64(value);
 		else if (type == SerialTypes.BLOB)
 			 {  
 			   // if (truncBLOB && value.length > 32)
@@ -213,7 +213,77 @@ public class SqliteElement {
 		ByteBuffer bf = ByteBuffer.wrap(v);
 		
 		double d = bf.getDouble();
-        return String.format("%.8f", d);
+        return formatDouble(d);
+	}
+
+	/**
+	 * The one place where REAL values are formatted for display. Used by
+	 * toString() and by CompactRow, which formats lazily.
+	 */
+	public static String formatDouble(double d) {
+		return String.format("%.8f", d).replace(",",".");
+	}
+
+	/**
+	 * Returns true if this column can be stored as a primitive number, i.e.
+	 * toString() would format an integer or a float decoded from exactly
+	 * <code>value</code>. Used by readRecord() to fill CompactRow cells.
+	 *
+	 * @param value the raw bytes of the column
+	 */
+	public final boolean isNumeric(byte[] value) {
+		switch (type) {
+			case INT0:
+			case INT1:
+				return true;
+			case INT8:
+				return value.length == 1;
+			case INT16:
+				return value.length == 2;
+			case INT24:
+				return value.length == 3;
+			case INT32:
+				return value.length == 4;
+			case INT48:
+				return value.length == 6;
+			case INT64:
+			case FLOAT64:
+				return value.length == 8;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Decodes an integer column. Only valid if {@link #isNumeric(byte[])}
+	 * is true and the type is not FLOAT64.
+	 */
+	public final long toLong(byte[] value) {
+		switch (type) {
+			case INT0:
+				return 0;
+			case INT1:
+				return 1;
+			case INT8:
+				return decodeInt8(value[0]);
+			case INT16:
+				return decodeInt16(value);
+			case INT24:
+				return decodeInt24(value);
+			case INT32:
+				return decodeInt32(value);
+			case INT48:
+				return decodeInt48ToLong(value);
+			default:
+				return ByteBuffer.wrap(value).getLong();
+		}
+	}
+
+	/**
+	 * Decodes a FLOAT64 column.
+	 */
+	public final double toDouble(byte[] value) {
+		return ByteBuffer.wrap(value).getDouble();
 	}
 
 	static CharBuffer decodeString(byte[] v) {
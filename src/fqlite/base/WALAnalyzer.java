@@ -67,27 +67,24 @@ public class WALAnalyzer {
         int pageSize = readPageSize(dbHeader);
         System.out.printf("  Page size: %d bytes%n%n", pageSize);
 
-        // 2. Read WAL file
-        byte[] wal = Files.readAllBytes(walPath);
-        if (wal.length < WAL_HEADER_SIZE) throw new IOException("WAL file too small.");
+        // 2. The WAL file is already mapped and indexed by the reader -
+        //    neither the file nor its pages are copied into RAM here
+        BigByteBuffer wal = reader.wal;
+        if (wal == null || wal.limit() < WAL_HEADER_SIZE) throw new IOException("WAL file too small.");
         printWalHeader(wal);
 
-        int frameSize  = FRAME_HEADER_SIZE + pageSize;
-        int frameCount = (wal.length - WAL_HEADER_SIZE) / frameSize;
-        System.out.printf("  Frames in WAL: %d%n%n", frameCount);
+        List<WALFrame> index = reader.index;
+        System.out.printf("  Frames in WAL: %d%n%n", index.size());
 
-        // 3. Extract the latest version of each page from the WAL
+        // 3. Locate the latest version of each page in the WAL
         //    (later frames override earlier ones for the same page number)
-        Map<Long, byte[]> walPages = extractLatestWalPages(wal, pageSize, frameCount);
-        System.out.printf("  Distinct pages in WAL: %s%n%n",
-                walPages.keySet().stream().sorted()
-                        .map(Object::toString)
-                        .reduce((a, b) -> a + ", " + b).orElse("—"));
+        Map<Long, Long> walPages = extractLatestWalPages(index);
+        System.out.printf("  Distinct pages in WAL: %d%n%n", walPages.size());
 
         // Page source: WAL takes precedence over the DB file
         PageSource src = (pageNo) -> {
-            byte[] p = walPages.get(pageNo);
-            return p != null ? p : readPageFromFile(dbPath, pageNo, pageSize);
+            Long offset = walPages.get(pageNo);
+            return offset != null ? readPageFromWal(wal, offset, pageSize) : readPageFromFile(dbPath, pageNo, pageSize);
         };
 
         // 4. Read schema from Page 1 (WAL-first)
@@ -109,7 +106,7 @@ public class WALAnalyzer {
         pageOwner.put(1L, new SchemaEntry("system", "sqlite_schema", 1L));
 
         // 6. Analyze frames and print results
-        List<FrameInfo> frames = analyzeFrames(wal, pageSize, frameCount, pageOwner);
+        List<FrameInfo> frames = analyzeFrames(wal, index, pageOwner);
         //printResults(frames);
        reader.frames = frames;
        reader.pageOwner = pageOwner;
@@ -137,27 +134,26 @@ public class WALAnalyzer {
         int pageSize = readPageSize(dbHeader);
         System.out.printf("  Page size: %d bytes%n%n", pageSize);
 
-        // 2. Read WAL file
-        byte[] wal = Files.readAllBytes(walPath);
-        if (wal.length < WAL_HEADER_SIZE) throw new IOException("WAL file too small.");
+        // 2. Map the WAL file and index its frames
+        BigByteBuffer wal = new BigByteBuffer(walPath.toString());
+        if (wal.limit() < WAL_HEADER_SIZE) throw new IOException("WAL file too small.");
         printWalHeader(wal);
 
-        int frameSize  = FRAME_HEADER_SIZE + pageSize;
-        int frameCount = (wal.length - WAL_HEADER_SIZE) / frameSize;
-        System.out.printf("  Frames in WAL: %d%n%n", frameCount);
+        List<WALFrame> index = WALReader.index(wal, pageSize);
+        System.out.printf("  Frames in WAL: %d%n%n", index.size());
 
-        // 3. Extract the latest version of each page from the WAL
+        // 3. Locate the latest version of each page in the WAL
         //    (later frames override earlier ones for the same page number)
-        Map<Long, byte[]> walPages = extractLatestWalPages(wal, pageSize, frameCount);
+        Map<Long, Long> walPages = extractLatestWalPages(index);
         System.out.printf("  Distinct pages in WAL: %s%n%n",
-                walPages.keySet().stream().sorted()
+                walPages.keySet().stream()
                         .map(Object::toString)
                         .reduce((a, b) -> a + ", " + b).orElse("—"));
 
         // Page source: WAL takes precedence over the DB file
         PageSource src = (pageNo) -> {
-            byte[] p = walPages.get(pageNo);
-            return p != null ? p : readPageFromFile(dbPath, pageNo, pageSize);
+            Long offset = walPages.get(pageNo);
+            return offset != null ? readPageFromWal(wal, offset, pageSize) : readPageFromFile(dbPath, pageNo, pageSize);
         };
 
         // 4. Read schema from Page 1 (WAL-first)
@@ -180,7 +176,7 @@ public class WALAnalyzer {
         pageOwner.put(1L, new SchemaEntry("system", "sqlite_schema", 1L));
 
         // 6. Analyze frames and print results
-        List<FrameInfo> frames = analyzeFrames(wal, pageSize, frameCount, pageOwner);
+        List<FrameInfo> frames = analyzeFrames(wal, index, pageOwner);
         printResults(frames);
     }
 
@@ -296,15 +292,12 @@ public class WALAnalyzer {
     // =========================================================================
     // WAL: extract the latest version of each page
     // =========================================================================
-    static Map<Long, byte[]> extractLatestWalPages(byte[] wal, int pageSize, int frameCount) {
-        // Later frames win: iterating forward means each put() overwrites older data
-        Map<Long, byte[]> pages = new TreeMap<>();
-        for (int i = 0; i < frameCount; i++) {
-            int  base   = WAL_HEADER_SIZE + i * (FRAME_HEADER_SIZE + pageSize);
-            long pageNo = u32(wal, base);
-            byte[] data = Arrays.copyOfRange(wal, base + FRAME_HEADER_SIZE,
-                    base + FRAME_HEADER_SIZE + pageSize);
-            pages.put(pageNo, data);
+    static Map<Long, Long> extractLatestWalPages(List<WALFrame> index) {
+        // Later frames win: iterating forward means each put() overwrites older data.
+        // Only the file offset of the page is kept, the page is read when it is needed.
+        Map<Long, Long> pages = new TreeMap<>();
+        for (WALFrame f : index) {
+            pages.put(Integer.toUnsignedLong(f.pagenumber), f.offset + FRAME_HEADER_SIZE);
         }
         return pages;
     }
@@ -450,21 +443,18 @@ public class WALAnalyzer {
     // =========================================================================
     // FRAME ANALYSIS
     // =========================================================================
-    static List<FrameInfo> analyzeFrames(byte[] wal, int pageSize, int frameCount,
+    static List<FrameInfo> analyzeFrames(BigByteBuffer wal, List<WALFrame> index,
                                          Map<Long, SchemaEntry> pageOwner) {
-        List<FrameInfo> result = new ArrayList<>();
-        for (int i = 0; i < frameCount; i++) {
-            int  base    = WAL_HEADER_SIZE + i * (FRAME_HEADER_SIZE + pageSize);
-            long pageNum = u32(wal, base);
-            int  commit  = (int) u32(wal, base + 4);
-
-            byte[] pageData = Arrays.copyOfRange(wal, base + FRAME_HEADER_SIZE,
-                    base + FRAME_HEADER_SIZE + pageSize);
-
-            // Page 1 carries a 100-byte DB header before the B-Tree header
+        List<FrameInfo> result = new ArrayList<>(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            WALFrame f   = index.get(i);
+            long pageNum = Integer.toUnsignedLong(f.pagenumber);
+            int  commit  = wal.getInt(f.offset + 4);
+
+            // Page 1 carries a 100-byte DB header before the B-Tree header.
+            // Only the type byte is read, not the whole page.
             int headerOff = (pageNum == 1) ? 100 : 0;
-            int typeByte  = (headerOff < pageData.length)
-                    ? Byte.toUnsignedInt(pageData[headerOff]) : 0;
+            int typeByte  = Byte.toUnsignedInt(wal.getByte(f.offset + FRAME_HEADER_SIZE + headerOff));
 
             SchemaEntry owner = pageOwner.get(pageNum);
             String ownerName = owner != null ? owner.name() : "<unattributed>";
@@ -480,8 +470,10 @@ public class WALAnalyzer {
     // =========================================================================
     // OUTPUT
     // =========================================================================
-    static void printWalHeader(byte[] wal) {
-        ByteBuffer h = ByteBuffer.wrap(wal, 0, WAL_HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    static void printWalHeader(BigByteBuffer wal) {
+        byte[] header = new byte[WAL_HEADER_SIZE];
+        wal.read(0, header);
+        ByteBuffer h = ByteBuffer.wrap(header).order(ByteOrder.BIG_ENDIAN);
         System.out.printf("  WAL header:%n");
         System.out.printf("    Magic               : 0x%08X%n", h.getInt());
         System.out.printf("    File format version : %d%n",     h.getInt());
@@ -546,6 +538,13 @@ public class WALAnalyzer {
         catch (IOException e) { return null; }
     }
 
+    static byte[] readPageFromWal(BigByteBuffer wal, long offset, int pageSize) {
+        if (offset + pageSize > wal.limit()) return null;
+        byte[] page = new byte[pageSize];
+        wal.read(offset, page);
+        return page;
+    }
+
     static int readPageSize(byte[] h) {
         // Bytes 16-17, big-endian; value 1 means 65536
         int raw = u16(h, 16); return (raw == 1) ? 65536 : raw;
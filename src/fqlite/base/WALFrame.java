@@ -7,6 +7,8 @@ public class WALFrame
 	public long salt1;
     public long salt2;
 	public boolean committed = false;
+	/* file offset of the 24 byte frame header, -1 if unknown */
+	public long offset = -1;
 	
 	@Override
 	public String toString()
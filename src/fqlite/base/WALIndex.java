@@ -0,0 +1,185 @@
+package fqlite.base;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page-to-frame index of a WAL archive.
+ *
+ * A page can be written to the WAL many times - once per transaction that
+ * changed it. The commit state of a frame and the version of an overflow
+ * page that a record sees are asked for per record; the index answers
+ * both without walking the frames.
+ *
+ * The index is built once from the frame list of {@link WALReader#index}
+ * and keeps
+ *
+ * <ul>
+ * <li>for every page number the frame numbers of its versions, in
+ *     ascending order</li>
+ * <li>for every frame the last frame of its transaction</li>
+ * <li>the frames that belong to a committed transaction</li>
+ * </ul>
+ *
+ * A transaction ends with a commit frame (a frame with a non-zero
+ * "database size after commit" field). Frames behind the last commit frame
+ * of a salt value, i.e. of one checkpoint generation, were never committed.
+ *
+ * Frame numbers are 0-based and equal the position of the frame in the file.
+ *
+ * @author pawlaszc
+ *
+ */
+public class WALIndex {
+
+	private static final int[] NONE = new int[0];
+
+	private final List<WALFrame> frames;
+
+	/* page number -> frame numbers of its versions, ascending */
+	private final Map<Integer, int[]> versions;
+
+	/* frame number -> last frame of the transaction it belongs to */
+	private final int[] txend;
+
+	/* frames of committed transactions */
+	private final BitSet committed;
+
+	/**
+	 * Builds the index.
+	 *
+	 * @param frames all frames of the WAL in file order, see {@link WALReader#index}
+	 */
+	public WALIndex(List<WALFrame> frames) {
+		this.frames = frames;
+		int n = frames.size();
+
+		/* first count the versions of each page, then fill the arrays in frame order */
+		Map<Integer, int[]> count = new HashMap<>();
+		for (WALFrame f : frames)
+			count.computeIfAbsent(f.pagenumber, k -> new int[1])[0]++;
+
+		versions = new HashMap<>(count.size() * 2);
+		count.forEach((page, c) -> versions.put(page, new int[c[0]]));
+		for (int i = 0; i < n; i++) {
+			int[] v = versions.get(frames.get(i).pagenumber);
+			int[] c = count.get(frames.get(i).pagenumber);
+			v[v.length - c[0]--] = i;
+		}
+
+		/* backwards: a frame belongs to the transaction of the next commit frame with the same salts */
+		txend = new int[n];
+		committed = new BitSet(n);
+		int end = n - 1;
+		boolean durable = false;
+		for (int i = n - 1; i >= 0; i--) {
+			WALFrame f = frames.get(i);
+			if (i == n - 1 || f.salt1 != frames.get(i + 1).salt1 || f.salt2 != frames.get(i + 1).salt2) {
+				end = i;
+				durable = false;
+			}
+			if (f.committed) {
+				end = i;
+				durable = true;
+			}
+			txend[i] = end;
+			if (durable)
+				committed.set(i);
+		}
+	}
+
+	/**
+	 * @return number of frames
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	/**
+	 * @return the frame with the given number or <code>null</code>
+	 */
+	public WALFrame frame(int framenumber) {
+		return framenumber >= 0 && framenumber < frames.size() ? frames.get(framenumber) : null;
+	}
+
+	/**
+	 * @return true, if the frame belongs to a committed transaction
+	 */
+	public boolean isCommitted(int framenumber) {
+		return framenumber >= 0 && committed.get(framenumber);
+	}
+
+	/**
+	 * @return the frame numbers of all versions of a page, ascending
+	 */
+	public int[] versions(int pagenumber) {
+		return versions.getOrDefault(pagenumber, NONE);
+	}
+
+	/**
+	 * @return all page numbers found in the WAL, ascending
+	 */
+	public int[] pages() {
+		int[] p = new int[versions.size()];
+		int i = 0;
+		for (Integer page : versions.keySet())
+			p[i++] = page;
+		Arrays.sort(p);
+		return p;
+	}
+
+	/**
+	 * Returns the version of a page that a reader of the given frame sees:
+	 * the last version written up to the end of the frame's transaction.
+	 * The overflow pages of a record are usually written by the same
+	 * transaction, before or after the page of the record itself.
+	 *
+	 * @param pagenumber the page
+	 * @param framenumber the frame of the record
+	 * @return the frame or <code>null</code> if the page is not in the WAL up to then
+	 */
+	public WALFrame latest(int pagenumber, int framenumber) {
+		if (frames.isEmpty())
+			return null;
+		int bound = framenumber < 0 ? -1 : txend[Math.min(framenumber, frames.size() - 1)];
+		int i = floor(versions(pagenumber), bound);
+		return i < 0 ? null : frames.get(versions(pagenumber)[i]);
+	}
+
+	/**
+	 * Returns the latest committed version of a page as of the given frame.
+	 * Uncommitted versions are only found behind the last commit of a
+	 * checkpoint generation, so only a few of them are skipped.
+	 *
+	 * @param pagenumber the page
+	 * @param framenumber the frame
+	 * @return the frame or <code>null</code> if there is no committed version up to then
+	 */
+	public WALFrame latestCommitted(int pagenumber, int framenumber) {
+		int[] v = versions(pagenumber);
+		for (int i = floor(v, framenumber); i >= 0; i--)
+			if (committed.get(v[i]))
+				return frames.get(v[i]);
+		return null;
+	}
+
+	/**
+	 * @return the last version of a page in the whole WAL or <code>null</code>
+	 */
+	public WALFrame latest(int pagenumber) {
+		int[] v = versions(pagenumber);
+		return v.length == 0 ? null : frames.get(v[v.length - 1]);
+	}
+
+	/**
+	 * @return index of the largest value &lt;= key, -1 if there is none
+	 */
+	private static int floor(int[] sorted, int key) {
+		int i = Arrays.binarySearch(sorted, key);
+		return i >= 0 ? i : -i - 2;
+	}
+
+}
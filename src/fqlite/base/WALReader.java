@@ -2,19 +2,22 @@ package fqlite.base;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import fqlite.descriptor.AbstractDescriptor;
 import fqlite.descriptor.TableDescriptor;
+import fqlite.export.CollectorRecordSink;
+import fqlite.export.RecordSink;
+import fqlite.fts.SearchIndex;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
 import fqlite.pattern.SerialTypeMatcher;
 import fqlite.types.CarverTypes;
 import fqlite.util.Auxiliary;
@@ -59,11 +62,17 @@ public class WALReader{
 	public ConcurrentHashMap<String,ObservableList<ObservableList<String>>> resultlist = new ConcurrentHashMap<>();
 	public ConcurrentHashMap<String,ObservableList<ObservableList<byte[]>>> hexdumplist = new ConcurrentHashMap<>();
 
-	/* An asynchronous channel for reading, writing, and manipulating a file. */
-	public AsynchronousFileChannel file;
+	/* every recovered row is handed to this sink - by default it fills the two lists above */
+	public RecordSink sink = new CollectorRecordSink(resultlist, hexdumplist);
 
-	/* This buffer holds WAL-file in RAM */
-	public ByteBuffer wal;
+	/* the hexdump entries of the rows above point into this file */
+	public HexSource hexsource;
+
+	/* the WAL-file, mapped window by window on demand (see BigByteBuffer) */
+	public BigByteBuffer wal;
+
+	/* frame index: one entry per complete frame, in file order */
+	List<WALFrame> index = new ArrayList<WALFrame>();
 
 	/* total size of WAL-file in bytes */
 	long size;
@@ -104,7 +113,7 @@ public class WALReader{
 	/* number of pages that is currently analysed */
 	int pagenumber_maindb;
     int pagenumber_wal;
-	int framestart = 0;
+	long framestart = 0;
     
 	public String headerstring = "";
 	
@@ -120,13 +129,15 @@ public class WALReader{
 	/* buffer that holds the current page */
 	ByteBuffer buffer;
 
-	public static List<TableDescriptor> tables = new LinkedList<TableDescriptor>();
+	/* schemas tried when a page of the WAL has no component - one list per reader, batch jobs run side by side */
+	public final List<TableDescriptor> tables = new LinkedList<TableDescriptor>();
 	/* this is a multi-threaded program -> all data are saved to the list first */
 
 	/* outputlist */
 	ConcurrentLinkedQueue<List<String>> output = new ConcurrentLinkedQueue<List<String>>();
 	
-	public HashMap<Integer,ByteBuffer> overflow = new HashMap<Integer,ByteBuffer>();
+	/* page number -> versions of the page, answers the overflow page lookups */
+	public WALIndex walindex;
 	
 
 	/**
@@ -139,75 +150,117 @@ public class WALReader{
 		this.path = path;
 		this.job = job;
 		this.ct = new Auxiliary(job);
+		this.hexsource = new HexSource(path);
+		this.ct.hexsource = hexsource;
+
+		/* in gui-mode the rows go into the search index of the job, too */
+		if (job.fts != null)
+			this.sink = new CollectorRecordSink(resultlist, hexdumplist, job.fts, SearchIndex.WAL);
 	}
 
-	
-	
+	/**
+	 * Creates a reader for one worker thread of {@link #parse()}. It shares
+	 * the mapped WAL file, the index, the results and the sink with its
+	 * parent, but has a page buffer, a BitSet and an Auxiliary object of
+	 * its own.
+	 *
+	 * @param parent the reader that analyses the WAL file
+	 */
+	private WALReader(WALReader parent) {
+		this.path = parent.path;
+		this.job = parent.job;
+		this.resultlist = parent.resultlist;
+		this.hexdumplist = parent.hexdumplist;
+		this.sink = parent.sink;
+		this.hexsource = parent.hexsource;
+		this.wal = parent.wal;
+		this.size = parent.size;
+		this.ps = parent.ps;
+		this.index = parent.index;
+		this.checkpoints = parent.checkpoints;
+		this.pageOwner = parent.pageOwner;
+		this.frames = parent.frames;
+		this.output = parent.output;
+		this.walindex = parent.walindex;
+		this.ct = new Auxiliary(job);
+		this.ct.hexsource = hexsource;
+		this.visit = new BitSet(ps);
+	}
 	
 	/**
-	 * This method is the main processing loop. First, the header is analysed.
-	 * Afterwards, all write-ahead frames are recovered.
-	 * 
+	 * This method is the main processing loop. First, the header is analysed
+	 * and the frames are indexed. Afterwards, all write-ahead frames are
+	 * recovered.
+	 *
 	 */
 	public void parse() {
-		int framenumber = 0;
-		
+
 		Path p = Paths.get(path);
 
-        try {
-			WALAnalyzer.analyzeWAL(this);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+		/* the overflow pages of a record are looked up through the job (see Job.readWALOverflowPage()) */
+		job.wal = this;
 
         System.out.println("parse WAL-File");
+
 		/*
-		 * We have to do this before we open the database because of the concurrent
-		 * access
+		 * The WAL file is not read into RAM any more: BigByteBuffer maps it
+		 * window by window and only the pages that are analysed are copied.
+		 * That keeps the memory bounded and there is no 2 GB limit.
 		 */
-
-		/* try to open the db-file in read-only mode */
 		try {
-			file = AsynchronousFileChannel.open(p, StandardOpenOption.READ);
-		} catch (Exception e) {
+			wal = new BigByteBuffer(path);
+		} catch (IOException | IllegalArgumentException e) {
             AppLog.error("Cannot open WAL-file" + p.getFileName());
 			return;
 		}
+		size = wal.limit();
 
-		// Caution!!! We read the complete file into RAM
 		try {
-			readFileIntoBuffer();
-		} catch (IOException e) {
-
-			e.printStackTrace();
-		}
+			if (size <= 32)
+			{
+				    AppLog.info("WAL-File is empty. Skip analyzing.");
+					return;
+			}
 
-		/* read header of the WAL file - the first 32 bytes */
-		buffer = ByteBuffer.allocate(32);
+			readHeader();
 
-		Future<Integer> result = file.read(buffer, 0); // position = 0
+			/* one pass over the frame headers */
+			index = index(wal, ps);
+			walindex = new WALIndex(index);
+			for (WALFrame frame : index)
+				updateCheckpoint(frame);
 
-		while (!result.isDone()) {
+	        try {
+				WALAnalyzer.analyzeWAL(this);
+	        } catch (Exception e) {
+	            throw new RuntimeException(e);
+	        }
 
-			// we can do something in between or just wait ;-).
+			analyzeFrames();
 		}
+		finally {
+			job.reportCache("wal", wal);
+			try {
+				wal.close();
+			} catch (IOException e) {
+				AppLog.error("Cannot close WAL-file " + e.getMessage());
+			}
+			wal = null;
+		}
+	}
 
-		// set filepointer to the beginning of the file
-		buffer.flip();
+	/**
+	 * Reads the WAL header - the first 32 bytes.
+	 */
+	private void readHeader() {
 
-		try {
-			if(file.size() <= 32)
-			{	
-				    AppLog.info("WAL-File is empty. Skip analyzing.");
-					return;
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}	
-		
-		/* 
+		byte[] hbytes = new byte[32];
+		wal.read(0, hbytes);
+		ByteBuffer header = ByteBuffer.wrap(hbytes);
+
+		/*
 		 * WAL Header Format:
-		 * 
+		 *
 		 *	0	4 	Magic number. 0x377f0682 or 0x377f0683
 		 *  4	4 	File format version. Currently 3007000.
 		 *  8	4 	Database page size. Example: 1024
@@ -216,26 +269,26 @@ public class WALReader{
 		 *  20	4 	Salt-2: a different random number for each checkpoint
 		 *  24	4 	Checksum-1: First part of a checksum on the first 24 bytes of the header
 		 *  28	4 	Checksum-2: Second part of the checksum on the first 24 bytes of the header
-		 * 
-		 * 
+		 *
+		 *
 		 *  Source: https://www.sqlite.org/fileformat2.html#walformat
 		 */
-		
+
 		/* Check the MAGIC NUMBERS 0x377f0682 or 0x377f0683 */
 
-		byte header[] = new byte[4];
-		buffer.get(header);
-		if (Auxiliary.bytesToHex3(header).equals(MAGIC_HEADER_STRING1))
-		{		
+		byte magic[] = new byte[4];
+		header.get(magic);
+		if (Auxiliary.bytesToHex3(magic).equals(MAGIC_HEADER_STRING1))
+		{
 				headerstring = MAGIC_HEADER_STRING1;
 				AppLog.info("header is okay. seems to be an write ahead log file.");
 		}
 		else
-		if (Auxiliary.bytesToHex3(header).equals(MAGIC_HEADER_STRING2))
+		if (Auxiliary.bytesToHex3(magic).equals(MAGIC_HEADER_STRING2))
 		{
 			headerstring = MAGIC_HEADER_STRING2;
 			AppLog.info("header is okay. seems to be an write ahead log file.");
-			
+
 		}
 		else {
 			AppLog.info("sorry. doesn't seem to be an WAL file. Wrong header.");
@@ -244,12 +297,12 @@ public class WALReader{
 
 
 		/* at offset 4 */
-		buffer.position(4);
-		
-		ffversion = buffer.getInt();
+		header.position(4);
+
+		ffversion = header.getInt();
 		AppLog.info(" file format version " + ffversion);
-		
-		ps = buffer.getInt();
+
+		ps = header.getInt();
 
 		/*
 		 * Must be a power of two between 512 and 32768 inclusive, or the value 1
@@ -265,163 +318,217 @@ public class WALReader{
 
 		AppLog.info("page size " + ps + " Bytes ");
 
-		
-	
+
+
 		/*
-		 * Offset 12 Size 4 Checkpoint sequence number 
+		 * Offset 12 Size 4 Checkpoint sequence number
 		 */
-		csn = buffer.getInt();
+		csn = header.getInt();
 		AppLog.info(" checkpoint sequence number " + csn);
 
-	
+
 		/*
-		 * Offset 16 Size 4 Salt-1: random integer incremented with each checkpoint 
+		 * Offset 16 Size 4 Salt-1: random integer incremented with each checkpoint
 		 */
-		hsalt1 = Integer.toUnsignedLong(buffer.getInt());
+		hsalt1 = Integer.toUnsignedLong(header.getInt());
 		AppLog.info(" salt1 " + hsalt1);
 
-		
+
 		/*
-		 * Offset 20 Size 4 Salt-2: Salt-2: a different random number for each checkpoint 
+		 * Offset 20 Size 4 Salt-2: Salt-2: a different random number for each checkpoint
 		 */
-		hsalt2 = Integer.toUnsignedLong(buffer.getInt());
+		hsalt2 = Integer.toUnsignedLong(header.getInt());
 		AppLog.info(" salt2 " + hsalt2);
 
-		
+
 		/* Offset 24 Checksum-1: First part of a checksum on the first 24 bytes of header */
-		hchecksum1 = Integer.toUnsignedLong(buffer.getInt());
+		hchecksum1 = Integer.toUnsignedLong(header.getInt());
 		AppLog.info(" checksum-1 of first frame header " + hchecksum1);
 
-		
-		
+
+
 		/* Offset 28 Checksum-2: Second part of the checksum on the first 24 bytes of header  */
-		hchecksum2 = Integer.toUnsignedLong(buffer.getInt());
+		hchecksum2 = Integer.toUnsignedLong(header.getInt());
 		AppLog.info(" checksum-2 second part ot the checksum on the first frame header " + hchecksum2);
 
-		
-		/* initialise the BitSet for already visited location within a wal-page */
-
-		visit = new BitSet(ps);
-		
 		/* end of WAL-header has been reached at offset 31 */
-		/* now we can go on with the frames */
+	}
 
-		/*******************************************************************/
+	/**
+	 * Builds the frame index in a single pass over the frame headers. Only
+	 * the 24 byte headers are read, the pages are not touched.
+	 *
+	 * @param wal the mapped WAL file
+	 * @param ps page size
+	 * @return one WALFrame per complete frame, together with its file offset
+	 */
+	public static List<WALFrame> index(BigByteBuffer wal, int ps) {
 
 		/*
 		 * WAL Frame Header Format
-		 * 
+		 *
 		 * Let us now read the WAL Frame Header. Immediately following the wal-header
 		 * are zero or more frames. Each frame consists of a 24-byte frame header
 		 * followed by a page-size bytes of page data. The frame header is six
 		 * big-endian 32-bit unsigned integer values, as follows:
-		 * 
-		 * 
-		 * 
-		 * 0	4 	Page number 
-		 * 4	4 	For commit records, the size of the database file in pages after the commit. 
-		 *          For all other records, zero. 
-		 * 8	4 	Salt-1 copied from the WAL header 
-		 * 12	4 	Salt-2 copied from the WAL header 
-		 * 16	4 	Checksum-1: Cumulative checksum up through and including this page 
-		 * 20	4 	Checksum-2: Second half of the cumulative checksum. 
-		 * 
-		 * 
+		 *
+		 *
+		 *
+		 * 0	4 	Page number
+		 * 4	4 	For commit records, the size of the database file in pages after the commit.
+		 *          For all other records, zero.
+		 * 8	4 	Salt-1 copied from the WAL header
+		 * 12	4 	Salt-2 copied from the WAL header
+		 * 16	4 	Checksum-1: Cumulative checksum up through and including this page
+		 * 20	4 	Checksum-2: Second half of the cumulative checksum.
+		 *
+		 *
 		 * Source: https://www.sqlite.org/fileformat2.html#walformat
          *
 		 */
-		
-		
-		framestart = 32; // this is the position where the first frame should be
 
-		boolean next = false;
-		int numberofpages = 0;
-		long start = System.currentTimeMillis();
+		/* A frame is considered valid if and only if the following conditions are true:
+		 *
+		 * 1) The salt-1 and salt-2 values in the frame-header match the salt values in the wal-header
+		 *
+		 * 2) The checksum values in the final 8 bytes of the frame header exactly match the checksum
+		 *    computed consecutively on the first 24 bytes of the WAL header and the first 8 bytes, and
+		 *    the content of all frames up to and including the current frame.
+		 */
+
+		List<WALFrame> index = new ArrayList<WALFrame>();
+		long framesize = ps + 24L;
+		int framenumber = 0;
+
+		/* the first frame follows the 32 byte header, a truncated last frame is skipped */
+		for (long framestart = 32; framestart + framesize <= wal.limit(); framestart += framesize) {
 
-		do
-		{
-			/* 24 Byte - with six 4-Byte big endian values */
-			byte[] frameheader = new byte[24];
-			wal.position(framestart);
-			wal.get(frameheader);
-			ByteBuffer fheader = ByteBuffer.wrap(frameheader);
-	
 			/* get the page number of this frame */
-			pagenumber_maindb = fheader.getInt();
+			int pagenumber = wal.getInt(framestart);
 
 			/* number or size of pages for a commit header, otherwise zero. */
-			int commit = fheader.getInt();
-			long fsalt1 = Integer.toUnsignedLong(fheader.getInt());
-			long fsalt2 = Integer.toUnsignedLong(fheader.getInt());
+			int commit = wal.getInt(framestart + 4);
+			long fsalt1 = Integer.toUnsignedLong(wal.getInt(framestart + 8));
+			long fsalt2 = Integer.toUnsignedLong(wal.getInt(framestart + 12));
 
-			/* A frame is considered valid if and only if the following conditions are true:
-			 * 
-			 * 1) The salt-1 and salt-2 values in the frame-header match the salt values in the wal-header
-			 * 
-			 * 2) The checksum values in the final 8 bytes of the frame header exactly match the checksum
-			 *    computed consecutively on the first 24 bytes of the WAL header and the first 8 bytes, and
-			 *    the content of all frames up to and including the current frame.
-			 */
-			
-			buffer = readPage();
-	
-			numberofpages++;
-			pagenumber_wal = numberofpages;
+			WALFrame frame = new WALFrame(pagenumber, framenumber++, fsalt1, fsalt2, commit != 0);
+			frame.offset = framestart;
+			index.add(frame);
+		}
+		return index;
+	}
 
-			
-			WALFrame frame = updateCheckpoint(pagenumber_maindb, framenumber,fsalt1, fsalt2, commit != 0);
-			analyzePage(frame);
+	/**
+	 * Recovers the records of all indexed frames. The frames do not depend
+	 * on each other, so they are spread over the worker threads of the job
+	 * (see {@link FrameTask}).
+	 */
+	private void analyzeFrames() {
 
-			
-			framestart += ps +  24;
-			
-		
-			/*  More pages to analyse? */
-			if(framestart+24+ps < size)
-			{
-				
-				next = true;
-			}
-			else
-				next = false;
-			
-			framenumber++;
-			
-		}while(next);
+		long start = System.currentTimeMillis();
+		Metrics.Phase phase = job.metrics.begin(Metrics.PHASE_WAL);
+
+		try {
+			job.pool().invoke(new FrameTask(this, 0, index.size()));
+		}
+		finally {
+			job.shutdownPool();
+		}
 
+		phase.pages(index.size());
+		phase.end();
 
-		
 		AppLog.info("Lines after WAL-file recovery: " + output.size());
-		AppLog.info("Number of pages in WAL-file" + numberofpages);
+		AppLog.info("Number of pages in WAL-file" + index.size());
 		long end = System.currentTimeMillis();
 		System.out.println("WAL Import duration in ms: " + (end-start));
-		
+
 		//AppLog.info("Checkpoints " + checkpoints.toString());
-	
+
 	}
-	
-	
-	
-	private WALFrame updateCheckpoint(int pagenumber, int framenumber,long salt1, long salt2, boolean committed){
-		
-		WALFrame f = new WALFrame(pagenumber, framenumber , salt1, salt2,  committed);
+
+	/**
+	 * A range of frames, analysed inside the ForkJoinPool of the job. Like
+	 * a {@link ScanTask} the range is halved until it is small enough, idle
+	 * threads steal the other halves.
+	 */
+	private static class FrameTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final WALReader reader;
+		final int from;
+		final int to;
+
+		FrameTask(WALReader reader, int from, int to) {
+			this.reader = reader;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > ScanTask.THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new FrameTask(reader, from, mid), new FrameTask(reader, mid, to));
+				return;
+			}
+
+			/* small enough - one reader for the whole range */
+			WALReader worker = new WALReader(reader);
+			for (int i = from; i < to; i++)
+				worker.analyzeFrame(reader.index.get(i));
+		}
+	}
+
+	/**
+	 * Reads the page of a frame and recovers its records.
+	 *
+	 * @param frame the frame from the index
+	 */
+	private void analyzeFrame(WALFrame frame) {
+
+		framestart = frame.offset;
+		pagenumber_maindb = frame.pagenumber;
+		pagenumber_wal = frame.framenumber + 1;
+
+		buffer = readPage(framestart + 24);
+
+		/* the BitSet for already visited location within a wal-page */
+		visit.clear();
+
+		Flight.FrameAnalysis ev = Flight.enabled ? new Flight.FrameAnalysis() : null;
+		if (ev != null)
+			ev.begin();
+		analyzePage(frame);
+		if (ev != null) {
+			ev.frame = frame.framenumber;
+			ev.page = frame.pagenumber;
+			ev.committed = frame.committed;
+			ev.commit();
+		}
+	}
+
+
+
+	private void updateCheckpoint(WALFrame f){
+
 		//checkpointlist.add(f);
 
-		
+
 		/* new checkpoint/transaction id? */
-		if (!checkpoints.containsKey(salt1))
+		if (!checkpoints.containsKey(f.salt1))
 		{
 			LinkedList<WALFrame> trx = new LinkedList<WALFrame>();
 			trx.add(f);
-			checkpoints.put(salt1, trx);
+			checkpoints.put(f.salt1, trx);
 		}
 		else
 		{
-			LinkedList<WALFrame> trx = checkpoints.get(salt1);
+			LinkedList<WALFrame> trx = checkpoints.get(f.salt1);
 			trx.add(f);
 		}
-		
-		return f;
 	}
 
 	/**
@@ -433,17 +540,14 @@ public class WALReader{
 		
 		withoutROWID = false;
 
-		/* convert byte array into a string representation */
-		String content = Auxiliary.bytesToHex2(buffer);
-
-		if(null == content || content.length() == 0)
+		if(null == buffer || buffer.limit() == 0)
 			return 0;
 
 		// offset 0
 		buffer.position(0);
 
-		/* check type of the page by reading the first two bytes */
-		int type = Auxiliary.getPageType(content);
+		/* check type of the page by reading the first byte */
+		int type = Auxiliary.getPageType(buffer, 0);
 
 		/* mark bytes as visited */
 		visit.set(0, 2);
@@ -484,11 +588,10 @@ public class WALReader{
 		if (type < 0) {
 			AppLog.info("No Data page. " + pagenumber_wal);
 			//System.out.println(" write page to overflow. skip page for now " + pagenumber_maindb);
-		    overflow.put(pagenumber_maindb,buffer);
 			return -1;
 		}
 		else if (type == 2){
-			AppLog.debug("WAL Internal Index page " + pagenumber_wal);
+			if (AppLog.isDebugEnabled()) AppLog.debug("WAL Internal Index page " + pagenumber_wal);
 			//System.out.println("WAL Internal Index page " + pagenumber_wal);
 			//System.out.println("WALReader:analyzePage() -> Internal index page found" + pagenumber_wal);
 			return -1;
@@ -499,14 +602,14 @@ public class WALReader{
 			//System.out.println("WALReader:analyzePage() -> Internal page found" + pagenumber_wal);
 			return -1;
 		} else if (type == 10) {
-			AppLog.debug("WAL Index leaf page " + pagenumber_wal);
+			if (AppLog.isDebugEnabled()) AppLog.debug("WAL Index leaf page " + pagenumber_wal);
 			//System.out.println("WAL Index leaf page " + pagenumber_wal);		
 			// note: WITHOUT ROWID tables are saved here.
 		 	withoutROWID = true;
 		} else {
 			// 0x0D -> 13 value is 8 (see Auxiliary)
-			AppLog.debug("WAL Data page " + pagenumber_wal + " Offset: " + (wal.position()) + " Type " + type);
-			//System.out.println("WAL Data page " + pagenumber_wal + " Offset: " + (wal.position()) + " Type " + type);
+			if (AppLog.isDebugEnabled()) AppLog.debug("WAL Data page " + pagenumber_wal + " Offset: " + (framestart + 24) + " Type " + type);
+			//System.out.println("WAL Data page " + pagenumber_wal + " Offset: " + (framestart + 24) + " Type " + type);
 		}
 
 		/************** regular leaf page with data ******************/
@@ -541,13 +644,17 @@ public class WALReader{
 		ByteBuffer size = ByteBuffer.wrap(cpn);
 		int cp = Auxiliary.TwoByteBuffertoInt(size);
 
-		AppLog.debug(" number of cells: " + cp + " type of page " + type);
+		if (AppLog.isDebugEnabled()) AppLog.debug(" number of cells: " + cp + " type of page " + type);
 		job.numberofcells.addAndGet(cp);
 		if (0 == cp)
 			AppLog.debug(" Page seems to be dropped. No cell entries.");
 
 		int headerend = 8 + (cp * 2);
 		visit.set(0, headerend);
+
+		/* the owner of the page comes straight from the page-to-owner map of the WALAnalyzer */
+		WALAnalyzer.SchemaEntry owner = pageOwner.get(Integer.toUnsignedLong(frame.pagenumber));
+		String tname = owner != null ? owner.name() : "<unattributed>";
 		
 		/***************************************************************
 		 * STEP 2:
@@ -593,20 +700,6 @@ public class WALReader{
 			List<byte[]> raw = null;
 
 			try {
-				String tname = "";
-
-				for(WALAnalyzer.FrameInfo fr : frames){
-
-					if (fr.pageNumber() == frame.pagenumber){
-
-						tname = fr.ownerName();
-					}
-
-				}
-
-
-
-
 				DataRow result = ct.readRecord(celloff, buffer, pagenumber_maindb, visit, Integer.MAX_VALUE, withoutROWID,Global.WAL_ARCHIVE_FILE, framestart + 24 + celloff,tname);
 
 				if(null == result)
@@ -706,9 +799,9 @@ public class WALReader{
 		{
 			/* try to read record as usual */
 			List<String> rc;
-			String tname = "";
+			String fname = "";
 			if (frame.framenumber == 0) {
-				tname = "sqlite_master";
+				fname = "sqlite_master";
 			}
 			else{
 				WALAnalyzer.SchemaEntry e = pageOwner.get((long)frame.framenumber);
@@ -716,14 +809,14 @@ public class WALReader{
 					System.out.println(" frame " + frame.framenumber + " ohne tabellennamen");
 				}
 				else{
-					tname = e.name();
+					fname = e.name();
 				}
 			}
 
 
 			/* Tricky thing: data record could be partly overwritten with a new data record!!!  */
 			/* We should read until the end of the unallocated area and not above! */
-			DataRow resultset = ct.readRecord(buffer.position(), buffer, ps, visit, ccrstart - buffer.position(), withoutROWID,Global.WAL_ARCHIVE_FILE, framestart + 24 + buffer.position(), tname);
+			DataRow resultset = ct.readRecord(buffer.position(), buffer, ps, visit, ccrstart - buffer.position(), withoutROWID,Global.WAL_ARCHIVE_FILE, framestart + 24 + buffer.position(), fname);
 			rc = resultset.line();
 
 			// add new line to output
@@ -745,7 +838,7 @@ public class WALReader{
 		 ***************************************************************/
 		
 		/* now we are ready to carve the rest of the page */
-		//carve(content,null);
+		//carve(null);
 		
 	} catch (Exception err) {
         AppLog.error(err.getMessage());
@@ -759,73 +852,34 @@ public class WALReader{
 	
 	private void updateResultSet(DataRow row)
 	{
-		// entry for table name already exists  
-		if (resultlist.containsKey(row.line().getFirst()))
-		{
-			     ObservableList<ObservableList<String>> tablelist = resultlist.get(row.line().getFirst());
-			     tablelist.add(FXCollections.observableList(row.line()));  // add row
-
-			     // save the original bytes-values of the table row separately to a different list
-			     ObservableList<ObservableList<byte[]>> hexlist = hexdumplist.get(row.line().getFirst());
-				 hexlist.add(FXCollections.observableList(row.hexdump()));
-		}
-		
-		// create a new data set since the table name occurs for the first time
-		else {
-		          ObservableList<ObservableList<String>> tablelist = FXCollections.observableArrayList();
-				  tablelist.add(FXCollections.observableList(row.line())); // add row
-				  resultlist.put(row.line().getFirst(),tablelist);
-
-				  ObservableList<ObservableList<byte[]>> hexlist = FXCollections.observableArrayList();
-				  hexlist.add(FXCollections.observableList(row.hexdump()));
-				  hexdumplist.put(row.line().getFirst(),hexlist);
-		}
+		sink.accept(row);
 	}
 
 	/**
-	 * This method is used to read the database file into RAM.
-	 * @throws IOException error, if  file can't be accessed
+	 * Reads the db page at the given offset of the WAL file. The page is
+	 * copied out of the mapped file, so it stays valid when the window is
+	 * unmapped.
+	 *
+	 * @param offset file offset of the page
+	 * @return the database page as a buffer object or <code>null</code> if it lies behind the end of the file
 	 */
-	private void readFileIntoBuffer() throws IOException {
-
-		/* read the complete file into a ByteBuffer */
-		size = file.size();
-
-		wal = ByteBuffer.allocateDirect((int) size);
+	protected ByteBuffer readPage(long offset) {
 
-		Future<Integer> result = file.read(wal, 0); // position = 0
-
-		while (!result.isDone()) {
-
-			// we can do something in between or we can do nothing ;-).
-		}
-
-		// set filepointer to the beginning of the file
-		wal.position(0);
+		if (offset < 0 || offset + ps > size)
+			return null;
 
-	}
-	
-	
-
-	/**
-	 * Starting with the current position of the wal-ByteBuffer, read the next
-	 * db-page.
-	 * 
-	 * @return the database page as a buffer object.
-	 */
-	protected ByteBuffer readPage() {
-
-		ByteBuffer page = wal.slice();
-		page.limit(ps);
-		return page;
+		byte[] page = new byte[ps];
+		wal.read(offset, page);
+		return ByteBuffer.wrap(page);
 	}
 
 	/**
 	 * This method is called to carve a data page for records.
 	 * 
-	 * @param content page content as a hex-string
+	 * @param buffer the page content
+	 * @param crv carver to use or <code>null</code> to create one for the page
 	 */
-	public void carve(ByteBuffer buffer, String content, Carver crv) {
+	public void carve(ByteBuffer buffer, Carver crv) {
 
 		Carver c = crv;
 
@@ -833,7 +887,11 @@ public class WALReader{
 			/* no type could be found in the first two bytes */
 			/* Maybe the whole page was dropped because of a drop component command? */
 			/* start carving on the complete page */
-			c = new Carver(job, buffer, content, visit, ps);
+			c = new Carver(job, buffer, visit, ps);
+
+		/* the page of the current frame follows the 24 byte frame header */
+		c.hexsource = hexsource;
+		c.fileoffset = framestart + 24;
 
 		/* try to get component schema for the current page, if possible */
 		TableDescriptor tdesc = null;
@@ -844,7 +902,7 @@ public class WALReader{
 		}
 
 		List<TableDescriptor> tab = tables;
-		AppLog.debug(" tables :: " + tables.size());
+		if (AppLog.isDebugEnabled()) AppLog.debug(" tables :: " + tables.size());
 
 		if (null != tdesc) {
 			/* there is a schema for this page */
@@ -852,7 +910,7 @@ public class WALReader{
 			tab.add(tdesc);
 			AppLog.debug(" added tdsec ");
 		} else {
-			AppLog.warning(" No component description!" + content);
+			AppLog.warning(" No component description!");
 			tab = tables;
 		}
 
@@ -865,13 +923,15 @@ public class WALReader{
 		/* try out all component schema(s) */
 		for (int n = 0; n < tab.size(); n++) {
 			tdesc = tab.get(n);
-			AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
-			AppLog.debug("n " + n);
+			if (AppLog.isDebugEnabled()) {
+				AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
+				AppLog.debug("n " + n);
+			}
 			// TableDescriptor tdb = tab.get(n);
 
 			/* access pattern for a particular component */
 			String tablename = tab.get(n).tblname;
-			AppLog.debug("WALReader Check component : " + tablename);
+			if (AppLog.isDebugEnabled()) AppLog.debug("WALReader Check component : " + tablename);
 			if (tablename.startsWith("fqlite_freelist"))
 				continue;
 			/* create matcher object for constraint check */
@@ -1093,9 +1153,9 @@ public class WALReader{
 	/**
 	 * This method is called to carve a data page for records.
 	 * 
-	 * @param content page content as hex string
+	 * @param crv carver to use or <code>null</code> to create one for the current page
 	 */
-	public void carve(String content, Carver crv) {
+	public void carve(Carver crv) {
 
 		Carver c = crv;
 
@@ -1103,7 +1163,11 @@ public class WALReader{
 			/* no type could be found in the first two bytes */
 			/* Maybe the whole page was dropped because of a drop component command? */
 			/* start carving on the complete page */
-			c = new Carver(job, buffer, content, visit, pagenumber_maindb);
+			c = new Carver(job, buffer, visit, pagenumber_maindb);
+
+		/* the page of the current frame follows the 24 byte frame header */
+		c.hexsource = hexsource;
+		c.fileoffset = framestart + 24;
 
 		/* try to get component schema for the current page, if possible */
 		TableDescriptor tdesc = null;
@@ -1114,7 +1178,7 @@ public class WALReader{
 		}
 
 		List<TableDescriptor> tab = tables;
-		AppLog.debug(" tables :: " + tables.size());
+		if (AppLog.isDebugEnabled()) AppLog.debug(" tables :: " + tables.size());
 
 		if (null != tdesc) {
 			/* there is a schema for this page */
@@ -1135,12 +1199,14 @@ public class WALReader{
 		/* try out all component schema(s) */
 		for (int n = 0; n < tab.size(); n++) {
 			tdesc = tab.get(n);
-			AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
-			AppLog.debug("n " + n);
+			if (AppLog.isDebugEnabled()) {
+				AppLog.debug("pagenumber :: " + pagenumber_maindb + " component size :: " + tab.size());
+				AppLog.debug("n " + n);
+			}
 
 			/* access pattern for a particular component */
 			String tablename = tab.get(n).tblname;
-			AppLog.debug("Check component : " + tablename);
+			if (AppLog.isDebugEnabled()) AppLog.debug("Check component : " + tablename);
 			if (tablename.startsWith("fqlite_freelist"))
 				continue;
 			/* create matcher object for constraint check */
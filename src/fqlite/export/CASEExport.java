@@ -4,11 +4,10 @@ import fqlite.base.Global;
 import fqlite.base.Job;
 import fqlite.log.AppLog;
 import fqlite.types.ExportType;
+import fqlite.util.FileDigests;
 import javafx.collections.ObservableList;
-import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -77,9 +76,10 @@ public class CASEExport {
             sourceLabel = "journal file";
         }
 
-        String sha1   = new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_1  ).digestAsHex(new File(job.path));
-        String sha256 = new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_256).digestAsHex(new File(job.path));
-        String md5    = new DigestUtils(org.apache.commons.codec.digest.MessageDigestAlgorithms.MD5    ).digestAsHex(new File(job.path));
+        FileDigests.Digests digests = FileDigests.get(job.path);
+        String sha1   = digests.sha1();
+        String sha256 = digests.sha256();
+        String md5    = digests.md5();
 
         String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
@@ -0,0 +1,82 @@
+package fqlite.export;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fqlite.base.DataRow;
+import fqlite.fts.SearchIndex;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/// Keeps all rows in memory, grouped by table name. This is what the GUI
+/// needs to fill its table views, and it is the default sink of every job.
+///
+/// The lists of one table are created atomically, and a row is appended to
+/// the value list and to the hex dump list under one lock, so both lists stay
+/// index-aligned even with many scan threads.
+///
+/// A row that is already observable - a `CompactRow` - is stored as it is,
+/// not wrapped, so the GUI and the exports can read its typed cells.
+///
+/// In GUI mode the sink also puts every row into the full-text search index
+/// of the job (see `SearchIndex`), so the index is complete when the scan is.
+///
+/// @author D. Pawlaszczyk
+public class CollectorRecordSink implements RecordSink {
+
+    private final ConcurrentHashMap<String, ObservableList<ObservableList<String>>> resultlist;
+    private final ConcurrentHashMap<String, ObservableList<ObservableList<byte[]>>> hexdumplist;
+    private final SearchIndex index;
+    private final int source;
+
+    /**
+     * Constructor.
+     * @param resultlist map that receives the row values per table
+     * @param hexdumplist map that receives the raw column bytes per table
+     */
+    public CollectorRecordSink(ConcurrentHashMap<String, ObservableList<ObservableList<String>>> resultlist,
+                               ConcurrentHashMap<String, ObservableList<ObservableList<byte[]>>> hexdumplist) {
+        this(resultlist, hexdumplist, null, SearchIndex.DB);
+    }
+
+    /**
+     * Constructor.
+     * @param resultlist map that receives the row values per table
+     * @param hexdumplist map that receives the raw column bytes per table
+     * @param index full-text index that receives every row, may be null
+     * @param source the source of the rows in the index (database, WAL or journal)
+     */
+    public CollectorRecordSink(ConcurrentHashMap<String, ObservableList<ObservableList<String>>> resultlist,
+                               ConcurrentHashMap<String, ObservableList<ObservableList<byte[]>>> hexdumplist,
+                               SearchIndex index, int source) {
+        this.resultlist = resultlist;
+        this.hexdumplist = hexdumplist;
+        this.index = index;
+        this.source = source;
+    }
+
+    @Override
+    public void accept(DataRow row) {
+        String tblname = row.line().getFirst();
+
+        ObservableList<ObservableList<String>> tablelist =
+                resultlist.computeIfAbsent(tblname, k -> FXCollections.observableArrayList());
+        ObservableList<ObservableList<byte[]>> hexlist =
+                hexdumplist.computeIfAbsent(tblname, k -> FXCollections.observableArrayList());
+
+        int position;
+        synchronized (tablelist) {
+            position = tablelist.size();
+            tablelist.add(observable(row.line()));
+            hexlist.add(FXCollections.observableList(row.hexdump()));
+        }
+
+        /* outside the lock - the other scan threads can go on adding rows to the table */
+        if (index != null)
+            index.add(source, tblname, position, row.line());
+    }
+
+    private static ObservableList<String> observable(List<String> line) {
+        return line instanceof ObservableList<String> o ? o : FXCollections.observableList(line);
+    }
+}
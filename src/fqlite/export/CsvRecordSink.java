@@ -0,0 +1,113 @@
+package fqlite.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fqlite.base.DataRow;
+import fqlite.base.Global;
+import fqlite.log.AppLog;
+
+/// Streams the recovered rows into one .csv file per table. Rows are written
+/// as soon as they arrive and are not kept in memory.
+///
+/// The separator is taken from the settings (`Global.CSV_SEPARATOR`). Values
+/// that contain the separator, a quote or a line break are quoted.
+///
+/// The file name is the table name with every character outside
+/// `[a-zA-Z0-9_-]` replaced by `_`. Two tables that end up with the same
+/// name (e.g. `a.b` and `a_b`) get a counter suffix: `a_b.csv`, `a_b_2.csv`.
+///
+/// @author D. Pawlaszczyk
+public class CsvRecordSink implements RecordSink {
+
+    private final File folder;
+    private final String token;
+    private final ConcurrentHashMap<String, BufferedWriter> writers = new ConcurrentHashMap<>();
+
+    /* file names in use, lower case - the file system may ignore the case */
+    private final Set<String> names = new HashSet<>();
+
+    /**
+     * Constructor.
+     * @param folder output folder, created if it does not exist yet
+     * @throws IOException if the folder cannot be created
+     */
+    public CsvRecordSink(File folder) throws IOException {
+        this.folder = folder;
+        Files.createDirectories(folder.toPath());
+        this.token = Global.CSV_SEPARATOR.equals("[TAB]") ? "\t" : Global.CSV_SEPARATOR;
+    }
+
+    @Override
+    public void accept(DataRow row) {
+        List<String> line = row.line();
+        String tblname = line.getFirst();
+
+        BufferedWriter out = writers.computeIfAbsent(tblname, this::open);
+        if (out == null)
+            return;
+
+        /* skip first column - it holds the table name */
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < line.size(); i++) {
+            if (i > 1)
+                sb.append(token);
+            sb.append(quote(line.get(i)));
+        }
+        sb.append('\n');
+
+        try {
+            synchronized (out) {
+                out.write(sb.toString());
+            }
+        } catch (IOException e) {
+            AppLog.error("CsvRecordSink: could not write row of table " + tblname + ": " + e.getMessage());
+        }
+    }
+
+    private BufferedWriter open(String tblname) {
+        String fname = filename(tblname);
+        try {
+            return Files.newBufferedWriter(new File(folder, fname).toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            AppLog.error("CsvRecordSink: could not create " + fname + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String filename(String tblname) {
+        String base = tblname.replaceAll("[^a-zA-Z0-9_\\-]", "_");
+        synchronized (names) {
+            String name = base;
+            for (int n = 2; !names.add(name.toLowerCase(Locale.ROOT)); n++)
+                name = base + "_" + n;
+            return name + ".csv";
+        }
+    }
+
+    private String quote(String value) {
+        if (value == null)
+            return "";
+        if (value.contains(token) || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (BufferedWriter out : writers.values()) {
+            synchronized (out) {
+                out.close();
+            }
+        }
+        writers.clear();
+    }
+}
@@ -0,0 +1,748 @@
+package fqlite.export;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/// Writes the HTML report of a recovery run without holding it in memory.
+///
+/// The report page only contains the metadata, the table headers, the
+/// filter fields and the script. The rows go into a folder next to the
+/// report (`<report>_data`), in shards of `SHARD_ROWS` rows: the rows of a
+/// shard as JSON, gzipped and base64-encoded into a small script file that
+/// hands them to the report (`fqliteShard(...)`). Script files can be
+/// loaded by a report that was opened from disk, where `fetch()` is not
+/// allowed. The page loads the shards it shows, plus all shards of a table
+/// once while filtering or sorting - only the row numbers of the hits are
+/// kept, and the last few shards are cached.
+///
+/// The writer takes the rows one after the other; it never holds more
+/// than the current shard, so the memory use of an export does not depend
+/// on the number of rows.
+///
+/// Usage: `beginTable()`, `addRow()` for every row, `endTable()`, and so on
+/// for the next table; `close()` finishes the page.
+///
+/// @author D. Pawlaszczyk
+public class HtmlReportWriter implements Closeable {
+
+    /// rows per shard file
+    public static final int SHARD_ROWS = 1000;
+
+    /// A cell that links to an exported BLOB file.
+    ///
+    /// @param href path of the file, relative to the report
+    /// @param image true, to show a preview of the image
+    public record Link(String href, boolean image) {
+    }
+
+    private final Writer out;
+    private final File datadir;
+    private final String dataurl;
+
+    private int tables = 0;
+
+    /* the current table */
+    private int table = -1;
+    private long rows;
+    private int shards;
+    private StringBuilder shard;
+    private int shardrows;
+
+    /**
+     * Creates the report and writes the page head, the title and the metadata.
+     *
+     * @param target the HTML file
+     * @param title name of the exported database
+     * @param metadata the HTML of the metadata section
+     * @throws IOException if the report cannot be written
+     */
+    public HtmlReportWriter(File target, String title, String metadata) throws IOException {
+        String name = target.getName();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0 ? name.substring(0, dot) : name) + "_data";
+
+        datadir = new File(target.getAbsoluteFile().getParentFile(), base);
+        Files.createDirectories(datadir.toPath());
+        dataurl = URLEncoder.encode(base, StandardCharsets.UTF_8).replace("+", "%20") + "/";
+
+        out = new BufferedWriter(Files.newBufferedWriter(target.toPath(), StandardCharsets.UTF_8), 1 << 16);
+        out.write(HEAD);
+        out.write(SCRIPT);
+        out.write("</head>\n");
+        out.write("<body>\n");
+        out.write("<div class='container'>\n");
+        out.write("<h1>database export: " + escapeHtml(title) + "</h1>\n");
+        out.write(metadata);
+    }
+
+    /**
+     * Starts the section of a table.
+     *
+     * @param name the table name
+     * @param headers the column names, may be null
+     * @throws IOException if the report cannot be written
+     */
+    public void beginTable(String name, String[] headers) throws IOException {
+        if (table >= 0)
+            endTable();
+
+        table = tables++;
+        rows = 0;
+        shards = 0;
+        shard = new StringBuilder(1 << 16);
+        shardrows = 0;
+
+        out.write("<div class='table-section' id='t" + table + "'>\n");
+        out.write("<h2>" + escapeHtml(name) + "</h2>\n");
+
+        out.write("<div class='filter-row'>\n");
+        out.write("<input type='text' class='global-filter-input' ");
+        out.write("placeholder='Search in complete table...' ");
+        out.write("oninput=\"applyFilters(" + table + ")\">\n");
+        out.write("</div>\n");
+        out.write("<div class='table-wrapper'>\n");
+        out.write("<table class='data-table'>\n");
+
+        if (headers != null && headers.length > 0) {
+            out.write("<thead>\n");
+            out.write("<tr class='header-row'>\n");
+            for (int colIndex = 0; colIndex < headers.length; colIndex++) {
+                out.write("<th onclick=\"sortTable(" + table + ", " + colIndex + ")\">");
+                out.write(escapeHtml(headers[colIndex]));
+                out.write(" <span class='sort-indicator'></span>");
+                out.write("</th>\n");
+            }
+            out.write("</tr>\n");
+
+            out.write("<tr class='filter-row'>\n");
+            for (int colIndex = 0; colIndex < headers.length; colIndex++) {
+                out.write("<th>");
+                out.write("<input type='text' class='column-filter' ");
+                out.write("data-column='" + colIndex + "' ");
+                out.write("placeholder='Filter...' ");
+                out.write("oninput=\"applyFilters(" + table + ")\">");
+                out.write("</th>\n");
+            }
+            out.write("</tr>\n");
+            out.write("</thead>\n");
+        }
+
+        out.write("<tbody></tbody>\n");
+        out.write("</table>\n");
+        out.write("</div>\n");
+    }
+
+    /**
+     * Adds a row to the current table.
+     *
+     * @param cells the cells: String (shown as text), {@link Link} or null
+     * @throws IOException if a shard cannot be written
+     */
+    public void addRow(List<?> cells) throws IOException {
+        shard.append(shardrows == 0 ? "[" : ",").append('[');
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0)
+                shard.append(',');
+            Object c = cells.get(i);
+            if (c instanceof Link link) {
+                shard.append("{\"l\":");
+                JsonLinesRecordSink.escape(shard, link.href());
+                shard.append(",\"i\":").append(link.image()).append('}');
+            } else {
+                JsonLinesRecordSink.escape(shard, c == null ? null : c.toString());
+            }
+        }
+        shard.append(']');
+        rows++;
+
+        if (++shardrows == SHARD_ROWS)
+            flushShard();
+    }
+
+    /**
+     * Finishes the section of the current table.
+     * @throws IOException if the report cannot be written
+     */
+    public void endTable() throws IOException {
+        if (table < 0)
+            return;
+        if (shardrows > 0)
+            flushShard();
+
+        out.write("<div class='pagination-container'>\n");
+        out.write("<div class='pagination-info'>\n");
+        out.write("<span class='showing-info' id='showing-" + table + "'></span>\n");
+        out.write("</div>\n");
+        out.write("<div class='pagination-controls'>\n");
+        out.write("<label>lines per page: ");
+        out.write("<select class='rows-per-page' onchange=\"changeRowsPerPage(" + table + ", this.value)\">\n");
+        out.write("<option value='10'>10</option>\n");
+        out.write("<option value='25' selected>25</option>\n");
+        out.write("<option value='50'>50</option>\n");
+        out.write("<option value='100'>100</option>\n");
+        out.write("<option value='500'>500</option>\n");
+        out.write("</select>\n");
+        out.write("</label>\n");
+        out.write("<div class='pagination-buttons' id='pagination-" + table + "'></div>\n");
+        out.write("</div>\n");
+        out.write("</div>\n");
+
+        out.write("</div>\n");
+
+        StringBuilder dir = new StringBuilder();
+        JsonLinesRecordSink.escape(dir, dataurl + "t" + table + "_");
+        out.write("<script>registerTable(" + table + ", {rows: " + rows + ", shards: " + shards
+                + ", dir: " + dir.toString().replace("<", "\\u003c") + "});</script>\n\n");
+
+        table = -1;
+        shard = null;
+    }
+
+    /**
+     * Finishes the report.
+     * @throws IOException if the report cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endTable();
+            out.write("</div>\n");
+            out.write("</body>\n</html>");
+        } finally {
+            out.close();
+        }
+    }
+
+    /* gzip + base64 of the rows collected so far, as a script file */
+    private void flushShard() throws IOException {
+        shard.append(']');
+
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream(shard.length() / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(zipped, 1 << 16)) {
+            gz.write(shard.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        File f = new File(datadir, "t" + table + "_" + shards + ".js");
+        try (Writer w = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            w.write("fqliteShard(" + table + "," + shards + ",\"");
+            w.write(Base64.getEncoder().encodeToString(zipped.toByteArray()));
+            w.write("\");\n");
+        }
+
+        shards++;
+        shard.setLength(0);
+        shardrows = 0;
+    }
+
+    private static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&#39;");
+    }
+
+    /* page head and style sheet of the report */
+    private static final String HEAD = "<!DOCTYPE html>\n" +
+            "<html lang='de'>\n" +
+            "<head>\n" +
+            "<meta charset='UTF-8'>\n" +
+            "<meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
+            "<title>Datenbank Export</title>\n" +
+            "<style>\n" +
+            "* {\n" +
+            "    box-sizing: border-box;\n" +
+            "}\n" +
+            "body {\n" +
+            "    font-family: Arial, sans-serif;\n" +
+            "    margin: 0;\n" +
+            "    padding: 20px;\n" +
+            "    background-color: #f5f5f5;\n" +
+            "}\n" +
+            ".container {\n" +
+            "    max-width: 1400px;\n" +
+            "    margin: 0 auto;\n" +
+            "    background: white;\n" +
+            "    padding: 20px;\n" +
+            "    border-radius: 8px;\n" +
+            "    box-shadow: 0 2px 4px rgba(0,0,0,0.1);\n" +
+            "}\n" +
+            "h1 {\n" +
+            "    color: #333;\n" +
+            "    border-bottom: 3px solid #4CAF50;\n" +
+            "    padding-bottom: 10px;\n" +
+            "    margin-top: 0;\n" +
+            "}\n" +
+            "h2 {\n" +
+            "    color: #555;\n" +
+            "    margin-top: 30px;\n" +
+            "    margin-bottom: 15px;\n" +
+            "}\n" +
+            ".metadata-section {\n" +
+            "    background-color: #f9f9f9;\n" +
+            "    border: 1px solid #e0e0e0;\n" +
+            "    border-radius: 6px;\n" +
+            "    padding: 20px;\n" +
+            "    margin-bottom: 30px;\n" +
+            "}\n" +
+            ".metadata-section h2 {\n" +
+            "    margin-top: 0;\n" +
+            "    color: #333;\n" +
+            "    font-size: 1.3em;\n" +
+            "    border-bottom: 2px solid #4CAF50;\n" +
+            "    padding-bottom: 8px;\n" +
+            "}\n" +
+            ".metadata-grid {\n" +
+            "    display: grid;\n" +
+            "    grid-template-columns: repeat(auto-fit, minmax(400px, 1fr));\n" +
+            "    gap: 20px;\n" +
+            "}\n" +
+            ".metadata-column {\n" +
+            "    display: flex;\n" +
+            "    flex-direction: column;\n" +
+            "    gap: 12px;\n" +
+            "}\n" +
+            ".metadata-row {\n" +
+            "    display: grid;\n" +
+            "    grid-template-columns: 150px 1fr;\n" +
+            "    gap: 10px;\n" +
+            "    padding: 8px 0;\n" +
+            "    border-bottom: 1px solid #e8e8e8;\n" +
+            "}\n" +
+            ".metadata-row:last-child {\n" +
+            "    border-bottom: none;\n" +
+            "}\n" +
+            ".metadata-label {\n" +
+            "    font-weight: bold;\n" +
+            "    color: #555;\n" +
+            "    align-self: start;\n" +
+            "}\n" +
+            ".metadata-value {\n" +
+            "    color: #333;\n" +
+            "    word-break: break-all;\n" +
+            "}\n" +
+            ".metadata-value.monospace {\n" +
+            "    font-family: 'Courier New', monospace;\n" +
+            "    font-size: 0.9em;\n" +
+            "    background-color: #f5f5f5;\n" +
+            "    padding: 4px 8px;\n" +
+            "    border-radius: 3px;\n" +
+            "}\n" +
+            ".no-data {\n" +
+            "    color: #999;\n" +
+            "    font-style: italic;\n" +
+            "}\n" +
+            ".table-section {\n" +
+            "    margin-bottom: 40px;\n" +
+            "}\n" +
+            ".filter-row {\n" +
+            "    margin-bottom: 15px;\n" +
+            "}\n" +
+            ".global-filter-input {\n" +
+            "    width: 100%;\n" +
+            "    padding: 10px;\n" +
+            "    border: 2px solid #ddd;\n" +
+            "    border-radius: 4px;\n" +
+            "    font-size: 14px;\n" +
+            "}\n" +
+            ".global-filter-input:focus {\n" +
+            "    outline: none;\n" +
+            "    border-color: #4CAF50;\n" +
+            "}\n" +
+            ".table-wrapper {\n" +
+            "    overflow-x: auto;\n" +
+            "    margin-bottom: 15px;\n" +
+            "}\n" +
+            ".data-table {\n" +
+            "    width: 100%;\n" +
+            "    border-collapse: collapse;\n" +
+            "    box-shadow: 0 1px 3px rgba(0,0,0,0.1);\n" +
+            "}\n" +
+            ".data-table thead {\n" +
+            "    background-color: #4CAF50;\n" +
+            "    color: white;\n" +
+            "    position: sticky;\n" +
+            "    top: 0;\n" +
+            "    z-index: 10;\n" +
+            "}\n" +
+            ".data-table thead .header-row th {\n" +
+            "    cursor: pointer;\n" +
+            "    user-select: none;\n" +
+            "    position: relative;\n" +
+            "    padding-right: 25px;\n" +
+            "}\n" +
+            ".data-table thead .header-row th:hover {\n" +
+            "    background-color: #45a049;\n" +
+            "}\n" +
+            ".sort-indicator {\n" +
+            "    position: absolute;\n" +
+            "    right: 8px;\n" +
+            "    top: 50%;\n" +
+            "    transform: translateY(-50%);\n" +
+            "}\n" +
+            ".sort-indicator::after {\n" +
+            "    content: '⇅';\n" +
+            "    opacity: 0.5;\n" +
+            "}\n" +
+            ".sort-indicator.asc::after {\n" +
+            "    content: '▲';\n" +
+            "    opacity: 1;\n" +
+            "}\n" +
+            ".sort-indicator.desc::after {\n" +
+            "    content: '▼';\n" +
+            "    opacity: 1;\n" +
+            "}\n" +
+            ".data-table th,\n" +
+            ".data-table td {\n" +
+            "    padding: 12px;\n" +
+            "    text-align: left;\n" +
+            "    border-bottom: 1px solid #ddd;\n" +
+            "}\n" +
+            ".data-table .filter-row {\n" +
+            "    background-color: #f8f8f8;\n" +
+            "}\n" +
+            ".column-filter {\n" +
+            "    width: 100%;\n" +
+            "    padding: 6px;\n" +
+            "    border: 1px solid #ccc;\n" +
+            "    border-radius: 3px;\n" +
+            "    font-size: 12px;\n" +
+            "}\n" +
+            ".column-filter:focus {\n" +
+            "    outline: none;\n" +
+            "    border-color: #4CAF50;\n" +
+            "}\n" +
+            ".data-table tbody tr:hover {\n" +
+            "    background-color: #f5f5f5;\n" +
+            "}\n" +
+            ".pagination-container {\n" +
+            "    display: flex;\n" +
+            "    justify-content: space-between;\n" +
+            "    align-items: center;\n" +
+            "    padding: 15px 0;\n" +
+            "    flex-wrap: wrap;\n" +
+            "    gap: 15px;\n" +
+            "}\n" +
+            ".pagination-info {\n" +
+            "    color: #666;\n" +
+            "    font-size: 14px;\n" +
+            "}\n" +
+            ".pagination-controls {\n" +
+            "    display: flex;\n" +
+            "    align-items: center;\n" +
+            "    gap: 15px;\n" +
+            "}\n" +
+            ".rows-per-page {\n" +
+            "    padding: 6px 10px;\n" +
+            "    border: 1px solid #ddd;\n" +
+            "    border-radius: 4px;\n" +
+            "    font-size: 14px;\n" +
+            "}\n" +
+            ".pagination-buttons {\n" +
+            "    display: flex;\n" +
+            "    gap: 5px;\n" +
+            "}\n" +
+            ".page-btn {\n" +
+            "    padding: 6px 12px;\n" +
+            "    border: 1px solid #ddd;\n" +
+            "    background-color: white;\n" +
+            "    cursor: pointer;\n" +
+            "    border-radius: 4px;\n" +
+            "    font-size: 14px;\n" +
+            "    transition: all 0.2s;\n" +
+            "}\n" +
+            ".page-btn:hover:not(:disabled) {\n" +
+            "    background-color: #4CAF50;\n" +
+            "    color: white;\n" +
+            "    border-color: #4CAF50;\n" +
+            "}\n" +
+            ".page-btn.active {\n" +
+            "    background-color: #4CAF50;\n" +
+            "    color: white;\n" +
+            "    border-color: #4CAF50;\n" +
+            "}\n" +
+            ".page-btn:disabled {\n" +
+            "    opacity: 0.5;\n" +
+            "    cursor: not-allowed;\n" +
+            "}\n" +
+            "@media (max-width: 768px) {\n" +
+            "    .metadata-grid {\n" +
+            "        grid-template-columns: 1fr;\n" +
+            "    }\n" +
+            "    .metadata-row {\n" +
+            "        grid-template-columns: 120px 1fr;\n" +
+            "    }\n" +
+            "    .pagination-container {\n" +
+            "        flex-direction: column;\n" +
+            "    }\n" +
+            "}\n" +
+            "</style>\n";
+
+    /* the report code: pages of rows are read from the shards on demand */
+    private static final String SCRIPT = """
+            <script>
+            const SHARD_ROWS = @SHARD_ROWS@;
+            const CACHED_SHARDS = 8;
+            const tables = {};
+            const arrived = {};
+
+            // called by a shard file: fqliteShard(table, shard, base64 of gzipped JSON)
+            function fqliteShard(t, s, data) {
+                const cb = arrived[t + '_' + s];
+                delete arrived[t + '_' + s];
+                if (cb) cb(data);
+            }
+
+            async function decode(b64) {
+                const bin = atob(b64);
+                const bytes = new Uint8Array(bin.length);
+                for (let i = 0; i < bin.length; i++) bytes[i] = bin.charCodeAt(i);
+                const stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('gzip'));
+                return JSON.parse(await new Response(stream).text());
+            }
+
+            // shards are script files - this works for reports opened from disk, too
+            function loadShard(t, s) {
+                const state = tables[t];
+                if (state.cache.has(s)) {
+                    const rows = state.cache.get(s);
+                    state.cache.delete(s);
+                    state.cache.set(s, rows);
+                    return Promise.resolve(rows);
+                }
+                if (state.loading.has(s)) return state.loading.get(s);
+                const p = new Promise((resolve, reject) => {
+                    arrived[t + '_' + s] = data => decode(data).then(resolve, reject);
+                    const el = document.createElement('script');
+                    el.src = state.dir + s + '.js';
+                    el.onload = () => el.remove();
+                    el.onerror = () => {
+                        delete arrived[t + '_' + s];
+                        el.remove();
+                        reject(new Error('cannot load ' + el.src));
+                    };
+                    document.head.appendChild(el);
+                }).then(rows => {
+                    state.loading.delete(s);
+                    state.cache.set(s, rows);
+                    while (state.cache.size > CACHED_SHARDS) state.cache.delete(state.cache.keys().next().value);
+                    return rows;
+                }, err => {
+                    state.loading.delete(s);
+                    throw err;
+                });
+                state.loading.set(s, p);
+                return p;
+            }
+
+            function cellText(c) {
+                return c == null ? '' : (typeof c === 'string' ? c : c.l);
+            }
+
+            function registerTable(t, info) {
+                tables[t] = {
+                    rows: info.rows,
+                    shards: info.shards,
+                    dir: info.dir,
+                    cache: new Map(),
+                    loading: new Map(),
+                    view: null,
+                    currentPage: 1,
+                    rowsPerPage: 25,
+                    sortColumn: -1,
+                    sortDirection: 'asc',
+                    query: 0,
+                    page: 0,
+                    timer: null
+                };
+                updatePagination(t);
+            }
+
+            function applyFilters(t) {
+                const state = tables[t];
+                clearTimeout(state.timer);
+                state.timer = setTimeout(() => runQuery(t), 300);
+            }
+
+            function sortTable(t, columnIndex) {
+                const state = tables[t];
+                if (state.sortColumn === columnIndex) {
+                    state.sortDirection = state.sortDirection === 'asc' ? 'desc' : 'asc';
+                } else {
+                    state.sortColumn = columnIndex;
+                    state.sortDirection = 'asc';
+                }
+                const indicators = document.getElementById('t' + t).querySelectorAll('.sort-indicator');
+                indicators.forEach(indicator => indicator.className = 'sort-indicator');
+                if (indicators[columnIndex]) indicators[columnIndex].classList.add(state.sortDirection);
+                runQuery(t);
+            }
+
+            function compareCells(a, b) {
+                const numA = parseFloat(a);
+                const numB = parseFloat(b);
+                if (!isNaN(numA) && !isNaN(numB)) return numA - numB;
+                return a.localeCompare(b, 'de');
+            }
+
+            // filters and sorts by reading all shards once; only row numbers (and sort keys) are kept
+            async function runQuery(t) {
+                const state = tables[t];
+                const query = ++state.query;
+                const section = document.getElementById('t' + t);
+                const globalFilter = section.querySelector('.global-filter-input').value.toLowerCase();
+                const columnFilters = Array.from(section.querySelectorAll('.column-filter'))
+                    .map(input => ({ column: parseInt(input.dataset.column), value: input.value.toLowerCase() }))
+                    .filter(f => f.value);
+
+                if (!globalFilter && columnFilters.length === 0 && state.sortColumn < 0) {
+                    state.view = null;
+                    state.currentPage = 1;
+                    return updatePagination(t);
+                }
+
+                const hits = [];
+                const info = document.getElementById('showing-' + t);
+                for (let s = 0; s < state.shards; s++) {
+                    const rows = await loadShard(t, s);
+                    if (query !== state.query) return;
+                    for (let i = 0; i < rows.length; i++) {
+                        const cells = rows[i];
+                        if (globalFilter && !cells.some(c => cellText(c).toLowerCase().indexOf(globalFilter) !== -1)) continue;
+                        if (!columnFilters.every(f => cellText(cells[f.column]).toLowerCase().indexOf(f.value) !== -1)) continue;
+                        const id = s * SHARD_ROWS + i;
+                        hits.push(state.sortColumn >= 0 ? [id, cellText(cells[state.sortColumn]).trim()] : [id]);
+                    }
+                    info.textContent = `Suche... ${s + 1}/${state.shards}`;
+                }
+
+                if (state.sortColumn >= 0) {
+                    const dir = state.sortDirection === 'asc' ? 1 : -1;
+                    hits.sort((a, b) => dir * compareCells(a[1], b[1]));
+                }
+                state.view = hits.map(h => h[0]);
+                state.currentPage = 1;
+                updatePagination(t);
+            }
+
+            function changeRowsPerPage(t, value) {
+                const state = tables[t];
+                state.rowsPerPage = parseInt(value);
+                state.currentPage = 1;
+                updatePagination(t);
+            }
+
+            function changePage(t, page) {
+                tables[t].currentPage = page;
+                updatePagination(t);
+            }
+
+            function renderCell(c) {
+                const td = document.createElement('td');
+                if (c != null && typeof c !== 'string') {
+                    const a = document.createElement('a');
+                    a.href = c.l;
+                    if (c.i) {
+                        const img = document.createElement('img');
+                        img.src = c.l;
+                        img.width = 40;
+                        img.height = 40;
+                        img.alt = 'preview';
+                        a.appendChild(img);
+                    } else {
+                        a.textContent = c.l;
+                    }
+                    td.appendChild(a);
+                } else {
+                    td.textContent = c == null ? '' : c;
+                }
+                return td;
+            }
+
+            async function updatePagination(t) {
+                const state = tables[t];
+                const page = ++state.page;
+                const totalRows = state.view ? state.view.length : state.rows;
+                const totalPages = Math.ceil(totalRows / state.rowsPerPage);
+
+                const startIndex = (state.currentPage - 1) * state.rowsPerPage;
+                const endIndex = Math.min(startIndex + state.rowsPerPage, totalRows);
+
+                const ids = [];
+                for (let i = startIndex; i < endIndex; i++) ids.push(state.view ? state.view[i] : i);
+                const rows = await Promise.all(ids.map(id =>
+                    loadShard(t, Math.floor(id / SHARD_ROWS)).then(shard => shard[id % SHARD_ROWS])));
+                if (page !== state.page) return;
+
+                const tbody = document.getElementById('t' + t).querySelector('tbody');
+                tbody.replaceChildren(...rows.map(cells => {
+                    const tr = document.createElement('tr');
+                    cells.forEach(c => tr.appendChild(renderCell(c)));
+                    return tr;
+                }));
+
+                const showingInfo = document.getElementById('showing-' + t);
+                if (totalRows === 0) {
+                    showingInfo.textContent = 'Keine Ergebnisse';
+                } else {
+                    showingInfo.textContent = `Zeige ${startIndex + 1}-${endIndex} von ${totalRows} Zeilen`;
+                }
+
+                const paginationDiv = document.getElementById('pagination-' + t);
+                paginationDiv.innerHTML = '';
+
+                if (totalPages <= 1) return;
+
+                const button = (text, target, active, disabled) => {
+                    const btn = document.createElement('button');
+                    btn.className = 'page-btn' + (active ? ' active' : '');
+                    btn.textContent = text;
+                    btn.disabled = disabled;
+                    btn.onclick = () => changePage(t, target);
+                    paginationDiv.appendChild(btn);
+                };
+                const dots = () => {
+                    const span = document.createElement('span');
+                    span.textContent = '...';
+                    span.style.padding = '6px';
+                    paginationDiv.appendChild(span);
+                };
+
+                button('«', state.currentPage - 1, false, state.currentPage === 1);
+
+                const maxButtons = 5;
+                let startPage = Math.max(1, state.currentPage - Math.floor(maxButtons / 2));
+                let endPage = Math.min(totalPages, startPage + maxButtons - 1);
+                if (endPage - startPage < maxButtons - 1) {
+                    startPage = Math.max(1, endPage - maxButtons + 1);
+                }
+
+                if (startPage > 1) {
+                    button('1', 1, false, false);
+                    if (startPage > 2) dots();
+                }
+                for (let i = startPage; i <= endPage; i++) {
+                    button(String(i), i, i === state.currentPage, false);
+                }
+                if (endPage < totalPages) {
+                    if (endPage < totalPages - 1) dots();
+                    button(String(totalPages), totalPages, false, false);
+                }
+
+                button('»', state.currentPage + 1, false, state.currentPage === totalPages);
+            }
+            </script>
+            """.replace("@SHARD_ROWS@", String.valueOf(SHARD_ROWS));
+
+}
@@ -0,0 +1,94 @@
+package fqlite.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import fqlite.base.DataRow;
+import fqlite.log.AppLog;
+
+/// Streams the recovered rows into a single JSON-lines file. Every line is
+/// one self-contained JSON object:
+///
+/// `{"table":"messages","values":["D","4096","12",...]}`
+///
+/// @author D. Pawlaszczyk
+public class JsonLinesRecordSink implements RecordSink {
+
+    private final BufferedWriter out;
+
+    /**
+     * Constructor.
+     * @param file the output file, will be overwritten
+     * @throws IOException if the file cannot be created
+     */
+    public JsonLinesRecordSink(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null)
+            Files.createDirectories(parent.toPath());
+        out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void accept(DataRow row) {
+        List<String> line = row.line();
+
+        StringBuilder sb = new StringBuilder(64 + line.size() * 16);
+        sb.append("{\"table\":");
+        escape(sb, line.getFirst());
+        sb.append(",\"values\":[");
+        for (int i = 1; i < line.size(); i++) {
+            if (i > 1)
+                sb.append(',');
+            escape(sb, line.get(i));
+        }
+        sb.append("]}\n");
+
+        try {
+            synchronized (out) {
+                out.write(sb.toString());
+            }
+        } catch (IOException e) {
+            AppLog.error("JsonLinesRecordSink: could not write row: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the string as quoted JSON string (or <code>null</code>).
+     * @param sb target
+     * @param s the value
+     */
+    public static void escape(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package fqlite.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import fqlite.base.DataRow;
+
+/// A RecordSink is the last stage of a recovery run. `RecoveryTask`,
+/// `Carver`, `WALReader` and `RollbackJournalReader` hand every recovered
+/// row to a sink instead of storing it themselves.
+///
+/// The GUI uses a `CollectorRecordSink` that keeps the rows in the
+/// well-known result lists for display. In CLI mode the rows can be streamed
+/// straight to a file instead (CSV, JSON-lines or SQLite), so the heap does
+/// not grow with the size of the evidence file.
+///
+/// Implementations must be thread-safe: `accept()` is called by all scan
+/// threads at the same time.
+///
+/// @author D. Pawlaszczyk
+public interface RecordSink extends Closeable {
+
+    /**
+     * Takes one recovered row. The first column holds the table name.
+     * @param row the row together with its raw column bytes
+     */
+    void accept(DataRow row);
+
+    /**
+     * Flushes and releases all resources. Nothing can be added afterwards.
+     */
+    @Override
+    default void close() throws IOException {
+        // nothing to do for in-memory sinks
+    }
+
+    /**
+     * Creates a streaming sink for one of the supported formats.
+     *
+     * @param format one of <code>csv</code>, <code>jsonl</code> or <code>sqlite</code>
+     * @param target output folder (csv) or output file (jsonl, sqlite)
+     * @return a new sink
+     * @throws IOException if the output cannot be created
+     */
+    static RecordSink create(String format, File target) throws IOException {
+        switch (format.toLowerCase()) {
+            case "csv":
+                return new CsvRecordSink(target);
+            case "json":
+            case "jsonl":
+                return new JsonLinesRecordSink(target);
+            case "db":
+            case "sqlite":
+                return new SQLiteRecordSink(target);
+            default:
+                throw new IllegalArgumentException("unknown export format: " + format);
+        }
+    }
+
+    /**
+     * Returns the file suffix used for a given format.
+     * @param format the export format
+     * @return the suffix including the dot, or an empty string for csv (folder)
+     */
+    static String suffix(String format) {
+        switch (format.toLowerCase()) {
+            case "json":
+            case "jsonl":
+                return ".jsonl";
+            case "db":
+            case "sqlite":
+                return "_recovered.db";
+            default:
+                return "";
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package fqlite.export;
 
 import fqlite.analyzer.BLOBCache;
+import fqlite.base.CompactRow;
 import fqlite.base.GUI;
 import fqlite.base.Global;
+import fqlite.descriptor.IndexDescriptor;
 import fqlite.descriptor.TableDescriptor;
 import fqlite.log.AppLog;
 import fqlite.types.BLOBElement;
 import javafx.collections.ObservableList;
-import java.math.BigDecimal;
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 
 /// This class is used to export tables from a recovery run into
 /// a new SQLite database.
 ///
+/// The rows are written by a `SQLiteExportWriter` - one writer thread per
+/// output database, bulk-load settings, indices of the original schema
+/// created after the data. The rows of the tables are turned into typed
+/// values by producer threads, one per table, see `export()`.
+///
 /// @author D. Pawlaszczyk
 public class SQLiteDatabaseCreator {
 
@@ -154,7 +170,7 @@ public class SQLiteDatabaseCreator {
             }
             if (connection != null) {
                 try {
-                    //connection.close();
+                    connection.close();
                 } catch (Exception e) {
                     AppLog.error(e.getMessage());
                     System.err.println("Error while closing the database connection: " + e.getMessage());
@@ -164,6 +180,73 @@ public class SQLiteDatabaseCreator {
     }
 
 
+    /// Exports all tables of a source into the database created by
+    /// `createDatabaseAndSchema()`.
+    ///
+    /// Every table is converted by a producer thread of its own; the
+    /// typed rows go in batches to the writer thread of the database. The
+    /// indices of the original schema are created after the last row.
+    ///
+    /// @param cache the BLOB cache of the job
+    /// @param dbname name of the source database, part of the BLOB keys
+    /// @param tables the table descriptors of the source
+    /// @param indices the index descriptors of the source, may be null
+    /// @param data the rows per table name
+    /// @param isWAL true, if the rows come from a WAL archive
+    /// @throws SQLException in case something went wrong
+    public void export(BLOBCache cache, String dbname, List<TableDescriptor> tables, List<IndexDescriptor> indices,
+                       Map<String, ? extends List<? extends List<String>>> data, boolean isWAL) throws SQLException {
+
+        Map<String, TableDescriptor> exported = new HashMap<>();
+        for (TableDescriptor d : tables) {
+            if (!d.isVirtual() && !d.tblname.startsWith("sqlite_") && data.get(d.tblname) != null)
+                exported.put(d.tblname, d);
+        }
+
+        int threads = Math.max(1, Math.min(exported.size(), Runtime.getRuntime().availableProcessors() - 1));
+        ExecutorService producers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "sqlite-export-producer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (SQLiteExportWriter writer = new SQLiteExportWriter(DB_NAME)) {
+
+            if (indices != null) {
+                for (IndexDescriptor idx : indices) {
+                    String sql = idx.getSql();
+                    if (sql != null && !sql.isEmpty() && exported.containsKey(idx.tablename))
+                        writer.defer(sql);
+                }
+            }
+
+            List<Future<?>> tasks = new ArrayList<>();
+            for (TableDescriptor desc : exported.values()) {
+                List<? extends List<String>> rows = data.get(desc.tblname);
+                tasks.add(producers.submit(() -> {
+                    produce(writer, cache, dbname, desc, rows, isWAL);
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : tasks) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    throw new SQLException("Error while exporting to " + DB_NAME, e.getCause());
+                }
+            }
+
+        } catch (IOException e) {
+            throw new SQLException("Error while exporting to " + DB_NAME, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Export to " + DB_NAME + " was interrupted", e);
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
     /// Insert rows into a database table with a batch insert.
     ///
     /// @param tableName name of the table
@@ -175,8 +258,6 @@ public class SQLiteDatabaseCreator {
         }
 
         TableDescriptor desc = null;
-        List<String> colNames = null;
-
 
         // first we have to find the correct TableDescriptor object from the list
         for (TableDescriptor d: tables) {
@@ -184,151 +265,133 @@ public class SQLiteDatabaseCreator {
                 if(d.isVirtual())
                     return;
                 desc = d;
-                colNames = desc.columnnames;
                 break;
             }
         }
 
-
         if (null == desc)
             return;
 
+        try (SQLiteExportWriter writer = new SQLiteExportWriter(DB_NAME)) {
+            produce(writer, cache, dbname, desc, rows, isWAL);
+        } catch (IOException e) {
+            throw new SQLException("Error while Batch-Insert", e);
+        }
+    }
 
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
-
-        try {
-            connection = DriverManager.getConnection(DB_URL);
-            connection.setAutoCommit(false); // for better performance when inserting many records at once
-
-            int columnCount = rows.size();
+    /// Converts the rows of a table and hands them to the writer in batches.
+    private static void produce(SQLiteExportWriter writer, BLOBCache cache, String dbname, TableDescriptor desc,
+                                List<? extends List<String>> rows, boolean isWAL) throws IOException {
 
-            // first put the standard FQLite columns in front of the statement
-            StringBuilder sql = new StringBuilder("INSERT INTO " + tableName + " ( "+Global.col_no+", "+Global.col_pll+", "+Global.col_rowid+", "+Global.col_status+", "+Global.col_offset+",");
+        String insert = insertSql(desc.tblname, desc.columnnames, isWAL);
+        int width = (isWAL ? 10 : 5) + desc.columnnames.size();
 
-            if(isWAL)
-                sql.append(" " + Global.col_commit + ", " + Global.col_dbpage + ", " + Global.col_walframe + ", " + Global.col_salt1 + " , " + Global.col_salt2 + ", ");
+        BiFunction<String, String, Object> blobs = (cell, offset) -> {
+            BLOBElement b = cache.get(getBLOBKey(cell, dbname, offset));
+            return b != null ? b.binary : null;
+        };
 
-            for (int i = 0; i < colNames.size(); i++) {
-                sql.append(" ")
-                        .append(colNames.get(i));
+        List<Object[]> batch = new ArrayList<>(SQLiteExportWriter.BATCHSIZE);
+        for (int i = 0; i < rows.size(); i++) {
+            batch.add(typedRow(rows.get(i), desc.tblname, i + 1, width, blobs));
+            if (batch.size() == SQLiteExportWriter.BATCHSIZE) {
+                writer.insert(insert, batch);
+                batch = new ArrayList<>(SQLiteExportWriter.BATCHSIZE);
+            }
+        }
+        writer.insert(insert, batch);
+    }
 
-                if (i < colNames.size() - 1) {
-                    sql.append(",");
-                }
+    /// Returns the insert statement for a table created by `createTableSql()`.
+    public static String insertSql(String tableName, List<String> colNames, boolean isWAL) {
 
-            }
+        // first put the standard FQLite columns in front of the statement
+        StringBuilder sql = new StringBuilder("INSERT INTO " + tableName + " ( "+Global.col_no+", "+Global.col_pll+", "+Global.col_rowid+", "+Global.col_status+", "+Global.col_offset+",");
 
-            sql.append(") VALUES (");
+        if(isWAL)
+            sql.append(" " + Global.col_commit + ", " + Global.col_dbpage + ", " + Global.col_walframe + ", " + Global.col_salt1 + " , " + Global.col_salt2 + ", ");
 
-            int preColumns = 5;
-            if (isWAL)
-                preColumns = 10;
+        for (int i = 0; i < colNames.size(); i++) {
+            sql.append(" ")
+                    .append(colNames.get(i));
 
-            // number of columns in the row without the table name column at index 1
-            for (int i = 0; i < (preColumns + colNames.size()); i++) {
-                sql.append("? ");
-                if (i < (preColumns + colNames.size() - 1)) {
-                    sql.append(", ");
-                }
+            if (i < colNames.size() - 1) {
+                sql.append(",");
             }
-            sql.append(")");
-            preparedStatement = connection.prepareStatement(sql.toString());
-
-            // create a batch for all data rows to insert into this table
-            for(ObservableList<String> record : rows) {
-                int j = 1;
-                // add all lines to batch
-                for (int pos = 0; pos < record.size(); pos++,j++) {
-
-                    if (pos == 1) {
-                        // skip the column with the table name
-                        j--;
-                        continue;
-                    }
-
-                    String cvalue = record.get(pos);
-                    if (cvalue == null)
-                        cvalue = "";
-
-                    // BLOB handling is different
-                    if (record.get(pos).startsWith("[BLOB-")) {
-                           String key = getBLOBKey(cvalue,dbname,record.get(5));
-                           BLOBElement b = cache.get(key);
-                           if (b != null) {
-                           // write byte-array to statement
-                           preparedStatement.setBytes(j,b.binary);
-                           }
-                    } else {
-                        // for all remaining data types
-                        switch (pos) {
-                            case 0:
-                                preparedStatement.setInt(j, Integer.parseUnsignedInt(cvalue));
-                                break;
-                            case 2:
-                                preparedStatement.setString(j, cvalue);
-                                break;
-                            case 3:
-                                preparedStatement.setBigDecimal(j, BigDecimal.valueOf(Long.parseLong(cvalue)));
-                                break;
-                            case 4:
-                                preparedStatement.setString(j, cvalue);
-                                break;
-                            case 5:
-                                preparedStatement.setBigDecimal(j, BigDecimal.valueOf(Long.parseLong(cvalue)));
-                                break;
-                            default:
-                                // let the JDBC driver do the job for you
-                                preparedStatement.setObject(j, cvalue);
-
-                        }
-
-                    }
-                }
-                preparedStatement.addBatch();
+        }
 
-                // execute directly
-                int[] results = preparedStatement.executeBatch();
+        sql.append(") VALUES (");
 
-                // clear parameters before inserting next row
-                preparedStatement.clearBatch();
-            }
+        int preColumns = isWAL ? 10 : 5;
+        for (int i = 0; i < (preColumns + colNames.size()); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(")");
+        return sql.toString();
+    }
 
-            // make changes persistent with a commit
-            connection.commit();
+    /// Turns a result row into the values of `insertSql()`.
+    ///
+    /// The row is either a raw row of the result list (table name in front)
+    /// or a row the GUI has shown - then the line number is in front of the
+    /// table name. Line number, rowid and offset become numbers, a number
+    /// cell of a `CompactRow` is taken as it is, without parsing. BLOB cells
+    /// (`[BLOB-n]`) are replaced by the value of `blobs` for cell and offset.
+    ///
+    /// @param row the row
+    /// @param tableName name of the table
+    /// @param number line number, used if the row does not have one
+    /// @param width number of values: FQLite columns plus table columns
+    /// @param blobs the value of a BLOB cell
+    /// @return the values, missing cells are null
+    public static Object[] typedRow(List<String> row, String tableName, long number, int width,
+                                    BiFunction<String, String, Object> blobs) {
+
+        // one get() per cell - a sequential list is copied once
+        if (!(row instanceof RandomAccess))
+            row = new ArrayList<>(row);
+
+        Object[] values = new Object[width];
+        int first = !row.isEmpty() && tableName.equals(row.get(0)) ? 0 : 1;
+
+        values[0] = number;
+        if (first == 1) {
+            Object no = number(row, 0);
+            if (no instanceof Long)
+                values[0] = no;
+        }
 
-        } catch (Exception e) {
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Error while rollback: " + rollbackEx.getMessage());
-                }
-            }
-            throw new SQLException("Error while Batch-Insert", e);
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.setAutoCommit(true);
-                } catch (SQLException e) {
-                    System.err.println("Error while set back AutoCommit: " + e.getMessage());
-                }
-            }
-            if (preparedStatement != null) {
-                try {
-                    preparedStatement.close();
-                } catch (SQLException e) {
-                    System.err.println("Error while closing prepared statements: " + e.getMessage());
-                }
-            }
-            if (connection != null) {
-                try {
-                    //connection.close();
-                } catch (Exception e) {
-                    System.err.println("Error while closing connection to database: " + e.getMessage());
-                }
+        // value k is the cell behind the table name: pll, rowid, status, offset, ...
+        for (int k = 1; k < width && first + k < row.size(); k++) {
+            int pos = first + k;
+            String cell = row.get(pos);
+            if (cell == null)
+                cell = "";
+
+            if (cell.startsWith("[BLOB-")) {
+                String offset = first + 4 < row.size() ? row.get(first + 4) : "";
+                values[k] = blobs.apply(cell, offset == null ? "" : offset);
+            } else if (k == 2 || k == 4) {
+                values[k] = cell.isEmpty() ? Long.valueOf(0) : number(row, pos);
+            } else if (row instanceof CompactRow c && c.kind(pos) == CompactRow.LONG) {
+                values[k] = c.getLong(pos);
+            } else {
+                values[k] = cell;
             }
         }
+        return values;
+    }
+
+    /* a cell as Long if it is a number, else as String */
+    private static Object number(List<String> row, int pos) {
+        if (row instanceof CompactRow c && c.kind(pos) == CompactRow.LONG)
+            return c.getLong(pos);
+        String cell = row.get(pos);
+        try {
+            return Long.valueOf(cell);
+        } catch (NumberFormatException e) {
+            return cell;
+        }
     }
 
     public static String getBLOBKey(String cellValue, String dbname, String off) {
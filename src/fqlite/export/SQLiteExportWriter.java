@@ -0,0 +1,268 @@
+package fqlite.export;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import fqlite.log.AppLog;
+
+/// Bulk loader for one output database.
+///
+/// All JDBC work on the file is done by one writer thread that owns the
+/// connection. Producers - the threads that read or recover the rows -
+/// turn a row into an array of typed values (`Long`, `Double`, `String`,
+/// `byte[]` or `null`) and hand batches of rows to the writer through a
+/// bounded queue. The queue blocks the producers when the writer falls
+/// behind, so the rows in flight stay bounded.
+///
+/// While loading, the database runs without a rollback journal, without
+/// syncs, with a large page cache and an exclusive lock; everything is one
+/// transaction. Statements given to `defer()` (e.g. `CREATE INDEX`) are run
+/// after the last row, building an index once is much cheaper than keeping
+/// it up to date with every insert.
+///
+/// Work is executed in the order it was submitted, so a `CREATE TABLE`
+/// submitted before the rows of the table is in place when they arrive.
+///
+/// @author D. Pawlaszczyk
+public class SQLiteExportWriter implements AutoCloseable {
+
+    /// rows per batch handed to the writer (a hint for producers)
+    public static final int BATCHSIZE = 2000;
+
+    /* batches waiting for the writer */
+    static final int QUEUE = 32;
+
+    /* page cache of the output database in KiB (negative: size instead of pages) */
+    static final int CACHE_KIB = 256 * 1024;
+
+    /* one piece of work for the writer: a statement, or an insert statement with its rows */
+    private record Work(String sql, List<Object[]> rows) {
+    }
+
+    private static final Work END = new Work(null, null);
+
+    private final String path;
+    private final BlockingQueue<Work> queue = new ArrayBlockingQueue<>(QUEUE);
+    private final List<String> deferred = new ArrayList<>();
+    private final Thread writer;
+
+    private volatile Throwable failure;
+    private long rows = 0;
+    private boolean closed = false;
+
+    /**
+     * Opens (or creates) the database and starts the writer thread.
+     * @param path the database file
+     * @throws IOException if the database cannot be opened
+     */
+    public SQLiteExportWriter(String path) throws IOException {
+        this.path = path;
+
+        Connection connection;
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+            try (Statement st = connection.createStatement()) {
+                st.execute("PRAGMA journal_mode=OFF");
+                st.execute("PRAGMA synchronous=OFF");
+                st.execute("PRAGMA cache_size=-" + CACHE_KIB);
+                st.execute("PRAGMA locking_mode=EXCLUSIVE");
+                st.execute("PRAGMA temp_store=MEMORY");
+            }
+            connection.setAutoCommit(false);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open " + path + ": " + e.getMessage(), e);
+        }
+
+        /* a daemon - should the owner never call close(), the thread does not keep the VM alive */
+        writer = new Thread(() -> write(connection), "sqlite-export-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Runs a statement on the writer thread, after all work submitted so far.
+     * @param sql e.g. a CREATE TABLE statement
+     * @throws IOException if the writer has failed
+     */
+    public void execute(String sql) throws IOException {
+        put(new Work(sql, null));
+    }
+
+    /**
+     * Remembers a statement that is run after the last row, before the
+     * database is closed - e.g. a CREATE INDEX statement. A deferred
+     * statement that fails is logged, not reported.
+     * @param sql the statement
+     */
+    public synchronized void defer(String sql) {
+        deferred.add(sql);
+    }
+
+    /**
+     * Hands a batch of rows to the writer. Blocks while the queue is full.
+     * The batch must not be changed afterwards.
+     *
+     * @param insert the insert statement, one parameter per value
+     * @param batch the rows, see {@link #bind(PreparedStatement, Object[])}
+     * @throws IOException if the writer has failed
+     */
+    public void insert(String insert, List<Object[]> batch) throws IOException {
+        if (!batch.isEmpty())
+            put(new Work(insert, batch));
+    }
+
+    /**
+     * Waits for the writer to store all rows, runs the deferred statements,
+     * commits and closes the database.
+     * @throws IOException if a row could not be stored
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+            throw new IOException("Export of " + path + " was interrupted", e);
+        }
+        check();
+    }
+
+    /**
+     * Binds the values of a row to the parameters of a statement.
+     * @param ps the statement
+     * @param values Long, Integer, Double, String, byte[] or null
+     * @throws SQLException if a value cannot be bound
+     */
+    public static void bind(PreparedStatement ps, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object v = values[i];
+            int j = i + 1;
+            if (v == null)
+                ps.setNull(j, Types.NULL);
+            else if (v instanceof String s)
+                ps.setString(j, s);
+            else if (v instanceof Long l)
+                ps.setLong(j, l);
+            else if (v instanceof Integer n)
+                ps.setInt(j, n);
+            else if (v instanceof Double d)
+                ps.setDouble(j, d);
+            else if (v instanceof byte[] b)
+                ps.setBytes(j, b);
+            else
+                ps.setObject(j, v);
+        }
+    }
+
+    private void put(Work work) throws IOException {
+        check();
+        try {
+            queue.put(work);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export of " + path + " was interrupted", e);
+        }
+    }
+
+    private void check() throws IOException {
+        Throwable t = failure;
+        if (t != null)
+            throw new IOException("Export to " + path + " failed: " + t.getMessage(), t);
+    }
+
+    /**
+     * The loop of the writer thread. After an error the remaining work is
+     * taken from the queue and dropped, so no producer blocks forever.
+     */
+    private void write(Connection connection) {
+        long start = System.currentTimeMillis();
+        Map<String, PreparedStatement> statements = new HashMap<>();
+
+        try {
+            while (true) {
+                Work work = queue.take();
+                if (work == END)
+                    break;
+                if (failure != null)
+                    continue;
+                try {
+                    if (work.rows() == null) {
+                        try (Statement st = connection.createStatement()) {
+                            st.execute(work.sql());
+                        }
+                        continue;
+                    }
+                    PreparedStatement ps = statements.get(work.sql());
+                    if (ps == null) {
+                        ps = connection.prepareStatement(work.sql());
+                        statements.put(work.sql(), ps);
+                    }
+                    for (Object[] row : work.rows()) {
+                        bind(ps, row);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    rows += work.rows().size();
+                } catch (SQLException | RuntimeException e) {
+                    failure = e;
+                    AppLog.error("Export to " + path + " failed: " + e.getMessage());
+                }
+            }
+
+            for (PreparedStatement ps : statements.values())
+                ps.close();
+
+            /* without a journal there is no rollback - what was stored is kept */
+            connection.commit();
+
+            if (failure == null) {
+
+                /* indices are built once, after the data is in place */
+                List<String> after;
+                synchronized (this) {
+                    after = new ArrayList<>(deferred);
+                }
+                for (String sql : after) {
+                    try (Statement st = connection.createStatement()) {
+                        st.execute(sql);
+                    } catch (SQLException e) {
+                        AppLog.warning("Export to " + path + ": could not execute " + sql + ": " + e.getMessage());
+                    }
+                }
+                connection.commit();
+                AppLog.info("Exported " + rows + " rows to " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+            }
+
+        } catch (InterruptedException e) {
+            failure = e;
+        } catch (SQLException e) {
+            failure = e;
+            AppLog.error("Export to " + path + " failed: " + e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                AppLog.error("Error while closing " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package fqlite.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fqlite.base.DataRow;
+import fqlite.log.AppLog;
+
+/// Streams the recovered rows into a new SQLite database. Every table gets
+/// its own table in the output file with generic TEXT columns
+/// (`c1`, `c2`, ...), since deleted records do not always match the declared
+/// schema. A table grows new columns if a wider row shows up later.
+///
+/// The scan threads only collect the cell values into batches of
+/// `BATCHSIZE` rows; the JDBC work is done by the writer thread of a
+/// `SQLiteExportWriter`. Nothing is kept in memory beyond the current
+/// batches and the queue of the writer.
+///
+/// If the writer fails, the rows that follow are dropped and counted;
+/// `close()` then reports the failure.
+///
+/// @author D. Pawlaszczyk
+public class SQLiteRecordSink implements RecordSink {
+
+    static final int BATCHSIZE = SQLiteExportWriter.BATCHSIZE;
+
+    private final SQLiteExportWriter writer;
+
+    /* per output table: insert statement, current column count and pending rows */
+    private final Map<String, String> inserts = new HashMap<>();
+    private final Map<String, Integer> widths = new HashMap<>();
+    private final Map<String, List<Object[]>> pending = new HashMap<>();
+
+    /* first error of the writer, and the rows that did not get into the database */
+    private volatile IOException failure;
+    private final AtomicLong lost = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param file the database file to create
+     * @throws IOException if the database cannot be opened
+     */
+    public SQLiteRecordSink(File file) throws IOException {
+        writer = new SQLiteExportWriter(file.getAbsolutePath());
+    }
+
+    @Override
+    public void accept(DataRow row) {
+        if (failure != null) {
+            lost.incrementAndGet();
+            return;
+        }
+
+        List<String> line = row.line();
+        String tblname = line.getFirst();
+        int width = Math.max(1, line.size() - 1);
+
+        /* the cells are read by the scan thread, outside the lock */
+        Object[] values = new Object[width];
+        for (int i = 1; i <= width && i < line.size(); i++)
+            values[i - 1] = line.get(i);
+
+        try {
+            synchronized (this) {
+                String insert = statement(tblname, width);
+                int cols = widths.get(tblname);
+                if (values.length < cols)
+                    values = Arrays.copyOf(values, cols);
+
+                List<Object[]> batch = pending.computeIfAbsent(tblname, k -> new ArrayList<>(BATCHSIZE));
+                batch.add(values);
+                if (batch.size() >= BATCHSIZE)
+                    writer.insert(insert, pending.remove(tblname));
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = e;
+                    AppLog.error("SQLiteRecordSink: could not insert row into " + tblname + ": " + e.getMessage());
+                }
+            }
+            lost.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the insert statement for the table and makes sure the table
+     * has at least <code>width</code> columns.
+     */
+    private String statement(String tblname, int width) throws IOException {
+        Integer cols = widths.get(tblname);
+        String quoted = "\"" + tblname.replace("\"", "\"\"") + "\"";
+
+        if (cols != null && cols >= width)
+            return inserts.get(tblname);
+
+        if (cols == null) {
+            StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(quoted).append(" (");
+            for (int i = 1; i <= width; i++)
+                sql.append(i > 1 ? ", " : "").append("c").append(i).append(" TEXT");
+            writer.execute(sql.append(")").toString());
+        } else {
+            /* pending rows belong to the old statement */
+            List<Object[]> batch = pending.remove(tblname);
+            if (batch != null)
+                writer.insert(inserts.get(tblname), batch);
+            for (int i = cols + 1; i <= width; i++)
+                writer.execute("ALTER TABLE " + quoted + " ADD COLUMN c" + i + " TEXT");
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(quoted).append(" VALUES (");
+        for (int i = 1; i <= width; i++)
+            sql.append(i > 1 ? ",?" : "?");
+        String insert = sql.append(")").toString();
+
+        inserts.put(tblname, insert);
+        widths.put(tblname, width);
+        return insert;
+    }
+
+    /**
+     * Hands the remaining rows to the writer and closes the database.
+     * @throws IOException if the writer failed - rows are missing then
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (failure == null)
+                    for (Map.Entry<String, List<Object[]>> e : pending.entrySet())
+                        writer.insert(inserts.get(e.getKey()), e.getValue());
+                pending.clear();
+            }
+        } finally {
+            writer.close();
+        }
+        if (failure != null)
+            throw new IOException("SQLite export incomplete: " + failure.getMessage()
+                    + " (" + lost.get() + " further rows dropped)", failure);
+    }
+}
@@ -13,6 +13,7 @@ import javafx.util.Duration;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 
@@ -23,15 +24,34 @@ public class SearchDialog extends Dialog<Void> {
 
     private final ConcurrentHashMap<String, ObservableList<ObservableList<String>>> data;
     private final ObservableList<SearchResult> results = FXCollections.observableArrayList();
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SearchIndex index;
+    private final int source;
     private String filename;
 
+    // one search thread per dialog - a new key stroke cancels the running search
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "fts-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> running;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final PauseTransition debounce = new PauseTransition(Duration.millis(150));
+
     // remember last search term
     private static String lastSearchTerm = "";
 
-    public SearchDialog(GUI parent, String filename, ConcurrentHashMap<String, ObservableList<ObservableList<String>>> data, Consumer<SearchResult> onSelect) {
+    /**
+     * @param data the result lists to search in
+     * @param index the search index of the job, may be null - then all cells are compared
+     * @param source the source of the result lists in the index (SearchIndex.DB, WAL or JOURNAL)
+     */
+    public SearchDialog(GUI parent, String filename, ConcurrentHashMap<String, ObservableList<ObservableList<String>>> data,
+                        SearchIndex index, int source, Consumer<SearchResult> onSelect) {
         this.onSelect = onSelect;
         this.data = data;
+        this.index = index != null ? index : new SearchIndex();
+        this.source = source;
         this.filename = filename;
         setTitle("Full-text Search [" + filename + "]");
         setHeaderText(null);
@@ -39,7 +59,10 @@ public class SearchDialog extends Dialog<Void> {
         getDialogPane().setContent(buildContent());
         getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
         getDialogPane().setPrefWidth(580);
-        setOnCloseRequest(e -> executor.shutdownNow());
+        setOnCloseRequest(e -> {
+            debounce.stop();
+            executor.shutdownNow();
+        });
         setOnShown(e -> {
             ThemeManager.register(getDialogPane().getScene());
             searchField.requestFocus();
@@ -104,14 +127,19 @@ public class SearchDialog extends Dialog<Void> {
         });
 
         // --- Live-Search with Debounce ---
+        debounce.setOnFinished(e -> {
+            String term = searchField.getText().trim();
+            int gen = generation.incrementAndGet();
+            if (running != null)
+                running.cancel(true);
+            running = executor.submit(() -> search(term, countLabel, gen));
+        });
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
             lastSearchTerm = newVal.trim(); // remember last search word
-            String term = newVal.trim();
+            generation.incrementAndGet();   // results of the running search are not shown any more
             results.clear();
             countLabel.setText("Searching...");
-            executor.shutdownNow();
-            executor = Executors.newSingleThreadExecutor();
-            executor.submit(() -> search(term, countLabel));
+            debounce.playFromStart();
         });
 
         // restore last search term - trigger new search automatically
@@ -125,34 +153,29 @@ public class SearchDialog extends Dialog<Void> {
         return layout;
     }
 
-    private void search(String term, Label countLabel) {
+    /**
+     * Looks the term up in the search index. The hits come in portions,
+     * best first, and are shown as soon as they arrive.
+     */
+    private void search(String term, Label countLabel, int gen) {
         if (term.isEmpty()) {
-            Platform.runLater(() -> countLabel.setText("0 matches"));
+            Platform.runLater(() -> {
+                if (gen == generation.get())
+                    countLabel.setText("0 matches");
+            });
             return;
         }
 
-        String lowerTerm = term.toLowerCase(Locale.ROOT);
-        List<SearchResult> found = new ArrayList<>();
-
-        for (Map.Entry<String, ObservableList<ObservableList<String>>> entry : data.entrySet()) {
-            String tableName = entry.getKey();
-            ObservableList<ObservableList<String>> rows = entry.getValue();
-
-            for (int rowIdx = 0; rowIdx < rows.size(); rowIdx++) {
-                ObservableList<String> row = rows.get(rowIdx);
-                for (int colIdx = 0; colIdx < row.size(); colIdx++) {
-                    String cell = row.get(colIdx);
-                    if (cell != null && cell.toLowerCase(Locale.ROOT).contains(lowerTerm)) {
-                        found.add(new SearchResult(tableName, rowIdx, colIdx, cell));
-                    }
-                    if (Thread.currentThread().isInterrupted()) return;
-                }
-            }
-        }
+        int found = index.search(source, data, term,
+                batch -> Platform.runLater(() -> {
+                    if (gen == generation.get())
+                        results.addAll(batch);
+                }),
+                () -> Thread.currentThread().isInterrupted() || gen != generation.get());
 
         Platform.runLater(() -> {
-            results.setAll(found);
-            countLabel.setText(found.size() + " match" + (found.size() == 1 ? "" : "es"));
+            if (gen == generation.get())
+                countLabel.setText(found + " match" + (found == 1 ? "" : "es"));
         });
     }
 
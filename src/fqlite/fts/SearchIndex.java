@@ -0,0 +1,359 @@
+package fqlite.fts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javafx.collections.ObservableList;
+
+/**
+ * Inverted trigram index over the recovered rows of a job.
+ *
+ * The full-text search runs on each key stroke; the index keeps it from
+ * comparing every cell of every table with the term. It is filled while
+ * the rows are recovered (see {@link fqlite.export.CollectorRecordSink}):
+ * every run of three characters (a trigram) of the lower-cased cell values
+ * points to the rows that contain it. A row that contains a term contains
+ * all trigrams of the term, so only the rows in the shortest of these
+ * posting lists have to be compared with the term. This works for
+ * substrings anywhere in a cell, a trailing <code>*</code> looks for words
+ * that start with the term.
+ *
+ * One index is shared by the database, the WAL archive and the rollback
+ * journal of a job. A row is identified by its source, the table and the
+ * position in the result list of the table:
+ *
+ * <pre>
+ *   source (2 bit) | table (30 bit) | row (32 bit)
+ * </pre>
+ *
+ * Posting lists are kept as byte arrays of variable-length deltas between
+ * consecutive row ids, most of them take 1-2 bytes. Cells longer than
+ * {@link #MAX_INDEXED} characters are not split into trigrams, their rows
+ * are always compared.
+ *
+ * Terms shorter than a trigram, and rows that are not in the index (e.g. a
+ * result list that was filled before the index was attached), are searched
+ * by comparing all cells, like before.
+ *
+ * @author pawlaszc
+ *
+ */
+public class SearchIndex {
+
+    /* sources of a row */
+    public static final int DB = 0;
+    public static final int WAL = 1;
+    public static final int JOURNAL = 2;
+
+    /* longer cells are not split into trigrams */
+    static final int MAX_INDEXED = 256;
+
+    /* cells compared by match() */
+    private static final int ALL = 0;
+    private static final int SHORT = 1;
+    private static final int LONG = 2;
+
+    /* results are handed to the dialog in portions of this size */
+    static final int BATCH = 500;
+
+    /* trigram -> rows that contain it */
+    private final ConcurrentHashMap<Long, Postings> grams = new ConcurrentHashMap<>();
+
+    /* rows with at least one cell that is too long for the index */
+    private final Postings longrows = new Postings();
+
+    /* table name <-> table number */
+    private final ConcurrentHashMap<String, Integer> tableids = new ConcurrentHashMap<>();
+    private final List<String> tablenames = new ArrayList<>();
+
+    /* number of indexed rows per source */
+    private final AtomicLongArray rows = new AtomicLongArray(3);
+
+    /**
+     * Adds a recovered row to the index. Thread-safe.
+     *
+     * @param source {@link #DB}, {@link #WAL} or {@link #JOURNAL}
+     * @param table the table name - the first column of the row
+     * @param row position of the row in the result list of the table
+     * @param line the cell values, the table name in front
+     */
+    public void add(int source, String table, int row, List<String> line) {
+
+        long id = id(source, table(table), row);
+
+        long[] g = new long[32];
+        int n = 0;
+        boolean toolong = false;
+
+        /* column 0 is the table name - it is the same for all rows of the table */
+        for (int c = 1; c < line.size(); c++) {
+            String cell = line.get(c);
+            if (cell == null || cell.length() < 3)
+                continue;
+            if (cell.length() > MAX_INDEXED) {
+                toolong = true;
+                continue;
+            }
+            String s = cell.toLowerCase(Locale.ROOT);
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                if (n == g.length)
+                    g = Arrays.copyOf(g, n * 2);
+                g[n++] = gram(s, i);
+            }
+        }
+
+        /* a row is put only once into the list of a trigram */
+        Arrays.sort(g, 0, n);
+        for (int i = 0; i < n; i++)
+            if (i == 0 || g[i] != g[i - 1])
+                grams.computeIfAbsent(g[i], k -> new Postings()).add(id);
+
+        if (toolong)
+            longrows.add(id);
+
+        rows.incrementAndGet(source);
+    }
+
+    /**
+     * Searches the rows of one source. The hits are ranked (see
+     * {@link #rank(String, String, boolean)}) and handed over in portions.
+     *
+     * @param source the source to search in
+     * @param data the result lists of the source
+     * @param term the search term, a trailing <code>*</code> for the start of a word
+     * @param results receives the hits, best first
+     * @param cancelled is asked from time to time if the search is still needed
+     * @return the number of hits
+     */
+    public int search(int source, Map<String, ObservableList<ObservableList<String>>> data, String term,
+                      Consumer<List<SearchResult>> results, BooleanSupplier cancelled) {
+
+        String t = term.trim().toLowerCase(Locale.ROOT);
+        boolean prefix = t.endsWith("*");
+        if (prefix)
+            t = t.substring(0, t.length() - 1);
+        if (t.isEmpty())
+            return 0;
+
+        List<Hit> hits = new ArrayList<>();
+
+        if (t.length() < 3 || !covers(source, data)) {
+            /* compare all cells */
+            for (Map.Entry<String, ObservableList<ObservableList<String>>> entry : data.entrySet()) {
+                ObservableList<ObservableList<String>> list = entry.getValue();
+                for (int r = 0; r < list.size(); r++) {
+                    if (cancelled.getAsBoolean())
+                        return hits.size();
+                    match(entry.getKey(), r, list.get(r), t, prefix, ALL, hits);
+                }
+            }
+        } else {
+            /* compare the rows of the shortest posting list */
+            Postings shortest = null;
+            for (int i = 0; i + 3 <= t.length(); i++) {
+                Postings p = grams.get(gram(t, i));
+                if (p == null) {
+                    shortest = null;
+                    break;
+                }
+                if (shortest == null || p.size() < shortest.size())
+                    shortest = p;
+            }
+
+            /*
+             * The rows of a posting list are compared in their short cells,
+             * the rows with long cells in their long cells - a row can be in
+             * both lists, but a cell is compared only once.
+             */
+            for (int cells : new int[] { SHORT, LONG }) {
+                long[] ids = cells == LONG ? longrows.ids() : shortest != null ? shortest.ids() : new long[0];
+                for (int i = 0; i < ids.length; i++) {
+                    if ((i & 0xFFF) == 0 && cancelled.getAsBoolean())
+                        return hits.size();
+                    long id = ids[i];
+                    if ((int) (id >>> 62) != source)
+                        continue;
+                    String table = tablename((int) (id >>> 32) & 0x3FFFFFFF);
+                    int r = (int) id;
+                    ObservableList<ObservableList<String>> list = data.get(table);
+                    if (list != null && r < list.size())
+                        match(table, r, list.get(r), t, prefix, cells, hits);
+                }
+            }
+        }
+
+        if (cancelled.getAsBoolean())
+            return hits.size();
+
+        hits.sort(Comparator.comparingInt(Hit::rank)
+                .thenComparing(h -> h.result().tableName())
+                .thenComparingInt(h -> h.result().rowIndex())
+                .thenComparingInt(h -> h.result().colIndex()));
+
+        for (int from = 0; from < hits.size(); from += BATCH) {
+            if (cancelled.getAsBoolean())
+                break;
+            List<SearchResult> batch = new ArrayList<>(BATCH);
+            for (Hit h : hits.subList(from, Math.min(hits.size(), from + BATCH)))
+                batch.add(h.result());
+            results.accept(batch);
+        }
+        return hits.size();
+    }
+
+    /**
+     * @return the number of rows indexed for a source
+     */
+    public long rows(int source) {
+        return rows.get(source);
+    }
+
+    /**
+     * @return true, if all rows of the result lists are in the index
+     */
+    private boolean covers(int source, Map<String, ObservableList<ObservableList<String>>> data) {
+        long total = 0;
+        for (ObservableList<ObservableList<String>> list : data.values())
+            total += list.size();
+        return total <= rows.get(source);
+    }
+
+    /**
+     * Compares the cells of a row with the term. The GUI puts the line
+     * number in front of a row before the table is shown - the table name
+     * is then in the second column. Line number and table name are not
+     * searched.
+     *
+     * @param cells {@link #ALL}, or only the cells that are ({@link #SHORT}) or
+     *              are not ({@link #LONG}) split into trigrams
+     */
+    private static void match(String table, int r, List<String> row, String term, boolean prefix, int cells, List<Hit> hits) {
+
+        int first = row.size() > 1 && table.equals(row.get(1)) ? 2 : 1;
+        for (int c = first; c < row.size(); c++) {
+            String cell = row.get(c);
+            if (cell == null)
+                continue;
+            if (cells != ALL && (cell.length() > MAX_INDEXED) != (cells == LONG))
+                continue;
+            int rank = rank(cell.toLowerCase(Locale.ROOT), term, prefix);
+            if (rank >= 0)
+                hits.add(new Hit(rank, new SearchResult(table, r, first == 2 ? c : c + 1, cell)));
+        }
+    }
+
+    /**
+     * Ranks a hit: 0 the cell is the term, 1 the cell starts with the term,
+     * 2 a word starts with the term, 3 the term is somewhere in the cell.
+     *
+     * @return the rank or -1 if the cell does not contain the term
+     */
+    static int rank(String cell, String term, boolean prefix) {
+        int i = cell.indexOf(term);
+        if (i < 0)
+            return -1;
+        if (i == 0)
+            return cell.length() == term.length() ? 0 : 1;
+        int rank = 3;
+        while (i > 0) {
+            if (!Character.isLetterOrDigit(cell.charAt(i - 1))) {
+                rank = 2;
+                break;
+            }
+            i = cell.indexOf(term, i + 1);
+        }
+        return prefix && rank == 3 ? -1 : rank;
+    }
+
+    private int table(String name) {
+        Integer id = tableids.get(name);
+        if (id != null)
+            return id;
+        synchronized (tablenames) {
+            return tableids.computeIfAbsent(name, k -> {
+                tablenames.add(k);
+                return tablenames.size() - 1;
+            });
+        }
+    }
+
+    private String tablename(int id) {
+        synchronized (tablenames) {
+            return tablenames.get(id);
+        }
+    }
+
+    private static long id(int source, int table, int row) {
+        return ((long) source << 62) | ((long) (table & 0x3FFFFFFF) << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /* three UTF-16 characters in one long */
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private record Hit(int rank, SearchResult result) {
+    }
+
+    /**
+     * A posting list: row ids as zigzag-encoded varint deltas. Rows of one
+     * table are mostly added in order, so a delta fits into one or two
+     * bytes.
+     */
+    static final class Postings {
+
+        private byte[] data = new byte[8];
+        private int length = 0;
+        private int size = 0;
+        private long last = 0;
+
+        synchronized void add(long id) {
+            long delta = id - last;
+            last = id;
+            long v = (delta << 1) ^ (delta >> 63);
+            if (length + 10 > data.length)
+                data = Arrays.copyOf(data, data.length * 2);
+            while ((v & ~0x7FL) != 0) {
+                data[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[length++] = (byte) v;
+            size++;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * @return the row ids in the order they were added
+         */
+        synchronized long[] ids() {
+            long[] ids = new long[size];
+            long id = 0;
+            int pos = 0;
+            for (int i = 0; i < size; i++) {
+                long v = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    v |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += (v >>> 1) ^ -(v & 1);
+                ids[i] = id;
+            }
+            return ids;
+        }
+    }
+
+}
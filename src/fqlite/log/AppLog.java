@@ -2,6 +2,7 @@ package fqlite.log;
 
 import java.nio.file.FileSystems;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,12 +31,24 @@ import javafx.stage.Stage;
 /// the last entries in the log file can be viewed via the interface
 /// if required.
 ///
+/// Most debug messages are built by string concatenation inside per-cell
+/// and per-page loops of the recovery engine. The level check of the
+/// logger comes too late for them: the message is already built. Code on
+/// a hot path therefore either guards the call with {@link #isDebugEnabled()}
+/// or uses one of the lazy variants {@link #debug(Supplier)} and
+/// {@link #debug(String, Object...)}. With the default level nothing is
+/// allocated for logging then.
+///
 /// @author pawlaszc
 public class AppLog extends Application {
 
     public static final Logger LOGGER = Logger.getLogger(AppLog.class.getName());
     public static TextArea textArea;
     public static Scene myScene;
+
+    /// Cached result of <code>LOGGER.isLoggable(Level.FINEST)</code>,
+    /// updated by {@link #setLevel(Level)}.
+    private static volatile boolean debugEnabled = LOGGER.isLoggable(Level.FINEST);
     
     static {
     	
@@ -117,8 +130,31 @@ public class AppLog extends Application {
         } 
     }
 
+    /// @return true, if debug messages are written. A plain field read, cheap
+    /// enough to guard every debug call in a loop.
+    public static boolean isDebugEnabled(){
+    	return debugEnabled;
+    }
+
     public static void debug(String log){
-    	LOGGER.finest(log);
+    	if (debugEnabled)
+    		LOGGER.finest(log);
+    }
+
+    /// The message is only built if debug messages are written.
+    public static void debug(Supplier<String> log){
+    	if (debugEnabled)
+    		LOGGER.finest(log);
+    }
+
+    /// Parameterized message in <code>java.text.MessageFormat</code> syntax,
+    /// e.g. <code>debug("page {0} has {1} cells", page, cells)</code>. The
+    /// message is formatted by the handlers, i.e. only if it is written.
+    /// Note that the arguments are still boxed into an array by the caller,
+    /// inside a tight loop guard the call with {@link #isDebugEnabled()}.
+    public static void debug(String pattern, Object... params){
+    	if (debugEnabled)
+    		LOGGER.log(Level.FINEST, pattern, params);
     }
     
     public static void info(String log){
@@ -135,6 +171,7 @@ public class AppLog extends Application {
     
     public static void setLevel(Level newLevel){
     	LOGGER.setLevel(newLevel);
+    	debugEnabled = LOGGER.isLoggable(Level.FINEST);
     }
     
     @Override
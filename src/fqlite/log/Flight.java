@@ -0,0 +1,216 @@
+package fqlite.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the recovery engine.
+ *
+ * The {@link Metrics} tell how long a phase took, a recording tells which
+ * page it was: every recovered page, every carving run on a gap, every
+ * analysed WAL frame, every overflow chain and every remap of a
+ * BigByteBuffer window becomes an event with page number, table and
+ * duration. Open the <code>.jfr</code> file with JDK Mission Control
+ * (Event Browser, category "FQLite") or with <code>jfr print --events
+ * fqlite.* file.jfr</code>.
+ *
+ * The events are only created if {@link #enabled} is set - with
+ * <code>--jfr</code> on the command line or the switch in the settings
+ * dialog. Both start a recording of their own with {@link #start(Path)}.
+ * If the JVM already runs a recording (-XX:StartFlightRecording), setting
+ * the flag is enough.
+ *
+ * Usage on a hot path:
+ *
+ * <pre>
+ * Flight.PageRecovery ev = Flight.enabled ? new Flight.PageRecovery() : null;
+ * if (ev != null) ev.begin();
+ * ...
+ * if (ev != null) { ev.page = pagenumber; ev.commit(); }
+ * </pre>
+ *
+ * @author pawlaszc
+ *
+ */
+public final class Flight {
+
+	/* set, while events should be created */
+	public static volatile boolean enabled = false;
+
+	private static Recording recording;
+
+	private Flight() {
+	}
+
+	@Name("fqlite.PageRecovery")
+	@Label("Page Recovery")
+	@Category({ "FQLite", "Recovery" })
+	@Description("One RecoveryTask: a database page parsed and carved")
+	@StackTrace(false)
+	public static final class PageRecovery extends Event {
+		@Label("Page")
+		public int page;
+		@Label("Page Type")
+		@Description("first byte of the page header (13 = table leaf, 10 = index leaf, 0 = dropped/overflow)")
+		public int type;
+		@Label("Cells")
+		public int cells;
+		@Label("Table")
+		public String table;
+		@Label("Free List Page")
+		public boolean freelist;
+	}
+
+	@Name("fqlite.Carve")
+	@Label("Carve")
+	@Category({ "FQLite", "Carving" })
+	@Description("One Carver.carve() run on a gap of a page")
+	@StackTrace(false)
+	public static final class Carve extends Event {
+		@Label("Page")
+		public int page;
+		@Label("Table")
+		public String table;
+		@Label("Mode")
+		public String mode;
+		@Label("Gap Size")
+		@DataAmount
+		public int gap;
+		@Label("Header Matches")
+		public int matches;
+		@Label("Records")
+		public int records;
+	}
+
+	@Name("fqlite.WALFrame")
+	@Label("WAL Frame")
+	@Category({ "FQLite", "WAL" })
+	@Description("Analysis of one frame of a WAL archive")
+	@StackTrace(false)
+	public static final class FrameAnalysis extends Event {
+		@Label("Frame")
+		public int frame;
+		@Label("Page")
+		public int page;
+		@Label("Committed")
+		public boolean committed;
+	}
+
+	@Name("fqlite.OverflowChain")
+	@Label("Overflow Chain")
+	@Category({ "FQLite", "Recovery" })
+	@Description("Read of the overflow pages of one record")
+	@StackTrace(false)
+	public static final class OverflowChain extends Event {
+		@Label("First Page")
+		public int page;
+		@Label("Pages")
+		public int pages;
+		@Label("From WAL")
+		public boolean wal;
+	}
+
+	@Name("fqlite.Remap")
+	@Label("Window Remap")
+	@Category({ "FQLite", "I/O" })
+	@Description("A BigByteBuffer window mapped from the file (cache miss)")
+	@StackTrace(false)
+	public static final class Remap extends Event {
+		@Label("Window")
+		public int window;
+		@Label("File Offset")
+		public long offset;
+		@Label("Size")
+		@DataAmount
+		public long size;
+	}
+
+	/**
+	 * Starts a recording with the default JDK settings plus all FQLite
+	 * events and turns the events on. The file is written on {@link #stop()}
+	 * or, at the latest, when the JVM exits.
+	 *
+	 * @param file the .jfr file
+	 * @throws IOException if the file cannot be created
+	 */
+	public static synchronized void start(Path file) throws IOException {
+		if (recording != null)
+			return;
+
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null)
+			Files.createDirectories(parent);
+
+		Recording r;
+		try {
+			r = new Recording(Configuration.getConfiguration("default"));
+		} catch (ParseException e) {
+			r = new Recording();
+		}
+		r.setName("FQLite");
+		r.enable(PageRecovery.class).withoutThreshold();
+		r.enable(Carve.class).withoutThreshold();
+		r.enable(FrameAnalysis.class).withoutThreshold();
+		r.enable(OverflowChain.class).withoutThreshold();
+		r.enable(Remap.class).withoutThreshold();
+		r.setToDisk(true);
+		r.setDestination(file);
+		r.setDumpOnExit(true);
+		r.start();
+
+		recording = r;
+		enabled = true;
+		AppLog.info("JFR recording started: " + file.toAbsolutePath());
+	}
+
+	/**
+	 * Stops the recording and writes the file.
+	 *
+	 * @return the file or <code>null</code> if nothing was recorded
+	 */
+	public static synchronized Path stop() {
+		enabled = false;
+		if (recording == null)
+			return null;
+
+		Path file = recording.getDestination();
+		try {
+			recording.stop();
+			AppLog.info("JFR recording written: " + file.toAbsolutePath());
+		} catch (IllegalStateException e) {
+			AppLog.error("JFR recording could not be stopped: " + e.getMessage());
+		} finally {
+			recording.close();
+			recording = null;
+		}
+		return file;
+	}
+
+	public static synchronized boolean recording() {
+		return recording != null;
+	}
+
+	/**
+	 * @return a new file name below ~/.fqlite/recordings, e.g.
+	 *         fqlite-20260618-141502.jfr
+	 */
+	public static Path defaultFile() {
+		String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+		return Path.of(System.getProperty("user.home"), ".fqlite", "recordings", "fqlite-" + ts + ".jfr");
+	}
+
+}
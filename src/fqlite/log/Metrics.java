@@ -0,0 +1,248 @@
+package fqlite.log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Performance figures of one import (one Job).
+ *
+ * Until now the only hint where the time goes were a few "Duration of ..."
+ * lines in the log. The classes of the recovery engine report into this
+ * registry instead:
+ *
+ * <ul>
+ * <li><b>phases</b> - wall clock time and number of pages of each step
+ *     (B-tree walk, scan, free list, WAL, journal), from which pages/s is
+ *     derived</li>
+ * <li><b>counters</b> - e.g. cells decoded, carve attempts and hits per
+ *     carving mode, mmap window hits/misses/evictions</li>
+ * <li><b>distributions</b> - count, sum and maximum of a value, e.g. the
+ *     length of overflow chains</li>
+ * <li><b>worker busy time</b> - per pool thread</li>
+ * </ul>
+ *
+ * All methods are thread-safe; counters are LongAdders, so the scan
+ * threads do not contend. Classes on a hot path should look up their
+ * counter once with {@link #counter(String)} and keep the reference.
+ *
+ * The GUI shows a live view of {@link #snapshot()}, the command line
+ * interface writes {@link #toJson()} after the run.
+ *
+ * @author pawlaszc
+ *
+ */
+public final class Metrics {
+
+	/* names of the standard counters */
+	public static final String CELLS_DECODED = "cells.decoded";
+	public static final String PAGES_RECOVERED = "pages.recovered";
+	public static final String CARVE_ATTEMPTS = "carve.attempts.";
+	public static final String CARVE_HITS = "carve.hits.";
+	public static final String OVERFLOW_CHAIN = "overflow.chain.pages";
+	public static final String OVERFLOW_CACHE_HITS = "overflow.cache.hits";
+	public static final String OVERFLOW_CACHE_MISSES = "overflow.cache.misses";
+	public static final String WORKER_BUSY = "worker.busy.ms.";
+	public static final String CACHE_ROWS = "cache.rows";
+
+	/* the phases of an import */
+	public static final String PHASE_BTREE = "btree";
+	public static final String PHASE_SCAN = "scan";
+	public static final String PHASE_FREELIST = "freelist";
+	public static final String PHASE_WAL = "wal";
+	public static final String PHASE_JOURNAL = "journal";
+	public static final String PHASE_CACHE = "cache";
+	public static final String PHASE_TOTAL = "total";
+
+	private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Distribution> distributions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, LongAdder> busy = new ConcurrentHashMap<>();
+	/* in the order the phases were started */
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+	/**
+	 * Count, sum and maximum of a value.
+	 */
+	public static final class Distribution {
+		final LongAdder count = new LongAdder();
+		final LongAdder sum = new LongAdder();
+		final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		public void record(long value) {
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+	}
+
+	/**
+	 * A step of the import. Started with {@link Metrics#begin(String)},
+	 * the number of processed pages is added while it runs.
+	 */
+	public static final class Phase {
+		private final long begin = System.nanoTime();
+		private volatile long end = -1;
+		private final LongAdder pages = new LongAdder();
+
+		public void pages(long n) {
+			pages.add(n);
+		}
+
+		public void end() {
+			if (end < 0)
+				end = System.nanoTime();
+		}
+
+		/** duration in ms - up to now, if the phase is still running */
+		public long millis() {
+			long e = end < 0 ? System.nanoTime() : end;
+			return (e - begin) / 1_000_000;
+		}
+
+		public long pages() {
+			return pages.sum();
+		}
+
+		public boolean running() {
+			return end < 0;
+		}
+
+		/** pages per second (or -1 if nothing was counted) */
+		public long rate() {
+			long p = pages.sum();
+			long ms = Math.max(1, millis());
+			return p == 0 ? -1 : p * 1000 / ms;
+		}
+	}
+
+	/**
+	 * @return the counter with the given name, created on first use
+	 */
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, k -> new LongAdder());
+	}
+
+	public void add(String name, long n) {
+		counter(name).add(n);
+	}
+
+	/**
+	 * @return the distribution with the given name, created on first use
+	 */
+	public Distribution distribution(String name) {
+		return distributions.computeIfAbsent(name, k -> new Distribution());
+	}
+
+	/**
+	 * Starts a phase. Starting a phase again replaces the old figures.
+	 */
+	public Phase begin(String name) {
+		Phase p = new Phase();
+		synchronized (phases) {
+			phases.remove(name);
+			phases.put(name, p);
+		}
+		return p;
+	}
+
+	/**
+	 * @return the phase or null if it was never started
+	 */
+	public Phase phase(String name) {
+		synchronized (phases) {
+			return phases.get(name);
+		}
+	}
+
+	/**
+	 * Adds the given time to the busy time of the calling thread.
+	 */
+	public void busy(long nanos) {
+		busy.computeIfAbsent(Thread.currentThread().getName(), k -> new LongAdder()).add(nanos);
+	}
+
+	/**
+	 * Returns all figures as (name, value) pairs, phases first, the rest
+	 * sorted by name.
+	 */
+	public Map<String, String> snapshot() {
+		Map<String, String> m = new LinkedHashMap<>();
+
+		for (Map.Entry<String, Phase> e : phaseList()) {
+			Phase p = e.getValue();
+			String key = "phase." + e.getKey();
+			m.put(key + ".ms", p.millis() + (p.running() ? " (running)" : ""));
+			if (p.pages() > 0) {
+				m.put(key + ".pages", Long.toString(p.pages()));
+				m.put(key + ".pages_per_s", Long.toString(p.rate()));
+			}
+		}
+
+		Map<String, String> rest = new TreeMap<>();
+		counters.forEach((k, v) -> rest.put(k, Long.toString(v.sum())));
+		distributions.forEach((k, d) -> {
+			long n = d.count.sum();
+			rest.put(k + ".count", Long.toString(n));
+			rest.put(k + ".avg", n == 0 ? "0" : String.format("%.2f", (double) d.sum.sum() / n));
+			rest.put(k + ".max", Long.toString(d.max.get()));
+		});
+		busy.forEach((k, v) -> rest.put(WORKER_BUSY + k, Long.toString(v.sum() / 1_000_000)));
+		m.putAll(rest);
+		return m;
+	}
+
+	/**
+	 * Returns all figures as one JSON object.
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("{\n  \"phases\": {");
+		boolean first = true;
+		for (Map.Entry<String, Phase> e : phaseList()) {
+			Phase p = e.getValue();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    \"").append(e.getKey()).append("\": {\"ms\": ").append(p.millis())
+			  .append(", \"pages\": ").append(p.pages())
+			  .append(", \"pages_per_s\": ").append(p.rate()).append('}');
+		}
+		sb.append("\n  },\n  \"counters\": {");
+		first = true;
+		for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    \"").append(e.getKey()).append("\": ").append(e.getValue().sum());
+		}
+		sb.append("\n  },\n  \"distributions\": {");
+		first = true;
+		for (Map.Entry<String, Distribution> e : new TreeMap<>(distributions).entrySet()) {
+			Distribution d = e.getValue();
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    \"").append(e.getKey()).append("\": {\"count\": ").append(d.count.sum())
+			  .append(", \"sum\": ").append(d.sum.sum())
+			  .append(", \"max\": ").append(d.max.get()).append('}');
+		}
+		sb.append("\n  },\n  \"worker_busy_ms\": {");
+		first = true;
+		for (Map.Entry<String, LongAdder> e : new TreeMap<>(busy).entrySet()) {
+			sb.append(first ? "\n" : ",\n");
+			first = false;
+			sb.append("    \"").append(e.getKey().replace("\"", "'")).append("\": ").append(e.getValue().sum() / 1_000_000);
+		}
+		sb.append("\n  }\n}\n");
+		return sb.toString();
+	}
+
+	private List<Map.Entry<String, Phase>> phaseList() {
+		synchronized (phases) {
+			return new ArrayList<>(phases.entrySet());
+		}
+	}
+
+}
@@ -73,7 +73,7 @@ public class TextAreaHandler extends Handler {
     private void appendRecord(LogRecord record) {
         String message;
         try {
-            message = record.getMessage(); //= getFormatter().format(record);
+            message = getFormatter().formatMessage(record); //= getFormatter().format(record);
         } catch (Exception ex) {
             reportError(null, ex, ErrorManager.FORMAT_FAILURE);
             return;
@@ -0,0 +1,129 @@
+package fqlite.pattern;
+
+/**
+ * Table-driven form of a {@link HeaderPattern}.
+ *
+ * Nearly all serial types in a record header are single-byte varints
+ * (values 0..127). For these values the result of every constraint is
+ * computed once, when the pattern is compiled, and stored in a 128-bit
+ * mask per constraint. Matching a header byte is then a shift and a bit
+ * test instead of a virtual call to {@link Constraint#match(int)}. Only
+ * the rare multi-byte varints (long strings and BLOBs) still ask the
+ * original constraint object.
+ *
+ * In addition, for each start constraint (one per {@link MMode}) a table
+ * with all bytes that can begin a match is kept. The matcher uses it to
+ * skip over bytes that cannot start a header without decoding them.
+ *
+ * A compiled pattern is immutable and can be shared by all threads that
+ * carve for the same table.
+ *
+ * @author pawlaszc
+ *
+ */
+public final class CompiledHeaderPattern {
+
+	/* accept masks for the single-byte values 0..63 and 64..127 */
+	private final long[] lo;
+	private final long[] hi;
+
+	/* original constraints - only consulted for multi-byte varints */
+	private final Constraint[] constraints;
+
+	/* bytes that may start a match, one table per matching mode */
+	private final boolean[][] startbytes = new boolean[MMode.values().length][];
+
+	/**
+	 * Compiles the given pattern.
+	 *
+	 * @param pattern the list of constraints
+	 */
+	public CompiledHeaderPattern(HeaderPattern pattern) {
+
+		int n = pattern.size();
+		lo = new long[n];
+		hi = new long[n];
+		constraints = new Constraint[n];
+
+		for (int i = 0; i < n; i++) {
+			Constraint c = pattern.get(i);
+			constraints[i] = c;
+			for (int v = 0; v < 64; v++) {
+				if (c.match(v))
+					lo[i] |= 1L << v;
+				if (c.match(v + 64))
+					hi[i] |= 1L << v;
+			}
+		}
+
+		for (MMode mode : MMode.values()) {
+			int idx = startIndex(mode);
+			if (idx >= n)
+				continue;
+			boolean[] sb = new boolean[256];
+			for (int b = 0; b < 256; b++) {
+				/* a byte with MSB set starts a multi-byte varint - we cannot tell yet */
+				sb[b] = (b & 0x80) != 0 || accepts(idx, b);
+			}
+			startbytes[mode.ordinal()] = sb;
+		}
+	}
+
+	/**
+	 * Returns the index of the first constraint that is checked in the given mode.
+	 * NORMAL starts with the header length, NOHEADER with the first column and
+	 * NO1stCOL with the second column.
+	 *
+	 * @param mode the matching mode
+	 * @return index into the constraint list
+	 */
+	public static int startIndex(MMode mode) {
+		switch (mode) {
+			case NOHEADER:
+				return 1;
+			case NO1stCOL:
+				return 2;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Number of constraints.
+	 *
+	 * @return the pattern length
+	 */
+	public int size() {
+		return constraints.length;
+	}
+
+	/**
+	 * Checks a serial type value against constraint <code>i</code>.
+	 *
+	 * @param i index of the constraint
+	 * @param value the decoded varint value
+	 * @return true if the constraint accepts the value
+	 */
+	public boolean accepts(int i, int value) {
+		if (value < 0)
+			return false;
+		if (value < 64)
+			return ((lo[i] >>> value) & 1L) != 0;
+		if (value < 128)
+			return ((hi[i] >>> (value - 64)) & 1L) != 0;
+		return constraints[i].match(value);
+	}
+
+	/**
+	 * Returns true if a match in the given mode may begin with this byte.
+	 *
+	 * @param mode the matching mode
+	 * @param b the unsigned byte value (0..255)
+	 * @return false if the byte can be skipped right away
+	 */
+	public boolean canStart(MMode mode, int b) {
+		boolean[] sb = startbytes[mode.ordinal()];
+		return sb != null && sb[b];
+	}
+
+}
@@ -17,6 +17,9 @@ import java.util.List;
 public class HeaderPattern {
 	
 	public List<Constraint> pattern = new ArrayList<Constraint>();
+	
+	/* table-driven form of the constraint list, built on first use */
+	private volatile CompiledHeaderPattern compiled = null;
 
 	/**
 	 *  Do nothing. Default-Constructor.
@@ -35,6 +38,25 @@ public class HeaderPattern {
 	public void change2RowID(int idx)
 	{
 		pattern.set(idx, new ZeroConstraint());
+		compiled = null;
+	}
+	
+	/**
+	 * Returns the compiled (table-driven) form of this pattern. 
+	 * The result is cached; it is rebuilt only when constraints have been
+	 * added or replaced since the last call.
+	 * 
+	 * @return the compiled pattern
+	 */
+	public CompiledHeaderPattern compile()
+	{
+		CompiledHeaderPattern c = compiled;
+		if (c == null || c.size() != pattern.size())
+		{
+			c = new CompiledHeaderPattern(this);
+			compiled = c;
+		}
+		return c;
 	}
 	
 	public void add(Constraint c)
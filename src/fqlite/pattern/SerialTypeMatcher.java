@@ -14,6 +14,7 @@ import fqlite.util.Auxiliary;
 public class SerialTypeMatcher {
 
 	HeaderPattern pattern = null;
+	CompiledHeaderPattern compiled = null;
 	ByteBuffer buffer = null;
 	int pos = 0;
 	int startRegion;
@@ -57,6 +58,7 @@ public class SerialTypeMatcher {
 	 */
 	public void setPattern(HeaderPattern pattern) {
 		this.pattern = pattern;
+		this.compiled = (pattern == null) ? null : pattern.compile();
 	}
 
 	/**
@@ -102,84 +104,103 @@ public class SerialTypeMatcher {
 	 */
 	public boolean find() {
 				
-		int idx = 0;
-		switch (mode) 
-		{
-			case NORMAL:
-				idx = 0;
-				break;
-	
-			case NOHEADER:
-				idx = 1;
-				break;
-	
-			case NO1stCOL:
-				idx = 2;
-				break;
-		}
-		int i = idx;
-
 		/* check pattern constrain by constrain */
   
 		if (pattern == null) {
 			return false;
 		}
-		else {
-			while (i < pattern.size()) 
-			{
+
+		CompiledHeaderPattern cp = compiled;
+		int idx = CompiledHeaderPattern.startIndex(mode);
+		int size = cp.size();
+
+		/* do not read out of bounds - stop before the end */
+		int last = endRegion - 4;
+
+		/* all reads are absolute - the buffer position is only updated on return */
+		int cur = buffer.position();
+		int i = idx;
+
+		while (i < size) 
+		{
+			if (cur > last) {
+				buffer.position(cur);
+				return false;
+			}
 			
-				/* do not read out of bounds - stop before the end */
-				if (buffer.position() > (endRegion - 4))
-				  return false;
+			if (i == idx) {
+				/* skip bytes which can never be the begin of a match */
+				while (cur <= last && !cp.canStart(mode, buffer.get(cur) & 0xFF))
+					cur++;
+				
+				if (cur > last) {
+					buffer.position(cur);
+					return false;
+				}
 				
-								
 				/* remember the begin of a possible match */
-				int current = buffer.position();
+				pos = cur;
+			}
 			
-					
-				if (i == idx)
-					pos = current;
-				
-				/* read next value */
-				int value = readUnsignedVarInt();
-				
-				
-				//System.out.println(";" + value + ";");
-					
-					// no varint OR costrain does not match -> skip this an go on with the next
-					// bytes
-					if (value == -1 || !pattern.get(i).match(value)) 
-					{
-					    	buffer.position(pos+1);
-					    	/* and again, startRegion the beginning but with the next byte */
-					    	i = idx;
-					    	/* skip pattern matching step and try again */
-					    	continue;
-					    
-					}
-					//System.out.println(";" + value + ";");
-					
-					/* go ahead with next constrain */
-					
-					i++;
-	
-					
+			/* read next value */
+			int value = readUnsignedVarInt(cur);
+			
+			// no varint OR constraint does not match -> skip this and go on with the next
+			// bytes
+			if (value == -1 || !cp.accepts(i, value)) 
+			{
+				/* and again, start from the beginning but with the next byte */
+				cur = pos + 1;
+				i = idx;
+				continue;
 			}
-		
-	
-			start = pos;
-			end = buffer.position();
+			
+			/* go ahead with next constrain */
+			cur = varintEnd;
+			i++;
 		}
 		
+		buffer.position(cur);
+		start = pos;
+		end = cur;
+		
 		if (end <= start)
 			return false;
 		
-		
-		//System.out.println("true" + end + " > " + start);
-		
 		return true; // byte number of the match
 	}
 	
+	/* offset of the first byte behind the varint read by readUnsignedVarInt(int) */
+	private int varintEnd;
+
+	/**
+	 * Absolute variant of {@link #readUnsignedVarInt()}. Decodes the varint that
+	 * starts at <code>at</code> without touching the buffer position and stores
+	 * the offset behind it in <code>varintEnd</code>.
+	 * 
+	 * @param at offset of the first byte
+	 * @return the corresponding int value or -1 if no varint could be found.
+	 */
+	private int readUnsignedVarInt(int at) {
+		int value = 0;
+		int b;
+		int counter = 0;
+		int shift = 0;
+
+		// same decoding as readUnsignedVarInt() - a maximum of 4 bytes
+		while ((((b = buffer.get(at++)) & 0x80) != 0) && counter < 3) {
+			counter++;
+			shift += 7;
+			value |= (b & 0x7F) << shift;
+		}
+		varintEnd = at;
+
+		if ((b & 0x80) != 0)
+			return -1;
+
+		return value | b;
+	}
+	
 	static int howmuch = 0;
 
 	/**
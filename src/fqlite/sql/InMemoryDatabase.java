@@ -2,17 +2,40 @@ package fqlite.sql;
 
 import fqlite.analyzer.BLOBCache;
 import fqlite.base.Global;
+import fqlite.base.ScanCache;
 import fqlite.descriptor.TableDescriptor;
+import fqlite.export.SQLiteDatabaseCreator;
+import fqlite.export.SQLiteExportWriter;
 import fqlite.log.AppLog;
+import fqlite.parser.SQLiteBaseListener;
+import fqlite.parser.SQLiteLexer;
+import fqlite.parser.SQLiteParser;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import java.math.BigDecimal;
+import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 import static java.sql.DriverManager.getConnection;
 
@@ -23,6 +46,12 @@ import static java.sql.DriverManager.getConnection;
 /// This newly created database is intended to be used by the SQL Analyzer.
 /// Every SELECT  statement inside the Analyzer is executed against this inMemory DB.
 ///
+/// The rows are loaded on demand: `attach()` creates the (empty) schema and
+/// remembers the result lists. Before a statement is executed, it is parsed
+/// and only the tables it refers to are filled - on a background thread,
+/// each table once (see `prepare()`). If the recovered data is too large for
+/// RAM, the database is kept in a temporary file instead.
+///
 ///
 ///
 /// @author D. Pawlaszczyk
@@ -46,6 +75,27 @@ public class InMemoryDatabase {
     private static final int BATCH_FLUSH_SIZE = 2000;
     private Connection connection;
     private Stage stage;
+
+    /* tables loaded by one background thread - the inserts share the connection */
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sql-analyzer-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /* estimated bytes per cell in the database - used to decide between RAM and temp file */
+    private static final long BYTES_PER_CELL = 48;
+
+    /* a table whose rows have not been inserted yet */
+    private record Pending(String table, BLOBCache cache, String dbname, List<TableDescriptor> tables,
+                           ObservableList<ObservableList<String>> rows, boolean isWAL) {
+    }
+
+    /* lower-case table name -> rows not loaded yet, resp. the load in progress or done */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> loads = new ConcurrentHashMap<>();
+    private boolean attached = false;
+    private File spillfile = null;
     /** The logical database name (= key in {@link DBManager}). */
     private final String dbName;
 
@@ -186,7 +236,7 @@ public class InMemoryDatabase {
     /// @param tableName name of the table
     /// @param rows a list of rows
     /// @throws SQLException in case something went wrong
-    public void insertRows(BLOBCache cache, String dbname, String tableName, List<TableDescriptor> tables, ObservableList<ObservableList<String>> rows, boolean isWAL) throws SQLException {
+    public synchronized void insertRows(BLOBCache cache, String dbname, String tableName, List<TableDescriptor> tables, ObservableList<ObservableList<String>> rows, boolean isWAL) throws SQLException {
         if (rows == null || rows.isEmpty()) {
             return;
         }
@@ -214,43 +264,9 @@ public class InMemoryDatabase {
 
 
         PreparedStatement preparedStatement = null;
-        StringBuilder sql;
-
         try {
 
-            // first put the standard FQLite columns in front of the statement
-            sql = new StringBuilder("INSERT INTO " + tableName + " ( " + Global.col_no + ", " + Global.col_pll + ", " + Global.col_rowid + ", " + Global.col_status + ", " + Global.col_offset + ",");
-
-            if (isWAL)
-                sql.append(" " + Global.col_commit + " , " + Global.col_dbpage + " , " + Global.col_walframe + " , " + Global.col_salt1 + " , " + Global.col_salt2 + " , ");
-
-            for (int i = 0; i < colNames.size(); i++) {
-                sql.append(" ")
-                        .append(colNames.get(i));
-
-                if (i < colNames.size() - 1) {
-                    sql.append(",");
-                }
-
-            }
-
-            sql.append(") VALUES (");
-
-            int preColumns = 5;
-            if (isWAL)
-                preColumns = 10;
-
-            // number of columns in the row without the table name column at index 1
-            for (int i = 0; i < (preColumns + colNames.size()); i++) {
-                sql.append("? ");
-                if (i < (preColumns + colNames.size() - 1)) {
-                    sql.append(", ");
-                }
-            }
-            sql.append(")");
-
-
-            preparedStatement = connection.prepareStatement(sql.toString());
+            preparedStatement = connection.prepareStatement(SQLiteDatabaseCreator.insertSql(tableName, colNames, isWAL));
 
             // Wrap the whole table import in a single transaction and only
             // flush the JDBC batch every BATCH_FLUSH_SIZE rows instead of
@@ -268,75 +284,17 @@ public class InMemoryDatabase {
             connection.setAutoCommit(false);
             int batched = 0;
 
-            // create a batch for all data rows to insert into this table
-            for(ObservableList<String> record : rows) {
-                // Copy each row into a random-access list ONCE: `record`
-                // (like the row lists in DataAnalyzer — see the comments
-                // there for the JVM thread dump that uncovered this same
-                // pattern) may be backed by a sequential-access list rather
-                // than an ArrayList further up the import pipeline. The
-                // inner loop below does an indexed record.get(pos) for every
-                // column of every row of every table during import, so on a
-                // sequential list that's O(columns) per lookup instead of
-                // O(1) — multiplied by every row in every table, this is a
-                // real, broad contributor to the import's CPU/GC load. The
-                // copy itself costs O(columns) once (an iterator walk).
-                List<String> rec = new ArrayList<>(record);
-                int j = 1;
-                // add all lines to batch
-                for (int pos = 0; pos < rec.size(); pos++,j++) {
-
-                    if (pos == 1) {
-                        // skip the column with the table name
-                        j--;
-                        continue;
-                    }
+            // BLOB cells are not copied into the analyzer database
+            BiFunction<String, String, Object> blobs = (cell, offset) -> "BLOB";
+            int width = (isWAL ? 10 : 5) + colNames.size();
 
-                    String cvalue = rec.get(pos);
-                    if (cvalue == null)
-                        cvalue = "";
-
-                    // BLOB handling is different
-                    if (cvalue.startsWith("[BLOB-")) {
-                        String key = "BLOB";
-                        if(j == 38)
-                            System.out.println("Stopppp");
-                        try {
-                            preparedStatement.setString(j, key);
-                        }catch(SQLException e){
-                          System.out.println("Error" + e.getMessage());
-                        }
-                    } else {
-                        // for all remaining data types
-                        switch (pos) {
-                            case 0:
-                                preparedStatement.setInt(j, Integer.parseUnsignedInt(cvalue));
-                                break;
-                            case 2, 4:
-                                preparedStatement.setString(j, cvalue);
-                                break;
-                            case 3:
-                                if(cvalue.isEmpty()) {
-                                    preparedStatement.setBigDecimal(j,  BigDecimal.valueOf(0));
-                                }
-                                else
-                                    preparedStatement.setBigDecimal(j, BigDecimal.valueOf(Long.parseLong(cvalue)));
-                                break;
-                            case 5:
-                                if(cvalue.isEmpty()) {
-                                    preparedStatement.setBigDecimal(j,  BigDecimal.valueOf(0));
-                                }
-                                else
-                                    preparedStatement.setBigDecimal(j, BigDecimal.valueOf(Long.parseLong(cvalue)));
-                                break;
-                            default:
-                                // let the JDBC driver do the job for you
-                                preparedStatement.setObject(j, cvalue);
-
-                        }
-
-                    }
-                }
+            // create a batch for all data rows to insert into this table
+            for (int i = 0; i < rows.size(); i++) {
+                // The row is read once per cell and turned into typed values:
+                // numbers of a CompactRow are taken without parsing, line
+                // number, rowid and offset are bound as numbers.
+                SQLiteExportWriter.bind(preparedStatement,
+                        SQLiteDatabaseCreator.typedRow(rows.get(i), tableName, i + 1, width, blobs));
                 preparedStatement.addBatch();
                 batched++;
 
@@ -388,13 +346,213 @@ public class InMemoryDatabase {
         }
     }
 
+    /// Creates the schema and registers the rows of all tables for loading
+    /// on demand. Nothing is inserted here, see `prepare()`.
+    ///
+    /// On the first call the size of the data is estimated; if it does not
+    /// fit into a quarter of the heap limit, the database is moved to a
+    /// temporary file before the schema is created.
+    ///
+    /// @param cache the BLOB cache of the job
+    /// @param dbname name of the source
+    /// @param tables all table descriptor objects of the source
+    /// @param data the result lists per table name
+    /// @param isWAL true, if the rows come from a WAL archive
+    /// @throws SQLException in case of an error during the creation of the schema
+    public synchronized void attach(BLOBCache cache, String dbname, List<TableDescriptor> tables,
+                                    Map<String, ObservableList<ObservableList<String>>> data, boolean isWAL) throws SQLException {
+
+        if (!attached) {
+            /* counted without decoding the tables that come from the scan cache */
+            long cells = 0;
+            for (Map.Entry<String, ObservableList<ObservableList<String>>> e : data.entrySet()) {
+                int size = ScanCache.size(e.getValue());
+                if (size > 0)
+                    cells += (long) size * width(tables, e.getKey(), isWAL);
+            }
+            if (cells * BYTES_PER_CELL > Runtime.getRuntime().maxMemory() / 4)
+                spill(cells);
+            attached = true;
+        }
+
+        createDatabaseAndSchema(tables, dbname, isWAL);
+
+        for (Map.Entry<String, ObservableList<ObservableList<String>>> e : data.entrySet()) {
+            String tblname = e.getKey();
+            // skip the internal tables
+            if (tblname.equals("sqlite_master") || tblname.startsWith("sqlite_") || tblname.startsWith("fqlite_"))
+                continue;
+            String key = tblname.toLowerCase(Locale.ROOT);
+            if (!loads.containsKey(key))
+                pending.putIfAbsent(key, new Pending(tblname, cache, dbname, tables, e.getValue(), isWAL));
+        }
+    }
+
+    /**
+     * @return the number of cells of a row of the table, as in {@link #insertRows}
+     */
+    private static int width(List<TableDescriptor> tables, String tblname, boolean isWAL) {
+        for (TableDescriptor d : tables) {
+            if (d.tblname.equals(tblname))
+                return (isWAL ? 10 : 5) + d.columnnames.size();
+        }
+        return isWAL ? 10 : 5;
+    }
+
+    /**
+     * Loads the tables a statement refers to, on the loader thread. A table
+     * is loaded only once; tables that are already loaded or being loaded
+     * are not touched.
+     *
+     * @param statement the SQL statement
+     * @return completes when all tables of the statement are loaded
+     */
+    public CompletableFuture<Void> prepare(String statement) {
+        if (pending.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        Set<String> names = referencedTables(statement);
+        List<CompletableFuture<Void>> needed = new ArrayList<>();
+        for (String name : names) {
+            CompletableFuture<Void> f = loads.get(name);
+            if (f == null && pending.containsKey(name))
+                f = loads.computeIfAbsent(name, k -> CompletableFuture.runAsync(() -> load(k), LOADER));
+            if (f != null)
+                needed.add(f);
+        }
+        return CompletableFuture.allOf(needed.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * @return true, if the statement refers to a table that is not loaded yet
+     */
+    public boolean needsLoading(String statement) {
+        if (pending.isEmpty())
+            return false;
+        for (String name : referencedTables(statement)) {
+            CompletableFuture<Void> f = loads.get(name);
+            if (pending.containsKey(name) && (f == null || !f.isDone()))
+                return true;
+        }
+        return false;
+    }
+
+    private void load(String key) {
+        Pending p = pending.get(key);
+        if (p == null)
+            return;
+        long start = System.currentTimeMillis();
+        try {
+            insertRows(p.cache(), p.dbname(), p.table(), p.tables(), p.rows(), p.isWAL());
+            pending.remove(key);
+            AppLog.info("SQL analyzer: loaded table " + p.table() + " (" + p.rows().size() + " rows) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (SQLException e) {
+            // the next statement that needs the table tries again
+            loads.remove(key);
+            AppLog.error("SQL analyzer: could not load table " + p.table() + ": " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Finds the tables a statement refers to. The statement is parsed with
+     * the SQLite grammar; if it has syntax errors (e.g. while it is typed)
+     * every word of the statement is taken as a possible table name.
+     *
+     * @param statement the SQL statement
+     * @return the lower-case names, without quotes
+     */
+    static Set<String> referencedTables(String statement) {
+        Set<String> names = new HashSet<>();
+
+        SQLiteLexer lexer = new SQLiteLexer(new ANTLRInputStream(statement));
+        lexer.removeErrorListeners();
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        SQLiteParser parser = new SQLiteParser(tokens);
+        parser.removeErrorListeners();
+
+        ParseTree tree;
+        try {
+            tree = parser.parse();
+        } catch (RuntimeException e) {
+            tree = null;
+        }
+
+        if (tree != null && parser.getNumberOfSyntaxErrors() == 0) {
+            ParseTreeWalker.DEFAULT.walk(new SQLiteBaseListener() {
+                @Override
+                public void enterTable_name(SQLiteParser.Table_nameContext ctx) {
+                    names.add(unquote(ctx.getText()));
+                }
+            }, tree);
+        } else {
+            tokens.fill();
+            for (Token t : tokens.getTokens()) {
+                if (t.getType() != Token.EOF)
+                    names.add(unquote(t.getText()));
+            }
+        }
+        return names;
+    }
+
+    private static String unquote(String name) {
+        String n = name.trim();
+        if (n.length() >= 2 && (n.startsWith("\"") || n.startsWith("`") || n.startsWith("[") || n.startsWith("'")))
+            n = n.substring(1, n.length() - 1);
+        return n.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Replaces the empty in-memory database by one in a temporary file.
+     */
+    private void spill(long cells) throws SQLException {
+        try {
+            spillfile = File.createTempFile("fqlite-analyzer-", ".db");
+            spillfile.deleteOnExit();
+        } catch (IOException e) {
+            AppLog.error("SQL analyzer: no temporary file, staying in RAM: " + e.getMessage());
+            return;
+        }
+
+        Connection file = getConnection("jdbc:sqlite:" + spillfile.getAbsolutePath());
+        try (Statement st = file.createStatement()) {
+            st.execute("PRAGMA journal_mode=OFF");
+            st.execute("PRAGMA synchronous=OFF");
+            st.execute("PRAGMA cache_size=-65536");
+        }
+        if (connection != null)
+            connection.close();
+        connection = file;
+        AppLog.info("SQL analyzer: about " + cells + " cells, database of " + dbName + " is kept in " + spillfile);
+    }
+
     /**
      * Execute a concrete SQL statement
+     * <p>
+     * The statement runs under the same lock as {@link #insertRows}, so it
+     * never ends up inside the open transaction of a table that is loaded
+     * in the background at the same time. The wait for the tables of the
+     * statement happens before the lock is taken - the loader needs it.
+     *
      * @param select_statement the SQL statement to excute
      * @return a set of result objects
      */
     public ResultSet execute(String select_statement) {
 
+        // fill the tables of the statement first (usually done by now, see prepare())
+        try {
+            prepare(select_statement).join();
+        } catch (CompletionException e) {
+            AppLog.error("SQL analyzer: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            return query(select_statement);
+        }
+    }
+
+    private ResultSet query(String select_statement) {
         try {
             if (connection == null) {
                 connection = getConnection(DB_URL);
@@ -456,7 +614,7 @@ public class InMemoryDatabase {
     ///
     /// Use this method to run a SELECT against the database
     ///
-    public void executeQuery(String select_statement){
+    public synchronized void executeQuery(String select_statement){
 
 
           try(Connection conn = connection;
@@ -570,7 +728,7 @@ public class InMemoryDatabase {
      * close the connection of the in-memory database.
      * This method is used during cleanup.
      */
-    public void closeConnection(){
+    public synchronized void closeConnection(){
         try {
             //connection.close();
             connection = null;
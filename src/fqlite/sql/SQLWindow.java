@@ -9,7 +9,9 @@ import fqlite.util.WordListCreator;
 import javafx.scene.control.*;
 import fqlite.base.GUI;
 import fqlite.base.ThemeManager;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -26,6 +28,7 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  *  This class implements a simple user interface for the
@@ -128,9 +131,7 @@ public class SQLWindow extends Application {
         iv.setFitWidth(20);
         btnGo.setGraphic(iv);
         btnGo.setTooltip(new Tooltip("click to execute your SELECT statement"));
-        btnGo.setOnAction(event -> {
-            p.parse(codeArea.getText(), dbBox.getSelectionModel().getSelectedItem(), primaryStage, resultview, statusline);
-        });
+        btnGo.setOnAction(event -> run());
 
         Button btnCopy = new Button();
         s = Objects.requireNonNull(GUI.class.getResource("/icon24_copy.png")).toExternalForm();
@@ -239,6 +240,11 @@ public class SQLWindow extends Application {
             }
         });
 
+        // load the tables of the statement while it is typed, see InMemoryDatabase.prepare()
+        PauseTransition typing = new PauseTransition(Duration.millis(400));
+        typing.setOnFinished(e -> prefetch());
+        codeArea.textProperty().addListener((obs, oldText, newText) -> typing.playFromStart());
+
         statusline = new Label();
         statusline.setText("<no rows selected>" + " | rows: " + 0);
         statusline.setStyle("-fx-text-fill: gray; -fx-max-width:200;");
@@ -283,6 +289,34 @@ public class SQLWindow extends Application {
         }
     }
 
+    /**
+     * Executes the statement. Tables of the statement that are not in the
+     * analyzer database yet are loaded first, in the background.
+     */
+    private void run() {
+        String sql = codeArea.getText();
+        String db = dbBox.getSelectionModel().getSelectedItem();
+        InMemoryDatabase mdb = DBManager.get(db);
+
+        if (!mdb.needsLoading(sql)) {
+            p.parse(sql, db, primaryStage, resultview, statusline);
+            return;
+        }
+
+        statusline.setText("loading tables...");
+        btnGo.setDisable(true);
+        mdb.prepare(sql).whenComplete((done, err) -> Platform.runLater(() -> {
+            btnGo.setDisable(false);
+            p.parse(sql, db, primaryStage, resultview, statusline);
+        }));
+    }
+
+    private void prefetch() {
+        String db = dbBox.getSelectionModel().getSelectedItem();
+        if (db != null && DBManager.exists(db))
+            DBManager.get(db).prepare(codeArea.getText());
+    }
+
     /**
      * Applies the current theme (dark/light) to the TextArea by swapping CSS classes.
      * The colours are defined in sql-editor-theme.css via .code-area-dark / .code-area-light.
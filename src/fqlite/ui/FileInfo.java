@@ -9,7 +9,6 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
@@ -19,8 +18,8 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import fqlite.base.Global;
+import fqlite.util.FileDigests;
 
 public class FileInfo {
 
@@ -426,15 +425,11 @@ public class FileInfo {
 
 	public void computeHashes(String path) {
 		try {
-			sha256hash = new DigestUtils(
-					org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_256)
-					.digestAsHex(new File(path));
-			md5hash = new DigestUtils(
-					org.apache.commons.codec.digest.MessageDigestAlgorithms.MD5)
-					.digestAsHex(new File(path));
-			sha1 = new DigestUtils(
-					org.apache.commons.codec.digest.MessageDigestAlgorithms.SHA_1)
-					.digestAsHex(new File(path));
+			/* one read for all three values - and the exports get them from the cache */
+			FileDigests.Digests d = FileDigests.get(path);
+			sha256hash = d.sha256();
+			md5hash = d.md5();
+			sha1 = d.sha1();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,94 @@
+package fqlite.ui;
+
+import java.util.Map;
+
+import fqlite.base.Job;
+import fqlite.base.ThemeManager;
+import fqlite.log.Metrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+/**
+ * Live view of the {@link Metrics} of a job: phase timings and pages/s,
+ * cells decoded, carving attempts and hits, overflow chain lengths, mmap
+ * cache figures and the busy time of the worker threads.
+ *
+ * The table is refreshed once per second while the window is open, so an
+ * import that is still running can be watched.
+ *
+ * @author Dirk Pawlaszczyk
+ *
+ */
+public class MetricsWindow {
+
+	private final Job job;
+	private final ObservableList<Map.Entry<String, String>> rows = FXCollections.observableArrayList();
+	private Timeline refresh;
+
+	/**
+	 * @param job the job to watch
+	 */
+	public MetricsWindow(Job job) {
+		this.job = job;
+	}
+
+	public void start(Stage stage) {
+
+		TableView<Map.Entry<String, String>> table = new TableView<>(rows);
+		table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+
+		TableColumn<Map.Entry<String, String>, String> name = new TableColumn<>("Metric");
+		name.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().getKey()));
+		name.setPrefWidth(320);
+		TableColumn<Map.Entry<String, String>, String> value = new TableColumn<>("Value");
+		value.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().getValue()));
+		table.getColumns().add(name);
+		table.getColumns().add(value);
+
+		/* the JSON dump is the same as the one of the command line interface */
+		Button copy = new Button("Copy as JSON");
+		copy.setOnAction(e -> {
+			ClipboardContent cc = new ClipboardContent();
+			cc.putString(job.metrics.toJson());
+			Clipboard.getSystemClipboard().setContent(cc);
+		});
+
+		HBox bottom = new HBox(10, copy, new Label(job.filename != null ? job.filename : ""));
+		bottom.setPadding(new Insets(8));
+
+		BorderPane root = new BorderPane(table);
+		root.setBottom(bottom);
+
+		update();
+		refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> update()));
+		refresh.setCycleCount(Timeline.INDEFINITE);
+		refresh.play();
+
+		Scene scene = new Scene(root, 560, 640);
+		ThemeManager.register(scene);
+		stage.setTitle("Scan Metrics");
+		stage.setScene(scene);
+		stage.setOnHidden(e -> refresh.stop());
+		stage.show();
+	}
+
+	private void update() {
+		rows.setAll(job.metrics.snapshot().entrySet());
+	}
+
+}
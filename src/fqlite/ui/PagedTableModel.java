@@ -0,0 +1,405 @@
+package fqlite.ui;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import fqlite.base.CompactRow;
+import fqlite.log.AppLog;
+import javafx.application.Platform;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.ObservableValueBase;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+import javafx.scene.control.TableView;
+import javafx.util.Callback;
+
+/**
+ * Item list of a result table that only touches the rows on screen.
+ *
+ * Filtering and sorting never run over the rows on the JavaFX thread, and
+ * nothing is done per row before the table is shown - a table with a few
+ * million rows opens and reacts like a small one.
+ *
+ * The model is a view on the row list of the job (the backing store):
+ *
+ * <ul>
+ * <li>it holds only an index array - the store indices of the rows that
+ *     pass the filter, in sort order (<code>null</code> for "all rows in
+ *     store order")</li>
+ * <li>filtering and sorting are done by the model, on a background thread,
+ *     directly on the typed cells of the store (numbers of a
+ *     {@link CompactRow} are compared without parsing); the table gets one
+ *     change event when the new index is ready. A query that is overtaken
+ *     by a newer one is dropped.</li>
+ * <li>the decorator (e.g. the BLOB icons) runs once per row, when the row
+ *     is fetched by the table - i.e. for the rows in the viewport</li>
+ * </ul>
+ *
+ * The items are the rows of the store themselves, so code that reads
+ * <code>getItems().get(row)</code> gets the row of the job. The model is
+ * read-only; it must only be used on the JavaFX thread.
+ *
+ * @author pawlaszc
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class PagedTableModel extends ObservableListBase<ObservableList> {
+
+	/* one thread for the queries of all tables - the UI only waits for the latest */
+	private static final ExecutorService QUERIES = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "table-query");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/* a running query looks for a newer one every CHECK rows */
+	private static final int CHECK = 4096;
+
+	private final List<? extends ObservableList<String>> store;
+	private final IntConsumer decorator;
+	private final BitSet decorated = new BitSet();
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private int[] view = null;
+
+	/* the current query */
+	private int filtercolumn = -1;
+	private String filtertext = "";
+	private List<Order> order = List.of();
+
+	/**
+	 * A sort key: column index in the row and direction.
+	 */
+	public record Order(int column, boolean ascending) {
+	}
+
+	/**
+	 * @param store the rows, must be random access
+	 * @param decorator called with the store index of a row before the row
+	 *                  is handed out for the first time, may be null
+	 */
+	public PagedTableModel(List<? extends ObservableList<String>> store, IntConsumer decorator) {
+		this.store = store;
+		this.decorator = decorator;
+	}
+
+	@Override
+	public ObservableList get(int index) {
+		int r = storeIndex(index);
+		if (decorator != null && !decorated.get(r)) {
+			decorated.set(r);
+			decorator.accept(r);
+		}
+		return store.get(r);
+	}
+
+	@Override
+	public int size() {
+		return view == null ? store.size() : view.length;
+	}
+
+	/**
+	 * @return number of rows in the store
+	 */
+	public int total() {
+		return store.size();
+	}
+
+	/**
+	 * @return the store index of the row at the given position of the view
+	 */
+	public int storeIndex(int index) {
+		if (view == null) {
+			if (index < 0 || index >= store.size())
+				throw new IndexOutOfBoundsException(index);
+			return index;
+		}
+		return view[index];
+	}
+
+	/**
+	 * Shows only the rows with a cell that contains the text (ignoring
+	 * case).
+	 *
+	 * @param column index of the cell in the row, -1 for any cell
+	 * @param text the text, empty for all rows
+	 * @param done called on the JavaFX thread when the table shows the result
+	 */
+	public void filter(int column, String text, Runnable done) {
+		filtercolumn = column;
+		filtertext = text == null ? "" : text.toLowerCase();
+		query(done);
+	}
+
+	/**
+	 * Sorts the rows. An empty order restores the store order.
+	 *
+	 * @param order the sort keys, the first one is the primary key
+	 * @param done called on the JavaFX thread when the table shows the result
+	 */
+	public void sort(List<Order> order, Runnable done) {
+		this.order = List.copyOf(order);
+		query(done);
+	}
+
+	/**
+	 * Makes the table view sort through this model instead of sorting its
+	 * item list. The column index of a TableColumn is taken from its user
+	 * data, see {@link #bind(TableColumn, int)}.
+	 *
+	 * @param table the table showing this model
+	 */
+	@SuppressWarnings("unchecked")
+	public void install(TableView table) {
+		table.setItems(this);
+		table.setSortPolicy(t -> {
+			List<Order> keys = new ArrayList<>();
+			for (Object o : ((TableView) t).getSortOrder()) {
+				TableColumn c = (TableColumn) o;
+				if (c.getUserData() instanceof Integer j)
+					keys.add(new Order(j, c.getSortType() == TableColumn.SortType.ASCENDING));
+			}
+			sort(keys, null);
+			return true;
+		});
+	}
+
+	/**
+	 * Lets a column show the cell with the given index of each row and
+	 * remembers the index for sorting.
+	 *
+	 * The cell value is a constant - a table cell is never edited - and
+	 * cheaper than a property, one is created per visible cell.
+	 *
+	 * @param column the table column
+	 * @param index index of the cell in the row
+	 */
+	@SuppressWarnings("unchecked")
+	public static void bind(TableColumn column, int index) {
+		column.setUserData(index);
+		column.setCellValueFactory((Callback<CellDataFeatures<ObservableList, String>, ObservableValue<String>>) param -> {
+			ObservableList row = param.getValue();
+			Object v = row.size() > index ? row.get(index) : null;
+			return new Value(v == null ? "" : v.toString());
+		});
+	}
+
+	private static final class Value extends ObservableValueBase<String> {
+		private final String value;
+
+		Value(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String getValue() {
+			return value;
+		}
+	}
+
+
+	private void query(Runnable done) {
+		int gen = generation.incrementAndGet();
+		int column = filtercolumn;
+		String text = filtertext;
+		List<Order> keys = order;
+
+		QUERIES.execute(() -> {
+			int[] result;
+			try {
+				result = compute(gen, column, text, keys);
+			} catch (RuntimeException err) {
+				AppLog.error("Table query failed: " + err);
+				return;
+			}
+			if (result == null)
+				return;
+			Platform.runLater(() -> {
+				if (gen != generation.get())
+					return;
+				publish(result);
+				if (done != null)
+					done.run();
+			});
+		});
+	}
+
+	/**
+	 * @return the new index, <code>null</code> for all rows in store order or
+	 *         if the query was overtaken (see {@link #generation})
+	 */
+	private int[] compute(int gen, int column, String text, List<Order> keys) {
+		int n = store.size();
+
+		if (text.isEmpty() && keys.isEmpty())
+			return gen == generation.get() ? IDENTITY : null;
+
+		/* filter */
+		int[] idx = new int[n];
+		int m = 0;
+		for (int r = 0; r < n; r++) {
+			if ((r % CHECK) == 0 && gen != generation.get())
+				return null;
+			if (text.isEmpty() || matches(store.get(r), column, text))
+				idx[m++] = r;
+		}
+		idx = Arrays.copyOf(idx, m);
+
+		/* sort */
+		if (!keys.isEmpty()) {
+			if (gen != generation.get())
+				return null;
+			sort(idx, (a, b) -> {
+				for (Order o : keys) {
+					int c = compare(store.get(a), store.get(b), o.column());
+					if (c != 0)
+						return o.ascending() ? c : -c;
+				}
+				return 0;
+			});
+		}
+		return gen == generation.get() ? idx : null;
+	}
+
+	/**
+	 * Order of two rows, given by their store indices.
+	 */
+	interface RowOrder {
+		int compare(int a, int b);
+	}
+
+	/**
+	 * Stable merge sort of an index array. The indices stay primitive:
+	 * besides the array itself only one scratch array of the same length
+	 * is needed, 4 bytes per row.
+	 */
+	static void sort(int[] idx, RowOrder cmp) {
+		mergesort(idx.clone(), idx, 0, idx.length, cmp);
+	}
+
+	/* sorts src[lo, hi) into dst[lo, hi) - both hold the same indices on entry */
+	private static void mergesort(int[] src, int[] dst, int lo, int hi, RowOrder cmp) {
+		if (hi - lo < 16) {
+			for (int i = lo + 1; i < hi; i++)
+				for (int j = i; j > lo && cmp.compare(dst[j - 1], dst[j]) > 0; j--) {
+					int t = dst[j];
+					dst[j] = dst[j - 1];
+					dst[j - 1] = t;
+				}
+			return;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		mergesort(dst, src, lo, mid, cmp);
+		mergesort(dst, src, mid, hi, cmp);
+
+		/* both halves are already in order */
+		if (cmp.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, lo, dst, lo, hi - lo);
+			return;
+		}
+
+		for (int i = lo, p = lo, q = mid; i < hi; i++) {
+			if (q >= hi || (p < mid && cmp.compare(src[p], src[q]) <= 0))
+				dst[i] = src[p++];
+			else
+				dst[i] = src[q++];
+		}
+	}
+
+	/* marks "all rows in store order" in the hand-over from compute() to publish() */
+	private static final int[] IDENTITY = new int[0];
+
+	private void publish(int[] result) {
+		int[] old = view;
+		int oldsize = size();
+		view = result == IDENTITY ? null : result;
+
+		beginChange();
+		nextRemove(0, new AbstractList<ObservableList>() {
+			@Override
+			public ObservableList get(int i) {
+				return store.get(old == null ? i : old[i]);
+			}
+
+			@Override
+			public int size() {
+				return oldsize;
+			}
+		});
+		nextAdd(0, size());
+		endChange();
+	}
+
+	private static boolean matches(List<String> row, int column, String text) {
+		if (column >= 0) {
+			if (row.size() <= column)
+				return false;
+			String v = row.get(column);
+			return v != null && v.toLowerCase().contains(text.trim());
+		}
+		for (String v : row)
+			if (v != null && v.toLowerCase().contains(text))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Compares two cells. Numbers stored as numbers are compared as such,
+	 * otherwise numbers first if the text can be parsed, then the text.
+	 */
+	static int compare(List<String> a, List<String> b, int column) {
+		boolean ha = a.size() > column;
+		boolean hb = b.size() > column;
+		if (!ha || !hb)
+			return Boolean.compare(ha, hb);
+
+		if (a instanceof CompactRow ca && b instanceof CompactRow cb && numeric(ca, column) && numeric(cb, column)) {
+			/* rowids and timestamps above 2^53 have no exact double */
+			if (ca.kind(column) == CompactRow.LONG && cb.kind(column) == CompactRow.LONG)
+				return Long.compare(ca.getLong(column), cb.getLong(column));
+			return Double.compare(ca.getDouble(column), cb.getDouble(column));
+		}
+
+		String s1 = a.get(column);
+		String s2 = b.get(column);
+		if (s1 == null || s2 == null)
+			return s1 == null ? (s2 == null ? 0 : -1) : 1;
+
+		Long l1 = parse(s1);
+		Long l2 = parse(s2);
+		if (l1 != null && l2 != null)
+			return Long.compare(l1, l2);
+		if (l1 != null || l2 != null)
+			return l1 != null ? -1 : 1;
+		return s1.compareTo(s2);
+	}
+
+	private static boolean numeric(CompactRow row, int column) {
+		byte k = row.kind(column);
+		return k == CompactRow.LONG || k == CompactRow.DOUBLE;
+	}
+
+	private static Long parse(String s) {
+		if (s.isEmpty())
+			return null;
+		char ch = s.charAt(0);
+		if (!((ch >= '0' && ch <= '9') || ch == '-' || ch == '+'))
+			return null;
+		try {
+			return Long.valueOf(s);
+		} catch (NumberFormatException err) {
+			return null;
+		}
+	}
+
+}
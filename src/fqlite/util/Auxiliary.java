@@ -23,12 +23,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import javax.imageio.ImageIO;
 import fqlite.base.*;
 import fqlite.descriptor.AbstractDescriptor;
 import fqlite.descriptor.IndexDescriptor;
 import fqlite.descriptor.TableDescriptor;
 import fqlite.log.AppLog;
+import fqlite.log.Flight;
+import fqlite.log.Metrics;
 import fqlite.parser.SQLiteSchemaParser;
 import fqlite.pattern.HeaderPattern;
 import fqlite.pattern.IntegerConstraint;
@@ -144,6 +147,12 @@ public class Auxiliary {
     public AtomicInteger found = new AtomicInteger();
     public Job job;
 
+    /* counts the records decoded by readRecord() - looked up once, readRecord() is a hot path */
+    private final LongAdder cellsdecoded;
+
+    /* file the parsed pages come from; null means the database of the job */
+    public HexSource hexsource;
+
     // -------------------------------------------------------------------------
     // Constructor
     // -------------------------------------------------------------------------
@@ -156,6 +165,14 @@ public class Auxiliary {
      */
     public Auxiliary(Job job) {
         this.job = job;
+        this.cellsdecoded = (job != null) ? job.metrics.counter(Metrics.CELLS_DECODED) : new LongAdder();
+    }
+
+    /**
+     * Returns the file that hexdump references of this instance point into.
+     */
+    private HexSource hexSource() {
+        return (hexsource != null) ? hexsource : job.hexsource;
     }
 
     // -------------------------------------------------------------------------
@@ -189,6 +206,40 @@ public class Auxiliary {
         }
     }
 
+    /**
+     * Byte-native variant of {@link #getPageType(String)}. Reads the type flag
+     * directly from the page buffer instead of a hex copy of the whole page.
+     * The buffer position is not changed.
+     *
+     * @param page   the page content
+     * @param offset position of the type flag within {@code page}
+     * @return numeric page type, or -1 for unknown
+     */
+    public static int getPageType(ByteBuffer page, int offset) {
+        if (offset < 0 || offset >= page.limit()) return -1;
+        switch (page.get(offset)) {
+            case 0x0D: return 8;
+            case 0x05: return 5;
+            case 0x0A: return 10;
+            case 0x02: return 2;
+            case 0x00: return 0;    // overflow or dropped page
+            default:   return -1;
+        }
+    }
+
+    /**
+     * Reads a big-endian unsigned 2-byte value at an absolute position
+     * (cell pointers, freeblock links, cell counts). The buffer position is
+     * not changed.
+     *
+     * @param b   source buffer
+     * @param pos absolute byte position
+     * @return the value in the range 0..65535
+     */
+    public static int readUnsignedShort(ByteBuffer b, int pos) {
+        return ((b.get(pos) & 0xFF) << 8) | (b.get(pos + 1) & 0xFF);
+    }
+
     // -------------------------------------------------------------------------
     // Master-table record reading
     // -------------------------------------------------------------------------
@@ -362,12 +413,13 @@ public class Auxiliary {
      * @param next       the next match on the same page (may be {@code null})
      * @param pagenumber the 1-based page number being analysed
      * @param fallback   fallback serial-type string used when the first column is unknown
+     * @param base       file offset of the first byte of {@code buffer}, {@code -1} if unknown
      * @return a {@link CarvingResult} or {@code null} if the record is invalid
      * @throws IOException on buffer read errors
      */
     public CarvingResult readDeletedRecord(AbstractDescriptor ad, Job job, ByteBuffer buffer, BitSet bs,
                                            Match m, Match next, int pagenumber,
-                                           String fallback) throws IOException {
+                                           String fallback, long base) throws IOException {
 
         boolean repeat = false;
         int round = 1;
@@ -387,13 +439,13 @@ public class Auxiliary {
             }
 
             LinkedList<String> record = new LinkedList<>();
-            LinkedList<byte[]> hexdump = new LinkedList<>();
+            HexdumpRow hexdump = new HexdumpRow(hexSource(), base);
             List<SqliteElement> columns;
             int rowid = -1;
 
             // Guard: m.end must be within buffer bounds
             if (m.end < 0 || m.end > buffer.limit()) {
-                AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit=" + buffer.limit() + ", skipping.");
+                if (AppLog.isDebugEnabled()) AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit=" + buffer.limit() + ", skipping.");
                 return null;
             }
             buffer.position(m.end);
@@ -411,7 +463,7 @@ public class Auxiliary {
                 m.match = m.match.replace("RI", "");
                 // Guard: re-check after RI-strip
                 if (m.end < 0 || m.end > buffer.limit()) {
-                    AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit after RI-strip, skipping.");
+                    if (AppLog.isDebugEnabled()) AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit after RI-strip, skipping.");
                     return null;
                 }
                 buffer.position(m.end);
@@ -423,7 +475,7 @@ public class Auxiliary {
             if (header.startsWith("XX")) {
                 header = resolvePartialHeader(header, buffer, m, next, round);
                 if (m.end < 0 || m.end > buffer.limit()) {
-                    AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit after resolvePartialHeader, skipping.");
+                    if (AppLog.isDebugEnabled()) AppLog.debug("readDeletedRecord: m.end=" + m.end + " out of buffer limit after resolvePartialHeader, skipping.");
                     return null;
                 }
                 buffer.position(m.end);
@@ -431,7 +483,7 @@ public class Auxiliary {
 
             columns = toColumns(header);
             if (columns == null) {
-                AppLog.debug("No valid header-string: " + header);
+                if (AppLog.isDebugEnabled()) AppLog.debug("No valid header-string: " + header);
                 return null;
             }
 
@@ -445,12 +497,14 @@ public class Auxiliary {
                 /* Spilled payload — read overflow */
                 int phl = header.length() / 2;
                 int last = buffer.position();
-                AppLog.debug("Deleted spilled payload: " + so);
-                AppLog.debug("Deleted pll payload: " + pll);
+                if (AppLog.isDebugEnabled()) {
+                    AppLog.debug("Deleted spilled payload: " + so);
+                    AppLog.debug("Deleted pll payload: " + pll);
+                }
 
                 int overflowSeekPos = buffer.position() + so - phl - 1;
                 if (overflowSeekPos < 0 || overflowSeekPos + 4 > buffer.limit()) {
-                    AppLog.debug("readDeletedRecord: overflow seek position " + overflowSeekPos + " out of buffer limit=" + buffer.limit() + ", treating as no-overflow.");
+                    if (AppLog.isDebugEnabled()) AppLog.debug("readDeletedRecord: overflow seek position " + overflowSeekPos + " out of buffer limit=" + buffer.limit() + ", treating as no-overflow.");
                     pll = so;
                     // fall through to the no-overflow branch below by adjusting so
                     // We set bf=buffer and skip the getInt entirely
@@ -463,6 +517,7 @@ public class Auxiliary {
                         byte[] value = new byte[en.getlength()];
                         bf.get(value);
                         blobcolidx = appendColumn(record, hexdump, en, value, blobcolidx, false, 2);
+                        hexdump.setRef(hexdump.size() - 1, bf.position() - value.length, value.length);
                     }
                     buffer.position(Math.min(last + so - phl - 1, buffer.limit()));
                     bs.set(m.end, buffer.position(), true);
@@ -481,39 +536,29 @@ public class Auxiliary {
 
                 buffer.position(overflowSeekPos);
                 int overflow = buffer.getInt();
-                AppLog.debug("Deleted overflow: " + overflow + " " + Integer.toHexString(overflow));
+                if (AppLog.isDebugEnabled()) AppLog.debug("Deleted overflow: " + overflow + " " + Integer.toHexString(overflow));
                 buffer.position(last);
 
-                ByteBuffer bf;
+                /* cell part and overflow pages are read through one view - no merged copy */
+                OverflowChains.Payload bf;
                 if (overflow > 0 && overflow < job.numberofpages) {
-                    byte[] extended = readOverflowIterativ(overflow - 1, false);
-                    byte[] originalbuffer = copyBufferToArray(buffer);
-                    byte[] c = new byte[pll + job.ps];
-                    buffer.position(last);
-
-                    System.arraycopy(originalbuffer, buffer.position(), c, 0, so + 7);
-                    try {
-                        if (extended != null) {
-                            System.arraycopy(extended, 0, c, so - phl - 1, pll - so);
-                        }
-                        bf = ByteBuffer.wrap(c);
-                    } catch (ArrayIndexOutOfBoundsException | NullPointerException err) {
-                        AppLog.debug("Overflow merge error: " + err.getMessage());
-                        bf = null;
+                    int inpage = so - phl - 1;
+                    bf = job.overflows.payload(buffer, last, inpage, overflow - 1, pll - so, pll + job.ps);
+                    if (inpage < 0 || bf.overflowLength() < pll - so) {
+                        if (AppLog.isDebugEnabled()) AppLog.debug("Overflow chain too short for payload of " + pll + " bytes");
+                        return null;
                     }
                 } else {
                     pll = so;
-                    bf = buffer;
+                    bf = OverflowChains.Payload.of(buffer);
                 }
-
-                if (bf == null) return null;
                 bf.position(0);
 
                 int blobcolidx = 0;
                 for (SqliteElement en : columns) {
                     if (en == null) continue;
                     if ((bf.position() + en.getlength()) > bf.limit()) {
-                        AppLog.debug("readDeletedRecord: overflow bf underflow at pos=" + bf.position() + " needed=" + en.getlength() + " limit=" + bf.limit());
+                        if (AppLog.isDebugEnabled()) AppLog.debug("readDeletedRecord: overflow bf underflow at pos=" + bf.position() + " needed=" + en.getlength() + " limit=" + bf.limit());
                         break;
                     }
                     byte[] value = new byte[en.getlength()];
@@ -549,6 +594,7 @@ public class Auxiliary {
                         buffer.get(value);
                         //hexdump.add(value);
                         blobcolidx = appendColumn(record, hexdump, en, value, blobcolidx, false, 0);
+                        hexdump.setRef(hexdump.size() - 1, buffer.position() - value.length, value.length);
                     }
                 }
                 else {
@@ -593,6 +639,7 @@ public class Auxiliary {
                                 buffer.get(value);
                                 //hexdump.add(value);
                                 blobcolidx = appendColumn(record, hexdump, truncated, value, blobcolidx, false, 0);
+                                hexdump.setRef(hexdump.size() - 1, buffer.position() - value.length, value.length);
                             }
                             partial = true;
                             continue;
@@ -602,6 +649,7 @@ public class Auxiliary {
                         buffer.get(value);
                         //hexdump.add(value);
                         blobcolidx = appendColumn(record, hexdump, en, value, blobcolidx, false, 0);
+                        hexdump.setRef(hexdump.size() - 1, buffer.position() - value.length, value.length);
                         cc++;
                     }
                 }
@@ -610,7 +658,7 @@ public class Auxiliary {
             /* Mark bytes as visited */
             bs.set(m.end, buffer.position(), true);
             long cursor = ((pagenumber - 1L) * job.ps) + buffer.position();
-            AppLog.debug("Visited: " + m.end + " to " + buffer.position());
+            if (AppLog.isDebugEnabled()) AppLog.debug("Visited: " + m.end + " to " + buffer.position());
 
             record.add(0, "[" + pll + "|" + header.length() / 2 + "]");
             record.add(1, "" + rowid);
@@ -695,11 +743,26 @@ public class Auxiliary {
                               BitSet bs, int maxlength, boolean withoutROWID,
                               int filetype, long offset, String tblname) throws IOException {
 
-        // ArrayList, not LinkedList: this is the dominant per-row allocation
-        // for a normal (non-deleted-record) import — see the comment on
-        // DataRow for why RandomAccess backing matters here at scale.
-        ArrayList<String> record = new ArrayList<>();
-        ArrayList<byte[]> hexdump = new ArrayList<>();
+        // CompactRow, not ArrayList<String>: this is the dominant per-row
+        // allocation for a normal (non-deleted-record) import. Offsets, row
+        // ids and numeric column values stay primitive and are formatted
+        // only when a cell is rendered or exported (see CompactRow).
+        CompactRow record = new CompactRow();
+
+        // The raw cell bytes are not copied: the hexdump only keeps where
+        // each value sits in the file (see HexdumpRow). This needs the file
+        // offset of buffer[0]. WAL and journal callers pass the file offset
+        // of the cell. A regular page buffer starts at its page boundary -
+        // except for page 1 (read from offset 100) and rebuilt free blocks,
+        // whose values are kept as byte arrays instead.
+        long base = -1;
+        if (filetype == Global.WAL_ARCHIVE_FILE || filetype == Global.ROLLBACK_JOURNAL_FILE) {
+            if (offset > -1)
+                base = offset - cellstart;
+        } else if (pagenumber_db > 1 && buffer.limit() == job.ps) {
+            base = (pagenumber_db - 1L) * job.ps;
+        }
+        HexdumpRow hexdump = new HexdumpRow(hexSource(), base);
 
         boolean  unknown    = false;
         boolean  isVT       = false;
@@ -735,7 +798,7 @@ public class Auxiliary {
 
             record.add(Global.REGULAR_RECORD.intern());
             hexdump.add(null);
-            record.add(offset > -1 ? offset + "" : cellstart + "");
+            record.addLong(offset > -1 ? offset : cellstart);
             hexdump.add(null);
 
         }
@@ -760,7 +823,7 @@ public class Auxiliary {
 
             record.add(Global.REGULAR_RECORD.intern());
             hexdump.add(null);
-            record.add(offset > -1 ? offset + "" : cellstart + "");
+            record.addLong(offset > -1 ? offset : cellstart);
             hexdump.add(null);
 
         }
@@ -776,24 +839,24 @@ public class Auxiliary {
             hexdump.add(null);
             record.add(Global.REGULAR_RECORD.intern());
             hexdump.add(null);
-            record.add((((pagenumber_db - 1L) * job.ps) + cellstart) + "");
+            record.addLong(((pagenumber_db - 1L) * job.ps) + cellstart);
             hexdump.add(null);
         } else {
             unknown = true;
         }
 
-        AppLog.debug("Cellstart for pll: " + (((pagenumber_db - 1L) * job.ps) + cellstart));
+        if (AppLog.isDebugEnabled()) AppLog.debug("Cellstart for pll: " + (((pagenumber_db - 1L) * job.ps) + cellstart));
 
         try {
             buffer.position(cellstart);
         } catch (Exception err) {
-            AppLog.debug("ERROR: cellstart not in buffer: " + cellstart
+            if (AppLog.isDebugEnabled()) AppLog.debug("ERROR: cellstart not in buffer: " + cellstart
                          + " pagenumber_db=" + (pagenumber_db - 1L) + " pagesize=" + job.ps);
             return null;
         }
 
         int pll = readUnsignedVarInt(buffer);
-        AppLog.debug("Payload length: " + pll + " (" + Integer.toHexString(pll) + ")");
+        if (AppLog.isDebugEnabled()) AppLog.debug("Payload length: " + pll + " (" + Integer.toHexString(pll) + ")");
 
         if (pll < 4) return null;
 
@@ -845,11 +908,11 @@ public class Auxiliary {
                 }
                 //record.add(Global.REGULAR_RECORD.intern());
                 hexdump.add(null);
-                record.add((((pagenumber_db - 1L) * job.ps) + cellstart) + "");
+                record.addLong(((pagenumber_db - 1L) * job.ps) + cellstart);
                 hexdump.add(null);
             }
         } catch (NullPointerException err) {
-            AppLog.debug("NPE during table matching: " + err.getMessage());
+            if (AppLog.isDebugEnabled()) AppLog.debug("NPE during table matching: " + err.getMessage());
         }
 
         boolean error = false;
@@ -858,7 +921,7 @@ public class Auxiliary {
         if (so < pll) {
             /* Spilled payload */
             int last = buffer.position();
-            AppLog.debug("Regular spilled payload: " + so);
+            if (AppLog.isDebugEnabled()) AppLog.debug("Regular spilled payload: " + so);
 
             if ((buffer.position() + so - phl - 1) > (buffer.limit() - 4)) return null;
             try {
@@ -869,33 +932,17 @@ public class Auxiliary {
 
             int overflow = buffer.getInt();
             if (overflow < 0) return null;
-            AppLog.debug("Regular overflow: " + overflow + " (" + Integer.toHexString(overflow) + ")");
+            if (AppLog.isDebugEnabled()) AppLog.debug("Regular overflow: " + overflow + " (" + Integer.toHexString(overflow) + ")");
 
             buffer.position(last);
 
-            byte[] extended;
+            /* cell part and overflow pages are read through one view - no merged copy */
+            OverflowChains.Payload bf;
             if (filetype == Global.WAL_ARCHIVE_FILE) {
-                extended = readOverflowIterativ(overflow, true);
+                bf = OverflowChains.Payload.of(buffer, last, so - phl - 1, readWALOverflow(overflow, offset), pll - so, pll + job.ps);
             } else {
-                extended = readOverflowIterativ(overflow - 1, false);
-            }
-
-            byte[] originalbuffer = copyBufferToArray(buffer);
-            byte[] c = new byte[pll + job.ps];
-            buffer.position(last);
-
-            if (so - phl > 0) {
-                System.arraycopy(originalbuffer, buffer.position(), c, 0, so - phl);
-            }
-            try {
-                if (extended != null) {
-                    System.arraycopy(extended, 0, c, so - phl - 1, pll - so);
-                }
-            } catch (ArrayIndexOutOfBoundsException | NullPointerException err) {
-                AppLog.debug("Overflow merge error: " + err.getMessage());
+                bf = job.overflows.payload(buffer, last, so - phl - 1, overflow - 1, pll - so, pll + job.ps);
             }
-
-            ByteBuffer bf = ByteBuffer.wrap(c);
             bf.position(0);
             int blobcolidx = 0;
 
@@ -906,7 +953,7 @@ public class Auxiliary {
                     continue;
                 }
                 if (rowid_col == co && !withoutROWID) {
-                    record.add(rowid + "".intern());
+                    record.addLong(rowid);
                     hexdump.add(null);
                     co++;
                     continue;
@@ -914,14 +961,14 @@ public class Auxiliary {
 
                 byte[] value = new byte[en.getlength()];
                 if ((bf.limit() - bf.position()) < value.length) {
-                    AppLog.debug("Buffer underflow: available=" + (bf.limit() - bf.position())
+                    if (AppLog.isDebugEnabled()) AppLog.debug("Buffer underflow: available=" + (bf.limit() - bf.position())
                                  + " needed=" + value.length);
                 }
                 try {
                     //hex - representation of the field value
                     bf.get(value);
                 } catch (BufferUnderflowException err) {
-                    AppLog.debug("readRecord() buffer underflow: " + err);
+                    if (AppLog.isDebugEnabled()) AppLog.debug("readRecord() buffer underflow: " + err);
                     return null;
                 }
 
@@ -940,7 +987,7 @@ public class Auxiliary {
                     continue;
                 }
                 if (rowid_col == co && !withoutROWID) {
-                    record.add(rowid + "");
+                    record.addLong(rowid);
                     byte[] bytes = ByteBuffer.allocate(8).putInt(rowid).array();
                     hexdump.add(bytes);
                     co++;
@@ -959,19 +1006,20 @@ public class Auxiliary {
                 try {
                     buffer.get(value);
                 } catch (BufferUnderflowException err) {
-                    AppLog.debug("readRecord() buffer underflow: " + err);
+                    if (AppLog.isDebugEnabled()) AppLog.debug("readRecord() buffer underflow: " + err);
                     return null;
                 }
 
                 blobcolidx = appendValue(record, hexdump, en, value, blobcolidx, isVT, td, co, 2);
+                hexdump.setRef(hexdump.size() - 1, buffer.position() - value.length, value.length);
                 co++;
                 if (maxlength <= 0) break;
             }
         }
 
-        record.add(1, "[" + pll + "|" + hh.length() / 2 + "]");
+        record.addPayload(1, pll, hh.length() / 2);
         hexdump.add(1,null);
-        record.add(2, "" + rowid);
+        record.addLong(2, rowid);
         hexdump.add(2,null);
 
 
@@ -989,6 +1037,7 @@ public class Auxiliary {
         //    record.set(0, "fqlite_freelist".intern());
         //}
 
+        cellsdecoded.increment();
         return new DataRow(record,hexdump);
     }
 
@@ -1045,11 +1094,14 @@ public class Auxiliary {
         // a byte[] per cell as well duplicated the entire dataset in RAM —
         // at forensic-recovery scale (hundreds of thousands of rows) this was
         // the dominant source of sustained GC pressure during big imports.
-        // GUI.updateHexDump() derives display bytes from the String on
-        // demand, lazily, only for the single cell the user actually clicks.
+        // If the row has a HexdumpRow with a known file offset, readRecord()
+        // replaces this null with a reference to the bytes in the file right
+        // after this call. Otherwise GUI.updateHexDump() derives display
+        // bytes from the String for the single cell the user clicks.
         if (td == null) {
-            record.add(en.toString(value, false, true).intern());
-                hexdump.add(null);
+            if (!addNumeric(record, en, value))
+                record.add(en.toString(value, false, true).intern());
+            hexdump.add(null);
             return blobcolidx;
         }
 
@@ -1073,14 +1125,32 @@ public class Auxiliary {
         if (en.type == SerialTypes.PRIMARY_KEY) {
             record.add("null".intern());
             hexdump.add(null);
-        } else {
+        } else if (!addNumeric(record, en, value)) {
             String vv = en.toString(value, false, true);
             record.add(vv != null ? vv : "null".intern());
             hexdump.add(null);
+        } else {
+            hexdump.add(null);
         }
         return blobcolidx;
     }
 
+    /**
+     * Stores an integer or float column as a primitive cell if the row is a
+     * {@link CompactRow}. The value is then formatted only when it is shown.
+     *
+     * @return false if the value has to be added as a String instead
+     */
+    private static boolean addNumeric(List<String> record, SqliteElement en, byte[] value) {
+        if (!(record instanceof CompactRow cr) || !en.isNumeric(value))
+            return false;
+        if (en.type == SerialTypes.FLOAT64)
+            cr.addDouble(en.toDouble(value));
+        else
+            cr.addLong(en.toLong(value));
+        return true;
+    }
+
     /**
      * Appends a BLOB column entry to {@code record} and caches the binary data.
      * Returns the updated blob index.
@@ -1330,7 +1400,7 @@ public class Auxiliary {
                 return new TimeStamp(formatEpochSecond(time), l);
             }
         } catch (Exception err) {
-            AppLog.debug("DateTimeException in timestamp2String: " + err.getMessage());
+            if (AppLog.isDebugEnabled()) AppLog.debug("DateTimeException in timestamp2String: " + err.getMessage());
         }
         return new TimeStamp("null", 0);
     }
@@ -1395,92 +1465,57 @@ public class Auxiliary {
      * @return all overflow payload bytes concatenated
      */
     public static byte[] readOverflow(Job job, int pagenumber) {
-        List<byte[]>    parts   = new LinkedList<>();
-        Set<Integer>    visited = new HashSet<>();
-        int             next    = pagenumber;
-
-        while (true) {
-            if (next < 0 || next >= job.numberofpages) break;
-            if (visited.contains(next)) {
-                AppLog.debug("readOverflow: cycle detected at page " + next + " — stopping.");
-                break;
-            }
-            visited.add(next);
-
-            ByteBuffer overflowpage = job.readPageWithNumber(next, job.ps);
-            if (overflowpage == null) break;
-
-            overflowpage.position(0);
-            int nextRaw = overflowpage.getInt();
-
-            byte[] current = new byte[job.ps - 4];
-            overflowpage.position(4);
-            overflowpage.get(current, 0, job.ps - 4);
-            parts.add(current);
-
-            if (nextRaw == 0) break;
-            next = nextRaw - 1;
-        }
-
-        if (parts.isEmpty()) return new byte[0];
-        int total = parts.stream().mapToInt(b -> b.length).sum();
-        byte[] merged = new byte[total];
-        int off = 0;
-        for (byte[] part : parts) {
-            System.arraycopy(part, 0, merged, off, part.length);
-            off += part.length;
-        }
-        return merged;
+        /* the chain index and cache of the job know the pages already */
+        return job.overflows.read(pagenumber);
     }
 
     /**
-     * Iterative equivalent of {@link #readOverflow} — avoids stack-overflow risk
-     * for very long overflow chains, and supports WAL-file overflow pages.
+     * Reads the overflow pages of a record in the WAL archive. The pages of
+     * the database file are read through {@link Job#overflows} instead.
+     *
+     * @param pagenumber page number of the first overflow page
+     * @param offset     file offset of the cell in the WAL archive
+     * @return all overflow payload bytes concatenated
      */
-    private byte[] readOverflowIterativ(int pagenumber, boolean fromWAL) {
+    private byte[] readWALOverflow(int pagenumber, long offset) {
         List<ByteBuffer> parts   = new LinkedList<>();
         Set<Integer>     visited = new HashSet<>();
         int              next    = pagenumber;
-        int              saved   = -1;
-        int              frame   = -1;
 
-        if (fromWAL) {
-            saved = job.wal.wal.position();
-            frame = saved / (job.ps + 24) + 1;
-        }
+        Flight.OverflowChain ev = Flight.enabled ? new Flight.OverflowChain() : null;
+        if (ev != null) ev.begin();
 
-        while (true) {
-            ByteBuffer overflowpage;
+        // the versions of the overflow pages the frame of the cell sees
+        int frame = (int) (Math.max(0, offset - 32) / (job.ps + 24));
 
+        while (true) {
             if (visited.contains(next)) {
-                AppLog.debug("readOverflowIterativ: cycle detected at page " + next + " — stopping.");
+                if (AppLog.isDebugEnabled()) AppLog.debug("readWALOverflow: cycle detected at page " + next + " — stopping.");
                 break;
             }
 
-            if (fromWAL) {
-                overflowpage = job.readWALOverflowPage(frame, next, job.ps, pagenumber);
-            } else {
-                overflowpage = job.readPageWithNumber(next, job.ps);
-            }
+            ByteBuffer overflowpage = job.readWALOverflowPage(frame, next, job.ps, pagenumber);
             visited.add(next);
 
             if (overflowpage == null) break;
 
             overflowpage.position(0);
-            int nextRaw = overflowpage.getInt();
-            next = fromWAL ? nextRaw : nextRaw - 1;
+            next = overflowpage.getInt();
 
             byte[] current = new byte[job.ps - 4];
             overflowpage.position(4);
             overflowpage.get(current, 0, job.ps - 4);
             parts.add(ByteBuffer.wrap(current));
 
-            boolean more = fromWAL ? (nextRaw > 0) : (next >= 0);
-            if (!more) break;
+            if (next <= 0) break;
         }
 
-        if (fromWAL && saved > 0) {
-            job.wal.wal.position(saved);
+        job.metrics.distribution(Metrics.OVERFLOW_CHAIN).record(parts.size());
+        if (ev != null) {
+            ev.page = pagenumber;
+            ev.pages = parts.size();
+            ev.wal = true;
+            ev.commit();
         }
 
         if (parts.isEmpty()) {
@@ -1613,7 +1648,7 @@ public class Auxiliary {
         try {
             buffer.get(header);
         } catch (Exception err) {
-            AppLog.debug("getHeaderString error: " + err);
+            if (AppLog.isDebugEnabled()) AppLog.debug("getHeaderString error: " + err);
             return "";
         }
         return bytesToHex3(header);
@@ -1635,7 +1670,7 @@ public class Auxiliary {
         try {
             buffer.get(header);
         } catch (Exception err) {
-            AppLog.debug("getColumns error: " + err + " headerlength=" + headerlength
+            if (AppLog.isDebugEnabled()) AppLog.debug("getColumns error: " + err + " headerlength=" + headerlength
                          + " capacity=" + buffer.capacity());
             return null;
         }
@@ -1843,8 +1878,8 @@ public class Auxiliary {
      * Delegates to {@link #getPageType(String)}.
      */
     public static int twoByteBufferToInt(ByteBuffer b) {
-        byte[] ret = new byte[]{0, 0, b.get(), b.get()};
-        return ByteBuffer.wrap(ret).getInt();
+        int hi = b.get() & 0xFF;
+        return (hi << 8) | (b.get() & 0xFF);
     }
 
     /** @deprecated Use {@link #twoByteBufferToInt(ByteBuffer)} instead. */
@@ -1919,7 +1954,7 @@ public class Auxiliary {
             }
             return true;
         } catch (Exception err) {
-            AppLog.debug("writeBLOB2Disk error for " + path + ": " + err.getMessage());
+            if (AppLog.isDebugEnabled()) AppLog.debug("writeBLOB2Disk error for " + path + ": " + err.getMessage());
             return false;
         }
     }
@@ -1971,7 +2006,7 @@ public class Auxiliary {
                 case "REAL":    pattern.addFloatingConstraint();           break;
                 case "NUMERIC": pattern.addNumericConstraint();            break;
                 default:
-                    AppLog.debug("Unknown column type in index pattern: " + coltype);
+                    if (AppLog.isDebugEnabled()) AppLog.debug("Unknown column type in index pattern: " + coltype);
             }
         }
         id.hpattern = pattern;
@@ -2016,19 +2051,6 @@ public class Auxiliary {
         AppLog.debug(sb.toString());
     }
 
-    // -------------------------------------------------------------------------
-    // Private buffer utility
-    // -------------------------------------------------------------------------
-
-    /** Copies the entire backing array of a ByteBuffer into a fresh byte[]. */
-    private byte[] copyBufferToArray(ByteBuffer buffer) {
-        byte[] result = new byte[job.ps];
-        for (int i = 0; i < job.ps; i++) {
-            result[i] = buffer.get(i);
-        }
-        return result;
-    }
-
     /**
      * Parst einen Hex-Dump im klassischen Format
      *   "XXXXXXXX  HH HH HH ...  |ASCII|"
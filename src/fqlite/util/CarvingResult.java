@@ -1,6 +1,7 @@
 package fqlite.util;
 
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Container class. It is used to return a result from
@@ -15,9 +16,9 @@ public class CarvingResult {
 	public int rcursor;
 	public long offset; 
 	public LinkedList<String> record;
-	public LinkedList<byte[]> hexdump;
+	public List<byte[]> hexdump;
 	
-	public CarvingResult(int rcursor,long offset, StringBuffer result, LinkedList<String> record, LinkedList<byte[]> hexdump)
+	public CarvingResult(int rcursor,long offset, StringBuffer result, LinkedList<String> record, List<byte[]> hexdump)
 	{
 		bf = result;
 		this.rcursor = rcursor;
@@ -0,0 +1,222 @@
+package fqlite.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hash values of evidence files.
+ *
+ * The properties panel (FileInfo) and the exports (HTML, CASE) need MD5,
+ * SHA-1 and SHA-256 of a file. All of them are computed in one read of
+ * the file. The chunks are read into direct buffers taken from a small
+ * pool; every digest runs on a thread of its own and gets every chunk in
+ * file order, while the next chunks are read. A buffer goes back to the
+ * reader when all digests are done with it.
+ *
+ * The three standard hash values of a file are cached by path, size and
+ * modification time: an export after the panel (or a second export) does
+ * not read the file again, a changed file is read again.
+ *
+ * @author pawlaszc
+ *
+ */
+public class FileDigests {
+
+	public static final String MD5 = "MD5";
+	public static final String SHA_1 = "SHA-1";
+	public static final String SHA_256 = "SHA-256";
+
+	/* size of a chunk, and number of chunks in flight per file */
+	static final int BUFFER = 8 * 1024 * 1024;
+	static final int RING = 4;
+
+	/* direct buffers are expensive to allocate - they are reused by all calls */
+	private static final BlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<>(2 * RING);
+
+	/* path -> hash values of the file as of the given size and modification time */
+	private static final ConcurrentHashMap<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+	private record Entry(long size, long modified, CompletableFuture<Digests> digests) {
+	}
+
+	/**
+	 * The standard hash values of a file, lower-case hex.
+	 */
+	public record Digests(String md5, String sha1, String sha256) {
+	}
+
+	private FileDigests() {
+	}
+
+	/**
+	 * Returns MD5, SHA-1 and SHA-256 of a file. The values are computed in
+	 * one read and kept until the file changes; callers that ask for the
+	 * same file at the same time share one read.
+	 *
+	 * @param path the file
+	 * @return the hash values
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Digests get(String path) throws IOException {
+
+		Path p = Path.of(path).toAbsolutePath();
+		BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
+		long size = attr.size();
+		long modified = attr.lastModifiedTime().toMillis();
+
+		CompletableFuture<Digests> mine = new CompletableFuture<>();
+		Entry entry = CACHE.compute(p.toString(), (k, old) ->
+				old != null && old.size() == size && old.modified() == modified && !old.digests().isCompletedExceptionally()
+						? old : new Entry(size, modified, mine));
+
+		if (entry.digests() == mine) {
+			try {
+				Map<String, byte[]> d = compute(p, MD5, SHA_1, SHA_256);
+				HexFormat hex = HexFormat.of();
+				mine.complete(new Digests(hex.formatHex(d.get(MD5)), hex.formatHex(d.get(SHA_1)), hex.formatHex(d.get(SHA_256))));
+			} catch (IOException | RuntimeException err) {
+				mine.completeExceptionally(err);
+				CACHE.remove(p.toString(), entry);
+			}
+		}
+
+		try {
+			return entry.digests().get();
+		} catch (InterruptedException err) {
+			Thread.currentThread().interrupt();
+			throw new IOException(err);
+		} catch (ExecutionException err) {
+			throw err.getCause() instanceof IOException io ? io : new IOException(err.getCause());
+		}
+	}
+
+	/**
+	 * Convenience for {@link #get(String)}.
+	 */
+	public static Digests get(File file) throws IOException {
+		return get(file.getPath());
+	}
+
+	/**
+	 * Computes several digests of a file in one read. Not cached.
+	 *
+	 * @param file the file
+	 * @param algorithms names of the digests, e.g. {@link #SHA_256}
+	 * @return the digest values by algorithm name
+	 * @throws IOException if the file cannot be read or an algorithm is unknown
+	 */
+	public static Map<String, byte[]> compute(Path file, String... algorithms) throws IOException {
+
+		int n = algorithms.length;
+		MessageDigest[] md = new MessageDigest[n];
+		ExecutorService[] worker = new ExecutorService[n];
+		try {
+			for (int i = 0; i < n; i++)
+				md[i] = MessageDigest.getInstance(algorithms[i]);
+		} catch (NoSuchAlgorithmException err) {
+			throw new IOException(err);
+		}
+
+		ByteBuffer[] ring = new ByteBuffer[RING];
+		@SuppressWarnings("unchecked")
+		List<Future<?>>[] pending = new List[RING];
+		boolean done = false;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			/* one thread per digest: the chunks of a digest are processed in the order they are handed over */
+			for (int i = 0; i < n; i++) {
+				String name = "digest-" + algorithms[i];
+				worker[i] = Executors.newSingleThreadExecutor(r -> {
+					Thread t = new Thread(r, name);
+					t.setDaemon(true);
+					return t;
+				});
+			}
+
+			for (long chunk = 0; ; chunk++) {
+				int slot = (int) (chunk % RING);
+
+				/* the buffer of this slot can be refilled when all digests are done with it */
+				await(pending[slot]);
+				if (ring[slot] == null)
+					ring[slot] = borrow();
+				ByteBuffer buf = ring[slot];
+				buf.clear();
+				while (buf.hasRemaining() && channel.read(buf) >= 0)
+					;
+				buf.flip();
+				if (!buf.hasRemaining())
+					break;
+
+				List<Future<?>> f = new ArrayList<>(n);
+				for (int i = 0; i < n; i++) {
+					MessageDigest d = md[i];
+					ByteBuffer view = buf.duplicate();
+					f.add(worker[i].submit(() -> d.update(view)));
+				}
+				pending[slot] = f;
+			}
+
+			for (List<Future<?>> f : pending)
+				await(f);
+			done = true;
+
+		} finally {
+			for (ExecutorService w : worker)
+				if (w != null)
+					w.shutdownNow();
+			/* after an error a digest thread may still read a buffer - it is not reused then */
+			if (done)
+				for (ByteBuffer b : ring)
+					if (b != null)
+						POOL.offer(b);
+		}
+
+		Map<String, byte[]> result = new LinkedHashMap<>();
+		for (int i = 0; i < n; i++)
+			result.put(algorithms[i], md[i].digest());
+		return result;
+	}
+
+	private static ByteBuffer borrow() {
+		ByteBuffer b = POOL.poll();
+		return b != null ? b : ByteBuffer.allocateDirect(BUFFER);
+	}
+
+	private static void await(List<Future<?>> futures) throws IOException {
+		if (futures == null)
+			return;
+		try {
+			for (Future<?> f : futures)
+				f.get();
+		} catch (InterruptedException err) {
+			Thread.currentThread().interrupt();
+			throw new IOException(err);
+		} catch (ExecutionException err) {
+			throw new IOException(err.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,232 @@
+package fqlite.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Searches a byte buffer for many byte patterns at once (Aho-Corasick).
+ *
+ * {@link ByteSeqSearcher} finds one pattern per pass. Here the patterns
+ * are put into a trie; each node has a failure link to the longest proper
+ * suffix that is a node as well. The buffer is read only once, the cost of
+ * a byte does not depend on the number of patterns.
+ *
+ * Optionally the ASCII letters are folded to lower case - in the patterns
+ * as well as in the buffer - which makes the search case-insensitive for
+ * ASCII in any encoding that stores ASCII characters as single bytes
+ * (UTF-8, and the low/high byte of UTF-16).
+ *
+ * The automaton is immutable after construction, one instance can be used
+ * by many threads.
+ *
+ * @author pawlaszc
+ *
+ */
+public class MultiPatternSearcher {
+
+	/**
+	 * Receives the matches of {@link MultiPatternSearcher#search}.
+	 */
+	public interface Listener {
+		/**
+		 * @param pattern index of the pattern in the list given to the constructor
+		 * @param offset offset of the first byte of the match
+		 */
+		void found(int pattern, long offset);
+	}
+
+	private static final int[] NONE = new int[0];
+
+	private final byte[] fold = new byte[256];
+	private final int[] lengths;
+	private final int maxlength;
+
+	/* transitions of the root node - one entry per byte value */
+	private final int[] root = new int[256];
+
+	/* transitions of the other nodes, sorted by byte: edges of node n are [first[n], first[n+1]) */
+	private final int[] first;
+	private final byte[] label;
+	private final int[] target;
+
+	private final int[] failure;
+
+	/* patterns that end in a node, and the next node on the failure chain with patterns */
+	private final int[][] output;
+	private final int[] dictionary;
+
+	/**
+	 * Builds the automaton.
+	 *
+	 * @param patterns the byte patterns, none of them empty
+	 * @param foldcase true, to ignore the case of ASCII letters
+	 */
+	public MultiPatternSearcher(List<byte[]> patterns, boolean foldcase) {
+
+		for (int b = 0; b < 256; b++)
+			fold[b] = (byte) (foldcase && b >= 'A' && b <= 'Z' ? b + 32 : b);
+
+		lengths = new int[patterns.size()];
+		int max = 0;
+
+		/* 1. the trie - node 0 is the root */
+		List<byte[]> keys = new ArrayList<>();
+		List<int[]> kids = new ArrayList<>();
+		List<int[]> outs = new ArrayList<>();
+		keys.add(new byte[0]);
+		kids.add(NONE);
+		outs.add(NONE);
+
+		for (int p = 0; p < patterns.size(); p++) {
+			byte[] pattern = patterns.get(p);
+			if (pattern.length == 0)
+				throw new IllegalArgumentException("empty pattern");
+			lengths[p] = pattern.length;
+			max = Math.max(max, pattern.length);
+
+			int node = 0;
+			for (byte raw : pattern) {
+				byte b = fold[raw & 0xFF];
+				int child = child(keys.get(node), kids.get(node), b);
+				if (child < 0) {
+					child = keys.size();
+					keys.add(new byte[0]);
+					kids.add(NONE);
+					outs.add(NONE);
+					keys.set(node, append(keys.get(node), b));
+					kids.set(node, append(kids.get(node), child));
+				}
+				node = child;
+			}
+			outs.set(node, append(outs.get(node), p));
+		}
+		maxlength = max;
+
+		/* 2. freeze the edges, sorted by byte */
+		int n = keys.size();
+		first = new int[n + 1];
+		int edges = 0;
+		for (int i = 0; i < n; i++)
+			edges += keys.get(i).length;
+		label = new byte[edges];
+		target = new int[edges];
+		int e = 0;
+		for (int i = 0; i < n; i++) {
+			first[i] = e;
+			byte[] k = keys.get(i);
+			int[] c = kids.get(i);
+			Integer[] order = new Integer[k.length];
+			for (int j = 0; j < k.length; j++)
+				order[j] = j;
+			Arrays.sort(order, (x, y) -> Integer.compare(k[x], k[y]));
+			for (int j : order) {
+				label[e] = k[j];
+				target[e++] = c[j];
+			}
+		}
+		first[n] = e;
+		for (int j = first[0]; j < first[1]; j++)
+			root[label[j] & 0xFF] = target[j];
+
+		/* 3. failure and dictionary links, breadth first */
+		failure = new int[n];
+		dictionary = new int[n];
+		output = outs.toArray(new int[0][]);
+		Arrays.fill(dictionary, -1);
+
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		for (int j = first[0]; j < first[1]; j++)
+			queue.add(target[j]);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int j = first[node]; j < first[node + 1]; j++) {
+				int child = target[j];
+				int f = step(failure[node], label[j]);
+				failure[child] = f;
+				dictionary[child] = output[f].length > 0 ? f : dictionary[f];
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * @return the length of the longest pattern - two neighbouring regions
+	 *         must overlap by this length minus one
+	 */
+	public int maxLength() {
+		return maxlength;
+	}
+
+	/**
+	 * @return the length of a pattern
+	 */
+	public int length(int pattern) {
+		return lengths[pattern];
+	}
+
+	/**
+	 * Searches a region of a buffer. The position of the buffer is not
+	 * changed.
+	 *
+	 * @param buffer the buffer
+	 * @param from index of the first byte
+	 * @param to index behind the last byte
+	 * @param base offset of index 0 of the buffer in the file, added to the reported offsets
+	 * @param listener receives the matches
+	 */
+	public void search(ByteBuffer buffer, int from, int to, long base, Listener listener) {
+
+		int node = 0;
+		for (int i = from; i < to; i++) {
+			byte b = fold[buffer.get(i) & 0xFF];
+			node = step(node, b);
+			if (node == 0)
+				continue;
+			for (int o = output[node].length > 0 ? node : dictionary[node]; o > 0; o = dictionary[o])
+				for (int p : output[o])
+					listener.found(p, base + i - lengths[p] + 1);
+		}
+	}
+
+	private int step(int node, byte b) {
+		while (node != 0) {
+			int lo = first[node];
+			int hi = first[node + 1] - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int cmp = Byte.compare(label[mid], b);
+				if (cmp == 0)
+					return target[mid];
+				if (cmp < 0)
+					lo = mid + 1;
+				else
+					hi = mid - 1;
+			}
+			node = failure[node];
+		}
+		return root[b & 0xFF];
+	}
+
+	private static int child(byte[] keys, int[] kids, byte b) {
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] == b)
+				return kids[i];
+		return -1;
+	}
+
+	private static byte[] append(byte[] a, byte b) {
+		byte[] r = Arrays.copyOf(a, a.length + 1);
+		r[a.length] = b;
+		return r;
+	}
+
+	private static int[] append(int[] a, int v) {
+		int[] r = Arrays.copyOf(a, a.length + 1);
+		r[a.length] = v;
+		return r;
+	}
+
+}